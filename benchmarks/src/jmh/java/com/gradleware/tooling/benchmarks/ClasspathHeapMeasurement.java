@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.repository.internal.ClasspathTable;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniEclipseProject;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures the heap retained by the converted Eclipse projects of a synthetic build, once with a separate list of external dependencies
+ * per project and once with a {@link ClasspathTable} shared by all projects.
+ * <p/>
+ * The measurement is run through {@code gradlew :benchmarks:measureClasspathHeap}. The shape of the build is configured through the
+ * system properties {@code projects}, {@code jars}, {@code jarsPerProject}, and {@code sharedRatio}, which default to 1000, 3000, 100,
+ * and 0.9.
+ *
+ * @author Etienne Studer
+ */
+public final class ClasspathHeapMeasurement {
+
+    private ClasspathHeapMeasurement() {
+    }
+
+    public static void main(String[] args) {
+        int projectCount = Integer.getInteger("projects", 1000);
+        int jarCount = Integer.getInteger("jars", 3000);
+        int jarsPerProject = Integer.getInteger("jarsPerProject", 100);
+        double sharedRatio = Double.parseDouble(System.getProperty("sharedRatio", "0.9"));
+        EclipseProject model = ModelStubs.eclipseProjectHierarchy(projectCount, 4, 0, jarCount, jarsPerProject, sharedRatio);
+
+        long baseline = usedHeap();
+        OmniEclipseProject listBased = DefaultOmniEclipseProject.from(model);
+        long listBasedBytes = usedHeap() - baseline;
+        // use the converted projects after the measurement to keep them reachable during the measurement
+        int convertedProjectCount = listBased.getAll().size();
+        listBased = null;
+
+        baseline = usedHeap();
+        ClasspathTable classpathTable = ClasspathTable.create();
+        OmniEclipseProject tableBased = DefaultOmniEclipseProject.from(model, classpathTable);
+        long tableBasedBytes = usedHeap() - baseline;
+        convertedProjectCount = Math.max(convertedProjectCount, tableBased.getAll().size());
+
+        System.out.printf("%d projects, %d jars, %d jars per project, %.0f%% shared%n", convertedProjectCount, jarCount, jarsPerProject, sharedRatio * 100);
+        System.out.printf("list per project:     %8.1f MB%n", listBasedBytes / (1024.0 * 1024.0));
+        System.out.printf("shared table:         %8.1f MB (%d distinct entries)%n", tableBasedBytes / (1024.0 * 1024.0), classpathTable.size());
+        System.out.printf("saved:                %8.1f%%%n", 100.0 * (listBasedBytes - tableBasedBytes) / listBasedBytes);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // collect until the used heap does not shrink any further
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = memoryMXBean.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+}
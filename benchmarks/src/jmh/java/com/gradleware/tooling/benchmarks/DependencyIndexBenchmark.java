@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniEclipseDependencyIndex;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniEclipseProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the reverse-dependency index of the Eclipse projects and querying it, both for the first time and memoized.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DependencyIndexBenchmark {
+
+    @Param({"100", "1000"})
+    public int projectCount;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    private List<OmniEclipseProject> projects;
+    private OmniEclipseProject rootProject;
+    private File artifactFile;
+    private DefaultOmniEclipseDependencyIndex index;
+
+    @Setup
+    public void setUp() {
+        this.rootProject = DefaultOmniEclipseProject.from(ModelStubs.eclipseProjectHierarchy(this.projectCount, this.depth, 0));
+        this.projects = this.rootProject.getAll();
+        this.artifactFile = this.rootProject.getExternalDependencies().get(0).getFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndex() {
+        this.index = DefaultOmniEclipseDependencyIndex.from(this.projects);
+    }
+
+    @Benchmark
+    public DefaultOmniEclipseDependencyIndex buildIndex() {
+        return DefaultOmniEclipseDependencyIndex.from(this.projects);
+    }
+
+    @Benchmark
+    public Set<OmniEclipseProject> transitiveDependentsOfProject() {
+        return this.index.getTransitiveDependents(this.rootProject);
+    }
+
+    @Benchmark
+    public Set<OmniEclipseProject> transitiveDependentsOfProjectMemoized() {
+        this.index.getTransitiveDependents(this.rootProject);
+        return this.index.getTransitiveDependents(this.rootProject);
+    }
+
+    @Benchmark
+    public Set<OmniEclipseProject> transitiveDependentsOfArtifact() {
+        return this.index.getTransitiveDependents(this.artifactFile);
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.collect.Lists;
+import com.gradleware.tooling.testing.GradleVersionSpec;
+import org.gradle.api.specs.Spec;
+import org.gradle.util.GradleVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks matching the released Gradle versions against version constraints, once through the specs compiled by
+ * {@link GradleVersionSpec} and once through specs that evaluate each pattern of a constraint one after the other, as the cross-version
+ * tests did before the constraints were compiled.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GradleVersionSpecBenchmark {
+
+    @Param({"10", "1000"})
+    public int constraintCount;
+
+    private List<GradleVersion> versions;
+    private List<String> constraints;
+    private List<Spec<GradleVersion>> compiledSpecs;
+    private List<Spec<GradleVersion>> uncompiledSpecs;
+
+    @Setup
+    public void setUp() {
+        this.versions = releasedVersions();
+        this.constraints = Lists.newArrayListWithCapacity(this.constraintCount);
+        this.compiledSpecs = Lists.newArrayListWithCapacity(this.constraintCount);
+        this.uncompiledSpecs = Lists.newArrayListWithCapacity(this.constraintCount);
+        int versionCount = this.versions.size();
+        for (int i = 0; i < this.constraintCount; i++) {
+            String constraint = String.format(">=%s <=%s !=%s", this.versions.get(i % versionCount).getVersion(),
+                    this.versions.get((i * 7) % versionCount).getVersion(), this.versions.get((i * 13) % versionCount).getVersion());
+            this.constraints.add(constraint);
+            this.compiledSpecs.add(GradleVersionSpec.toSpec(constraint));
+            this.uncompiledSpecs.add(uncompiledSpec(constraint));
+        }
+    }
+
+    @Benchmark
+    public int matchCompiled() {
+        return countMatches(this.compiledSpecs);
+    }
+
+    @Benchmark
+    public int matchUncompiled() {
+        return countMatches(this.uncompiledSpecs);
+    }
+
+    @Benchmark
+    public int createAndMatchCompiled() {
+        int matches = 0;
+        for (String constraint : this.constraints) {
+            matches += countMatches(GradleVersionSpec.toSpec(constraint));
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int createAndMatchUncompiled() {
+        int matches = 0;
+        for (String constraint : this.constraints) {
+            matches += countMatches(uncompiledSpec(constraint));
+        }
+        return matches;
+    }
+
+    private int countMatches(List<Spec<GradleVersion>> specs) {
+        int matches = 0;
+        for (Spec<GradleVersion> spec : specs) {
+            matches += countMatches(spec);
+        }
+        return matches;
+    }
+
+    private int countMatches(Spec<GradleVersion> spec) {
+        int matches = 0;
+        for (GradleVersion version : this.versions) {
+            if (spec.isSatisfiedBy(version)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static List<GradleVersion> releasedVersions() {
+        List<GradleVersion> versions = Lists.newArrayList();
+        addVersions(versions, 1, 12);
+        addVersions(versions, 2, 14);
+        addVersions(versions, 3, 5);
+        addVersions(versions, 4, 10);
+        for (String version : new String[]{"2.14.1", "3.5.1", "4.10.2", "4.10-rc-1"}) {
+            versions.add(GradleVersion.version(version));
+        }
+        return versions;
+    }
+
+    private static void addVersions(List<GradleVersion> versions, int major, int maxMinor) {
+        for (int minor = 0; minor <= maxMinor; minor++) {
+            versions.add(GradleVersion.version(major + "." + minor));
+        }
+    }
+
+    // evaluates the patterns of the constraint one after the other, determining the base version of the matched version for each pattern
+    private static Spec<GradleVersion> uncompiledSpec(String constraint) {
+        final List<Spec<GradleVersion>> specs = Lists.newArrayList();
+        for (String value : constraint.trim().split("\\s+")) {
+            if (value.startsWith("!=")) {
+                final GradleVersion version = GradleVersion.version(value.substring(2));
+                specs.add(new Spec<GradleVersion>() {
+
+                    @Override
+                    public boolean isSatisfiedBy(GradleVersion element) {
+                        return !element.getBaseVersion().equals(version);
+                    }
+                });
+            } else if (value.startsWith(">=")) {
+                final GradleVersion minVersion = GradleVersion.version(value.substring(2));
+                specs.add(new Spec<GradleVersion>() {
+
+                    @Override
+                    public boolean isSatisfiedBy(GradleVersion element) {
+                        return element.getBaseVersion().compareTo(minVersion) >= 0;
+                    }
+                });
+            } else if (value.startsWith("<=")) {
+                final GradleVersion maxVersion = GradleVersion.version(value.substring(2));
+                specs.add(new Spec<GradleVersion>() {
+
+                    @Override
+                    public boolean isSatisfiedBy(GradleVersion element) {
+                        return element.getBaseVersion().compareTo(maxVersion) <= 0;
+                    }
+                });
+            } else {
+                throw new IllegalArgumentException(String.format("Unsupported version range '%s' specified in constraint '%s'.", value, constraint));
+            }
+        }
+
+        return new Spec<GradleVersion>() {
+
+            @Override
+            public boolean isSatisfiedBy(GradleVersion element) {
+                for (Spec<GradleVersion> spec : specs) {
+                    if (!spec.isSatisfiedBy(element)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniGradleProject;
+import org.gradle.api.specs.Spec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hierarchy operations of the Omni models, which are implemented once for all hierarchical models.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HierarchyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int projectCount;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    private OmniGradleProject rootProject;
+    private OmniGradleProject leafProject;
+    private Spec<OmniGradleProject> leafProjectSpec;
+
+    @Setup
+    public void setUp() {
+        this.rootProject = DefaultOmniGradleProject.from(ModelStubs.gradleProjectHierarchy(this.projectCount, this.depth, 0));
+        this.leafProject = this.rootProject;
+        while (!this.leafProject.getChildren().isEmpty()) {
+            this.leafProject = this.leafProject.getChildren().get(0);
+        }
+        this.leafProjectSpec = new Spec<OmniGradleProject>() {
+
+            @Override
+            public boolean isSatisfiedBy(OmniGradleProject project) {
+                return project.getChildren().isEmpty();
+            }
+        };
+    }
+
+    @Benchmark
+    public List<OmniGradleProject> getAll() {
+        return this.rootProject.getAll();
+    }
+
+    @Benchmark
+    public List<OmniGradleProject> filter() {
+        return this.rootProject.filter(this.leafProjectSpec);
+    }
+
+    @Benchmark
+    public OmniGradleProject getRoot() {
+        return this.leafProject.getRoot();
+    }
+
+}
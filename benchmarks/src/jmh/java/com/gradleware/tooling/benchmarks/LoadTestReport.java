@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes the measurements of a {@link ModelRepositoryLoadTest} run.
+ *
+ * @author Etienne Studer
+ */
+final class LoadTestReport {
+
+    private final long durationNanos;
+    private final int sessionCount;
+    private final ImmutableMap<String, long[]> latenciesByOperation;
+    private final long failureCount;
+    private final long blockedCount;
+    private final long blockedTimeMillis;
+    private final long waitedCount;
+    private final long waitedTimeMillis;
+    private final long allocatedBytes;
+
+    private LoadTestReport(long durationNanos, int sessionCount, ImmutableMap<String, long[]> latenciesByOperation, long failureCount, long blockedCount,
+                           long blockedTimeMillis, long waitedCount, long waitedTimeMillis, long allocatedBytes) {
+        this.durationNanos = durationNanos;
+        this.sessionCount = sessionCount;
+        this.latenciesByOperation = latenciesByOperation;
+        this.failureCount = failureCount;
+        this.blockedCount = blockedCount;
+        this.blockedTimeMillis = blockedTimeMillis;
+        this.waitedCount = waitedCount;
+        this.waitedTimeMillis = waitedTimeMillis;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    long getOperationCount() {
+        long count = 0;
+        for (long[] latencies : this.latenciesByOperation.values()) {
+            count += latencies.length;
+        }
+        return count;
+    }
+
+    double getThroughput() {
+        return getOperationCount() / (this.durationNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    long getFailureCount() {
+        return this.failureCount;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = this.durationNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d sessions, %d operations in %.1f s, %.1f ops/s, %d failures%n", this.sessionCount, getOperationCount(), seconds, getThroughput(), this.failureCount));
+        int width = "operation".length();
+        for (String operation : this.latenciesByOperation.keySet()) {
+            width = Math.max(width, operation.length());
+        }
+        report.append(String.format("%-" + width + "s %10s %10s %12s %12s %12s%n", "operation", "count", "ops/s", "p50 (us)", "p99 (us)", "max (us)"));
+        for (Map.Entry<String, long[]> entry : this.latenciesByOperation.entrySet()) {
+            long[] latencies = entry.getValue();
+            report.append(String.format("%-" + width + "s %10d %10.1f %12d %12d %12d%n", entry.getKey(), latencies.length, latencies.length / seconds,
+                    toMicros(percentile(latencies, 50)), toMicros(percentile(latencies, 99)), toMicros(percentile(latencies, 100))));
+        }
+        report.append(String.format("lock contention: blocked %d times for %d ms, waited %d times for %d ms%n", this.blockedCount, this.blockedTimeMillis, this.waitedCount,
+                this.waitedTimeMillis));
+        report.append(this.allocatedBytes >= 0 ? String.format("allocation rate: %.1f MB/s%n", this.allocatedBytes / seconds / (1024 * 1024)) : String.format("allocation rate: not available%n"));
+        return report.toString();
+    }
+
+    private static long percentile(long[] sortedValues, int percentile) {
+        return sortedValues.length == 0 ? 0 : sortedValues[(int) ((sortedValues.length - 1) * (long) percentile / 100)];
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Creates a new instance. The latencies are sorted in place.
+     */
+    static LoadTestReport from(long durationNanos, int sessionCount, Map<String, long[]> latenciesByOperation, long failureCount, long blockedCount, long blockedTimeMillis,
+                               long waitedCount, long waitedTimeMillis, long allocatedBytes) {
+        for (long[] latencies : latenciesByOperation.values()) {
+            Arrays.sort(latencies);
+        }
+        return new LoadTestReport(durationNanos, sessionCount, ImmutableMap.copyOf(latenciesByOperation), failureCount, blockedCount, blockedTimeMillis, waitedCount,
+                waitedTimeMillis, allocatedBytes);
+    }
+
+}
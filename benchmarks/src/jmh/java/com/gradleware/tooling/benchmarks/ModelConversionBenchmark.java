@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniBuildInvocationsContainerBuilder;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniGradleProject;
+import org.gradle.tooling.model.GradleProject;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the conversion of the Tooling API models to the Omni models.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModelConversionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int projectCount;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"10", "50"})
+    public int tasksPerProject;
+
+    private GradleProject gradleProject;
+    private EclipseProject eclipseProject;
+
+    @Setup
+    public void setUp() {
+        this.gradleProject = ModelStubs.gradleProjectHierarchy(this.projectCount, this.depth, this.tasksPerProject);
+        this.eclipseProject = ModelStubs.eclipseProjectHierarchy(this.projectCount, this.depth, this.tasksPerProject);
+    }
+
+    @Benchmark
+    public DefaultOmniEclipseProject eclipseProjectFrom() {
+        return DefaultOmniEclipseProject.from(this.eclipseProject);
+    }
+
+    @Benchmark
+    public DefaultOmniGradleProject gradleProjectFrom() {
+        return DefaultOmniGradleProject.from(this.gradleProject);
+    }
+
+    @Benchmark
+    public DefaultOmniBuildInvocationsContainer buildInvocationsContainerBuild() {
+        return DefaultOmniBuildInvocationsContainerBuilder.build(this.gradleProject);
+    }
+
+}
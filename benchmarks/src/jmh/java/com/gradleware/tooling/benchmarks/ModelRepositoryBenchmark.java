@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.EventBus;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultModelRepository;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks fetching models from the model repository when they are already cached, which is the common case for IDE interactions.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelRepositoryBenchmark {
+
+    private static final int PROJECT_COUNT = 100;
+    private static final int DEPTH = 2;
+    private static final int TASKS_PER_PROJECT = 20;
+
+    private ToolingClient toolingClient;
+    private DefaultModelRepository modelRepository;
+    private TransientRequestAttributes transientRequestAttributes;
+
+    @Setup
+    public void setUp() {
+        this.toolingClient = ToolingClient.newClient(SimulatedBuild.create(PROJECT_COUNT, DEPTH, TASKS_PER_PROJECT).connectorFactory());
+        FixedRequestAttributes fixedRequestAttributes = new FixedRequestAttributes(new File("root").getAbsoluteFile(), null, GradleDistribution.fromBuild(), null,
+                ImmutableList.<String>of(), ImmutableList.<String>of());
+        this.modelRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, new EventBus());
+        this.transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.<ProgressListener>of(),
+                ImmutableList.<org.gradle.tooling.events.ProgressListener>of(), GradleConnector.newCancellationTokenSource().token());
+
+        // populate the cache
+        this.modelRepository.fetchGradleProjects(this.transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        this.modelRepository.fetchEclipseGradleProjects(this.transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY);
+    }
+
+    @Benchmark
+    public Set<OmniGradleProject> fetchGradleProjectsLoadIfNotCached() {
+        return this.modelRepository.fetchGradleProjects(this.transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+    }
+
+    @Benchmark
+    public Set<OmniEclipseProject> fetchEclipseProjectsLoadIfNotCached() {
+        return this.modelRepository.fetchEclipseGradleProjects(this.transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+    }
+
+    @Benchmark
+    public Set<OmniGradleProject> fetchGradleProjectsFromCacheOnly() {
+        return this.modelRepository.fetchGradleProjects(this.transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY);
+    }
+
+}
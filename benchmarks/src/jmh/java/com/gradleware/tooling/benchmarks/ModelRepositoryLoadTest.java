@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryProvider;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultModelRepositoryProvider;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of a single {@link ModelRepositoryProvider} that is shared by many concurrent sessions, like on an IDE server that hosts
+ * many users. Each session repeatedly fetches a random model of a random build with a random fetch strategy. After a warm-up phase,
+ * the throughput, the latency percentiles per operation, the lock contention, and the allocation rate of the sessions are measured.
+ * <p/>
+ * The load test is run through {@code gradlew :benchmarks:loadTest} and configured through the following project properties:
+ * <ul>
+ * <li>{@code loadTest.sessions}: the number of concurrent sessions, defaults to 16</li>
+ * <li>{@code loadTest.warmupSeconds} and {@code loadTest.durationSeconds}: the duration of the warm-up and the measurement, default to 5
+ * and 30</li>
+ * <li>{@code loadTest.forceReloadRatio} and {@code loadTest.cacheOnlyRatio}: the ratio of the fetches with the fetch strategies
+ * {@code FORCE_RELOAD} and {@code FROM_CACHE_ONLY}, default to 0.05 and 0.15, all other fetches use {@code LOAD_IF_NOT_CACHED}</li>
+ * <li>{@code loadTest.connector}: {@code simulated} to run against a {@link SimulatedBuild}, or {@code gradle} to run against real
+ * Gradle builds, defaults to {@code simulated}</li>
+ * <li>{@code loadTest.builds}: the number of simulated builds, defaults to 4</li>
+ * <li>{@code loadTest.projects}, {@code loadTest.depth}, and {@code loadTest.tasks}: the shape of the simulated builds, default to 100,
+ * 2, and 20</li>
+ * <li>{@code loadTest.minLatencyMillis}, {@code loadTest.maxLatencyMillis}, and {@code loadTest.failureRate}: the behavior of the
+ * simulated builds, default to 10, 200, and 0</li>
+ * <li>{@code loadTest.projectDirs}: the comma-separated root project directories of the real Gradle builds</li>
+ * </ul>
+ *
+ * @author Etienne Studer
+ */
+public final class ModelRepositoryLoadTest {
+
+    private static final String PROPERTY_PREFIX = "loadTest.";
+
+    private final int sessionCount;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final double forceReloadRatio;
+    private final double cacheOnlyRatio;
+
+    private ModelRepositoryLoadTest(int sessionCount, long warmupNanos, long durationNanos, double forceReloadRatio, double cacheOnlyRatio) {
+        this.sessionCount = sessionCount;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.forceReloadRatio = forceReloadRatio;
+        this.cacheOnlyRatio = cacheOnlyRatio;
+    }
+
+    /**
+     * Runs the load test against the given builds.
+     *
+     * @param toolingClient the tooling client that connects to the builds
+     * @param builds the builds to fetch the models from
+     * @return the report of the measurements
+     */
+    LoadTestReport run(ToolingClient toolingClient, List<FixedRequestAttributes> builds) {
+        ModelRepositoryProvider provider = new DefaultModelRepositoryProvider(toolingClient);
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean.isThreadContentionMonitoringSupported()) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        long measurementStart = System.nanoTime() + this.warmupNanos;
+        long measurementEnd = measurementStart + this.durationNanos;
+        ExecutorService executor = Executors.newFixedThreadPool(this.sessionCount, new ThreadFactoryBuilder().setNameFormat("session-%d").setDaemon(true).build());
+        try {
+            List<Future<SessionResult>> sessions = Lists.newArrayList();
+            for (int i = 0; i < this.sessionCount; i++) {
+                sessions.add(executor.submit(new Session(provider, builds, measurementStart, measurementEnd)));
+            }
+
+            Map<String, long[]> latencies = Maps.newTreeMap();
+            long failureCount = 0;
+            long[] threadStatistics = new long[ThreadStatistics.values().length];
+            for (Future<SessionResult> session : sessions) {
+                SessionResult result = Uninterruptibles.getUninterruptibly(session);
+                for (Map.Entry<String, long[]> entry : result.latencies.entrySet()) {
+                    long[] merged = latencies.get(entry.getKey());
+                    latencies.put(entry.getKey(), merged == null ? entry.getValue() : concat(merged, entry.getValue()));
+                }
+                failureCount += result.failureCount;
+                for (int i = 0; i < threadStatistics.length; i++) {
+                    threadStatistics[i] = threadStatistics[i] < 0 || result.threadStatistics[i] < 0 ? -1 : threadStatistics[i] + result.threadStatistics[i];
+                }
+            }
+            return LoadTestReport.from(this.durationNanos, this.sessionCount, latencies, failureCount, threadStatistics[ThreadStatistics.BLOCKED_COUNT.ordinal()],
+                    threadStatistics[ThreadStatistics.BLOCKED_TIME.ordinal()], threadStatistics[ThreadStatistics.WAITED_COUNT.ordinal()],
+                    threadStatistics[ThreadStatistics.WAITED_TIME.ordinal()], threadStatistics[ThreadStatistics.ALLOCATED_BYTES.ordinal()]);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load test session failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    public static void main(String[] args) {
+        ModelRepositoryLoadTest loadTest = new ModelRepositoryLoadTest(
+                getInt("sessions", 16),
+                TimeUnit.SECONDS.toNanos(getInt("warmupSeconds", 5)),
+                TimeUnit.SECONDS.toNanos(getInt("durationSeconds", 30)),
+                getDouble("forceReloadRatio", 0.05),
+                getDouble("cacheOnlyRatio", 0.15));
+
+        ToolingClient toolingClient;
+        ImmutableList.Builder<FixedRequestAttributes> builds = ImmutableList.builder();
+        String connector = System.getProperty(PROPERTY_PREFIX + "connector", "simulated");
+        if (connector.equals("simulated")) {
+            SimulatedBuild build = SimulatedBuild.create(getInt("projects", 100), getInt("depth", 2), getInt("tasks", 20)).
+                    latency(getInt("minLatencyMillis", 10), getInt("maxLatencyMillis", 200)).
+                    failureRate(getDouble("failureRate", 0));
+            toolingClient = ToolingClient.newClient(build.connectorFactory());
+            // the simulated build ignores the project directory, but each directory gets its own model repository
+            for (int i = 0; i < getInt("builds", 4); i++) {
+                builds.add(createFixedRequestAttributes(new File("simulated-build-" + i)));
+            }
+        } else if (connector.equals("gradle")) {
+            toolingClient = ToolingClient.newClient();
+            for (String projectDir : Splitter.on(',').omitEmptyStrings().trimResults().split(System.getProperty(PROPERTY_PREFIX + "projectDirs", ""))) {
+                builds.add(createFixedRequestAttributes(new File(projectDir)));
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Unknown connector '%s'.", connector));
+        }
+
+        try {
+            System.out.print(loadTest.run(toolingClient, builds.build()));
+        } finally {
+            toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY);
+        }
+    }
+
+    private static FixedRequestAttributes createFixedRequestAttributes(File projectDir) {
+        return new FixedRequestAttributes(projectDir.getAbsoluteFile(), null, GradleDistribution.fromBuild(), null, ImmutableList.<String>of(), ImmutableList.<String>of());
+    }
+
+    private static int getInt(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty(PROPERTY_PREFIX + name, String.valueOf(defaultValue)));
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty(PROPERTY_PREFIX + name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * The per-thread statistics that are measured for each session.
+     */
+    private enum ThreadStatistics {
+
+        BLOCKED_COUNT, BLOCKED_TIME, WAITED_COUNT, WAITED_TIME, ALLOCATED_BYTES;
+
+        private static long[] snapshot() {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            ThreadInfo threadInfo = threadMXBean.getThreadInfo(threadId);
+            long[] statistics = new long[values().length];
+            statistics[BLOCKED_COUNT.ordinal()] = threadInfo.getBlockedCount();
+            statistics[BLOCKED_TIME.ordinal()] = threadInfo.getBlockedTime();
+            statistics[WAITED_COUNT.ordinal()] = threadInfo.getWaitedCount();
+            statistics[WAITED_TIME.ordinal()] = threadInfo.getWaitedTime();
+            statistics[ALLOCATED_BYTES.ordinal()] = getAllocatedBytes(threadMXBean, threadId);
+            return statistics;
+        }
+
+        private static long getAllocatedBytes(ThreadMXBean threadMXBean, long threadId) {
+            // the allocated bytes are only available on HotSpot-based JVMs
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotSpotThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (hotSpotThreadMXBean.isThreadAllocatedMemorySupported() && hotSpotThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return hotSpotThreadMXBean.getThreadAllocatedBytes(threadId);
+                }
+            }
+            return -1;
+        }
+
+        private static long[] difference(long[] start, long[] end) {
+            long[] difference = new long[start.length];
+            for (int i = 0; i < start.length; i++) {
+                // statistics that are not available are reported as -1
+                difference[i] = start[i] < 0 || end[i] < 0 ? -1 : end[i] - start[i];
+            }
+            return difference;
+        }
+
+    }
+
+    /**
+     * The measurements of a single session.
+     */
+    private static final class SessionResult {
+
+        private final Map<String, long[]> latencies;
+        private final long failureCount;
+        private final long[] threadStatistics;
+
+        private SessionResult(Map<String, long[]> latencies, long failureCount, long[] threadStatistics) {
+            this.latencies = latencies;
+            this.failureCount = failureCount;
+            this.threadStatistics = threadStatistics;
+        }
+
+    }
+
+    /**
+     * A session that fetches models until the end of the measurement.
+     */
+    private final class Session implements Callable<SessionResult> {
+
+        private final ModelRepositoryProvider provider;
+        private final List<FixedRequestAttributes> builds;
+        private final long measurementStart;
+        private final long measurementEnd;
+        private final TransientRequestAttributes transientRequestAttributes;
+        private final Map<String, LatencyRecorder> latencies;
+
+        private Session(ModelRepositoryProvider provider, List<FixedRequestAttributes> builds, long measurementStart, long measurementEnd) {
+            this.provider = provider;
+            this.builds = builds;
+            this.measurementStart = measurementStart;
+            this.measurementEnd = measurementEnd;
+            this.transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.<ProgressListener>of(),
+                    ImmutableList.<org.gradle.tooling.events.ProgressListener>of(), GradleConnector.newCancellationTokenSource().token());
+            this.latencies = Maps.newHashMap();
+        }
+
+        @Override
+        public SessionResult call() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long[] startStatistics = null;
+            long failureCount = 0;
+            while (true) {
+                long start = System.nanoTime();
+                if (start >= this.measurementEnd) {
+                    break;
+                }
+                boolean measured = start >= this.measurementStart;
+                if (measured && startStatistics == null) {
+                    startStatistics = ThreadStatistics.snapshot();
+                }
+
+                ModelRepository repository = this.provider.getModelRepository(this.builds.get(random.nextInt(this.builds.size())));
+                FetchStrategy fetchStrategy = nextFetchStrategy(random);
+                Operation operation = Operation.values()[random.nextInt(Operation.values().length)];
+                try {
+                    operation.fetch(repository, this.transientRequestAttributes, fetchStrategy);
+                } catch (RuntimeException e) {
+                    if (measured) {
+                        failureCount++;
+                    }
+                }
+                if (measured) {
+                    recordLatency(operation.name() + "/" + fetchStrategy.name(), System.nanoTime() - start);
+                }
+            }
+
+            long[] threadStatistics = startStatistics != null ? ThreadStatistics.difference(startStatistics, ThreadStatistics.snapshot()) : new long[ThreadStatistics.values().length];
+            Map<String, long[]> result = Maps.newHashMap();
+            for (Map.Entry<String, LatencyRecorder> entry : this.latencies.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return new SessionResult(result, failureCount, threadStatistics);
+        }
+
+        private FetchStrategy nextFetchStrategy(ThreadLocalRandom random) {
+            double value = random.nextDouble();
+            if (value < ModelRepositoryLoadTest.this.forceReloadRatio) {
+                return FetchStrategy.FORCE_RELOAD;
+            } else if (value < ModelRepositoryLoadTest.this.forceReloadRatio + ModelRepositoryLoadTest.this.cacheOnlyRatio) {
+                return FetchStrategy.FROM_CACHE_ONLY;
+            } else {
+                return FetchStrategy.LOAD_IF_NOT_CACHED;
+            }
+        }
+
+        private void recordLatency(String operation, long latencyNanos) {
+            LatencyRecorder recorder = this.latencies.get(operation);
+            if (recorder == null) {
+                recorder = new LatencyRecorder();
+                this.latencies.put(operation, recorder);
+            }
+            recorder.add(latencyNanos);
+        }
+
+    }
+
+    /**
+     * The fetch operations of the model repository.
+     */
+    private enum Operation {
+
+        FETCH_BUILD_ENVIRONMENT {
+            @Override
+            void fetch(ModelRepository repository, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+                repository.fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+            }
+        },
+        FETCH_GRADLE_BUILD {
+            @Override
+            void fetch(ModelRepository repository, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+                repository.fetchGradleBuild(transientRequestAttributes, fetchStrategy);
+            }
+        },
+        FETCH_GRADLE_PROJECTS {
+            @Override
+            void fetch(ModelRepository repository, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+                repository.fetchGradleProjects(transientRequestAttributes, fetchStrategy);
+            }
+        },
+        FETCH_ECLIPSE_PROJECTS {
+            @Override
+            void fetch(ModelRepository repository, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+                repository.fetchEclipseGradleProjects(transientRequestAttributes, fetchStrategy);
+            }
+        };
+
+        abstract void fetch(ModelRepository repository, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    }
+
+    /**
+     * Records latencies in a growing primitive array.
+     */
+    private static final class LatencyRecorder {
+
+        private long[] values = new long[1024];
+        private int count;
+
+        private void add(long value) {
+            if (this.count == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.count * 2);
+            }
+            this.values[this.count++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(this.values, this.count);
+        }
+
+    }
+
+}
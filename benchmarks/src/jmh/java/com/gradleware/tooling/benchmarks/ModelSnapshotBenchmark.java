@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.repository.internal.ModelSnapshot;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading the Eclipse projects of a build from a memory-mapped model snapshot and querying a single project, compared to
+ * converting the Tooling API models of all projects.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModelSnapshotBenchmark {
+
+    @Param({"100", "1000"})
+    public int projectCount;
+
+    private EclipseProject eclipseProject;
+    private File snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.eclipseProject = ModelStubs.eclipseProjectHierarchy(this.projectCount, 4, 10, 500, 30, 0.8);
+        this.snapshotFile = File.createTempFile("model", ".snapshot");
+        ModelSnapshot.write(DefaultOmniEclipseProject.from(this.eclipseProject).getAll(), this.snapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.snapshotFile.delete();
+    }
+
+    @Benchmark
+    public List<OmniExternalDependency> convertAndQueryOneProject() {
+        return DefaultOmniEclipseProject.from(this.eclipseProject).getChildren().get(0).getExternalDependencies();
+    }
+
+    @Benchmark
+    public List<OmniExternalDependency> openSnapshotAndQueryOneProject() {
+        OmniEclipseProject rootProject = ModelSnapshot.open(this.snapshotFile).getEclipseProjects().iterator().next();
+        return rootProject.getChildren().get(0).getExternalDependencies();
+    }
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.base.Defaults;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.tooling.model.BuildIdentifier;
+import org.gradle.tooling.model.DomainObjectSet;
+import org.gradle.tooling.model.GradleModuleVersion;
+import org.gradle.tooling.model.GradleProject;
+import org.gradle.tooling.model.GradleTask;
+import org.gradle.tooling.model.ProjectIdentifier;
+import org.gradle.tooling.model.build.BuildEnvironment;
+import org.gradle.tooling.model.build.GradleEnvironment;
+import org.gradle.tooling.model.build.JavaEnvironment;
+import org.gradle.tooling.model.eclipse.EclipseBuildCommand;
+import org.gradle.tooling.model.eclipse.EclipseClasspathContainer;
+import org.gradle.tooling.model.eclipse.EclipseExternalDependency;
+import org.gradle.tooling.model.eclipse.EclipseOutputLocation;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.gradle.tooling.model.eclipse.EclipseProjectDependency;
+import org.gradle.tooling.model.eclipse.EclipseProjectNature;
+import org.gradle.tooling.model.eclipse.EclipseSourceDirectory;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+import org.gradle.tooling.model.gradle.GradleBuild;
+import org.gradle.tooling.model.gradle.GradleScript;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates synthetic Tooling API models for the benchmarks, without running a Gradle build.
+ * <p/>
+ * The models are dynamic proxies that return the value of the property that corresponds to the invoked getter, e.g. the value of the
+ * property {@code name} for {@code getName()} and the value of the property {@code public} for {@code isPublic()}. Getters of properties
+ * without a value return empty collections, default primitive values, or null. Methods that return the type of the model itself return
+ * the model, such that fluent builders can be stubbed, too.
+ *
+ * @author Etienne Studer
+ */
+final class ModelStubs {
+
+    private static final int EXTERNAL_DEPENDENCIES_PER_PROJECT = 20;
+
+    private ModelStubs() {
+    }
+
+    /**
+     * Creates a stub of the given type whose getters return the given property values. The property values are not copied, such that
+     * circular references between stubs can be set up after the stubs have been created.
+     *
+     * @param type the type to stub
+     * @param properties the property values
+     * @param <T> the type to stub
+     * @return the stub
+     */
+    static <T> T stub(Class<T> type, Map<String, ?> properties) {
+        return type.cast(Proxy.newProxyInstance(ModelStubs.class.getClassLoader(), new Class<?>[]{type}, new PropertyInvocationHandler(type, properties)));
+    }
+
+    static <T> DomainObjectSet<T> domainObjectSet(List<? extends T> elements) {
+        return new ListDomainObjectSet<T>(ImmutableList.copyOf(elements));
+    }
+
+    /**
+     * Creates a build environment for the given Gradle version that runs on the current JVM.
+     *
+     * @param gradleVersion the Gradle version
+     * @return the build environment
+     */
+    static BuildEnvironment buildEnvironment(String gradleVersion) {
+        return stub(BuildEnvironment.class, ImmutableMap.<String, Object>of(
+                "gradle", stub(GradleEnvironment.class, ImmutableMap.<String, Object>of("gradleVersion", gradleVersion)),
+                "java", stub(JavaEnvironment.class, ImmutableMap.<String, Object>of("javaHome", new File(System.getProperty("java.home"))))));
+    }
+
+    /**
+     * Creates a Gradle build whose project structure mirrors the given Gradle project hierarchy.
+     *
+     * @param rootProject the root project of the hierarchy
+     * @return the Gradle build
+     */
+    static GradleBuild gradleBuild(GradleProject rootProject) {
+        List<BasicGradleProject> projects = Lists.newArrayList();
+        BasicGradleProject basicRootProject = toBasicGradleProject(rootProject, null, projects);
+        return stub(GradleBuild.class, ImmutableMap.<String, Object>of(
+                "rootProject", basicRootProject,
+                "projects", domainObjectSet(projects),
+                "buildIdentifier", rootProject.getProjectIdentifier().getBuildIdentifier()));
+    }
+
+    private static BasicGradleProject toBasicGradleProject(GradleProject project, BasicGradleProject parent, List<BasicGradleProject> projects) {
+        Map<String, Object> properties = Maps.newHashMap();
+        properties.put("name", project.getName());
+        properties.put("path", project.getPath());
+        properties.put("projectDirectory", project.getProjectDirectory());
+        properties.put("projectIdentifier", project.getProjectIdentifier());
+        properties.put("parent", parent);
+        BasicGradleProject basicProject = stub(BasicGradleProject.class, properties);
+        projects.add(basicProject);
+
+        List<BasicGradleProject> children = Lists.newArrayList();
+        for (GradleProject child : project.getChildren()) {
+            children.add(toBasicGradleProject(child, basicProject, projects));
+        }
+        properties.put("children", domainObjectSet(children));
+        return basicProject;
+    }
+
+    /**
+     * Creates a Gradle project hierarchy.
+     *
+     * @param projectCount the total number of projects, including the root project
+     * @param depth the maximum depth of the hierarchy below the root project
+     * @param tasksPerProject the number of tasks of each project
+     * @return the root project
+     */
+    static GradleProject gradleProjectHierarchy(int projectCount, int depth, int tasksPerProject) {
+        return createGradleProjects(projectCount, depth, tasksPerProject).get(0);
+    }
+
+    /**
+     * Creates an Eclipse project hierarchy. Each Eclipse project depends on its parent project and on the same fixed number of external
+     * dependencies.
+     *
+     * @param projectCount the total number of projects, including the root project
+     * @param depth the maximum depth of the hierarchy below the root project
+     * @param tasksPerProject the number of tasks of each project
+     * @return the root project
+     */
+    static EclipseProject eclipseProjectHierarchy(int projectCount, int depth, int tasksPerProject) {
+        return eclipseProjectHierarchy(projectCount, depth, tasksPerProject, EXTERNAL_DEPENDENCIES_PER_PROJECT, EXTERNAL_DEPENDENCIES_PER_PROJECT, 1.0);
+    }
+
+    /**
+     * Creates an Eclipse project hierarchy. Each Eclipse project depends on its parent project and on the given number of external
+     * dependencies. The given ratio of the external dependencies of each project is shared by all projects, the remaining external
+     * dependencies are distributed round-robin over the remaining jars.
+     *
+     * @param projectCount the total number of projects, including the root project
+     * @param depth the maximum depth of the hierarchy below the root project
+     * @param tasksPerProject the number of tasks of each project
+     * @param jarCount the total number of distinct jars of the build
+     * @param jarsPerProject the number of external dependencies of each project
+     * @param sharedRatio the ratio of the external dependencies of each project that are shared by all projects
+     * @return the root project
+     */
+    static EclipseProject eclipseProjectHierarchy(int projectCount, int depth, int tasksPerProject, int jarCount, int jarsPerProject, double sharedRatio) {
+        Preconditions.checkArgument(jarsPerProject <= jarCount, "Projects cannot depend on more jars than the build contains.");
+        List<GradleProject> gradleProjects = createGradleProjects(projectCount, depth, tasksPerProject);
+        int[] parents = parentIndices(projectCount, depth);
+
+        List<EclipseExternalDependency> jars = Lists.newArrayListWithCapacity(jarCount);
+        for (int i = 0; i < jarCount; i++) {
+            Map<String, Object> moduleVersion = ImmutableMap.<String, Object>of("group", "org.example", "name", "library" + i, "version", "1." + i);
+            jars.add(stub(EclipseExternalDependency.class, ImmutableMap.<String, Object>of(
+                    "file", new File("library" + i + ".jar"),
+                    "source", new File("library" + i + "-sources.jar"),
+                    "gradleModuleVersion", stub(GradleModuleVersion.class, moduleVersion),
+                    "exported", Boolean.FALSE)));
+        }
+        List<EclipseSourceDirectory> sourceDirectories = ImmutableList.of(
+                stub(EclipseSourceDirectory.class, ImmutableMap.<String, Object>of("path", "src/main/java")),
+                stub(EclipseSourceDirectory.class, ImmutableMap.<String, Object>of("path", "src/test/java")));
+        Object projectNatures = domainObjectSet(ImmutableList.of(stub(EclipseProjectNature.class, ImmutableMap.<String, Object>of("id", "org.eclipse.jdt.core.javanature"))));
+        Object buildCommands = domainObjectSet(ImmutableList.of(stub(EclipseBuildCommand.class, ImmutableMap.<String, Object>of("name", "org.eclipse.jdt.core.javabuilder",
+                "arguments", Collections.emptyMap()))));
+        Object classpathContainers = domainObjectSet(ImmutableList.of(stub(EclipseClasspathContainer.class, ImmutableMap.<String, Object>of("path", "org.eclipse.jdt.launching.JRE_CONTAINER"))));
+        Object outputLocation = stub(EclipseOutputLocation.class, ImmutableMap.<String, Object>of("path", "bin"));
+
+        List<Map<String, Object>> properties = Lists.newArrayListWithCapacity(projectCount);
+        List<EclipseProject> projects = Lists.newArrayListWithCapacity(projectCount);
+        for (int i = 0; i < projectCount; i++) {
+            GradleProject gradleProject = gradleProjects.get(i);
+            Map<String, Object> project = Maps.newHashMap();
+            project.put("name", gradleProject.getName());
+            project.put("description", gradleProject.getDescription());
+            project.put("projectDirectory", gradleProject.getProjectDirectory());
+            project.put("projectIdentifier", gradleProject.getProjectIdentifier());
+            project.put("gradleProject", gradleProject);
+            project.put("classpath", domainObjectSet(selectJars(jars, i, jarsPerProject, sharedRatio)));
+            project.put("sourceDirectories", domainObjectSet(sourceDirectories));
+            project.put("projectNatures", projectNatures);
+            project.put("buildCommands", buildCommands);
+            project.put("classpathContainers", classpathContainers);
+            project.put("outputLocation", outputLocation);
+            if (i > 0) {
+                Map<String, Object> dependency = ImmutableMap.<String, Object>of("path", "/" + gradleProjects.get(parents[i]).getName(), "exported", Boolean.FALSE);
+                project.put("projectDependencies", domainObjectSet(ImmutableList.of(stub(EclipseProjectDependency.class, dependency))));
+            }
+            properties.add(project);
+            projects.add(stub(EclipseProject.class, project));
+        }
+        linkHierarchy(projects, properties, parents);
+        return projects.get(0);
+    }
+
+    private static List<EclipseExternalDependency> selectJars(List<EclipseExternalDependency> jars, int projectIndex, int jarsPerProject, double sharedRatio) {
+        int sharedCount = (int) Math.round(jarsPerProject * sharedRatio);
+        List<EclipseExternalDependency> selected = Lists.newArrayList(jars.subList(0, sharedCount));
+        int uniqueCount = jarsPerProject - sharedCount;
+        for (int i = 0; i < uniqueCount; i++) {
+            selected.add(jars.get(sharedCount + (projectIndex * uniqueCount + i) % (jars.size() - sharedCount)));
+        }
+        return selected;
+    }
+
+    private static List<GradleProject> createGradleProjects(int projectCount, int depth, int tasksPerProject) {
+        int[] parents = parentIndices(projectCount, depth);
+        String[] paths = new String[projectCount];
+        File rootDir = new File("root").getAbsoluteFile();
+        BuildIdentifier buildIdentifier = stub(BuildIdentifier.class, ImmutableMap.<String, Object>of("rootDir", rootDir));
+
+        List<Map<String, Object>> properties = Lists.newArrayListWithCapacity(projectCount);
+        List<GradleProject> projects = Lists.newArrayListWithCapacity(projectCount);
+        for (int i = 0; i < projectCount; i++) {
+            String name = i == 0 ? "root" : "project" + i;
+            paths[i] = i == 0 ? ":" : (parents[i] == 0 ? "" : paths[parents[i]]) + ":" + name;
+            File projectDir = i == 0 ? rootDir : new File(rootDir, name);
+
+            Map<String, Object> project = Maps.newHashMap();
+            project.put("name", name);
+            project.put("description", "Project " + name);
+            project.put("path", paths[i]);
+            project.put("projectIdentifier", stub(ProjectIdentifier.class, ImmutableMap.<String, Object>of("projectPath", paths[i], "buildIdentifier", buildIdentifier)));
+            project.put("projectDirectory", projectDir);
+            project.put("buildDirectory", new File(projectDir, "build"));
+            project.put("buildScript", stub(GradleScript.class, ImmutableMap.<String, Object>of("sourceFile", new File(projectDir, "build.gradle"))));
+            GradleProject gradleProject = stub(GradleProject.class, project);
+
+            List<GradleTask> tasks = Lists.newArrayListWithCapacity(tasksPerProject);
+            for (int j = 0; j < tasksPerProject; j++) {
+                String taskName = "task" + j;
+                Map<String, Object> task = Maps.newHashMap();
+                task.put("name", taskName);
+                task.put("description", "Task " + taskName);
+                task.put("path", (i == 0 ? "" : paths[i]) + ":" + taskName);
+                task.put("group", "group" + (j % 5));
+                task.put("public", j % 2 == 0);
+                task.put("project", gradleProject);
+                tasks.add(stub(GradleTask.class, task));
+            }
+            project.put("tasks", domainObjectSet(tasks));
+
+            properties.add(project);
+            projects.add(gradleProject);
+        }
+        linkHierarchy(projects, properties, parents);
+        return projects;
+    }
+
+    private static <T> void linkHierarchy(List<T> projects, List<Map<String, Object>> properties, int[] parents) {
+        List<List<T>> children = Lists.newArrayListWithCapacity(projects.size());
+        for (int i = 0; i < projects.size(); i++) {
+            children.add(Lists.<T>newArrayList());
+        }
+        // the root project must declare its parent explicitly, otherwise the stub returns itself as the parent
+        properties.get(0).put("parent", null);
+        for (int i = 1; i < projects.size(); i++) {
+            properties.get(i).put("parent", projects.get(parents[i]));
+            children.get(parents[i]).add(projects.get(i));
+        }
+        for (int i = 0; i < projects.size(); i++) {
+            properties.get(i).put("children", domainObjectSet(children.get(i)));
+        }
+    }
+
+    /**
+     * Distributes the projects evenly over the levels of the hierarchy and the projects of each level evenly over the projects of the
+     * level above.
+     */
+    private static int[] parentIndices(int projectCount, int depth) {
+        int[] parents = new int[projectCount];
+        int projectsPerLevel = Math.max(1, (projectCount - 1 + depth - 1) / Math.max(1, depth));
+        int parentLevelStart = 0;
+        int parentLevelEnd = 1;
+        int levelStart = 1;
+        while (levelStart < projectCount) {
+            int levelEnd = Math.min(projectCount, levelStart + projectsPerLevel);
+            for (int i = levelStart; i < levelEnd; i++) {
+                parents[i] = parentLevelStart + (i - levelStart) % (parentLevelEnd - parentLevelStart);
+            }
+            parentLevelStart = levelStart;
+            parentLevelEnd = levelEnd;
+            levelStart = levelEnd;
+        }
+        return parents;
+    }
+
+    /**
+     * Returns the property values for the invoked getters.
+     */
+    private static final class PropertyInvocationHandler implements InvocationHandler {
+
+        private static final DomainObjectSet<Object> EMPTY_SET = new ListDomainObjectSet<Object>(ImmutableList.of());
+
+        private final Class<?> type;
+        private final Map<String, ?> properties;
+
+        private PropertyInvocationHandler(Class<?> type, Map<String, ?> properties) {
+            this.type = type;
+            this.properties = properties;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else {
+                    return this.type.getSimpleName() + this.properties;
+                }
+            }
+
+            String property = toPropertyName(name);
+            if (this.properties.containsKey(property)) {
+                return this.properties.get(property);
+            }
+
+            Class<?> returnType = method.getReturnType();
+            if (DomainObjectSet.class.isAssignableFrom(returnType)) {
+                return EMPTY_SET;
+            } else if (returnType == List.class) {
+                return ImmutableList.of();
+            } else if (returnType == Set.class) {
+                return ImmutableSet.of();
+            } else if (returnType.isPrimitive()) {
+                return Defaults.defaultValue(returnType);
+            } else if (returnType != Object.class && returnType.isInstance(proxy)) {
+                return proxy;
+            } else {
+                return null;
+            }
+        }
+
+        private static String toPropertyName(String methodName) {
+            int prefixLength = methodName.startsWith("get") ? 3 : methodName.startsWith("is") ? 2 : 0;
+            if (prefixLength == 0 || methodName.length() == prefixLength) {
+                return methodName;
+            }
+            return Character.toLowerCase(methodName.charAt(prefixLength)) + methodName.substring(prefixLength + 1);
+        }
+
+    }
+
+    /**
+     * Domain object set backed by a list.
+     *
+     * @param <T> the element type
+     */
+    private static final class ListDomainObjectSet<T> extends AbstractSet<T> implements DomainObjectSet<T> {
+
+        private final ImmutableList<T> elements;
+
+        private ListDomainObjectSet(ImmutableList<T> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public List<T> getAll() {
+            return this.elements;
+        }
+
+        @Override
+        public T getAt(int index) {
+            return this.elements.get(index);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this.elements.iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.elements.size();
+        }
+
+    }
+
+}
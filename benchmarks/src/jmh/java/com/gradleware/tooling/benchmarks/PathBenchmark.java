@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.collect.Lists;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.internal.PathComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks sorting project and task paths, which happens whenever the Omni models are converted.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathBenchmark {
+
+    @Param({"100", "10000"})
+    public int pathCount;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    private List<String> paths;
+    private List<Path> typedPaths;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        this.paths = Lists.newArrayListWithCapacity(this.pathCount);
+        this.typedPaths = Lists.newArrayListWithCapacity(this.pathCount);
+        for (int i = 0; i < this.pathCount; i++) {
+            StringBuilder path = new StringBuilder();
+            int segments = 1 + random.nextInt(this.depth);
+            for (int j = 0; j < segments; j++) {
+                path.append(":project").append(random.nextInt(100));
+            }
+            this.paths.add(path.toString());
+            this.typedPaths.add(Path.from(path.toString()));
+        }
+    }
+
+    @Benchmark
+    public List<String> sortWithPathComparator() {
+        List<String> sorted = Lists.newArrayList(this.paths);
+        Collections.sort(sorted, PathComparator.INSTANCE);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<Path> sortWithPathComparable() {
+        List<Path> sorted = Lists.newArrayList(this.typedPaths);
+        Collections.sort(sorted, Path.Comparator.INSTANCE);
+        return sorted;
+    }
+
+}
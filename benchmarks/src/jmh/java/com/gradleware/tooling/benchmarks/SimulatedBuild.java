@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.internal.Factory;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.UnknownModelException;
+import org.gradle.tooling.model.GradleProject;
+import org.gradle.tooling.model.build.BuildEnvironment;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.gradle.tooling.model.gradle.GradleBuild;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates a Gradle build that serves generated models and runs builds with a configurable latency and failure rate, such that the
+ * tooling client and the model repository can be load-tested without running Gradle daemons.
+ * <p/>
+ * Connections to the simulated build are created through {@link #connectorFactory()}. Every model request, build launch, and test
+ * launch takes a random time between the configured minimum and maximum latency, honors cancellation requests while it is running,
+ * and fails with the configured probability. The latency and the failure rate can be changed while the simulation is running.
+ * Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class SimulatedBuild {
+
+    /**
+     * The Gradle version reported by the simulated build. Composite builds are not supported by this version, such that the model
+     * repository fetches the models through plain model requests.
+     */
+    static final String GRADLE_VERSION = "3.0";
+
+    private static final long CANCELLATION_POLL_INTERVAL_MILLIS = 5;
+
+    private final ImmutableMap<Class<?>, Object> models;
+    private final Executor asyncExecutor;
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile double failureRate;
+
+    private final AtomicLong connectionCount;
+    private final AtomicLong operationCount;
+    private final AtomicLong failureCount;
+    private final AtomicLong cancellationCount;
+
+    private SimulatedBuild(ImmutableMap<Class<?>, Object> models) {
+        this.models = models;
+        this.asyncExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("simulated-build-%d").setDaemon(true).build());
+        this.minLatencyMillis = 0;
+        this.maxLatencyMillis = 0;
+        this.failureRate = 0;
+        this.connectionCount = new AtomicLong();
+        this.operationCount = new AtomicLong();
+        this.failureCount = new AtomicLong();
+        this.cancellationCount = new AtomicLong();
+    }
+
+    /**
+     * Sets the range of the time each operation takes.
+     *
+     * @param minLatencyMillis the minimum latency in milliseconds
+     * @param maxLatencyMillis the maximum latency in milliseconds
+     * @return this instance
+     */
+    SimulatedBuild latency(long minLatencyMillis, long maxLatencyMillis) {
+        Preconditions.checkArgument(0 <= minLatencyMillis && minLatencyMillis <= maxLatencyMillis, "Invalid latency range.");
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        return this;
+    }
+
+    /**
+     * Sets the probability of an operation to fail.
+     *
+     * @param failureRate the probability between 0 and 1
+     * @return this instance
+     */
+    SimulatedBuild failureRate(double failureRate) {
+        Preconditions.checkArgument(0 <= failureRate && failureRate <= 1, "Failure rate must be between 0 and 1.");
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * Returns a factory for connectors that connect to this simulated build, to be passed to
+     * {@link com.gradleware.tooling.toolingclient.ToolingClient#newClient(Factory)}.
+     *
+     * @return the connector factory
+     */
+    Factory<GradleConnector> connectorFactory() {
+        return new Factory<GradleConnector>() {
+
+            @Override
+            public GradleConnector create() {
+                return new SimulatedGradleConnector(SimulatedBuild.this);
+            }
+        };
+    }
+
+    long getConnectionCount() {
+        return this.connectionCount.get();
+    }
+
+    long getOperationCount() {
+        return this.operationCount.get();
+    }
+
+    long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    long getCancellationCount() {
+        return this.cancellationCount.get();
+    }
+
+    void connectionOpened() {
+        this.connectionCount.incrementAndGet();
+    }
+
+    Executor getAsyncExecutor() {
+        return this.asyncExecutor;
+    }
+
+    <T> T getModel(Class<T> modelType) {
+        Object model = this.models.get(modelType);
+        if (model == null) {
+            throw new UnknownModelException(String.format("The simulated build does not provide the model %s.", modelType.getName()));
+        }
+        return modelType.cast(model);
+    }
+
+    /**
+     * Simulates the execution of an operation and returns the given result once the operation has completed successfully.
+     */
+    <T> T execute(T result, CancellationToken cancellationToken) {
+        this.operationCount.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latencyMillis = this.minLatencyMillis + (this.maxLatencyMillis > this.minLatencyMillis ? random.nextLong(this.maxLatencyMillis - this.minLatencyMillis + 1) : 0);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        while (true) {
+            if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                this.cancellationCount.incrementAndGet();
+                throw new BuildCancelledException("The simulated build has been cancelled.");
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            Uninterruptibles.sleepUninterruptibly(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(CANCELLATION_POLL_INTERVAL_MILLIS)), TimeUnit.NANOSECONDS);
+        }
+        if (random.nextDouble() < this.failureRate) {
+            this.failureCount.incrementAndGet();
+            throw new GradleConnectionException("The simulated build has failed.");
+        }
+        return result;
+    }
+
+    /**
+     * Creates a simulated build that serves the {@link BuildEnvironment}, {@link GradleBuild}, {@link GradleProject}, and
+     * {@link EclipseProject} models of a generated project hierarchy.
+     *
+     * @param projectCount the total number of projects, including the root project
+     * @param depth the maximum depth of the hierarchy below the root project
+     * @param tasksPerProject the number of tasks of each project
+     * @return the new instance, without latency and failures
+     */
+    static SimulatedBuild create(int projectCount, int depth, int tasksPerProject) {
+        GradleProject rootProject = ModelStubs.gradleProjectHierarchy(projectCount, depth, tasksPerProject);
+        Map<Class<?>, Object> models = ImmutableMap.<Class<?>, Object>of(
+                BuildEnvironment.class, ModelStubs.buildEnvironment(GRADLE_VERSION),
+                GradleBuild.class, ModelStubs.gradleBuild(rootProject),
+                GradleProject.class, rootProject,
+                EclipseProject.class, ModelStubs.eclipseProjectHierarchy(projectCount, depth, tasksPerProject));
+        return new SimulatedBuild(ImmutableMap.copyOf(models));
+    }
+
+}
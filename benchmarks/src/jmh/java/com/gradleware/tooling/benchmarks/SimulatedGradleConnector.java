@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.benchmarks;
+
+import com.google.common.base.Defaults;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ModelBuilder;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.TestLauncher;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+
+/**
+ * Connector that connects to a {@link SimulatedBuild} instead of a Gradle daemon. The distribution, the project directory, and the
+ * Gradle user home are ignored.
+ *
+ * @author Etienne Studer
+ */
+final class SimulatedGradleConnector extends GradleConnector {
+
+    private final SimulatedBuild build;
+
+    SimulatedGradleConnector(SimulatedBuild build) {
+        this.build = build;
+    }
+
+    @Override
+    public GradleConnector useInstallation(File gradleHome) {
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleVersion(String gradleVersion) {
+        return this;
+    }
+
+    @Override
+    public GradleConnector useDistribution(URI gradleDistribution) {
+        return this;
+    }
+
+    @Override
+    public GradleConnector useBuildDistribution() {
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleUserHomeDir(File gradleUserHomeDir) {
+        return this;
+    }
+
+    @Override
+    public GradleConnector forProjectDirectory(File projectDir) {
+        return this;
+    }
+
+    @Override
+    public ProjectConnection connect() {
+        this.build.connectionOpened();
+        return proxy(ProjectConnection.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                SimulatedBuild build = SimulatedGradleConnector.this.build;
+                String name = method.getName();
+                if (name.equals("model")) {
+                    return proxy(ModelBuilder.class, new OperationHandler(build, build.getModel((Class<?>) args[0])));
+                } else if (name.equals("getModel")) {
+                    Object model = build.getModel((Class<?>) args[0]);
+                    return new OperationHandler(build, model).execute(args.length > 1 ? (ResultHandler<?>) args[1] : null);
+                } else if (name.equals("newBuild")) {
+                    return proxy(BuildLauncher.class, new OperationHandler(build, null));
+                } else if (name.equals("newTestLauncher")) {
+                    return proxy(TestLauncher.class, new OperationHandler(build, null));
+                } else if (name.equals("close")) {
+                    return null;
+                } else {
+                    return handleObjectMethod(proxy, method, args);
+                }
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SimulatedGradleConnector.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("toString")) {
+            return "simulated " + proxy.getClass().getInterfaces()[0].getSimpleName();
+        } else {
+            throw new UnsupportedOperationException(String.format("The simulated build does not support %s.", method));
+        }
+    }
+
+    /**
+     * Handles the invocations on a model builder, build launcher, or test launcher. The configuration methods are ignored, except for
+     * the cancellation token, and the execution methods are passed on to the simulated build.
+     */
+    private static final class OperationHandler implements InvocationHandler {
+
+        private final SimulatedBuild build;
+        private final Object result;
+        private volatile CancellationToken cancellationToken;
+
+        private OperationHandler(SimulatedBuild build, Object result) {
+            this.build = build;
+            this.result = result;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("get") || name.equals("run")) {
+                return execute(args != null && args.length > 0 ? (ResultHandler<?>) args[0] : null);
+            } else if (name.equals("withCancellationToken")) {
+                this.cancellationToken = (CancellationToken) args[0];
+                return proxy;
+            } else if (method.getDeclaringClass() == Object.class) {
+                return handleObjectMethod(proxy, method, args);
+            } else if (method.getReturnType().isInstance(proxy)) {
+                return proxy;
+            } else {
+                return Defaults.defaultValue(method.getReturnType());
+            }
+        }
+
+        private Object execute(final ResultHandler<?> resultHandler) {
+            if (resultHandler == null) {
+                return this.build.execute(this.result, this.cancellationToken);
+            }
+
+            this.build.getAsyncExecutor().execute(new Runnable() {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    Object result;
+                    try {
+                        result = OperationHandler.this.build.execute(OperationHandler.this.result, OperationHandler.this.cancellationToken);
+                    } catch (GradleConnectionException e) {
+                        resultHandler.onFailure(e);
+                        return;
+                    }
+                    ((ResultHandler<Object>) resultHandler).onComplete(result);
+                }
+            });
+            return null;
+        }
+
+    }
+
+}
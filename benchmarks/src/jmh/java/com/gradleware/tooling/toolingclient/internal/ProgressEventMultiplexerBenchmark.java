@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.collect.Lists;
+import com.gradleware.tooling.toolingclient.SelectiveProgressListener;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.task.TaskProgressEvent;
+import org.gradle.tooling.events.test.TestProgressEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks dispatching the progress events of a build with 100k task events to typed progress listeners that are only interested
+ * in task events, once with each listener registered separately for all operation types, as the tooling client did before, and once
+ * with the listeners registered through a single {@link ProgressEventMultiplexer}. The build emits task, test, and generic events
+ * in equal parts, and like Gradle it only emits the events of the operation types that at least one registered listener subscribed to.
+ * <p/>
+ * The benchmark lives in the package of the multiplexer since the multiplexer is internal to the tooling client.
+ *
+ * @author Etienne Studer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProgressEventMultiplexerBenchmark {
+
+    private static final int TASK_EVENT_COUNT = 100000;
+
+    @Param({"1", "10"})
+    public int listenerCount;
+
+    private ProgressEvent[] events;
+    private OperationType[] eventTypes;
+    private SimulatedProgressBroadcast separateRegistrations;
+    private SimulatedProgressBroadcast multiplexedRegistration;
+
+    @Setup
+    public void setUp() {
+        ProgressEvent taskEvent = event(TaskProgressEvent.class);
+        ProgressEvent testEvent = event(TestProgressEvent.class);
+        ProgressEvent genericEvent = event(ProgressEvent.class);
+        this.events = new ProgressEvent[3 * TASK_EVENT_COUNT];
+        this.eventTypes = new OperationType[3 * TASK_EVENT_COUNT];
+        for (int i = 0; i < TASK_EVENT_COUNT; i++) {
+            this.events[3 * i] = genericEvent;
+            this.eventTypes[3 * i] = OperationType.GENERIC;
+            this.events[3 * i + 1] = taskEvent;
+            this.eventTypes[3 * i + 1] = OperationType.TASK;
+            this.events[3 * i + 2] = testEvent;
+            this.eventTypes[3 * i + 2] = OperationType.TEST;
+        }
+
+        ProgressListener[] listeners = new ProgressListener[this.listenerCount];
+        for (int i = 0; i < this.listenerCount; i++) {
+            listeners[i] = new TaskEventCountingListener();
+        }
+
+        this.separateRegistrations = new SimulatedProgressBroadcast();
+        for (ProgressListener listener : listeners) {
+            this.separateRegistrations.addProgressListener(listener, EnumSet.allOf(OperationType.class));
+        }
+
+        ProgressEventMultiplexer multiplexer = ProgressEventMultiplexer.from(listeners);
+        this.multiplexedRegistration = new SimulatedProgressBroadcast();
+        this.multiplexedRegistration.addProgressListener(multiplexer, multiplexer.getOperationTypes());
+    }
+
+    @Benchmark
+    public int dispatchToSeparateListeners() {
+        return this.separateRegistrations.emit(this.events, this.eventTypes);
+    }
+
+    @Benchmark
+    public int dispatchThroughMultiplexer() {
+        return this.multiplexedRegistration.emit(this.events, this.eventTypes);
+    }
+
+    private static ProgressEvent event(Class<? extends ProgressEvent> type) {
+        return type.cast(Proxy.newProxyInstance(ProgressEventMultiplexerBenchmark.class.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                throw new UnsupportedOperationException(String.format("The simulated progress event does not support %s.", method));
+            }
+        }));
+    }
+
+    /**
+     * Listener that is only interested in task events. When it is registered for all operation types, it receives the other events as
+     * well and has to skip them itself.
+     */
+    private static final class TaskEventCountingListener implements SelectiveProgressListener {
+
+        private int count;
+
+        @Override
+        public Set<OperationType> getOperationTypes() {
+            return EnumSet.of(OperationType.TASK);
+        }
+
+        @Override
+        public void statusChanged(ProgressEvent event) {
+            if (event instanceof TaskProgressEvent) {
+                this.count++;
+            }
+        }
+
+    }
+
+    /**
+     * Dispatches progress events the way the Tooling API does on the consumer side: the build only emits the events of the operation
+     * types that at least one registration subscribed to, and each event is passed to every registration that subscribed to its type.
+     */
+    private static final class SimulatedProgressBroadcast {
+
+        private final List<ProgressListener> listeners = Lists.newArrayList();
+        private final List<Set<OperationType>> operationTypes = Lists.newArrayList();
+        private final Set<OperationType> subscribedTypes = EnumSet.noneOf(OperationType.class);
+
+        private void addProgressListener(ProgressListener listener, Set<OperationType> operationTypes) {
+            this.listeners.add(listener);
+            this.operationTypes.add(operationTypes);
+            this.subscribedTypes.addAll(operationTypes);
+        }
+
+        private int emit(ProgressEvent[] events, OperationType[] eventTypes) {
+            int deliveries = 0;
+            for (int i = 0; i < events.length; i++) {
+                OperationType eventType = eventTypes[i];
+                if (this.subscribedTypes.contains(eventType)) {
+                    for (int j = 0; j < this.listeners.size(); j++) {
+                        if (this.operationTypes.get(j).contains(eventType)) {
+                            this.listeners.get(j).statusChanged(events[i]);
+                            deliveries++;
+                        }
+                    }
+                }
+            }
+            return deliveries;
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.testing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Lazy, read-only list of the combinations of the elements from different lists. The combinations are not held in memory but
+ * calculated from their index when they are accessed, in the same order as they are returned by
+ * {@link Combinations#getCombinations(List[])}.
+ * <p/>
+ * The list can be split into contiguous sub-lists that can be consumed in parallel. Since it is a regular {@code Iterable}, the list
+ * can be used as a data provider in a Spock where-block.
+ *
+ * @author Etienne Studer
+ */
+public final class CombinationList extends AbstractList<List<Object>> implements RandomAccess {
+
+    private final Object[][] dimensions;
+    private final int[] strides;
+    private final int offset;
+    private final int size;
+
+    private CombinationList(Object[][] dimensions, int[] strides, int offset, int size) {
+        this.dimensions = dimensions;
+        this.strides = strides;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public List<Object> get(int index) {
+        Preconditions.checkElementIndex(index, this.size);
+        int remainder = this.offset + index;
+        Object[] values = new Object[this.dimensions.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.dimensions[i][remainder / this.strides[i]];
+            remainder %= this.strides[i];
+        }
+        return new Combination(values);
+    }
+
+    /**
+     * Returns a view of the given range of the combinations that is calculated lazily, too.
+     */
+    @Override
+    public CombinationList subList(int fromIndex, int toIndex) {
+        Preconditions.checkPositionIndexes(fromIndex, toIndex, this.size);
+        return new CombinationList(this.dimensions, this.strides, this.offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Splits the combinations into the given number of contiguous parts of nearly equal size, e.g. to consume them in parallel. Fewer
+     * parts are returned if there are fewer combinations than requested parts.
+     *
+     * @param parts the number of parts to split into, must be positive
+     * @return the parts, never null
+     */
+    public ImmutableList<CombinationList> split(int parts) {
+        Preconditions.checkArgument(parts > 0, "Number of parts must be positive.");
+        int count = Math.min(parts, this.size);
+        ImmutableList.Builder<CombinationList> result = ImmutableList.builder();
+        int fromIndex = 0;
+        for (int i = 0; i < count; i++) {
+            int toIndex = (int) ((long) this.size * (i + 1) / count);
+            result.add(subList(fromIndex, toIndex));
+            fromIndex = toIndex;
+        }
+        return result.build();
+    }
+
+    /**
+     * Returns an iterator that advances the element positions of the combinations from one combination to the next instead of
+     * calculating them from the index.
+     */
+    @Override
+    public Iterator<List<Object>> iterator() {
+        return new Iterator<List<Object>>() {
+
+            private final int[] positions = positionsOf(CombinationList.this.offset);
+            private int remaining = CombinationList.this.size;
+
+            @Override
+            public boolean hasNext() {
+                return this.remaining > 0;
+            }
+
+            @Override
+            public List<Object> next() {
+                if (this.remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                Object[][] dimensions = CombinationList.this.dimensions;
+                Object[] values = new Object[dimensions.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = dimensions[i][this.positions[i]];
+                }
+                advance();
+                this.remaining--;
+                return new Combination(values);
+            }
+
+            private void advance() {
+                Object[][] dimensions = CombinationList.this.dimensions;
+                for (int i = dimensions.length - 1; i >= 0; i--) {
+                    if (++this.positions[i] < dimensions[i].length) {
+                        return;
+                    }
+                    this.positions[i] = 0;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private int[] positionsOf(int index) {
+        int[] positions = new int[this.dimensions.length];
+        if (this.size == 0) {
+            return positions;
+        }
+        int remainder = index;
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = remainder / this.strides[i];
+            remainder %= this.strides[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Creates a new instance for the given lists. The lists are copied, later changes to them are not reflected.
+     *
+     * @param lists the lists whose elements to combine, must not be null
+     * @return the new instance
+     * @throws IllegalArgumentException if there are more than {@code Integer.MAX_VALUE} combinations
+     */
+    public static CombinationList from(List<?>... lists) {
+        Preconditions.checkNotNull(lists);
+        Object[][] dimensions = new Object[lists.length][];
+        for (int i = 0; i < lists.length; i++) {
+            dimensions[i] = lists[i].toArray();
+        }
+
+        // the stride of a dimension is the number of combinations between two consecutive elements of that dimension
+        int[] strides = new int[lists.length];
+        long size = lists.length == 0 ? 0 : 1;
+        for (int i = lists.length - 1; i >= 0; i--) {
+            strides[i] = (int) Math.max(1, size);
+            size *= dimensions[i].length;
+            Preconditions.checkArgument(size <= Integer.MAX_VALUE, "Too many combinations.");
+        }
+        return new CombinationList(dimensions, strides, 0, (int) size);
+    }
+
+    /**
+     * Read-only combination that supports null values.
+     */
+    private static final class Combination extends AbstractList<Object> implements RandomAccess {
+
+        private final Object[] values;
+
+        private Combination(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object get(int index) {
+            return this.values[index];
+        }
+
+        @Override
+        public int size() {
+            return this.values.length;
+        }
+
+    }
+
+}
@@ -16,19 +16,12 @@
 
 package com.gradleware.tooling.testing;
 
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Calculates all the combinations of the elements from different lists.
- * <p/>
- * Inspired by http://www.megustaulises.com/2012/12/cross-product-using-recursion.html
  *
  * @author Etienne Studer
  */
@@ -42,34 +35,21 @@ public final class Combinations {
      *
      * @param lists the lists whose elements to combine, must not be null
      * @return all the combinations, never null
+     * @see #getLazyCombinations(List[])
      */
     public static ImmutableList<List<Object>> getCombinations(List<?>... lists) {
-        Preconditions.checkNotNull(lists);
-
-        if (lists.length == 0) {
-            return ImmutableList.of();
-        }
-
-        ImmutableMap.Builder<Integer, List<?>> listsMappedByDepth = ImmutableMap.builder();
-        for (int i = 0; i < lists.length; i++) {
-            listsMappedByDepth.put(i, lists[i]);
-        }
-
-        return getCombinationsRecursive(listsMappedByDepth.build(), 0, new Object[(lists.length)]);
+        return ImmutableList.copyOf(getLazyCombinations(lists));
     }
 
-    private static ImmutableList<List<Object>> getCombinationsRecursive(Map<Integer, List<?>> lists, int depth, Object[] current) {
-        ImmutableList.Builder<List<Object>> result = ImmutableList.builder();
-        Collection<?> listAtCurrentDepth = lists.get(depth);
-        for (Object element : listAtCurrentDepth) {
-            current[depth] = element;
-            if (depth < lists.size() - 1) {
-                result.addAll(getCombinationsRecursive(lists, depth + 1, current));
-            } else {
-                result.add(Lists.newArrayList(current)); // use ArrayList to support null values
-            }
-        }
-        return result.build();
+    /**
+     * Returns all combinations for the given lists without calculating them up-front. Each combination is only calculated when it is
+     * accessed, which avoids holding all combinations in memory for large numbers of combinations.
+     *
+     * @param lists the lists whose elements to combine, must not be null
+     * @return all the combinations, never null
+     */
+    public static CombinationList getLazyCombinations(List<?>... lists) {
+        return CombinationList.from(lists);
     }
 
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.testing;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The report of executing permutations through a {@link CrossVersionExecutor}. All durations are in milliseconds.
+ *
+ * @author Etienne Studer
+ */
+public final class CrossVersionExecutionReport {
+
+    private final ImmutableList<PermutationResult> results;
+    private final long wallClockTime;
+
+    private CrossVersionExecutionReport(List<PermutationResult> results, long wallClockTime) {
+        this.results = ImmutableList.copyOf(results);
+        this.wallClockTime = wallClockTime;
+    }
+
+    /**
+     * Returns the results of all permutations, grouped by Gradle distribution.
+     *
+     * @return the permutation results, never null
+     */
+    public List<PermutationResult> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Returns the results of the permutations whose action failed.
+     *
+     * @return the failed permutation results, never null
+     */
+    public List<PermutationResult> getFailures() {
+        ImmutableList.Builder<PermutationResult> failures = ImmutableList.builder();
+        for (PermutationResult result : this.results) {
+            if (result.getFailure().isPresent()) {
+                failures.add(result);
+            }
+        }
+        return failures.build();
+    }
+
+    /**
+     * Returns the total execution time of the permutations of each Gradle distribution.
+     *
+     * @return the execution times by distribution, never null
+     */
+    public Map<GradleDistribution, Long> getDurationsByDistribution() {
+        Map<GradleDistribution, Long> durations = Maps.newLinkedHashMap();
+        for (PermutationResult result : this.results) {
+            Long duration = durations.get(result.getDistribution());
+            durations.put(result.getDistribution(), (duration != null ? duration : 0) + result.getDuration());
+        }
+        return ImmutableMap.copyOf(durations);
+    }
+
+    /**
+     * Returns the time elapsed while executing all permutations.
+     *
+     * @return the wall clock time
+     */
+    public long getWallClockTime() {
+        return this.wallClockTime;
+    }
+
+    /**
+     * Returns the sum of the execution times of all permutations, i.e. the time the execution would take if all permutations were
+     * executed one after the other.
+     *
+     * @return the serial time
+     */
+    public long getSerialTime() {
+        long serialTime = 0;
+        for (PermutationResult result : this.results) {
+            serialTime += result.getDuration();
+        }
+        return serialTime;
+    }
+
+    /**
+     * Returns the time saved by executing the permutations in parallel.
+     *
+     * @return the saved time, never negative
+     */
+    public long getSavedTime() {
+        return Math.max(0, getSerialTime() - this.wallClockTime);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d permutations of %d distributions executed in %d ms instead of %d ms (%d ms saved), %d failed",
+                this.results.size(), getDurationsByDistribution().size(), this.wallClockTime, getSerialTime(), getSavedTime(), getFailures().size());
+    }
+
+    static CrossVersionExecutionReport from(List<PermutationResult> results, long wallClockTime) {
+        return new CrossVersionExecutionReport(results, wallClockTime);
+    }
+
+    /**
+     * The result of executing a single permutation.
+     */
+    public static final class PermutationResult {
+
+        private final List<Object> permutation;
+        private final long duration;
+        private final Optional<Throwable> failure;
+
+        private PermutationResult(List<Object> permutation, long duration, Throwable failure) {
+            this.permutation = Preconditions.checkNotNull(permutation);
+            this.duration = duration;
+            this.failure = Optional.fromNullable(failure);
+        }
+
+        /**
+         * Returns the executed permutation.
+         *
+         * @return the permutation, never null
+         */
+        public List<Object> getPermutation() {
+            return this.permutation;
+        }
+
+        /**
+         * Returns the Gradle distribution of the executed permutation.
+         *
+         * @return the distribution, never null
+         */
+        public GradleDistribution getDistribution() {
+            return (GradleDistribution) this.permutation.get(0);
+        }
+
+        /**
+         * Returns the execution time of the permutation.
+         *
+         * @return the duration
+         */
+        public long getDuration() {
+            return this.duration;
+        }
+
+        /**
+         * Returns the failure of the action executed for the permutation.
+         *
+         * @return the failure, absent if the action succeeded
+         */
+        public Optional<Throwable> getFailure() {
+            return this.failure;
+        }
+
+        static PermutationResult from(List<Object> permutation, long duration, Throwable failure) {
+            return new PermutationResult(permutation, duration, failure);
+        }
+
+    }
+
+}
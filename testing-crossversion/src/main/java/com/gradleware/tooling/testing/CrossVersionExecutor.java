@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.testing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import org.gradle.internal.Factory;
+import org.gradle.tooling.GradleConnector;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes an action for each permutation provided by {@link GradleVersionParameterization}, running the permutations of different Gradle
+ * distributions in parallel.
+ * <p/>
+ * The permutations are grouped by their Gradle distribution, i.e. by the first element of each permutation. The groups are executed in
+ * parallel, the permutations of a group one after the other. Each group uses its own {@link ToolingClient} that reuses its connections,
+ * such that all permutations of a group run in the same Gradle daemon. The daemons of the different distributions act as the parallel
+ * worker JVMs.
+ *
+ * @author Etienne Studer
+ */
+public final class CrossVersionExecutor {
+
+    private final int parallelism;
+    private final Factory<GradleConnector> connectorFactory;
+
+    private CrossVersionExecutor(int parallelism, Factory<GradleConnector> connectorFactory) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive.");
+        this.parallelism = parallelism;
+        this.connectorFactory = Preconditions.checkNotNull(connectorFactory);
+    }
+
+    /**
+     * Executes the given action for each of the given permutations. A failure of the action for one permutation does not prevent the
+     * execution of the other permutations, all failures are contained in the returned report.
+     *
+     * @param permutations the permutations, the first element of each permutation must be of type {@code GradleDistribution}
+     * @param action the action to execute for each permutation
+     * @return the report of the execution, never null
+     */
+    public CrossVersionExecutionReport execute(List<List<Object>> permutations, final PermutationAction action) {
+        Preconditions.checkNotNull(permutations);
+        Preconditions.checkNotNull(action);
+
+        // group the permutations by distribution and start with the largest groups to balance the workers
+        List<List<List<Object>>> groups = groupByDistribution(permutations);
+        Collections.sort(groups, new Comparator<List<List<Object>>>() {
+
+            @Override
+            public int compare(List<List<Object>> o1, List<List<Object>> o2) {
+                return o2.size() - o1.size();
+            }
+        });
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(this.parallelism,
+                new ThreadFactoryBuilder().setNameFormat("cross-version-worker-%d").setDaemon(true).build());
+        List<ToolingClient> toolingClients = Lists.newArrayList();
+        List<Future<List<CrossVersionExecutionReport.PermutationResult>>> futures = Lists.newArrayList();
+        try {
+            for (final List<List<Object>> group : groups) {
+                final ToolingClient toolingClient = ToolingClient.newClient(this.connectorFactory, ToolingClient.ConnectionStrategy.REUSE);
+                toolingClients.add(toolingClient);
+                futures.add(executorService.submit(new Callable<List<CrossVersionExecutionReport.PermutationResult>>() {
+
+                    @Override
+                    public List<CrossVersionExecutionReport.PermutationResult> call() {
+                        return executeGroup(group, toolingClient, action);
+                    }
+                }));
+            }
+
+            ImmutableList.Builder<CrossVersionExecutionReport.PermutationResult> results = ImmutableList.builder();
+            for (Future<List<CrossVersionExecutionReport.PermutationResult>> future : futures) {
+                results.addAll(getUninterruptibly(future));
+            }
+            return CrossVersionExecutionReport.from(results.build(), System.currentTimeMillis() - startTime);
+        } finally {
+            executorService.shutdownNow();
+            for (ToolingClient toolingClient : toolingClients) {
+                toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY);
+            }
+        }
+    }
+
+    private static List<CrossVersionExecutionReport.PermutationResult> executeGroup(List<List<Object>> group, ToolingClient toolingClient, PermutationAction action) {
+        ImmutableList.Builder<CrossVersionExecutionReport.PermutationResult> results = ImmutableList.builder();
+        for (List<Object> permutation : group) {
+            long start = System.nanoTime();
+            Throwable failure = null;
+            try {
+                action.execute(toolingClient, permutation);
+            } catch (Exception e) {
+                failure = e;
+            } catch (AssertionError e) {
+                failure = e;
+            }
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            results.add(CrossVersionExecutionReport.PermutationResult.from(permutation, duration, failure));
+        }
+        return results.build();
+    }
+
+    private static List<List<List<Object>>> groupByDistribution(List<List<Object>> permutations) {
+        Map<GradleDistribution, List<List<Object>>> groups = Maps.newLinkedHashMap();
+        for (List<Object> permutation : permutations) {
+            Preconditions.checkArgument(!permutation.isEmpty() && permutation.get(0) instanceof GradleDistribution,
+                    "The first element of each permutation must be a Gradle distribution: %s", permutation);
+            GradleDistribution distribution = (GradleDistribution) permutation.get(0);
+            List<List<Object>> group = groups.get(distribution);
+            if (group == null) {
+                group = Lists.newArrayList();
+                groups.put(distribution, group);
+            }
+            group.add(permutation);
+        }
+        return Lists.newArrayList(groups.values());
+    }
+
+    private static <T> T getUninterruptibly(Future<T> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cross-version worker failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Creates a new instance that executes up to the given number of distributions in parallel.
+     *
+     * @param parallelism the maximum number of distributions to execute in parallel, must be positive
+     * @return the new instance
+     */
+    public static CrossVersionExecutor create(int parallelism) {
+        return create(parallelism, DefaultGradleConnectorFactory.INSTANCE);
+    }
+
+    /**
+     * Creates a new instance that executes up to the given number of distributions in parallel, creating the connectors of the tooling
+     * clients through the given factory.
+     *
+     * @param parallelism the maximum number of distributions to execute in parallel, must be positive
+     * @param connectorFactory the factory to create the {@code GradleConnector} instances, must not be null
+     * @return the new instance
+     */
+    public static CrossVersionExecutor create(int parallelism, Factory<GradleConnector> connectorFactory) {
+        return new CrossVersionExecutor(parallelism, connectorFactory);
+    }
+
+    /**
+     * Creates a new instance that executes up to as many distributions in parallel as there are processors available.
+     *
+     * @return the new instance
+     */
+    public static CrossVersionExecutor create() {
+        return create(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The action to execute for each permutation.
+     */
+    public interface PermutationAction {
+
+        /**
+         * Executes the action for the given permutation.
+         *
+         * @param toolingClient the tooling client to use, shared by all permutations of the same Gradle distribution
+         * @param permutation the permutation, the first element is the {@code GradleDistribution}
+         * @throws Exception if the action fails
+         */
+        void execute(ToolingClient toolingClient, List<Object> permutation) throws Exception;
+
+    }
+
+    /**
+     * Singleton factory to create {@code GradleConnector} instances.
+     */
+    private enum DefaultGradleConnectorFactory implements Factory<GradleConnector> {
+
+        INSTANCE;
+
+        @Override
+        public GradleConnector create() {
+            return GradleConnector.newConnector();
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.testing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import org.gradle.api.specs.Spec;
+import org.gradle.util.GradleVersion;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled form of a Gradle version constraint: an interval of base versions from which individual base versions are excluded. A version
+ * satisfies the spec if its base version lies within the interval and is not excluded. The membership test takes constant time,
+ * independent of the number of patterns the constraint consists of.
+ *
+ * @author Etienne Studer
+ * @see GradleVersionSpec
+ */
+final class GradleVersionIntervalSpec implements Spec<GradleVersion> {
+
+    // the base versions are shared by all specs since they are computed by parsing the version string
+    private static final ConcurrentMap<GradleVersion, GradleVersion> BASE_VERSIONS = new ConcurrentHashMap<GradleVersion, GradleVersion>();
+
+    private final Range<GradleVersion> interval;
+    private final ImmutableSet<GradleVersion> exclusions;
+
+    private GradleVersionIntervalSpec(Range<GradleVersion> interval, Set<GradleVersion> exclusions) {
+        this.interval = interval;
+        this.exclusions = ImmutableSet.copyOf(exclusions);
+    }
+
+    @Override
+    public boolean isSatisfiedBy(GradleVersion element) {
+        if (this.interval == null) {
+            return false;
+        }
+        GradleVersion baseVersion = getBaseVersion(element);
+        return this.interval.contains(baseVersion) && !this.exclusions.contains(baseVersion);
+    }
+
+    private static GradleVersion getBaseVersion(GradleVersion version) {
+        GradleVersion baseVersion = BASE_VERSIONS.get(version);
+        if (baseVersion == null) {
+            baseVersion = version.getBaseVersion();
+            BASE_VERSIONS.putIfAbsent(version, baseVersion);
+        }
+        return baseVersion;
+    }
+
+    @Override
+    public String toString() {
+        return this.interval == null ? "{}" : this.interval + (this.exclusions.isEmpty() ? "" : " \\ " + this.exclusions);
+    }
+
+    /**
+     * Creates a spec that matches the base versions within the given interval that are not excluded. The interval is the intersection of
+     * the given ranges.
+     *
+     * @param ranges the ranges to intersect
+     * @param exclusions the excluded base versions
+     * @return the new instance
+     */
+    static GradleVersionIntervalSpec from(Iterable<Range<GradleVersion>> ranges, Set<GradleVersion> exclusions) {
+        Preconditions.checkNotNull(ranges);
+        Preconditions.checkNotNull(exclusions);
+
+        Range<GradleVersion> interval = Range.all();
+        for (Range<GradleVersion> range : ranges) {
+            if (!interval.isConnected(range)) {
+                return new GradleVersionIntervalSpec(null, exclusions);
+            }
+            interval = interval.intersection(range);
+        }
+        return new GradleVersionIntervalSpec(interval.isEmpty() ? null : interval, exclusions);
+    }
+
+}
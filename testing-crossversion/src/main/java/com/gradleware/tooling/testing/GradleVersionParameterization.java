@@ -79,6 +79,36 @@ public final class GradleVersionParameterization {
         return Combinations.getCombinations(getGradleDistributions(gradleVersionPattern), dataValues);
     }
 
+    /**
+     * Returns the same triplets as {@link #getPermutations(String, List, List)}, but calculates each triplet lazily when it is accessed.
+     *
+     * @param gradleVersionPattern the Gradle versions to match, must not be null
+     * @param dataValues the second dimension of data values, must not be null
+     * @param moreDataValues the third dimension of data values, must not be null
+     * @return the lazy list of triplets, the first element of each triplet is of type {@code GradleDistribution}, never null
+     */
+    public CombinationList getLazyPermutations(String gradleVersionPattern, List<Object> dataValues, List<Object> moreDataValues) {
+        Preconditions.checkNotNull(gradleVersionPattern);
+        Preconditions.checkNotNull(dataValues);
+        Preconditions.checkNotNull(moreDataValues);
+
+        return Combinations.getLazyCombinations(getGradleDistributions(gradleVersionPattern), dataValues, moreDataValues);
+    }
+
+    /**
+     * Returns the same pairs as {@link #getPermutations(String, List)}, but calculates each pair lazily when it is accessed.
+     *
+     * @param gradleVersionPattern the Gradle versions to match, must not be null
+     * @param dataValues the second dimension of data values, must not be null
+     * @return the lazy list of pairs, the first element of each pair is of type {@code GradleDistribution}, never null
+     */
+    public CombinationList getLazyPermutations(String gradleVersionPattern, List<Object> dataValues) {
+        Preconditions.checkNotNull(gradleVersionPattern);
+        Preconditions.checkNotNull(dataValues);
+
+        return Combinations.getLazyCombinations(getGradleDistributions(gradleVersionPattern), dataValues);
+    }
+
     /**
      * Returns a list of {@code GradleDistribution} that match the given Gradle version pattern, where the matching Gradle versions also fall into the supplied version range.
      *
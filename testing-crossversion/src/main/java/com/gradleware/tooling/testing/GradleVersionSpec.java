@@ -17,12 +17,19 @@
 package com.gradleware.tooling.testing;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.gradle.api.specs.Spec;
 import org.gradle.util.GradleVersion;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
 
 /**
  * A specification that matches against Gradle version patterns.
@@ -40,11 +47,15 @@ public final class GradleVersionSpec {
     private static final String SMALLER_THAN_OR_EQUALS = "<=";
     private static final String SMALLER_THAN = "<";
 
+    // compiled specs are cached per constraint since the same constraints are used by many tests
+    private static final ConcurrentMap<String, Spec<GradleVersion>> COMPILED_SPECS = new ConcurrentHashMap<String, Spec<GradleVersion>>();
+
     private GradleVersionSpec() {
     }
 
     /**
-     * Creates a spec from the given version constraint.
+     * Creates a spec from the given version constraint. The returned spec is compiled into an interval of base versions and cached per
+     * constraint.
      *
      * @param constraint the version constraint, must not be null
      * @return the spec representing the version constraint, never null
@@ -52,6 +63,15 @@ public final class GradleVersionSpec {
     public static Spec<GradleVersion> toSpec(String constraint) {
         Preconditions.checkNotNull(constraint);
 
+        Spec<GradleVersion> spec = COMPILED_SPECS.get(constraint);
+        if (spec == null) {
+            spec = compile(constraint);
+            COMPILED_SPECS.putIfAbsent(constraint, spec);
+        }
+        return spec;
+    }
+
+    private static Spec<GradleVersion> compile(String constraint) {
         String trimmed = constraint.trim();
 
         // exclusive patterns
@@ -74,84 +94,35 @@ public final class GradleVersionSpec {
             };
         }
         if (trimmed.startsWith(EQUALS)) {
-            final GradleVersion target = GradleVersion.version(trimmed.substring(1)).getBaseVersion();
-            return new Spec<GradleVersion>() {
-                @Override
-                public boolean isSatisfiedBy(GradleVersion element) {
-                    return element.getBaseVersion().equals(target);
-                }
-            };
+            GradleVersion target = GradleVersion.version(trimmed.substring(1)).getBaseVersion();
+            return GradleVersionIntervalSpec.from(ImmutableList.of(Range.singleton(target)), ImmutableSet.<GradleVersion>of());
         }
         if (trimmed.startsWith(NOT_EQUALS)) {
-            final GradleVersion target = GradleVersion.version(trimmed.substring(2)).getBaseVersion();
-            return new Spec<GradleVersion>() {
-                @Override
-                public boolean isSatisfiedBy(GradleVersion element) {
-                    return !element.getBaseVersion().equals(target);
-                }
-            };
+            GradleVersion target = GradleVersion.version(trimmed.substring(2)).getBaseVersion();
+            return GradleVersionIntervalSpec.from(ImmutableList.<Range<GradleVersion>>of(), ImmutableSet.of(target));
         }
 
         // AND-combined patterns
-        final List<Spec<GradleVersion>> specs = new ArrayList<Spec<GradleVersion>>();
+        List<Range<GradleVersion>> ranges = new ArrayList<Range<GradleVersion>>();
+        Set<GradleVersion> exclusions = new HashSet<GradleVersion>();
         String[] patterns = trimmed.split("\\s+");
         for (String value : patterns) {
             if (value.startsWith(NOT_EQUALS)) {
-                final GradleVersion version = GradleVersion.version(value.substring(2));
-                specs.add(new Spec<GradleVersion>() {
-                    @Override
-                    public boolean isSatisfiedBy(GradleVersion element) {
-                        return !element.getBaseVersion().equals(version);
-                    }
-                });
+                exclusions.add(GradleVersion.version(value.substring(2)));
             } else if (value.startsWith(GREATER_THAN_OR_EQUALS)) {
-                final GradleVersion minVersion = GradleVersion.version(value.substring(2));
-                specs.add(new Spec<GradleVersion>() {
-                    @Override
-                    public boolean isSatisfiedBy(GradleVersion element) {
-                        return element.getBaseVersion().compareTo(minVersion) >= 0;
-                    }
-                });
+                ranges.add(Range.atLeast(GradleVersion.version(value.substring(2))));
             } else if (value.startsWith(GREATER_THAN)) {
-                final GradleVersion minVersion = GradleVersion.version(value.substring(1));
-                specs.add(new Spec<GradleVersion>() {
-                    @Override
-                    public boolean isSatisfiedBy(GradleVersion element) {
-                        return element.getBaseVersion().compareTo(minVersion) > 0;
-                    }
-                });
+                ranges.add(Range.greaterThan(GradleVersion.version(value.substring(1))));
             } else if (value.startsWith(SMALLER_THAN_OR_EQUALS)) {
-                final GradleVersion maxVersion = GradleVersion.version(value.substring(2));
-                specs.add(new Spec<GradleVersion>() {
-                    @Override
-                    public boolean isSatisfiedBy(GradleVersion element) {
-                        return element.getBaseVersion().compareTo(maxVersion) <= 0;
-                    }
-                });
+                ranges.add(Range.atMost(GradleVersion.version(value.substring(2))));
             } else if (value.startsWith(SMALLER_THAN)) {
-                final GradleVersion maxVersion = GradleVersion.version(value.substring(1));
-                specs.add(new Spec<GradleVersion>() {
-                    @Override
-                    public boolean isSatisfiedBy(GradleVersion element) {
-                        return element.getBaseVersion().compareTo(maxVersion) < 0;
-                    }
-                });
+                ranges.add(Range.lessThan(GradleVersion.version(value.substring(1))));
             } else {
                 throw new RuntimeException(String.format("Unsupported version range '%s' specified in constraint '%s'. Supported formats: '>=nnn' or '<=nnn' or space-separate patterns", value, constraint));
             }
         }
 
-        return new Spec<GradleVersion>() {
-            @Override
-            public boolean isSatisfiedBy(GradleVersion element) {
-                for (Spec<GradleVersion> spec : specs) {
-                    if (!spec.isSatisfiedBy(element)) {
-                        return false;
-                    }
-                }
-                return true;
-            }
-        };
+        return GradleVersionIntervalSpec.from(ranges, exclusions);
     }
 
 }
@@ -54,4 +54,55 @@ class CombinationsTest extends Specification {
     combinations == [["Foo", "One"], ["Foo", null], ["Bar", "One"], ["Bar", null]]
   }
 
+  def "getLazyCombinations_same_order_as_getCombinations"() {
+    when:
+    def lists = [["Foo", "Bar"], ["One", "Two", "Three", "Four"], ["Rock", null, "Scissors"]] as List[]
+    def lazyCombinations = Combinations.getLazyCombinations(lists)
+
+    then:
+    lazyCombinations.size() == 24
+    lazyCombinations == Combinations.getCombinations(lists)
+    (0..<24).collect { lazyCombinations.get(it) } == Combinations.getCombinations(lists)
+  }
+
+  def "getLazyCombinations_empty"() {
+    expect:
+    Combinations.getLazyCombinations().isEmpty()
+    Combinations.getLazyCombinations(["Foo"], []).isEmpty()
+    !Combinations.getLazyCombinations(["Foo"], []).iterator().hasNext()
+  }
+
+  def "getLazyCombinations_does_not_calculate_combinations_up_front"() {
+    when:
+    def digits = (0..9).toList()
+    def combinations = Combinations.getLazyCombinations(digits, digits, digits, digits, digits, digits, digits, digits, digits)
+
+    then:
+    combinations.size() == 1000000000
+    combinations.get(123456789) == [1, 2, 3, 4, 5, 6, 7, 8, 9]
+    combinations.subList(999999998, 1000000000).iterator().collect() == [[9, 9, 9, 9, 9, 9, 9, 9, 8], [9, 9, 9, 9, 9, 9, 9, 9, 9]]
+  }
+
+  def "getLazyCombinations_split_into_contiguous_parts"() {
+    setup:
+    def combinations = Combinations.getLazyCombinations(["Foo", "Bar", "Baz"], ["One", "Two", "Three"], ["Rock", "Paper"])
+
+    when:
+    def parts = combinations.split(4)
+
+    then:
+    parts*.size() == [4, 5, 4, 5]
+    parts.collectMany { it.iterator().collect() } == Combinations.getCombinations(["Foo", "Bar", "Baz"], ["One", "Two", "Three"], ["Rock", "Paper"])
+    combinations.split(100).size() == 18
+  }
+
+  def "getLazyCombinations_as_data_provider"() {
+    expect:
+    name.length() == 3
+    number in ["One", "Two"]
+
+    where:
+    [name, number] << Combinations.getLazyCombinations(["Foo", "Bar"], ["One", "Two"])
+  }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.testing
+
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class CrossVersionExecutorTest extends Specification {
+
+  def "permutations of the same distribution share a tooling client and run one after the other"() {
+    setup:
+    def permutations = Combinations.getCombinations([GradleDistribution.forVersion('2.0'), GradleDistribution.forVersion('3.0')], ['a', 'b', 'c'])
+    def clientsByDistribution = new ConcurrentHashMap<GradleDistribution, Set<ToolingClient>>()
+    def running = new ConcurrentHashMap<GradleDistribution, Integer>()
+    def overlapping = false
+
+    when:
+    def report = CrossVersionExecutor.create(2).execute(permutations, { ToolingClient toolingClient, List<Object> permutation ->
+      def distribution = permutation[0] as GradleDistribution
+      clientsByDistribution.putIfAbsent(distribution, Collections.synchronizedSet(new HashSet<ToolingClient>()))
+      clientsByDistribution[distribution] << toolingClient
+      if (running.putIfAbsent(distribution, 1) != null) {
+        overlapping = true
+      }
+      Thread.sleep(10)
+      running.remove(distribution)
+    } as CrossVersionExecutor.PermutationAction)
+
+    then:
+    report.results.size() == 6
+    report.failures.isEmpty()
+    clientsByDistribution.values()*.size() == [1, 1]
+    !overlapping
+    report.durationsByDistribution.keySet() == [GradleDistribution.forVersion('2.0'), GradleDistribution.forVersion('3.0')] as Set
+  }
+
+  def "distributions are executed in parallel"() {
+    setup:
+    def permutations = Combinations.getCombinations([GradleDistribution.forVersion('2.0'), GradleDistribution.forVersion('3.0')], ['a'])
+    def latch = new CountDownLatch(2)
+
+    when:
+    def report = CrossVersionExecutor.create(2).execute(permutations, { ToolingClient toolingClient, List<Object> permutation ->
+      latch.countDown()
+      assert latch.await(10, TimeUnit.SECONDS)
+    } as CrossVersionExecutor.PermutationAction)
+
+    then:
+    report.failures.isEmpty()
+  }
+
+  def "failures are reported without stopping the other permutations"() {
+    setup:
+    def permutations = Combinations.getCombinations([GradleDistribution.forVersion('2.0')], ['a', 'b'])
+
+    when:
+    def report = CrossVersionExecutor.create(1).execute(permutations, { ToolingClient toolingClient, List<Object> permutation ->
+      if (permutation[1] == 'a') {
+        throw new IllegalStateException('boom')
+      }
+    } as CrossVersionExecutor.PermutationAction)
+
+    then:
+    report.results.size() == 2
+    report.failures*.permutation == [[GradleDistribution.forVersion('2.0'), 'a']]
+    report.failures[0].failure.get().message == 'boom'
+  }
+
+}
@@ -68,6 +68,22 @@ class GradleVersionParameterizationTest extends Specification {
     permutations == [[getDistributionForCurrentGradleVersion(), "Foo", "One"], [getDistributionForCurrentGradleVersion(), "Bar", "One"]]
   }
 
+  def "getLazyPermutationsInTwoDimensions"() {
+    when:
+    List<List<Object>> permutations = gradleVersionParameterization.getLazyPermutations(">=2.2", ["Foo", "Bar"])
+
+    then:
+    permutations == gradleVersionParameterization.getPermutations(">=2.2", ["Foo", "Bar"])
+  }
+
+  def "getLazyPermutationsInThreeDimensions"() {
+    when:
+    List<List<Object>> permutations = gradleVersionParameterization.getLazyPermutations(">=2.1", ["Foo", "Bar"], ["One", "Two"])
+
+    then:
+    permutations == gradleVersionParameterization.getPermutations(">=2.1", ["Foo", "Bar"], ["One", "Two"])
+  }
+
   private static GradleDistribution getDistributionForCurrentGradleVersion() {
     if (GradleVersion.current().isSnapshot()) {
       def pattern = "https://services.gradle.org/distributions-snapshots/gradle-%s-bin.zip"
@@ -74,4 +74,83 @@ class GradleVersionSpecTest extends Specification {
     !spec.isSatisfiedBy(GradleVersion.version("1.3"))
   }
 
+  def "combined patterns"() {
+    when:
+    def spec = GradleVersionSpec.toSpec(">=2.0 <=3.3 !=2.5")
+
+    then:
+    spec.isSatisfiedBy(GradleVersion.version("2.0"))
+    spec.isSatisfiedBy(GradleVersion.version("2.4"))
+    spec.isSatisfiedBy(GradleVersion.version("3.3"))
+    spec.isSatisfiedBy(GradleVersion.version("3.3-rc-1"))
+    !spec.isSatisfiedBy(GradleVersion.version("2.5"))
+    !spec.isSatisfiedBy(GradleVersion.version("2.5-rc-2"))
+    !spec.isSatisfiedBy(GradleVersion.version("1.12"))
+    !spec.isSatisfiedBy(GradleVersion.version("3.4"))
+
+    when:
+    spec = GradleVersionSpec.toSpec(">3.0 <2.0")
+
+    then:
+    !spec.isSatisfiedBy(GradleVersion.version("1.0"))
+    !spec.isSatisfiedBy(GradleVersion.version("2.5"))
+    !spec.isSatisfiedBy(GradleVersion.version("3.5"))
+
+    when:
+    spec = GradleVersionSpec.toSpec(">=2.0 <2.0")
+
+    then:
+    !spec.isSatisfiedBy(GradleVersion.version("2.0"))
+  }
+
+  def "compiled specs are cached per constraint"() {
+    expect:
+    GradleVersionSpec.toSpec(">=2.0 <=3.3").is(GradleVersionSpec.toSpec(">=2.0 <=3.3"))
+  }
+
+  def "evaluates thousands of specs over all released versions"() {
+    setup:
+    def versions = allReleasedVersions()
+    def constraints = (0..<5000).collect { int i ->
+      def min = versions[i % versions.size()]
+      def max = versions[(i * 7) % versions.size()]
+      def excluded = versions[(i * 13) % versions.size()]
+      ">=${min.version} <=${max.version} !=${excluded.version}".toString()
+    }
+
+    when:
+    def matches = constraints.collect { String constraint ->
+      def spec = GradleVersionSpec.toSpec(constraint)
+      versions.findAll { spec.isSatisfiedBy(it) }
+    }
+
+    then:
+    [constraints, matches].transpose().every { String constraint, List<GradleVersion> matching ->
+      matching == versions.findAll { referenceMatch(constraint, it) }
+    }
+  }
+
+  private static List<GradleVersion> allReleasedVersions() {
+    def versions = []
+    (0..12).each { versions << GradleVersion.version("1.$it") }
+    (0..14).each { versions << GradleVersion.version("2.$it") }
+    (0..5).each { versions << GradleVersion.version("3.$it") }
+    (0..10).each { versions << GradleVersion.version("4.$it") }
+    versions.addAll(['2.14.1', '3.5.1', '4.10.2', '4.10-rc-1'].collect { GradleVersion.version(it) })
+    versions
+  }
+
+  private static boolean referenceMatch(String constraint, GradleVersion version) {
+    def base = version.baseVersion
+    constraint.split(/\s+/).every { String pattern ->
+      if (pattern.startsWith('!=')) {
+        base != GradleVersion.version(pattern.substring(2))
+      } else if (pattern.startsWith('>=')) {
+        base >= GradleVersion.version(pattern.substring(2))
+      } else {
+        base <= GradleVersion.version(pattern.substring(2))
+      }
+    }
+  }
+
 }
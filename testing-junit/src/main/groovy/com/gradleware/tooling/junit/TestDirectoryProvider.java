@@ -17,8 +17,11 @@
 package com.gradleware.tooling.junit;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
@@ -28,10 +31,33 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A JUnit rule which provides a unique temporary folder for the test.
+ * <p/>
+ * Directory layouts that are shared by many tests can be prepared once per JVM as a template and cloned into the test directory
+ * through {@link #createDirFromTemplate(String, TemplateInitializer, Object...)}. The test directory is deleted in the background
+ * after the test has finished. The rule can be used by tests that are executed in parallel.
  *
  * @author Etienne Studer
  */
@@ -39,6 +65,7 @@ public final class TestDirectoryProvider implements TestRule {
 
     private static File root;
     private static AtomicInteger testCounter;
+    private static final ConcurrentMap<String, FutureTask<File>> templates = new ConcurrentHashMap<String, FutureTask<File>>();
 
     private static final Logger LOG = LoggerFactory.getLogger(TestDirectoryProvider.class);
 
@@ -94,7 +121,7 @@ public final class TestDirectoryProvider implements TestRule {
             @Override
             public void evaluate() throws Throwable {
                 base.evaluate();
-                boolean success = TestDirectoryProvider.FileUtils.deleteRecursive(getTestDirectory());
+                boolean success = TestDirectoryProvider.BackgroundDeleter.delete(getTestDirectory());
                 if (!success) {
                     throw new RuntimeException(String.format("Cannot delete directory '%s'.", TestDirectoryProvider.this.dir));
                 }
@@ -166,6 +193,241 @@ public final class TestDirectoryProvider implements TestRule {
         return dir;
     }
 
+    /**
+     * Creates a directory at the given path that contains a copy of the files of the template with the given id. If no path is given,
+     * the files are copied into the test directory itself. The template is created by the given initializer the first time a template
+     * with the given id is requested within the JVM. All later requests for the same template id reuse the existing template, regardless
+     * of the initializer passed to them.
+     *
+     * @param templateId the id of the template, used as its directory name
+     * @param initializer the initializer that populates the template directory
+     * @param path the path of the directory to create, or no path to use the test directory
+     * @return the created directory
+     */
+    public File createDirFromTemplate(String templateId, TemplateInitializer initializer, Object... path) {
+        return cloneTemplate(templateId, initializer, false, path);
+    }
+
+    /**
+     * Creates a directory at the given path that contains hard links to the files of the template with the given id, falling back to
+     * copies where the file system does not support hard links. Since the linked files are shared with the template and all other
+     * tests that link the same template, they can be deleted or replaced, but must not be modified in place.
+     *
+     * @param templateId the id of the template, used as its directory name
+     * @param initializer the initializer that populates the template directory
+     * @param path the path of the directory to create, or no path to use the test directory
+     * @return the created directory
+     * @see #createDirFromTemplate(String, TemplateInitializer, Object...)
+     */
+    public File linkDirFromTemplate(String templateId, TemplateInitializer initializer, Object... path) {
+        return cloneTemplate(templateId, initializer, true, path);
+    }
+
+    private File cloneTemplate(String templateId, TemplateInitializer initializer, boolean link, Object... path) {
+        File template = getTemplate(templateId, initializer);
+        File dir = path.length == 0 ? getTestDirectory() : createDir(path);
+        try {
+            FileUtils.copyRecursive(template, dir, link);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Cannot clone template '%s' into directory '%s'.", templateId, dir), e);
+        }
+        return dir;
+    }
+
+    private static File getTemplate(final String templateId, final TemplateInitializer initializer) {
+        Preconditions.checkArgument(templateId.matches("[\\w.\\-]+"), "Invalid template id '%s'.", templateId);
+        Preconditions.checkNotNull(initializer);
+
+        FutureTask<File> template = templates.get(templateId);
+        if (template == null) {
+            FutureTask<File> newTemplate = new FutureTask<File>(new Callable<File>() {
+
+                @Override
+                public File call() throws Exception {
+                    File templateDir = new File(BackgroundDeleter.TEMPLATES_ROOT, templateId);
+                    if (!templateDir.mkdirs()) {
+                        throw new RuntimeException(String.format("Cannot create template directory '%s'.", templateDir));
+                    }
+                    initializer.initialize(templateDir);
+                    return templateDir;
+                }
+            });
+            template = templates.putIfAbsent(templateId, newTemplate);
+            if (template == null) {
+                template = newTemplate;
+                newTemplate.run();
+            }
+        }
+
+        try {
+            return Uninterruptibles.getUninterruptibly(template);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(String.format("Cannot initialize template '%s'.", templateId), e.getCause());
+        }
+    }
+
+    /**
+     * Populates a template directory.
+     */
+    public interface TemplateInitializer {
+
+        /**
+         * Populates the given template directory.
+         *
+         * @param templateDir the empty template directory
+         * @throws Exception if the template directory cannot be populated
+         */
+        void initialize(File templateDir) throws Exception;
+
+    }
+
+    /**
+     * Deletes test directories in the background. The test directories are first moved out of the way, such that a test directory
+     * with the same name can be created immediately. Pending deletions are completed before the JVM exits.
+     * <p/>
+     * Each JVM moves its test directories into its own trash directory, which it keeps locked while it is running. The trash directories
+     * of JVMs that were killed before they could clean up are deleted by the next JVM, whereas the trash directories of JVMs that are
+     * still running are left alone. Directories that cannot be deleted are reported when the JVM exits.
+     */
+    private static final class BackgroundDeleter {
+
+        private static final String LOCK_FILE_SUFFIX = ".lock";
+        private static final File TRASH_ROOT = new File(root, ".trash");
+        private static final File TRASH_DIR = new File(TRASH_ROOT, UUID.randomUUID().toString());
+        private static final File TEMPLATES_ROOT = new File(root, ".templates/" + UUID.randomUUID());
+        private static final Set<File> UNDELETED_DIRS = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("test-directory-cleanup").setDaemon(true).build());
+        private static final RandomAccessFile TRASH_LOCK_FILE = lock(TRASH_DIR);
+
+        static {
+            // delete the trash directories of previous test runs that were killed before they could clean up
+            Set<String> trashDirNames = new HashSet<String>();
+            String[] names = TRASH_ROOT.list();
+            if (names != null) {
+                for (String name : names) {
+                    trashDirNames.add(name.endsWith(LOCK_FILE_SUFFIX) ? name.substring(0, name.length() - LOCK_FILE_SUFFIX.length()) : name);
+                }
+            }
+            trashDirNames.remove(TRASH_DIR.getName());
+            for (String trashDirName : trashDirNames) {
+                deleteLaterIfAbandoned(new File(TRASH_ROOT, trashDirName));
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    EXECUTOR.shutdown();
+                    try {
+                        if (!EXECUTOR.awaitTermination(1, TimeUnit.MINUTES)) {
+                            UNDELETED_DIRS.add(TRASH_DIR);
+                        } else if (TRASH_DIR.exists()) {
+                            deleteNow(TRASH_DIR);
+                        }
+                        if (TEMPLATES_ROOT.exists()) {
+                            deleteNow(TEMPLATES_ROOT);
+                        }
+                        // the trash directory is only unlocked once it has been deleted, such that no other JVM deletes it concurrently
+                        TRASH_LOCK_FILE.close();
+                        //noinspection ResultOfMethodCallIgnored
+                        lockFile(TRASH_DIR).delete();
+                    } catch (Exception e) {
+                        LOG.warn("Cannot clean up test directories.", e);
+                    }
+
+                    // report on standard error since the logging might already have been shut down
+                    if (!UNDELETED_DIRS.isEmpty()) {
+                        System.err.println(String.format("Cannot delete the following test directories: %s", UNDELETED_DIRS));
+                    }
+                }
+            }));
+        }
+
+        private static boolean delete(File dir) throws FileNotFoundException {
+            //noinspection ResultOfMethodCallIgnored
+            TRASH_DIR.mkdirs();
+            File trashDir = new File(TRASH_DIR, UUID.randomUUID().toString());
+            if (dir.renameTo(trashDir)) {
+                deleteLater(trashDir);
+                return true;
+            } else {
+                return FileUtils.deleteRecursive(dir);
+            }
+        }
+
+        private static void deleteLater(final File dir) {
+            EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    deleteNow(dir);
+                }
+            });
+        }
+
+        private static void deleteLaterIfAbandoned(final File trashDir) {
+            EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    File lockFile = lockFile(trashDir);
+                    try {
+                        RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+                        try {
+                            // the lock of a trash directory is released by the operating system once its owning JVM has exited
+                            if (file.getChannel().tryLock() == null) {
+                                return;
+                            }
+                            if (trashDir.exists()) {
+                                deleteNow(trashDir);
+                            }
+                        } finally {
+                            file.close();
+                        }
+                        //noinspection ResultOfMethodCallIgnored
+                        lockFile.delete();
+                    } catch (IOException e) {
+                        LOG.warn(String.format("Cannot delete abandoned trash directory '%s'.", trashDir), e);
+                    } catch (OverlappingFileLockException e) {
+                        // the trash directory is owned by this JVM
+                    }
+                }
+            });
+        }
+
+        private static void deleteNow(File dir) {
+            boolean success;
+            try {
+                success = FileUtils.deleteRecursive(dir);
+            } catch (FileNotFoundException e) {
+                LOG.warn(String.format("Cannot delete directory '%s'.", dir), e);
+                success = false;
+            }
+            if (!success) {
+                LOG.warn("Cannot delete directory '{}'.", dir);
+                UNDELETED_DIRS.add(dir);
+            }
+        }
+
+        private static RandomAccessFile lock(File trashDir) {
+            //noinspection ResultOfMethodCallIgnored
+            TRASH_ROOT.mkdirs();
+            File lockFile = lockFile(trashDir);
+            try {
+                RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+                file.getChannel().lock();
+                return file;
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Cannot lock trash directory '%s'.", trashDir), e);
+            }
+        }
+
+        private static File lockFile(File trashDir) {
+            return new File(trashDir.getParentFile(), trashDir.getName() + LOCK_FILE_SUFFIX);
+        }
+
+    }
+
     /**
      * Contains file operation utilities.
      */
@@ -182,6 +444,36 @@ public final class TestDirectoryProvider implements TestRule {
             return success && path.delete();
         }
 
+        private static void copyRecursive(File source, File target, final boolean link) throws IOException {
+            final Path sourcePath = source.toPath();
+            final Path targetPath = target.toPath();
+            Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path targetFile = targetPath.resolve(sourcePath.relativize(file));
+                    if (link) {
+                        try {
+                            Files.createLink(targetFile, file);
+                            return FileVisitResult.CONTINUE;
+                        } catch (UnsupportedOperationException e) {
+                            // fall back to copying the file
+                        } catch (IOException e) {
+                            // fall back to copying the file, e.g. if the template is on a different file system
+                        }
+                    }
+                    Files.copy(file, targetFile);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
     }
 
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.junit
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.junit.TestDirectoryProvider.TemplateInitializer
+import org.junit.Rule
+import org.junit.rules.TestRule
+import org.junit.runner.Description
+import org.junit.runners.model.Statement
+import org.slf4j.LoggerFactory
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicInteger
+
+class TestDirectoryProviderTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  PollingConditions conditions = new PollingConditions(timeout: 30)
+
+  def "templates are initialized once and copied into each directory"() {
+    given:
+    def initializations = new AtomicInteger()
+    def initializer = { File templateDir ->
+      initializations.incrementAndGet()
+      new File(templateDir, 'sub').mkdirs()
+      new File(templateDir, 'sub/build.gradle') << 'task myTask {}'
+    } as TemplateInitializer
+
+    when:
+    def first = directoryProvider.createDirFromTemplate('copied-template', initializer, 'first')
+    def second = directoryProvider.createDirFromTemplate('copied-template', initializer, 'second')
+    new File(first, 'sub/build.gradle') << ' // modified'
+
+    then:
+    initializations.get() == 1
+    new File(first, 'sub/build.gradle').text == 'task myTask {} // modified'
+    new File(second, 'sub/build.gradle').text == 'task myTask {}'
+  }
+
+  def "templates are copied into the test directory if no path is given"() {
+    when:
+    def dir = directoryProvider.createDirFromTemplate('copied-into-test-directory-template', { File templateDir ->
+      new File(templateDir, 'settings.gradle') << "rootProject.name = 'root'"
+    } as TemplateInitializer)
+
+    then:
+    dir == directoryProvider.testDirectory
+    new File(dir, 'settings.gradle').text == "rootProject.name = 'root'"
+  }
+
+  def "linked templates share the files of the template"() {
+    given:
+    def initializer = { File templateDir ->
+      new File(templateDir, 'sub').mkdirs()
+      new File(templateDir, 'sub/build.gradle') << 'task myTask {}'
+    } as TemplateInitializer
+
+    when:
+    def first = directoryProvider.linkDirFromTemplate('linked-template', initializer, 'first')
+    def second = directoryProvider.linkDirFromTemplate('linked-template', initializer, 'second')
+
+    then:
+    new File(first, 'sub/build.gradle').text == 'task myTask {}'
+    new File(second, 'sub/build.gradle').text == 'task myTask {}'
+    Files.isSameFile(new File(first, 'sub/build.gradle').toPath(), new File(second, 'sub/build.gradle').toPath()) || !FileSystems.default.supportedFileAttributeViews().contains('unix')
+
+    when:
+    Files.delete(new File(first, 'sub/build.gradle').toPath())
+
+    then:
+    new File(second, 'sub/build.gradle').text == 'task myTask {}'
+  }
+
+  def "test directories are moved out of the way and deleted in the background"() {
+    given:
+    def marker = "marker-${UUID.randomUUID()}"
+    def description = Description.createTestDescription(TestDirectoryProviderTest, 'deleted in the background')
+    def firstProvider = new TestDirectoryProvider()
+    def secondProvider = new TestDirectoryProvider()
+
+    when:
+    def firstDir = evaluate(firstProvider, description) { File dir -> new File(dir, marker) << 'content' }
+
+    then:
+    !firstDir.exists()
+
+    when:
+    def secondDir = evaluate(secondProvider, description) { File dir -> }
+
+    then:
+    secondDir == firstDir
+    conditions.eventually {
+      assert !containsFile(new File(rootDir(firstDir), '.trash'), marker)
+    }
+  }
+
+  def "stale trash directories of test runs that did not clean up are deleted"() {
+    given:
+    def trashRoot = new File(rootDir(directoryProvider.testDirectory), '.trash')
+    def staleTrashDir = new File(trashRoot, UUID.randomUUID().toString())
+    new File(staleTrashDir, 'sub').mkdirs()
+    new File(staleTrashDir, 'sub/build.gradle') << 'task myTask {}'
+    new File(trashRoot, "${staleTrashDir.name}.lock").createNewFile()
+
+    def lockedTrashDir = new File(trashRoot, UUID.randomUUID().toString())
+    new File(lockedTrashDir, 'sub').mkdirs()
+    def lockFile = new RandomAccessFile(new File(trashRoot, "${lockedTrashDir.name}.lock"), 'rw')
+    lockFile.channel.lock()
+
+    when:
+    // the trash directories are swept when the background deleter is initialized, which happens once per class loader
+    Class.forName(TestDirectoryProvider.name + '$BackgroundDeleter', true, newIsolatedClassLoader())
+
+    then:
+    conditions.eventually {
+      assert !staleTrashDir.exists()
+      assert !new File(trashRoot, "${staleTrashDir.name}.lock").exists()
+    }
+    lockedTrashDir.exists()
+
+    cleanup:
+    lockFile?.close()
+    lockedTrashDir?.deleteDir()
+    new File(trashRoot, "${lockedTrashDir.name}.lock").delete()
+  }
+
+  private static File evaluate(TestDirectoryProvider provider, Description description, Closure action) {
+    def dirs = []
+    provider.apply(new Statement() {
+
+      @Override
+      void evaluate() throws Throwable {
+        def dir = provider.testDirectory
+        action(dir)
+        dirs << dir
+      }
+    }, description).evaluate()
+    dirs[0]
+  }
+
+  private static File rootDir(File testDirectory) {
+    // test directories are located at <root>/<class name>/<method name>
+    testDirectory.parentFile.parentFile
+  }
+
+  private static boolean containsFile(File dir, String name) {
+    boolean found = false
+    if (dir.exists()) {
+      dir.eachFileRecurse { File file -> found = found || file.name == name }
+    }
+    found
+  }
+
+  private static ClassLoader newIsolatedClassLoader() {
+    def urls = [TestDirectoryProvider, Optional, TestRule, LoggerFactory].collect { it.protectionDomain.codeSource.location }.unique()
+    new URLClassLoader(urls as URL[], (ClassLoader) null)
+  }
+
+}
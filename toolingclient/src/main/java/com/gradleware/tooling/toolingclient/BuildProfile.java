@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Snapshot of the execution profile of a build, as recorded by a {@link BuildProfiler}. Only tasks that have finished executing are
+ * taken into account for the wall clock time, the parallelism, and the critical path. All time stamps are in milliseconds since the
+ * epoch, all durations are in milliseconds.
+ *
+ * @author Etienne Studer
+ */
+public final class BuildProfile {
+
+    private final ImmutableList<TaskProfile> tasks;
+    private final long startTime;
+    private final long endTime;
+    private final long serialTime;
+    private final long[] timelineTimes;
+    private final int[] timelineParallelism;
+    private final long[] timeAtParallelism;
+    private final ImmutableList<TaskProfile> criticalPath;
+
+    private BuildProfile(List<TaskProfile> tasks) {
+        this.tasks = ImmutableList.copyOf(tasks);
+
+        List<TaskProfile> finishedTasks = finishedTasksByEndTime(this.tasks);
+        int count = finishedTasks.size();
+        long[] startTimes = new long[count];
+        long[] endTimes = new long[count];
+        long serialTime = 0;
+        for (int i = 0; i < count; i++) {
+            TaskProfile task = finishedTasks.get(i);
+            startTimes[i] = task.getStartTime();
+            endTimes[i] = task.getEndTime();
+            serialTime += task.getDuration();
+        }
+        Arrays.sort(startTimes);
+
+        this.startTime = count > 0 ? startTimes[0] : 0;
+        this.endTime = count > 0 ? endTimes[count - 1] : 0;
+        this.serialTime = serialTime;
+
+        // sweep over the start and end times, the parallelism at a time stamp is the parallelism after processing all tasks starting or
+        // ending at that time stamp
+        long[] times = new long[2 * count];
+        int[] parallelism = new int[2 * count];
+        int points = 0;
+        int running = 0;
+        int maxParallelism = 0;
+        int nextStart = 0;
+        int nextEnd = 0;
+        while (nextEnd < count) {
+            long time;
+            if (nextStart < count && startTimes[nextStart] <= endTimes[nextEnd]) {
+                time = startTimes[nextStart++];
+                running++;
+            } else {
+                time = endTimes[nextEnd++];
+                running--;
+            }
+            if (points > 0 && times[points - 1] == time) {
+                parallelism[points - 1] = running;
+            } else {
+                times[points] = time;
+                parallelism[points] = running;
+                points++;
+            }
+        }
+        for (int i = 0; i < points; i++) {
+            maxParallelism = Math.max(maxParallelism, parallelism[i]);
+        }
+        this.timelineTimes = Arrays.copyOf(times, points);
+        this.timelineParallelism = Arrays.copyOf(parallelism, points);
+
+        this.timeAtParallelism = new long[maxParallelism + 1];
+        for (int i = 0; i + 1 < points; i++) {
+            this.timeAtParallelism[parallelism[i]] += times[i + 1] - times[i];
+        }
+
+        this.criticalPath = calculateCriticalPath(finishedTasks, endTimes);
+    }
+
+    private static List<TaskProfile> finishedTasksByEndTime(List<TaskProfile> tasks) {
+        List<TaskProfile> finishedTasks = Lists.newArrayListWithCapacity(tasks.size());
+        for (TaskProfile task : tasks) {
+            if (task.getOutcome() != TaskProfile.Outcome.RUNNING) {
+                finishedTasks.add(task);
+            }
+        }
+        Collections.sort(finishedTasks, TaskEndTimeComparator.INSTANCE);
+        return finishedTasks;
+    }
+
+    /*
+     * The tooling API does not expose the task dependencies, thus the critical path is derived from the execution timeline: starting with
+     * the task that finished last, the predecessor of each task on the path is the task that finished last before the task started.
+     */
+    private static ImmutableList<TaskProfile> calculateCriticalPath(List<TaskProfile> finishedTasksByEndTime, long[] endTimes) {
+        if (finishedTasksByEndTime.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        List<TaskProfile> path = Lists.newArrayList();
+        int current = finishedTasksByEndTime.size() - 1;
+        while (current >= 0) {
+            TaskProfile task = finishedTasksByEndTime.get(current);
+            path.add(task);
+            current = lastIndexNotAfter(endTimes, current, task.getStartTime());
+        }
+        return ImmutableList.copyOf(path).reverse();
+    }
+
+    private static int lastIndexNotAfter(long[] sortedTimes, int limit, long time) {
+        int low = 0;
+        int high = limit - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (sortedTimes[middle] <= time) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the profiles of all tasks, in the order in which the tasks started to execute.
+     *
+     * @return the task profiles, never null
+     */
+    public List<TaskProfile> getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * Returns the time elapsed between the start of the first task and the end of the last task.
+     *
+     * @return the wall clock time
+     */
+    public long getWallClockTime() {
+        return this.endTime - this.startTime;
+    }
+
+    /**
+     * Returns the sum of the execution times of all tasks, i.e. the time the build would take if all tasks were executed serially.
+     *
+     * @return the serial time
+     */
+    public long getSerialTime() {
+        return this.serialTime;
+    }
+
+    /**
+     * Returns the average number of tasks that were executing in parallel.
+     *
+     * @return the average parallelism, 0 if no task has finished
+     */
+    public double getAverageParallelism() {
+        long wallClockTime = getWallClockTime();
+        return wallClockTime > 0 ? (double) this.serialTime / wallClockTime : 0;
+    }
+
+    /**
+     * Returns the maximum number of tasks that were executing in parallel.
+     *
+     * @return the maximum parallelism
+     */
+    public int getMaxParallelism() {
+        return this.timeAtParallelism.length - 1;
+    }
+
+    /**
+     * Returns the number of tasks that were executing in parallel at the given time.
+     *
+     * @param time the time stamp
+     * @return the parallelism at the given time
+     */
+    public int getParallelismAt(long time) {
+        int index = lastIndexNotAfter(this.timelineTimes, this.timelineTimes.length, time);
+        return index < 0 ? 0 : this.timelineParallelism[index];
+    }
+
+    /**
+     * Returns the total time during which exactly the given number of tasks were executing in parallel.
+     *
+     * @param parallelism the number of tasks executing in parallel
+     * @return the total time at the given parallelism
+     */
+    public long getTimeAtParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism >= 0, "Parallelism must not be negative.");
+        return parallelism < this.timeAtParallelism.length ? this.timeAtParallelism[parallelism] : 0;
+    }
+
+    /**
+     * Returns the chain of tasks that determined the wall clock time of the build, from the first to the last task. Since the task
+     * dependencies are not known, the chain is derived from the execution timeline: the predecessor of each task is the task that
+     * finished last before the task started.
+     *
+     * @return the tasks on the critical path, never null
+     */
+    public List<TaskProfile> getCriticalPath() {
+        return this.criticalPath;
+    }
+
+    static BuildProfile from(List<TaskProfile> tasks) {
+        return new BuildProfile(tasks);
+    }
+
+    /**
+     * Singleton comparator to compare {@code TaskProfile} instances by their end time.
+     */
+    private enum TaskEndTimeComparator implements Comparator<TaskProfile> {
+
+        INSTANCE;
+
+        @Override
+        public int compare(TaskProfile o1, TaskProfile o2) {
+            return o1.getEndTime() < o2.getEndTime() ? -1 : (o1.getEndTime() == o2.getEndTime() ? 0 : 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed progress listener that records the execution profile of a build from the task and test progress events. Register an instance
+ * with {@link Request#addTypedProgressListeners(org.gradle.tooling.events.ProgressListener...)} and call {@link #getProfile()} once
+ * the request has completed, or at any time while the request is running.
+ * <p/>
+ * The events are recorded in pre-sized primitive arrays, indexed by the order in which the tasks started, and no objects are retained
+ * per event. The arrays only grow if the build executes more tasks than expected.
+ *
+ * @author Etienne Studer
+ */
+public final class BuildProfiler implements SelectiveProgressListener {
+
+    /**
+     * The number of tasks for which space is reserved if none is specified.
+     */
+    public static final int DEFAULT_EXPECTED_TASK_COUNT = 256;
+
+    private static final Set<OperationType> OPERATION_TYPES = EnumSet.of(OperationType.TASK, OperationType.TEST);
+    private static final long NOT_FINISHED = -1;
+
+    private final Object LOCK = new Object();
+
+    private final Map<String, Integer> taskIndices;
+    private String[] taskPaths;
+    private long[] startTimes;
+    private long[] endTimes;
+    private byte[] outcomes;
+    private int[] testCounts;
+    private int[] failedTestCounts;
+    private int taskCount;
+
+    private BuildProfiler(int expectedTaskCount) {
+        Preconditions.checkArgument(expectedTaskCount > 0, "Expected task count must be positive.");
+        this.taskIndices = Maps.newHashMapWithExpectedSize(expectedTaskCount);
+        this.taskPaths = new String[expectedTaskCount];
+        this.startTimes = new long[expectedTaskCount];
+        this.endTimes = new long[expectedTaskCount];
+        this.outcomes = new byte[expectedTaskCount];
+        this.testCounts = new int[expectedTaskCount];
+        this.failedTestCounts = new int[expectedTaskCount];
+        this.taskCount = 0;
+    }
+
+    @Override
+    public Set<OperationType> getOperationTypes() {
+        return OPERATION_TYPES;
+    }
+
+    @Override
+    public void statusChanged(ProgressEvent event) {
+        if (event instanceof TaskStartEvent) {
+            taskStarted((TaskStartEvent) event);
+        } else if (event instanceof TaskFinishEvent) {
+            taskFinished((TaskFinishEvent) event);
+        } else if (event instanceof TestFinishEvent) {
+            testFinished((TestFinishEvent) event);
+        }
+    }
+
+    private void taskStarted(TaskStartEvent event) {
+        synchronized (this.LOCK) {
+            String taskPath = event.getDescriptor().getTaskPath();
+            if (this.taskCount == this.taskPaths.length) {
+                grow();
+            }
+            int index = this.taskCount++;
+            this.taskIndices.put(taskPath, index);
+            this.taskPaths[index] = taskPath;
+            this.startTimes[index] = event.getEventTime();
+            this.endTimes[index] = NOT_FINISHED;
+            this.outcomes[index] = (byte) TaskProfile.Outcome.RUNNING.ordinal();
+        }
+    }
+
+    private void taskFinished(TaskFinishEvent event) {
+        synchronized (this.LOCK) {
+            Integer index = this.taskIndices.get(event.getDescriptor().getTaskPath());
+            if (index != null) {
+                OperationResult result = event.getResult();
+                this.startTimes[index] = result.getStartTime();
+                this.endTimes[index] = result.getEndTime();
+                this.outcomes[index] = (byte) toOutcome(result).ordinal();
+            }
+        }
+    }
+
+    private void testFinished(TestFinishEvent event) {
+        // only count the atomic tests, not the test suites
+        if (!(event.getDescriptor() instanceof JvmTestOperationDescriptor)
+                || ((JvmTestOperationDescriptor) event.getDescriptor()).getJvmTestKind() != JvmTestKind.ATOMIC) {
+            return;
+        }
+
+        TaskOperationDescriptor task = findParentTask(event.getDescriptor());
+        if (task != null) {
+            synchronized (this.LOCK) {
+                Integer index = this.taskIndices.get(task.getTaskPath());
+                if (index != null) {
+                    this.testCounts[index]++;
+                    if (event.getResult() instanceof TestFailureResult) {
+                        this.failedTestCounts[index]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private static TaskOperationDescriptor findParentTask(OperationDescriptor descriptor) {
+        OperationDescriptor parent = descriptor.getParent();
+        while (parent != null && !(parent instanceof TaskOperationDescriptor)) {
+            parent = parent.getParent();
+        }
+        return (TaskOperationDescriptor) parent;
+    }
+
+    private static TaskProfile.Outcome toOutcome(OperationResult result) {
+        if (result instanceof TaskFailureResult) {
+            return TaskProfile.Outcome.FAILED;
+        } else if (result instanceof TaskSkippedResult) {
+            return TaskProfile.Outcome.SKIPPED;
+        } else if (result instanceof TaskSuccessResult) {
+            TaskSuccessResult successResult = (TaskSuccessResult) result;
+            if (successResult.isFromCache()) {
+                return TaskProfile.Outcome.FROM_CACHE;
+            } else if (successResult.isUpToDate()) {
+                return TaskProfile.Outcome.UP_TO_DATE;
+            }
+        }
+        return TaskProfile.Outcome.SUCCESS;
+    }
+
+    private void grow() {
+        int capacity = this.taskPaths.length * 2;
+        this.taskPaths = Arrays.copyOf(this.taskPaths, capacity);
+        this.startTimes = Arrays.copyOf(this.startTimes, capacity);
+        this.endTimes = Arrays.copyOf(this.endTimes, capacity);
+        this.outcomes = Arrays.copyOf(this.outcomes, capacity);
+        this.testCounts = Arrays.copyOf(this.testCounts, capacity);
+        this.failedTestCounts = Arrays.copyOf(this.failedTestCounts, capacity);
+    }
+
+    /**
+     * Returns a snapshot of the execution profile recorded so far.
+     *
+     * @return the build profile, never null
+     */
+    public BuildProfile getProfile() {
+        TaskProfile.Outcome[] outcomeValues = TaskProfile.Outcome.values();
+        ImmutableList.Builder<TaskProfile> tasks = ImmutableList.builder();
+        synchronized (this.LOCK) {
+            for (int i = 0; i < this.taskCount; i++) {
+                tasks.add(TaskProfile.from(this.taskPaths[i], this.startTimes[i], this.endTimes[i], outcomeValues[this.outcomes[i]],
+                        this.testCounts[i], this.failedTestCounts[i]));
+            }
+        }
+        return BuildProfile.from(tasks.build());
+    }
+
+    /**
+     * Creates a new instance that reserves space for {@link #DEFAULT_EXPECTED_TASK_COUNT} tasks.
+     *
+     * @return the new instance
+     */
+    public static BuildProfiler create() {
+        return create(DEFAULT_EXPECTED_TASK_COUNT);
+    }
+
+    /**
+     * Creates a new instance that reserves space for the given number of tasks.
+     *
+     * @param expectedTaskCount the number of tasks the build is expected to execute, must be positive
+     * @return the new instance
+     */
+    public static BuildProfiler create(int expectedTaskCount) {
+        return new BuildProfiler(expectedTaskCount);
+    }
+
+}
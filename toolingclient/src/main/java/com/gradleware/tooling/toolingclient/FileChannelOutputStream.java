@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output stream that streams the written bytes to a file through a {@link FileChannel}. Intended to be passed to
+ * {@link Request#standardOutput(OutputStream)} and {@link Request#standardError(OutputStream)} to keep the complete output of a request
+ * without holding it in memory.
+ * <p/>
+ * The bytes are collected in a fixed-size direct buffer and written to the channel whenever the buffer is full, when the stream is
+ * flushed, and when the stream is closed. Writes larger than the buffer bypass the buffer. The stream must be closed once the request
+ * has completed.
+ *
+ * @author Etienne Studer
+ */
+public final class FileChannelOutputStream extends OutputStream {
+
+    /**
+     * The buffer size in bytes that is applied if none is specified.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private FileChannelOutputStream(File file, FileChannel channel, int bufferSize) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns the file to which the bytes are written.
+     *
+     * @return the file, never null
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (!this.buffer.hasRemaining()) {
+            drainBuffer();
+        }
+        this.buffer.put((byte) b);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+        if (length > this.buffer.remaining()) {
+            drainBuffer();
+            if (length > this.buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes, offset, length));
+                return;
+            }
+        }
+        this.buffer.put(bytes, offset, length);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        drainBuffer();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel.isOpen()) {
+            try {
+                drainBuffer();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    private void drainBuffer() throws IOException {
+        this.buffer.flip();
+        writeFully(this.buffer);
+        this.buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            this.channel.write(bytes);
+        }
+    }
+
+    /**
+     * Creates a new instance that writes to the given file. If the file already exists, it is truncated.
+     *
+     * @param file the file to write to
+     * @return the new instance
+     * @throws UncheckedIOException if the file cannot be opened for writing
+     */
+    public static FileChannelOutputStream create(File file) {
+        return create(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new instance that writes to the given file. If the file already exists, it is truncated.
+     *
+     * @param file the file to write to
+     * @param bufferSize the size of the write buffer in bytes, must be positive
+     * @return the new instance
+     * @throws UncheckedIOException if the file cannot be opened for writing
+     */
+    public static FileChannelOutputStream create(File file, int bufferSize) {
+        Preconditions.checkNotNull(file);
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive.");
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new FileChannelOutputStream(file, channel, bufferSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot open file '%s' for writing.", file), e);
+        }
+    }
+
+}
@@ -17,10 +17,12 @@
 package com.gradleware.tooling.toolingclient;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import org.gradle.tooling.GradleConnector;
 
 import java.io.File;
+import java.io.Serializable;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
@@ -30,7 +32,9 @@ import java.util.List;
  *
  * @author Etienne Studer
  */
-public final class GradleDistribution {
+public final class GradleDistribution implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final File localInstallationDir;
     private final URI remoteDistributionUri;
@@ -73,6 +77,23 @@ public final class GradleDistribution {
         }
     }
 
+    /**
+     * Returns the location of the distribution archive if this distribution is downloaded. For a fixed version, the location is
+     * resolved against the given base location under the archive name used by the official Gradle distribution server.
+     *
+     * @param distributionsBaseUri the base location of the distribution archives of fixed versions
+     * @return the location of the distribution archive, absent for local installations and project-specific distributions
+     */
+    Optional<URI> getDistributionUri(URI distributionsBaseUri) {
+        if (this.remoteDistributionUri != null) {
+            return Optional.of(this.remoteDistributionUri);
+        } else if (this.version != null) {
+            return Optional.of(distributionsBaseUri.resolve(String.format("gradle-%s-bin.zip", this.version)));
+        } else {
+            return Optional.absent();
+        }
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) {
@@ -125,6 +146,7 @@ public final class GradleDistribution {
      * @param distributionUri the remote Gradle distribution location to use
      * @return a new distribution instance
      * @see org.gradle.tooling.GradleConnector#useDistribution(java.net.URI)
+     * @see GradleDistributionCache
      */
     public static GradleDistribution forRemoteDistribution(URI distributionUri) {
         Preconditions.checkNotNull(distributionUri);
@@ -137,6 +159,7 @@ public final class GradleDistribution {
      * @param version the Gradle version to use
      * @return a new distribution instance
      * @see org.gradle.tooling.GradleConnector#useGradleVersion(String)
+     * @see GradleDistributionCache
      */
     public static GradleDistribution forVersion(String version) {
         Preconditions.checkNotNull(version);
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.Enumeration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Downloads and unpacks Gradle distributions into a local cache directory ahead of their first use, such that the first request
+ * against a new Gradle version does not have to wait for the connector to download the distribution.
+ * <p/>
+ * Distributions referenced by version are looked up relative to the given distributions base location, which can be the official
+ * Gradle distribution server, a mirror, or a local directory referenced through a {@code file:} URI. Distributions referenced by a
+ * remote location are downloaded from that location. If a {@code .sha256} file is published next to a distribution archive, the
+ * archive is verified against it before it is unpacked. Local installations and project-specific distributions are not cached.
+ * <p/>
+ * Concurrent requests for the same distribution share a single download. Unpacked distributions are moved into the cache directory
+ * atomically, such that several processes can share the same cache directory. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class GradleDistributionCache {
+
+    /**
+     * The base location of the distribution archives on the official Gradle distribution server.
+     */
+    public static final URI DEFAULT_DISTRIBUTIONS_BASE_URI = URI.create("https://services.gradle.org/distributions/");
+
+    private static final Logger LOG = LoggerFactory.getLogger(GradleDistributionCache.class);
+
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+    private static final int CONNECT_TIMEOUT = 30000;
+    private static final int READ_TIMEOUT = 60000;
+
+    private final File cacheDir;
+    private final URI distributionsBaseUri;
+    private final boolean offline;
+    private final ExecutorService executor;
+    private final ConcurrentMap<URI, InstallationTask> installations;
+
+    private GradleDistributionCache(File cacheDir, URI distributionsBaseUri, boolean offline) {
+        this.cacheDir = Preconditions.checkNotNull(cacheDir);
+        this.distributionsBaseUri = Preconditions.checkNotNull(distributionsBaseUri);
+        this.offline = offline;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("gradle-distribution-cache-%d").setDaemon(true).build());
+        this.installations = new ConcurrentHashMap<URI, InstallationTask>();
+    }
+
+    /**
+     * Starts downloading and unpacking the given distribution in the background, unless it is already cached or already being
+     * downloaded.
+     *
+     * @param distribution the distribution to prefetch
+     * @return the future local installation of the distribution, or the given distribution itself if it is not downloaded
+     */
+    public Future<GradleDistribution> prefetch(GradleDistribution distribution) {
+        Preconditions.checkNotNull(distribution);
+        Optional<URI> distributionUri = distribution.getDistributionUri(this.distributionsBaseUri);
+        if (!distributionUri.isPresent()) {
+            return Futures.immediateFuture(distribution);
+        }
+
+        URI uri = distributionUri.get();
+        InstallationTask installation = this.installations.get(uri);
+        if (installation == null) {
+            InstallationTask newInstallation = new InstallationTask(uri);
+            installation = this.installations.putIfAbsent(uri, newInstallation);
+            if (installation == null) {
+                installation = newInstallation;
+                this.executor.execute(newInstallation);
+            }
+        }
+        return installation;
+    }
+
+    /**
+     * Returns the local installation of the given distribution, downloading and unpacking the distribution first if it is not cached
+     * yet. The returned distribution can be passed to {@link BuildRequest#gradleDistribution(GradleDistribution)}.
+     *
+     * @param distribution the distribution to resolve
+     * @return the local installation of the distribution, or the given distribution itself if it is not downloaded
+     * @throws UncheckedIOException if the distribution cannot be downloaded or unpacked
+     * @throws IllegalStateException if the distribution fails verification or is not cached in offline mode
+     */
+    public GradleDistribution resolve(GradleDistribution distribution) {
+        try {
+            return Uninterruptibles.getUninterruptibly(prefetch(distribution));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(String.format("Cannot resolve %s.", distribution), e.getCause());
+        }
+    }
+
+    /**
+     * Returns whether the given distribution is already unpacked in the cache directory.
+     *
+     * @param distribution the distribution to check
+     * @return {@code true} if the distribution is cached
+     */
+    public boolean isCached(GradleDistribution distribution) {
+        Preconditions.checkNotNull(distribution);
+        Optional<URI> distributionUri = distribution.getDistributionUri(this.distributionsBaseUri);
+        return distributionUri.isPresent() && getDistributionDir(distributionUri.get()).isDirectory();
+    }
+
+    private File install(URI uri) throws IOException {
+        File distributionDir = getDistributionDir(uri);
+        if (distributionDir.isDirectory()) {
+            return findInstallationDir(distributionDir);
+        }
+
+        boolean local = "file".equals(uri.getScheme());
+        if (this.offline && !local) {
+            throw new IllegalStateException(String.format("Gradle distribution %s is not cached and cannot be downloaded in offline mode.", uri));
+        }
+
+        // unpack into a temporary directory first so that the cache never contains a partially unpacked distribution
+        File parentDir = distributionDir.getParentFile();
+        //noinspection ResultOfMethodCallIgnored
+        parentDir.mkdirs();
+        File tempDir = java.nio.file.Files.createTempDirectory(parentDir.toPath(), distributionDir.getName() + ".").toFile();
+        try {
+            File archive;
+            if (local) {
+                archive = new File(uri);
+            } else {
+                archive = new File(tempDir, parentDir.getName() + ".zip");
+                LOG.info("Downloading Gradle distribution {}.", uri);
+                download(uri, archive);
+            }
+            verify(uri, archive);
+
+            File unpackDir = new File(tempDir, "unpacked");
+            unzip(archive, unpackDir);
+
+            // another process might have installed the same distribution in the meantime, in which case its installation is used
+            try {
+                java.nio.file.Files.move(unpackDir.toPath(), distributionDir.toPath(), java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (!distributionDir.isDirectory()) {
+                    throw e;
+                }
+            }
+            return findInstallationDir(distributionDir);
+        } finally {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    private File getDistributionDir(URI uri) {
+        String path = uri.getPath();
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        String name = fileName.endsWith(".zip") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        String hash = Hashing.sha1().hashString(uri.toString(), Charsets.UTF_8).toString();
+        return new File(new File(this.cacheDir, name), hash);
+    }
+
+    private static File findInstallationDir(File distributionDir) {
+        File[] files = distributionDir.listFiles();
+        if (files == null || files.length != 1 || !files[0].isDirectory()) {
+            throw new IllegalStateException(String.format("Gradle distribution in %s does not contain a single installation directory.", distributionDir));
+        }
+        return files[0];
+    }
+
+    private static void download(URI uri, File target) throws IOException {
+        InputStream input = null;
+        OutputStream output = null;
+        try {
+            input = openConnection(uri).getInputStream();
+            output = new BufferedOutputStream(new FileOutputStream(target));
+            ByteStreams.copy(input, output);
+        } finally {
+            Closeables.close(output, false);
+            Closeables.close(input, true);
+        }
+    }
+
+    private static void verify(URI uri, File archive) throws IOException {
+        Optional<String> expectedChecksum = readChecksum(uri);
+        if (!expectedChecksum.isPresent()) {
+            LOG.info("No checksum published for Gradle distribution {}, skipping verification.", uri);
+            return;
+        }
+
+        String actualChecksum = Files.hash(archive, Hashing.sha256()).toString();
+        if (!actualChecksum.equalsIgnoreCase(expectedChecksum.get())) {
+            throw new IllegalStateException(String.format("Gradle distribution %s does not match its published checksum (expected %s, actual %s).",
+                    uri, expectedChecksum.get(), actualChecksum));
+        }
+    }
+
+    private static Optional<String> readChecksum(URI uri) throws IOException {
+        InputStream input = null;
+        try {
+            input = openConnection(URI.create(uri.toString() + CHECKSUM_SUFFIX)).getInputStream();
+            String content = new String(ByteStreams.toByteArray(input), Charsets.UTF_8).trim();
+            // the checksum file may also contain the file name after the checksum
+            return Optional.of(content.split("\\s+")[0]);
+        } catch (FileNotFoundException e) {
+            return Optional.absent();
+        } finally {
+            Closeables.close(input, true);
+        }
+    }
+
+    private static URLConnection openConnection(URI uri) throws IOException {
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        return connection;
+    }
+
+    private static void unzip(File archive, File targetDir) throws IOException {
+        String targetPath = targetDir.getCanonicalPath() + File.separator;
+        ZipFile zipFile = new ZipFile(archive);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                File target = new File(targetDir, entry.getName());
+                if (!target.getCanonicalPath().startsWith(targetPath)) {
+                    throw new IllegalStateException(String.format("Gradle distribution %s contains entry %s outside of the distribution.", archive, entry.getName()));
+                }
+                if (entry.isDirectory()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    target.mkdirs();
+                } else {
+                    //noinspection ResultOfMethodCallIgnored
+                    target.getParentFile().mkdirs();
+                    InputStream input = zipFile.getInputStream(entry);
+                    try {
+                        java.nio.file.Files.copy(input, target.toPath());
+                    } finally {
+                        Closeables.close(input, true);
+                    }
+                    if (target.getParentFile().getName().equals("bin")) {
+                        //noinspection ResultOfMethodCallIgnored
+                        target.setExecutable(true);
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            LOG.warn("Cannot delete {}.", file);
+        }
+    }
+
+    /**
+     * Creates a new instance that downloads distributions referenced by version from the official Gradle distribution server.
+     *
+     * @param cacheDir the directory to unpack the distributions into
+     * @return the new instance
+     */
+    public static GradleDistributionCache create(File cacheDir) {
+        return create(cacheDir, DEFAULT_DISTRIBUTIONS_BASE_URI, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param cacheDir the directory to unpack the distributions into
+     * @param distributionsBaseUri the base location of the distribution archives of distributions referenced by version, must end with
+     * a slash
+     * @param offline whether only cached distributions and distributions available through {@code file:} URIs can be resolved
+     * @return the new instance
+     */
+    public static GradleDistributionCache create(File cacheDir, URI distributionsBaseUri, boolean offline) {
+        return new GradleDistributionCache(cacheDir, distributionsBaseUri, offline);
+    }
+
+    /**
+     * Task that installs a distribution and removes itself from the pending installations if it fails, such that the installation can
+     * be retried.
+     */
+    private final class InstallationTask extends FutureTask<GradleDistribution> {
+
+        private final URI uri;
+
+        private InstallationTask(final URI uri) {
+            super(new Callable<GradleDistribution>() {
+
+                @Override
+                public GradleDistribution call() throws Exception {
+                    try {
+                        return GradleDistribution.forLocalInstallation(install(uri));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(String.format("Cannot install Gradle distribution %s.", uri), e);
+                    }
+                }
+            });
+            this.uri = uri;
+        }
+
+        @Override
+        protected void setException(Throwable failure) {
+            // remove the task before its failure is visible to waiting callers, such that their retry starts a new installation
+            GradleDistributionCache.this.installations.remove(this.uri, this);
+            super.setException(failure);
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Output stream that splits the written bytes into lines and passes each line to a callback. Intended to be passed to
+ * {@link Request#standardOutput(OutputStream)} and {@link Request#standardError(OutputStream)}.
+ * <p/>
+ * The memory held by the stream is bounded by the maximum line length: lines that are longer than the maximum line length are passed to
+ * the callback in chunks of the maximum line length. Line terminators are not included in the lines passed to the callback. A pending
+ * line that is not terminated is passed to the callback when the stream is closed.
+ *
+ * @author Etienne Studer
+ */
+public final class LineSplittingOutputStream extends OutputStream {
+
+    /**
+     * The maximum line length in bytes that is applied if none is specified.
+     */
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+
+    private final Consumer<? super String> lineConsumer;
+    private final Charset charset;
+    private final byte[] buffer;
+    private int count;
+
+    private LineSplittingOutputStream(Consumer<? super String> lineConsumer, Charset charset, int maxLineLength) {
+        this.lineConsumer = Preconditions.checkNotNull(lineConsumer);
+        this.charset = Preconditions.checkNotNull(charset);
+        Preconditions.checkArgument(maxLineLength > 0, "Maximum line length must be positive.");
+        this.buffer = new byte[maxLineLength];
+        this.count = 0;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            emitLine();
+        } else {
+            if (this.count == this.buffer.length) {
+                emitLine();
+            }
+            this.buffer[this.count++] = (byte) b;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                append(bytes, start, i - start);
+                emitLine();
+                start = i + 1;
+            }
+        }
+        append(bytes, start, end - start);
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (this.count == this.buffer.length) {
+                emitLine();
+            }
+            int chunk = Math.min(length, this.buffer.length - this.count);
+            System.arraycopy(bytes, offset, this.buffer, this.count, chunk);
+            this.count += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void emitLine() {
+        int end = this.count;
+        if (end > 0 && this.buffer[end - 1] == '\r') {
+            end--;
+        }
+        String line = new String(this.buffer, 0, end, this.charset);
+        this.count = 0;
+        this.lineConsumer.accept(line);
+    }
+
+    /**
+     * Passes the pending line to the callback, if there is one.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.count > 0) {
+            emitLine();
+        }
+    }
+
+    /**
+     * Creates a new instance that decodes the lines with the system default character encoding, consistent with the encoding used by
+     * Gradle to write to the output streams of a request.
+     *
+     * @param lineConsumer the callback to pass each line to
+     * @return the new instance
+     */
+    public static LineSplittingOutputStream create(Consumer<? super String> lineConsumer) {
+        return create(lineConsumer, Charset.defaultCharset(), DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param lineConsumer the callback to pass each line to
+     * @param charset the character encoding to decode the lines with
+     * @param maxLineLength the maximum length of a line in bytes, must be positive
+     * @return the new instance
+     */
+    public static LineSplittingOutputStream create(Consumer<? super String> lineConsumer, Charset charset, int maxLineLength) {
+        return new LineSplittingOutputStream(lineConsumer, charset, maxLineLength);
+    }
+
+}
@@ -41,6 +41,9 @@ public interface Request<T> {
 
     /**
      * Specifies the {@link java.io.OutputStream} which should receive standard output logging generated while running the operation. The default is to discard the output.
+     * <p/>
+     * {@link RingBufferOutputStream}, {@link LineSplittingOutputStream}, and {@link FileChannelOutputStream} capture the output with
+     * bounded memory.
      *
      * @param outputStream the output stream, the system default character encoding will be used to encode characters written to this stream
      * @return this
@@ -49,6 +52,9 @@ public interface Request<T> {
 
     /**
      * Specifies the {@link java.io.OutputStream} which should receive standard error logging generated while running the operation. The default is to discard the output.
+     * <p/>
+     * {@link RingBufferOutputStream}, {@link LineSplittingOutputStream}, and {@link FileChannelOutputStream} capture the output with
+     * bounded memory.
      *
      * @param outputStream the output stream, the system default character encoding will be used to encode characters written to this stream
      * @return this
@@ -104,7 +110,8 @@ public interface Request<T> {
     Request<T> addProgressListeners(ProgressListener... listeners);
 
     /**
-     * Specifies the progress listeners which will receive progress events as the request is executed.
+     * Specifies the progress listeners which will receive progress events as the request is executed. Listeners that implement
+     * {@link SelectiveProgressListener} only receive the events of the operation types they declare.
      *
      * @param listeners the progress listeners to register
      * @return this
@@ -112,7 +119,8 @@ public interface Request<T> {
     Request<T> typedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
     /**
-     * Specifies additional progress listeners that will receive progress events as the request is executed.
+     * Specifies additional progress listeners that will receive progress events as the request is executed. Listeners that implement
+     * {@link SelectiveProgressListener} only receive the events of the operation types they declare.
      *
      * @param listeners the progress listeners to register in addition to the already registered progress listeners
      * @return this
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.internal.JournalCodec;
+import com.gradleware.tooling.toolingclient.internal.RecordingGradleConnector;
+import com.gradleware.tooling.toolingclient.internal.ReplayGradleConnector;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.Factory;
+import org.gradle.tooling.GradleConnector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records the requests executed by a {@link ToolingClient} to a journal file and replays them later without a Gradle daemon. For each
+ * executed model request, build action request, build launch request, and test launch request, the journal holds the attributes of the
+ * request, the progress events it emitted, and its resulting model or failure, together with the time each event and the result took.
+ * <p/>
+ * Requests are recorded by creating the tooling client with a recording connector factory:
+ * <pre>
+ * RequestJournal journal = RequestJournal.record(file);
+ * ToolingClient toolingClient = ToolingClient.newClient(journal.recordingConnectorFactory());
+ * ...
+ * journal.close();
+ * </pre>
+ * and replayed by creating the tooling client with a replay connector factory:
+ * <pre>
+ * ToolingClient toolingClient = ToolingClient.newClient(RequestJournal.replayConnectorFactory(file, 1.0));
+ * </pre>
+ * Replayed models are proxies that return the recorded values of the Tooling API model interfaces. The results of build actions are
+ * replayed as the deserialized objects returned by the build action. Journals are read through Java serialization, only replay journals
+ * that come from a trusted source.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestJournal implements Closeable {
+
+    private final JournalCodec.Writer writer;
+
+    private RequestJournal(JournalCodec.Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns a connector factory that creates connectors through {@link GradleConnector#newConnector()} and records all operations
+     * executed through them in this journal.
+     *
+     * @return the recording connector factory
+     */
+    public Factory<GradleConnector> recordingConnectorFactory() {
+        return recordingConnectorFactory(new Factory<GradleConnector>() {
+
+            @Override
+            public GradleConnector create() {
+                return GradleConnector.newConnector();
+            }
+        });
+    }
+
+    /**
+     * Returns a connector factory that creates connectors through the given factory and records all operations executed through them
+     * in this journal.
+     *
+     * @param connectorFactory the factory of the connectors whose operations to record
+     * @return the recording connector factory
+     */
+    public Factory<GradleConnector> recordingConnectorFactory(final Factory<GradleConnector> connectorFactory) {
+        Preconditions.checkNotNull(connectorFactory);
+        return new Factory<GradleConnector>() {
+
+            @Override
+            public GradleConnector create() {
+                return new RecordingGradleConnector(connectorFactory.create(), RequestJournal.this.writer);
+            }
+        };
+    }
+
+    /**
+     * Completes the journal. Operations that complete after the journal has been closed are not recorded.
+     *
+     * @throws IOException if the journal file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    /**
+     * Starts a new journal in the given file, replacing any existing file.
+     *
+     * @param file the journal file
+     * @return the new journal
+     * @throws UncheckedIOException if the journal file cannot be created
+     */
+    public static RequestJournal record(File file) {
+        return new RequestJournal(JournalCodec.Writer.create(file));
+    }
+
+    /**
+     * Returns a connector factory whose connectors answer each operation with the next recorded entry of the same kind and target from
+     * the given journal, with the original timing.
+     *
+     * @param file the journal file
+     * @return the replay connector factory
+     * @throws UncheckedIOException if the journal file cannot be read
+     */
+    public static Factory<GradleConnector> replayConnectorFactory(File file) {
+        return replayConnectorFactory(file, 1.0);
+    }
+
+    /**
+     * Returns a connector factory whose connectors answer each operation with the next recorded entry of the same kind and target from
+     * the given journal, with the recorded timing multiplied by the given time scale. The journal is read once, all connectors created by
+     * the returned factory share the position up to which the recordings have been served.
+     *
+     * @param file the journal file
+     * @param timeScale the factor by which to scale the recorded timing, 1 to replay with the original timing, 0 to replay without any
+     * delay
+     * @return the replay connector factory
+     * @throws UncheckedIOException if the journal file cannot be read
+     */
+    public static Factory<GradleConnector> replayConnectorFactory(File file, double timeScale) {
+        final ReplayGradleConnector.Recordings recordings = ReplayGradleConnector.Recordings.from(JournalCodec.read(file), timeScale);
+        return new Factory<GradleConnector>() {
+
+            @Override
+            public GradleConnector create() {
+                return new ReplayGradleConnector(recordings);
+            }
+        };
+    }
+
+}
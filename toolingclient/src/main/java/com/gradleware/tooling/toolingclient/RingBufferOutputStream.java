@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Output stream that keeps the last lines written to it in a bounded ring buffer and discards all older lines. Intended to be passed to
+ * {@link Request#standardOutput(OutputStream)} and {@link Request#standardError(OutputStream)} in place of an unbounded in-memory
+ * buffer.
+ * <p/>
+ * The memory held by the stream is bounded by the maximum number of lines times the maximum line length. Lines that are longer than the
+ * maximum line length are kept in chunks of the maximum line length. Instances are thread-safe, the captured lines can be queried while
+ * the request is still running.
+ *
+ * @author Etienne Studer
+ * @see LineSplittingOutputStream
+ */
+public final class RingBufferOutputStream extends OutputStream {
+
+    private final Object LOCK = new Object();
+
+    private final String[] lines;
+    private final LineSplittingOutputStream lineSplitter;
+    private int next;
+    private long totalLineCount;
+
+    private RingBufferOutputStream(int maxLines, Charset charset, int maxLineLength) {
+        Preconditions.checkArgument(maxLines > 0, "Maximum number of lines must be positive.");
+        this.lines = new String[maxLines];
+        this.lineSplitter = LineSplittingOutputStream.create(new Consumer<String>() {
+
+            @Override
+            public void accept(String line) {
+                addLine(line);
+            }
+        }, charset, maxLineLength);
+        this.next = 0;
+        this.totalLineCount = 0;
+    }
+
+    private void addLine(String line) {
+        synchronized (this.LOCK) {
+            this.lines[this.next] = line;
+            this.next = (this.next + 1) % this.lines.length;
+            this.totalLineCount++;
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        this.lineSplitter.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        this.lineSplitter.write(bytes, offset, length);
+    }
+
+    /**
+     * Adds the pending line to the buffer, if there is one.
+     */
+    @Override
+    public void close() {
+        this.lineSplitter.close();
+    }
+
+    /**
+     * Returns the last lines written to this stream, from the oldest to the newest line. A pending line that is not terminated yet is
+     * not included.
+     *
+     * @return the last lines, never null
+     */
+    public List<String> getLines() {
+        synchronized (this.LOCK) {
+            int size = (int) Math.min(this.totalLineCount, this.lines.length);
+            int first = (this.next - size + this.lines.length) % this.lines.length;
+            ImmutableList.Builder<String> result = ImmutableList.builder();
+            for (int i = 0; i < size; i++) {
+                result.add(this.lines[(first + i) % this.lines.length]);
+            }
+            return result.build();
+        }
+    }
+
+    /**
+     * Returns the total number of lines written to this stream, including the lines that have already been discarded.
+     *
+     * @return the total number of lines
+     */
+    public long getTotalLineCount() {
+        synchronized (this.LOCK) {
+            return this.totalLineCount;
+        }
+    }
+
+    /**
+     * Creates a new instance that decodes the lines with the system default character encoding, consistent with the encoding used by
+     * Gradle to write to the output streams of a request.
+     *
+     * @param maxLines the maximum number of lines to keep, must be positive
+     * @return the new instance
+     */
+    public static RingBufferOutputStream create(int maxLines) {
+        return create(maxLines, Charset.defaultCharset(), LineSplittingOutputStream.DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxLines the maximum number of lines to keep, must be positive
+     * @param charset the character encoding to decode the lines with
+     * @param maxLineLength the maximum length of a line in bytes, must be positive
+     * @return the new instance
+     */
+    public static RingBufferOutputStream create(int maxLines, Charset charset, int maxLineLength) {
+        return new RingBufferOutputStream(maxLines, charset, maxLineLength);
+    }
+
+}
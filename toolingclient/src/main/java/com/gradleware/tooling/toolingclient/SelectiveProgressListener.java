@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressListener;
+
+import java.util.Set;
+
+/**
+ * A typed progress listener that is only interested in the progress events of selected operation types. When registered with a
+ * {@link Request}, Gradle is only asked to send the events of the union of the operation types declared by all registered listeners,
+ * and each listener only receives the events of the operation types it has declared. Typed progress listeners that do not implement
+ * this interface receive the events of all operation types.
+ *
+ * @author Etienne Studer
+ * @see Request#typedProgressListeners(org.gradle.tooling.events.ProgressListener...)
+ */
+public interface SelectiveProgressListener extends ProgressListener {
+
+    /**
+     * Returns the operation types whose progress events this listener wants to receive.
+     *
+     * @return the operation types, never null
+     */
+    Set<OperationType> getOperationTypes();
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+/**
+ * A timed step of the request lifecycle, created by a {@link Tracer}. A span is started when it is created and must be ended exactly
+ * once, on the thread that started it, unless it has been started through {@link Tracing#startDetachedSpan(String)}.
+ *
+ * @author Etienne Studer
+ */
+public interface Span {
+
+    /**
+     * Returns whether this span records attributes. Callers check this before computing attribute values that are not readily
+     * available, such that tracing costs nothing when no tracer is installed.
+     *
+     * @return {@code true} if this span records attributes, {@code false} otherwise
+     */
+    boolean isRecording();
+
+    /**
+     * Adds the given attribute to this span, for example the project directory, the model type, or the Gradle version of the request.
+     *
+     * @param key the attribute key
+     * @param value the attribute value, can be null
+     * @return this span
+     */
+    Span setAttribute(String key, String value);
+
+    /**
+     * Ends this span.
+     */
+    void end();
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The execution profile of a single task, as recorded by a {@link BuildProfiler}. All time stamps are in milliseconds since the epoch.
+ *
+ * @author Etienne Studer
+ */
+public final class TaskProfile {
+
+    /**
+     * The outcome of a task execution.
+     */
+    public enum Outcome {
+        SUCCESS, UP_TO_DATE, FROM_CACHE, SKIPPED, FAILED, RUNNING
+    }
+
+    private final String path;
+    private final long startTime;
+    private final long endTime;
+    private final Outcome outcome;
+    private final int testCount;
+    private final int failedTestCount;
+
+    private TaskProfile(String path, long startTime, long endTime, Outcome outcome, int testCount, int failedTestCount) {
+        this.path = Preconditions.checkNotNull(path);
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.outcome = Preconditions.checkNotNull(outcome);
+        this.testCount = testCount;
+        this.failedTestCount = failedTestCount;
+    }
+
+    /**
+     * Returns the path of the task.
+     *
+     * @return the task path, never null
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns the time when the task started to execute.
+     *
+     * @return the start time
+     */
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * Returns the time when the task finished to execute, or -1 if the task is still running.
+     *
+     * @return the end time
+     */
+    public long getEndTime() {
+        return this.endTime;
+    }
+
+    /**
+     * Returns the execution time of the task, or 0 if the task is still running.
+     *
+     * @return the duration
+     */
+    public long getDuration() {
+        return this.outcome == Outcome.RUNNING ? 0 : this.endTime - this.startTime;
+    }
+
+    /**
+     * Returns the outcome of the task execution.
+     *
+     * @return the outcome, never null
+     */
+    public Outcome getOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Returns the number of tests that were executed by the task.
+     *
+     * @return the number of executed tests
+     */
+    public int getTestCount() {
+        return this.testCount;
+    }
+
+    /**
+     * Returns the number of tests executed by the task that failed.
+     *
+     * @return the number of failed tests
+     */
+    public int getFailedTestCount() {
+        return this.failedTestCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s, %d ms)", this.path, this.outcome, getDuration());
+    }
+
+    static TaskProfile from(String path, long startTime, long endTime, Outcome outcome, int testCount, int failedTestCount) {
+        return new TaskProfile(path, startTime, endTime, outcome, testCount, failedTestCount);
+    }
+
+}
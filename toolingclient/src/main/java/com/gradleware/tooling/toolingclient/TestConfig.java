@@ -26,8 +26,11 @@ import org.gradle.tooling.events.test.TestOperationDescriptor;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Encapsulates the {@link TestOperationDescriptor} instances to execute through a Gradle build.
@@ -67,6 +70,84 @@ public final class TestConfig {
         testLauncher.withTests(this.tests);
     }
 
+    /**
+     * Splits this test config into at most the given number of test configs that can be executed in parallel. The JVM test classes and
+     * the JVM test methods are distributed by test class such that the estimated execution time of the returned test configs is
+     * balanced, assigning the longest running test classes first. The test operations are assigned to the first returned test config.
+     * <p/>
+     * Test classes without a historical duration are estimated with the average of the known durations.
+     *
+     * @param shardCount the maximum number of test configs to split into, must be positive
+     * @param testClassDurations the historical execution times of the test classes, keyed by the test class name, can be empty
+     * @return the non-empty test configs, never more than {@code shardCount}
+     */
+    public List<TestConfig> shard(int shardCount, Map<String, Long> testClassDurations) {
+        Preconditions.checkArgument(shardCount > 0, "Shard count must be positive.");
+        Preconditions.checkNotNull(testClassDurations);
+
+        // the units of distribution are the test classes, a class that is selected both entirely and by test methods forms a single unit
+        Set<String> distinctClasses = new LinkedHashSet<String>(this.jvmTestClasses);
+        distinctClasses.addAll(this.jvmTestMethods.keySet());
+        String[] unitClasses = distinctClasses.toArray(new String[distinctClasses.size()]);
+        int unitCount = unitClasses.length;
+
+        long knownDurationSum = 0;
+        int knownDurationCount = 0;
+        for (String unitClass : unitClasses) {
+            Long duration = testClassDurations.get(unitClass);
+            if (duration != null) {
+                knownDurationSum += duration;
+                knownDurationCount++;
+            }
+        }
+        long estimatedDuration = knownDurationCount > 0 ? Math.max(1, knownDurationSum / knownDurationCount) : 1;
+
+        // longest processing time first: sort the units by descending duration and assign each unit to the least loaded shard
+        final long[] unitDurations = new long[unitCount];
+        Integer[] unitOrder = new Integer[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            Long duration = testClassDurations.get(unitClasses[i]);
+            unitDurations[i] = duration != null ? Math.max(1, duration) : estimatedDuration;
+            unitOrder[i] = i;
+        }
+        Arrays.sort(unitOrder, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(unitDurations[o2], unitDurations[o1]);
+            }
+        });
+
+        int actualShardCount = Math.max(1, Math.min(shardCount, unitCount));
+        long[] shardLoads = new long[actualShardCount];
+        Builder[] shards = new Builder[actualShardCount];
+        for (int i = 0; i < actualShardCount; i++) {
+            shards[i] = new Builder();
+        }
+        for (Integer unit : unitOrder) {
+            int leastLoaded = 0;
+            for (int i = 1; i < actualShardCount; i++) {
+                if (shardLoads[i] < shardLoads[leastLoaded]) {
+                    leastLoaded = i;
+                }
+            }
+            shardLoads[leastLoaded] += unitDurations[unit];
+            if (this.jvmTestClasses.contains(unitClasses[unit])) {
+                shards[leastLoaded].jvmTestClasses(unitClasses[unit]);
+            }
+            if (this.jvmTestMethods.containsKey(unitClasses[unit])) {
+                shards[leastLoaded].jvmTestMethods(unitClasses[unit], this.jvmTestMethods.get(unitClasses[unit]));
+            }
+        }
+        shards[0].tests(this.tests);
+
+        ImmutableList.Builder<TestConfig> result = ImmutableList.builder();
+        for (Builder shard : shards) {
+            result.add(shard.build());
+        }
+        return result.build();
+    }
+
     /**
      * Specifies the test classes to be executed.
      *
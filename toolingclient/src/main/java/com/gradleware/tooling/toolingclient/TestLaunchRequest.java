@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingclient;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ProgressListener;
@@ -124,6 +125,27 @@ public interface TestLaunchRequest extends BuildRequest<Void> {
     @Override
     TestLaunchRequest cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * Specifies the number of parallel test launches across which the JVM test classes of this request are split. The progress events,
+     * the output, and the failures of all test launches are merged into this request. The default is to execute all tests in a single
+     * test launch.
+     *
+     * @param shardCount the maximum number of parallel test launches, must be positive
+     * @return this
+     * @see TestConfig#shard(int, java.util.Map)
+     */
+    TestLaunchRequest shardCount(int shardCount);
+
+    /**
+     * Specifies the historical execution times of the JVM test classes, in milliseconds and keyed by the test class name. The execution
+     * times are used to balance the test classes across the parallel test launches. The default is to assume equal execution times.
+     *
+     * @param testClassDurations the historical execution times of the test classes
+     * @return this
+     * @see #shardCount(int)
+     */
+    TestLaunchRequest testClassDurations(Map<String, Long> testClassDurations);
+
     /**
      * Derive a new test launch request from this request and apply the given tests. This request and the
      * new request do not share any state except the cancellation token.
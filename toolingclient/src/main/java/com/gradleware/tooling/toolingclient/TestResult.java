@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The result of a test suite or of a single test, as collected by a {@link TestResultCollector}. The results of test suites aggregate
+ * the number of tests they contain, but only contain the results of the nested test suites and of the nested tests that have failed.
+ * All time stamps are in milliseconds since the epoch.
+ *
+ * @author Etienne Studer
+ */
+public final class TestResult {
+
+    /**
+     * The outcome of a test suite or a test.
+     */
+    public enum Outcome {
+        SUCCESS, SKIPPED, FAILED, RUNNING
+    }
+
+    private final String name;
+    private final String className;
+    private final String methodName;
+    private final boolean suite;
+    private final Outcome outcome;
+    private final long startTime;
+    private final long endTime;
+    private final int testCount;
+    private final int failedTestCount;
+    private final int skippedTestCount;
+    private final ImmutableList<String> failures;
+    private final ImmutableList<TestResult> children;
+
+    private TestResult(String name, String className, String methodName, boolean suite, Outcome outcome, long startTime, long endTime, int testCount,
+                       int failedTestCount, int skippedTestCount, List<String> failures, List<TestResult> children) {
+        this.name = Preconditions.checkNotNull(name);
+        this.className = className;
+        this.methodName = methodName;
+        this.suite = suite;
+        this.outcome = Preconditions.checkNotNull(outcome);
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.testCount = testCount;
+        this.failedTestCount = failedTestCount;
+        this.skippedTestCount = skippedTestCount;
+        this.failures = ImmutableList.copyOf(failures);
+        this.children = ImmutableList.copyOf(children);
+    }
+
+    /**
+     * Returns the display name of the test suite or test.
+     *
+     * @return the name, never null
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the name of the test class, if known.
+     *
+     * @return the class name, null if the result does not belong to a test class
+     */
+    public String getClassName() {
+        return this.className;
+    }
+
+    /**
+     * Returns the name of the test method, if known.
+     *
+     * @return the method name, null if the result is not the result of a test method
+     */
+    public String getMethodName() {
+        return this.methodName;
+    }
+
+    /**
+     * Returns whether this is the result of a test suite or of a single test.
+     *
+     * @return {@code true} if this is the result of a test suite
+     */
+    public boolean isSuite() {
+        return this.suite;
+    }
+
+    /**
+     * Returns the outcome of the test suite or test.
+     *
+     * @return the outcome, never null
+     */
+    public Outcome getOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Returns the time when the test suite or test started.
+     *
+     * @return the start time
+     */
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * Returns the time when the test suite or test finished, or -1 if it is still running.
+     *
+     * @return the end time
+     */
+    public long getEndTime() {
+        return this.endTime;
+    }
+
+    /**
+     * Returns the execution time of the test suite or test, or 0 if it is still running.
+     *
+     * @return the duration
+     */
+    public long getDuration() {
+        return this.outcome == Outcome.RUNNING ? 0 : this.endTime - this.startTime;
+    }
+
+    /**
+     * Returns the number of tests contained in the test suite, or 1 for a single test.
+     *
+     * @return the number of tests
+     */
+    public int getTestCount() {
+        return this.testCount;
+    }
+
+    /**
+     * Returns the number of failed tests contained in the test suite.
+     *
+     * @return the number of failed tests
+     */
+    public int getFailedTestCount() {
+        return this.failedTestCount;
+    }
+
+    /**
+     * Returns the number of skipped tests contained in the test suite.
+     *
+     * @return the number of skipped tests
+     */
+    public int getSkippedTestCount() {
+        return this.skippedTestCount;
+    }
+
+    /**
+     * Returns the descriptions of the failures of the test suite or test.
+     *
+     * @return the failure descriptions, never null
+     */
+    public List<String> getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Returns the results of the nested test suites and of the nested tests that have failed.
+     *
+     * @return the nested results, never null
+     */
+    public List<TestResult> getChildren() {
+        return this.children;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s, %d tests, %d failed, %d skipped)", this.name, this.outcome, this.testCount, this.failedTestCount, this.skippedTestCount);
+    }
+
+    static TestResult from(String name, String className, String methodName, boolean suite, Outcome outcome, long startTime, long endTime, int testCount,
+                           int failedTestCount, int skippedTestCount, List<String> failures, List<TestResult> children) {
+        return new TestResult(name, className, methodName, suite, outcome, startTime, endTime, testCount, failedTestCount, skippedTestCount, failures, children);
+    }
+
+}
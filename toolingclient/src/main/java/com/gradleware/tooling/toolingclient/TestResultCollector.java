@@ -0,0 +1,339 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationDescriptor;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestStartEvent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed progress listener that collects the results of the executed tests into a tree of {@link TestResult} instances. Register an
+ * instance with {@link Request#addTypedProgressListeners(org.gradle.tooling.events.ProgressListener...)} and query the results once the
+ * request has completed, or at any time while the request is running.
+ * <p/>
+ * Only the test suites and the failed tests are kept in memory, the successful and skipped tests are only counted. Optionally, the
+ * result of every single test is streamed to a report file, one line per test with the tab-separated outcome, class name, method name,
+ * display name, and duration in milliseconds. The collector must be closed once the request has completed if a report file is used.
+ *
+ * @author Etienne Studer
+ */
+public final class TestResultCollector implements SelectiveProgressListener, Closeable {
+
+    private static final Set<OperationType> OPERATION_TYPES = EnumSet.of(OperationType.TEST);
+    private static final long NOT_FINISHED = -1;
+
+    private final Object LOCK = new Object();
+
+    private final Writer reportWriter;
+    private final Map<OperationDescriptor, Node> runningSuites;
+    private final List<Node> roots;
+    private final List<Node> failedTests;
+    private int testCount;
+    private int skippedTestCount;
+
+    private TestResultCollector(Writer reportWriter) {
+        this.reportWriter = reportWriter;
+        this.runningSuites = Maps.newHashMap();
+        this.roots = Lists.newArrayList();
+        this.failedTests = Lists.newArrayList();
+        this.testCount = 0;
+        this.skippedTestCount = 0;
+    }
+
+    @Override
+    public Set<OperationType> getOperationTypes() {
+        return OPERATION_TYPES;
+    }
+
+    @Override
+    public void statusChanged(ProgressEvent event) {
+        if (event instanceof TestStartEvent) {
+            TestOperationDescriptor descriptor = ((TestStartEvent) event).getDescriptor();
+            if (isSuite(descriptor)) {
+                suiteStarted(descriptor, event.getEventTime());
+            }
+        } else if (event instanceof TestFinishEvent) {
+            TestFinishEvent finishEvent = (TestFinishEvent) event;
+            if (isSuite(finishEvent.getDescriptor())) {
+                suiteFinished(finishEvent.getDescriptor(), finishEvent.getResult());
+            } else {
+                testFinished(finishEvent.getDescriptor(), finishEvent.getResult());
+            }
+        }
+    }
+
+    private static boolean isSuite(TestOperationDescriptor descriptor) {
+        return descriptor instanceof JvmTestOperationDescriptor && ((JvmTestOperationDescriptor) descriptor).getJvmTestKind() == JvmTestKind.SUITE;
+    }
+
+    private void suiteStarted(TestOperationDescriptor descriptor, long startTime) {
+        synchronized (this.LOCK) {
+            Node parent = this.runningSuites.get(descriptor.getParent());
+            Node suite = new Node(parent, descriptor, true);
+            suite.startTime = startTime;
+            this.runningSuites.put(descriptor, suite);
+            if (parent != null) {
+                parent.children.add(suite);
+            } else {
+                this.roots.add(suite);
+            }
+        }
+    }
+
+    private void suiteFinished(TestOperationDescriptor descriptor, OperationResult result) {
+        synchronized (this.LOCK) {
+            Node suite = this.runningSuites.remove(descriptor);
+            if (suite != null) {
+                suite.finished(result);
+            }
+        }
+    }
+
+    private void testFinished(TestOperationDescriptor descriptor, OperationResult result) {
+        synchronized (this.LOCK) {
+            Node parent = this.runningSuites.get(descriptor.getParent());
+            Node test = new Node(parent, descriptor, false);
+            test.finished(result);
+
+            this.testCount++;
+            if (test.outcome == TestResult.Outcome.SKIPPED) {
+                this.skippedTestCount++;
+            }
+            for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.testCount++;
+                if (test.outcome == TestResult.Outcome.FAILED) {
+                    ancestor.failedTestCount++;
+                } else if (test.outcome == TestResult.Outcome.SKIPPED) {
+                    ancestor.skippedTestCount++;
+                }
+            }
+
+            // only the failed tests are kept in memory
+            if (test.outcome == TestResult.Outcome.FAILED) {
+                this.failedTests.add(test);
+                if (parent != null) {
+                    parent.children.add(test);
+                } else {
+                    this.roots.add(test);
+                }
+            }
+
+            if (this.reportWriter != null) {
+                writeReportLine(test);
+            }
+        }
+    }
+
+    private void writeReportLine(Node test) {
+        try {
+            this.reportWriter.write(String.format("%s\t%s\t%s\t%s\t%d%n", test.outcome, test.className, test.methodName, test.name, test.endTime - test.startTime));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write test result to report.", e);
+        }
+    }
+
+    /**
+     * Returns the results of the root test suites, each containing the results of their nested test suites and failed tests.
+     *
+     * @return the root results, never null
+     */
+    public List<TestResult> getResults() {
+        synchronized (this.LOCK) {
+            return toResults(this.roots);
+        }
+    }
+
+    /**
+     * Returns the results of all failed tests, in the order in which they finished.
+     *
+     * @return the failed test results, never null
+     */
+    public List<TestResult> getFailedTests() {
+        synchronized (this.LOCK) {
+            return toResults(this.failedTests);
+        }
+    }
+
+    /**
+     * Returns the number of tests that have finished.
+     *
+     * @return the number of tests
+     */
+    public int getTestCount() {
+        synchronized (this.LOCK) {
+            return this.testCount;
+        }
+    }
+
+    /**
+     * Returns the number of tests that have failed.
+     *
+     * @return the number of failed tests
+     */
+    public int getFailedTestCount() {
+        synchronized (this.LOCK) {
+            return this.failedTests.size();
+        }
+    }
+
+    /**
+     * Returns the number of tests that have been skipped.
+     *
+     * @return the number of skipped tests
+     */
+    public int getSkippedTestCount() {
+        synchronized (this.LOCK) {
+            return this.skippedTestCount;
+        }
+    }
+
+    /**
+     * Closes the report file, if there is one.
+     */
+    @Override
+    public void close() {
+        if (this.reportWriter != null) {
+            synchronized (this.LOCK) {
+                try {
+                    this.reportWriter.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot close test report.", e);
+                }
+            }
+        }
+    }
+
+    private static ImmutableList<TestResult> toResults(List<Node> nodes) {
+        ImmutableList.Builder<TestResult> results = ImmutableList.builder();
+        for (Node node : nodes) {
+            results.add(node.toResult());
+        }
+        return results.build();
+    }
+
+    /**
+     * Creates a new instance that keeps the results in memory only.
+     *
+     * @return the new instance
+     */
+    public static TestResultCollector create() {
+        return new TestResultCollector(null);
+    }
+
+    /**
+     * Creates a new instance that additionally streams the result of every single test to the given report file. If the file already
+     * exists, it is truncated.
+     *
+     * @param reportFile the file to write the test results to
+     * @return the new instance
+     * @throws UncheckedIOException if the file cannot be opened for writing
+     */
+    public static TestResultCollector create(File reportFile) {
+        Preconditions.checkNotNull(reportFile);
+        try {
+            return new TestResultCollector(Files.newBufferedWriter(reportFile.toPath(), Charsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot open file '%s' for writing.", reportFile), e);
+        }
+    }
+
+    /**
+     * Mutable node of the result tree, converted to a {@code TestResult} when queried.
+     */
+    private static final class Node {
+
+        private final Node parent;
+        private final String name;
+        private final String className;
+        private final String methodName;
+        private final boolean suite;
+        private final List<Node> children;
+        private TestResult.Outcome outcome;
+        private long startTime;
+        private long endTime;
+        private int testCount;
+        private int failedTestCount;
+        private int skippedTestCount;
+        private List<String> failures;
+
+        private Node(Node parent, TestOperationDescriptor descriptor, boolean suite) {
+            this.parent = parent;
+            this.name = descriptor.getDisplayName();
+            this.className = descriptor instanceof JvmTestOperationDescriptor ? ((JvmTestOperationDescriptor) descriptor).getClassName() : null;
+            this.methodName = descriptor instanceof JvmTestOperationDescriptor ? ((JvmTestOperationDescriptor) descriptor).getMethodName() : null;
+            this.suite = suite;
+            this.children = suite ? Lists.<Node>newArrayList() : ImmutableList.<Node>of();
+            this.outcome = TestResult.Outcome.RUNNING;
+            this.endTime = NOT_FINISHED;
+            this.testCount = suite ? 0 : 1;
+            this.failures = ImmutableList.of();
+        }
+
+        private void finished(OperationResult result) {
+            this.startTime = result.getStartTime();
+            this.endTime = result.getEndTime();
+            if (result instanceof TestFailureResult) {
+                this.outcome = TestResult.Outcome.FAILED;
+                ImmutableList.Builder<String> failures = ImmutableList.builder();
+                for (Failure failure : ((TestFailureResult) result).getFailures()) {
+                    failures.add(failure.getDescription() != null ? failure.getDescription() : String.valueOf(failure.getMessage()));
+                }
+                this.failures = failures.build();
+            } else if (result instanceof TestSkippedResult) {
+                this.outcome = TestResult.Outcome.SKIPPED;
+            } else {
+                this.outcome = TestResult.Outcome.SUCCESS;
+            }
+            if (!this.suite) {
+                this.failedTestCount = this.outcome == TestResult.Outcome.FAILED ? 1 : 0;
+                this.skippedTestCount = this.outcome == TestResult.Outcome.SKIPPED ? 1 : 0;
+            }
+        }
+
+        private TestResult toResult() {
+            return TestResult.from(this.name, this.className, this.methodName, this.suite, this.outcome, this.startTime, this.endTime, this.testCount,
+                    this.failedTestCount, this.skippedTestCount, this.failures, toResults(this.children));
+        }
+
+    }
+
+}
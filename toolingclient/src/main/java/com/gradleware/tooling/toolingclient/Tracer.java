@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+/**
+ * Service provider interface to trace the lifecycle of the requests issued through the tooling client and the model repositories. A
+ * tracer is installed through {@link Tracing#install(Tracer)} and receives a timed span for each traced step, for example connecting to
+ * Gradle, executing a request, or converting a model.
+ * <p/>
+ * Spans are usually started and ended on the same thread, the spans of asynchronously executed requests are ended on the thread that
+ * completes the request. Implementations must be thread-safe since requests can be issued from any thread.
+ *
+ * @author Etienne Studer
+ */
+public interface Tracer {
+
+    /**
+     * Starts a new span.
+     *
+     * @param name the name of the traced step
+     * @param parent the span of the enclosing step on the current thread, null if the step is not nested in another traced step
+     * @return the started span, never null
+     */
+    Span startSpan(String name, Span parent);
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Holds the {@link Tracer} that receives the spans of the request lifecycle and keeps track of the current span of each thread, such
+ * that spans started while another span is open on the same thread are nested in it.
+ * <p/>
+ * No tracer is installed by default. As long as no tracer is installed, {@link #startSpan(String)} returns a span that records nothing,
+ * without allocating any objects.
+ *
+ * @author Etienne Studer
+ */
+public final class Tracing {
+
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<Span>();
+
+    private static volatile Tracer tracer;
+
+    private Tracing() {
+    }
+
+    /**
+     * Installs the given tracer, replacing the currently installed tracer.
+     *
+     * @param tracer the tracer to install
+     */
+    public static void install(Tracer tracer) {
+        Tracing.tracer = Preconditions.checkNotNull(tracer);
+    }
+
+    /**
+     * Uninstalls the currently installed tracer, if any. Spans that have already been started are still ended through their tracer.
+     */
+    public static void uninstall() {
+        Tracing.tracer = null;
+    }
+
+    /**
+     * Starts a new span through the installed tracer, nested in the current span of the calling thread. The returned span becomes the
+     * current span of the calling thread until it is ended.
+     *
+     * @param name the name of the traced step
+     * @return the started span, or a span that records nothing if no tracer is installed
+     */
+    public static Span startSpan(String name) {
+        Tracer tracer = Tracing.tracer;
+        if (tracer == null) {
+            return NoOpSpan.INSTANCE;
+        }
+
+        Span parent = CURRENT_SPAN.get();
+        Span span = tracer.startSpan(name, parent);
+        CURRENT_SPAN.set(span);
+        return new CurrentSpan(span, parent);
+    }
+
+    /**
+     * Starts a new span through the installed tracer, nested in the given span rather than in the current span of the calling thread. The
+     * returned span becomes the current span of the calling thread until it is ended. This nests the steps executed on behalf of a
+     * detached span, which never becomes the current span of any thread.
+     *
+     * @param name the name of the traced step
+     * @param parent the span to nest the new span in
+     * @return the started span, or a span that records nothing if no tracer is installed
+     */
+    public static Span startSpan(String name, Span parent) {
+        Preconditions.checkNotNull(parent);
+        Tracer tracer = Tracing.tracer;
+        if (tracer == null) {
+            return NoOpSpan.INSTANCE;
+        }
+
+        Span previous = CURRENT_SPAN.get();
+        Span span = tracer.startSpan(name, toTracerSpan(parent, previous));
+        CURRENT_SPAN.set(span);
+        return new CurrentSpan(span, previous);
+    }
+
+    /*
+     * spans that became the current span are passed to the tracer as the span that the tracer started, and spans that were started while
+     * no tracer was installed are replaced by the current span
+     */
+    private static Span toTracerSpan(Span span, Span current) {
+        if (span instanceof CurrentSpan) {
+            return ((CurrentSpan) span).delegate;
+        } else if (span == NoOpSpan.INSTANCE) {
+            return current;
+        } else {
+            return span;
+        }
+    }
+
+    /**
+     * Starts a new span through the installed tracer, nested in the current span of the calling thread. Unlike the spans started through
+     * {@link #startSpan(String)}, the returned span does not become the current span of the calling thread and can be ended on any
+     * thread, for example once an asynchronously executed request has completed.
+     *
+     * @param name the name of the traced step
+     * @return the started span, or a span that records nothing if no tracer is installed
+     */
+    public static Span startDetachedSpan(String name) {
+        Tracer tracer = Tracing.tracer;
+        if (tracer == null) {
+            return NoOpSpan.INSTANCE;
+        }
+
+        return tracer.startSpan(name, CURRENT_SPAN.get());
+    }
+
+    /**
+     * Span that records nothing, returned while no tracer is installed.
+     */
+    private enum NoOpSpan implements Span {
+
+        INSTANCE;
+
+        @Override
+        public boolean isRecording() {
+            return false;
+        }
+
+        @Override
+        public Span setAttribute(String key, String value) {
+            return this;
+        }
+
+        @Override
+        public void end() {
+        }
+
+    }
+
+    /**
+     * Span that restores the previous current span of its thread when it is ended.
+     */
+    private static final class CurrentSpan implements Span {
+
+        private final Span delegate;
+        private final Span previous;
+
+        private CurrentSpan(Span delegate, Span previous) {
+            this.delegate = delegate;
+            this.previous = previous;
+        }
+
+        @Override
+        public boolean isRecording() {
+            return this.delegate.isRecording();
+        }
+
+        @Override
+        public Span setAttribute(String key, String value) {
+            this.delegate.setAttribute(key, value);
+            return this;
+        }
+
+        @Override
+        public void end() {
+            if (this.previous != null) {
+                CURRENT_SPAN.set(this.previous);
+            } else {
+                CURRENT_SPAN.remove();
+            }
+            this.delegate.end();
+        }
+
+    }
+
+}
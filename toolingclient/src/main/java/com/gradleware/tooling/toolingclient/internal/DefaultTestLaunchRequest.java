@@ -17,10 +17,14 @@
 package com.gradleware.tooling.toolingclient.internal;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 
+import com.gradleware.tooling.toolingclient.LaunchableConfig;
 import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
 import com.gradleware.tooling.toolingclient.TestConfig;
 
+import java.util.Map;
+
 /**
  * Default implementation of the {@link com.gradleware.tooling.toolingclient.TestLaunchRequest} API.
  *
@@ -29,10 +33,14 @@ import com.gradleware.tooling.toolingclient.TestConfig;
 final class DefaultTestLaunchRequest extends BaseBuildRequest<Void, DefaultTestLaunchRequest> implements InspectableTestLaunchRequest {
 
     private final TestConfig tests;
+    private int shardCount;
+    private ImmutableMap<String, Long> testClassDurations;
 
     DefaultTestLaunchRequest(ExecutableToolingClient toolingClient, TestConfig tests) {
         super(toolingClient);
         this.tests = Preconditions.checkNotNull(tests);
+        this.shardCount = 1;
+        this.testClassDurations = ImmutableMap.of();
     }
 
     @Override
@@ -40,9 +48,39 @@ final class DefaultTestLaunchRequest extends BaseBuildRequest<Void, DefaultTestL
         return this.tests;
     }
 
+    @Override
+    public DefaultTestLaunchRequest shardCount(int shardCount) {
+        Preconditions.checkArgument(shardCount > 0, "Shard count must be positive.");
+        this.shardCount = shardCount;
+        return getThis();
+    }
+
+    @Override
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    @Override
+    public DefaultTestLaunchRequest testClassDurations(Map<String, Long> testClassDurations) {
+        this.testClassDurations = ImmutableMap.copyOf(testClassDurations);
+        return getThis();
+    }
+
+    @Override
+    public Map<String, Long> getTestClassDurations() {
+        return this.testClassDurations;
+    }
+
     @Override
     public DefaultTestLaunchRequest deriveForTests(TestConfig tests) {
-        return copy(new DefaultTestLaunchRequest(getToolingClient(), tests));
+        return copy(new DefaultTestLaunchRequest(getToolingClient(), tests)).
+                shardCount(this.shardCount).
+                testClassDurations(this.testClassDurations);
+    }
+
+    @Override
+    public DefaultBuildLaunchRequest deriveForLaunchables(LaunchableConfig launchables) {
+        return copy(new DefaultBuildLaunchRequest(getToolingClient(), launchables));
     }
 
     @Override
@@ -82,93 +82,167 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
 
     @Override
     public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
-        ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
+        Span span = startSpan("tooling-client.execute", modelRequest);
         try {
-            return operation.get();
+            if (span.isRecording()) {
+                span.setAttribute("modelType", modelRequest.getModelType().getName());
+            }
+            ProjectConnection connection = getProjectConnection(modelRequest, span);
+            ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
+            try {
+                return operation.get();
+            } finally {
+                closeConnectionIfNecessary(connection);
+            }
         } finally {
-            closeConnectionIfNecessary(connection);
+            span.end();
         }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
-        ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forModelBuilder(operation), connection);
+        Span span = startDetachedSpan("tooling-client.execute", modelRequest);
+        try {
+            if (span.isRecording()) {
+                span.setAttribute("modelType", modelRequest.getModelType().getName());
+            }
+            ProjectConnection connection = getProjectConnection(modelRequest, span);
+            ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
+            ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+            operation.get(new SpanEndingResultHandler<T>(promise.getResultHandler(), span));
+            return closeConnectionIfNecessary(promise, connection);
+        } catch (RuntimeException e) {
+            span.end();
+            throw e;
+        }
     }
 
     @Override
     public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
-        BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
+        Span span = startSpan("tooling-client.execute", buildActionRequest);
         try {
-            return operation.run();
+            if (span.isRecording()) {
+                span.setAttribute("buildAction", buildActionRequest.getBuildAction().getClass().getName());
+            }
+            ProjectConnection connection = getProjectConnection(buildActionRequest, span);
+            BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
+            try {
+                return operation.run();
+            } finally {
+                closeConnectionIfNecessary(connection);
+            }
         } finally {
-            closeConnectionIfNecessary(connection);
+            span.end();
         }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
-        BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forBuildActionExecuter(operation), connection);
+        Span span = startDetachedSpan("tooling-client.execute", buildActionRequest);
+        try {
+            if (span.isRecording()) {
+                span.setAttribute("buildAction", buildActionRequest.getBuildAction().getClass().getName());
+            }
+            ProjectConnection connection = getProjectConnection(buildActionRequest, span);
+            BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
+            ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+            operation.run(new SpanEndingResultHandler<T>(promise.getResultHandler(), span));
+            return closeConnectionIfNecessary(promise, connection);
+        } catch (RuntimeException e) {
+            span.end();
+            throw e;
+        }
     }
 
     @Override
     public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
-        BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
+        Span span = startSpan("tooling-client.execute", buildLaunchRequest);
         try {
-            operation.run();
+            ProjectConnection connection = getProjectConnection(buildLaunchRequest, span);
+            BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
+            try {
+                operation.run();
+            } finally {
+                closeConnectionIfNecessary(connection);
+            }
         } finally {
-            closeConnectionIfNecessary(connection);
+            span.end();
         }
         return null;
     }
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
-        BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forBuildLauncher(operation), connection);
+        Span span = startDetachedSpan("tooling-client.execute", buildLaunchRequest);
+        try {
+            ProjectConnection connection = getProjectConnection(buildLaunchRequest, span);
+            BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
+            ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+            operation.run(new SpanEndingResultHandler<Void>(promise.getResultHandler(), span));
+            return closeConnectionIfNecessary(promise, connection);
+        } catch (RuntimeException e) {
+            span.end();
+            throw e;
+        }
     }
 
     @Override
     public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
-        TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
+        Span span = startSpan("tooling-client.execute", testLaunchRequest);
         try {
-            operation.run();
+            if (testLaunchRequest.getShardCount() > 1) {
+                recordShardCount(span, testLaunchRequest);
+                return ShardedTestLaunch.from(testLaunchRequest).executeAndWait();
+            }
+            ProjectConnection connection = getProjectConnection(testLaunchRequest, span);
+            TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
+            try {
+                operation.run();
+            } finally {
+                closeConnectionIfNecessary(connection);
+            }
         } finally {
-            closeConnectionIfNecessary(connection);
+            span.end();
         }
         return null;
     }
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
-        TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forTestLauncher(operation), connection);
+        Span span = startDetachedSpan("tooling-client.execute", testLaunchRequest);
+        try {
+            if (testLaunchRequest.getShardCount() > 1) {
+                recordShardCount(span, testLaunchRequest);
+                ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+                ShardedTestLaunch.from(testLaunchRequest).execute(new SpanEndingResultHandler<Void>(promise.getResultHandler(), span));
+                return promise;
+            }
+            ProjectConnection connection = getProjectConnection(testLaunchRequest, span);
+            TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
+            ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+            operation.run(new SpanEndingResultHandler<Void>(promise.getResultHandler(), span));
+            return closeConnectionIfNecessary(promise, connection);
+        } catch (RuntimeException e) {
+            span.end();
+            throw e;
+        }
     }
 
-    private ProjectConnection getProjectConnection(InspectableBuildRequest<?> request) {
-        return getOrCreateProjectConnection(request);
+    private ProjectConnection getProjectConnection(InspectableBuildRequest<?> request, Span parent) {
+        return getOrCreateProjectConnection(request, parent);
     }
 
-    private ProjectConnection getOrCreateProjectConnection(InspectableBuildRequest<?> simpleRequest) {
+    private ProjectConnection getOrCreateProjectConnection(InspectableBuildRequest<?> simpleRequest, Span parent) {
         Preconditions.checkNotNull(simpleRequest);
         if (this.connectionStrategy == ConnectionStrategy.PER_REQUEST) {
-            return openConnection(simpleRequest);
+            return openConnection(simpleRequest, parent);
         }
         ProjectConnection connection;
         int connectionKey = calculateConnectionKey(simpleRequest);
         synchronized (this.connections) {
             connection = this.connections.get(connectionKey);
             if (connection == null) {
-                connection = openConnection(simpleRequest);
+                connection = openConnection(simpleRequest, parent);
                 this.connections.put(connectionKey, connection);
             }
         }
@@ -182,12 +256,46 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
                 modelRequest.getGradleDistribution());
     }
 
-    private ProjectConnection openConnection(InspectableBuildRequest<?> modelRequest) {
-        GradleConnector connector = this.connectorFactory.create();
-        connector.forProjectDirectory(modelRequest.getProjectDir());
-        connector.useGradleUserHomeDir(modelRequest.getGradleUserHomeDir());
-        modelRequest.getGradleDistribution().apply(connector);
-        return connector.connect();
+    /*
+     * the connection is opened on behalf of the given span, which is passed explicitly since the span of an asynchronously executed
+     * request is detached and never becomes the current span of the calling thread
+     */
+    private ProjectConnection openConnection(InspectableBuildRequest<?> modelRequest, Span parent) {
+        Span span = withRequestAttributes(Tracing.startSpan("tooling-client.connect", parent), modelRequest);
+        try {
+            GradleConnector connector = this.connectorFactory.create();
+            connector.forProjectDirectory(modelRequest.getProjectDir());
+            connector.useGradleUserHomeDir(modelRequest.getGradleUserHomeDir());
+            modelRequest.getGradleDistribution().apply(connector);
+            return connector.connect();
+        } finally {
+            span.end();
+        }
+    }
+
+    private static Span startSpan(String name, InspectableBuildRequest<?> request) {
+        return withRequestAttributes(Tracing.startSpan(name), request);
+    }
+
+    /*
+     * asynchronously executed requests are traced until they complete, their span is ended by the thread that completes them
+     */
+    private static Span startDetachedSpan(String name, InspectableBuildRequest<?> request) {
+        return withRequestAttributes(Tracing.startDetachedSpan(name), request);
+    }
+
+    private static void recordShardCount(Span span, InspectableTestLaunchRequest request) {
+        if (span.isRecording()) {
+            span.setAttribute("shardCount", String.valueOf(request.getShardCount()));
+        }
+    }
+
+    private static Span withRequestAttributes(Span span, InspectableBuildRequest<?> request) {
+        if (span.isRecording()) {
+            span.setAttribute("projectDir", String.valueOf(request.getProjectDir()));
+            span.setAttribute("gradleDistribution", String.valueOf(request.getGradleDistribution()));
+        }
+        return span;
     }
 
     private <T> ModelBuilder<T> mapToModelBuilder(InspectableModelRequest<T> modelRequest, ProjectConnection connection) {
@@ -226,8 +334,11 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
             for (ProgressListener progressListener : request.getProgressListeners()) {
             operation.addProgressListener(progressListener);
         }
-        for (org.gradle.tooling.events.ProgressListener progressListener : request.getTypedProgressListeners()) {
-            operation.addProgressListener(progressListener);
+        // register a single listener for all typed progress listeners to receive each event only once and only for the operation types of interest
+        org.gradle.tooling.events.ProgressListener[] typedProgressListeners = request.getTypedProgressListeners();
+        if (typedProgressListeners.length > 0) {
+            ProgressEventMultiplexer multiplexer = ProgressEventMultiplexer.from(typedProgressListeners);
+            operation.addProgressListener(multiplexer, multiplexer.getOperationTypes());
         }
         return operation;
     }
@@ -292,6 +403,36 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
         ConnectorServices.reset();
     }
 
+    /**
+     * Result handler that ends the span of an asynchronously executed request once the request has completed or failed, before it
+     * passes the outcome on to the promise of the request.
+     *
+     * @param <T> the result type
+     */
+    private static final class SpanEndingResultHandler<T> implements ResultHandler<T> {
+
+        private final ResultHandler<T> delegate;
+        private final Span span;
+
+        private SpanEndingResultHandler(ResultHandler<T> delegate, Span span) {
+            this.delegate = delegate;
+            this.span = span;
+        }
+
+        @Override
+        public void onComplete(T result) {
+            this.span.end();
+            this.delegate.onComplete(result);
+        }
+
+        @Override
+        public void onFailure(GradleConnectionException failure) {
+            this.span.end();
+            this.delegate.onFailure(failure);
+        }
+
+    }
+
     /**
      * Singleton factory to create {@code GradleConnector} instances.
      */
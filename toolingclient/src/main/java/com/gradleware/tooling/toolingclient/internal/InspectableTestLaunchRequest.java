@@ -16,9 +16,13 @@
 
 package com.gradleware.tooling.toolingclient.internal;
 
+import com.gradleware.tooling.toolingclient.BuildLaunchRequest;
+import com.gradleware.tooling.toolingclient.LaunchableConfig;
 import com.gradleware.tooling.toolingclient.TestLaunchRequest;
 import com.gradleware.tooling.toolingclient.TestConfig;
 
+import java.util.Map;
+
 /**
  * Internal interface that describes the configurable attributes of the test launch request.
  *
@@ -32,4 +36,24 @@ interface InspectableTestLaunchRequest extends InspectableBuildRequest<Void>, Te
      */
     TestConfig getTests();
 
+    /**
+     * @return always positive, a shard count larger than one splits the tests across parallel test launches
+     * @see ShardedTestLaunch
+     */
+    int getShardCount();
+
+    /**
+     * @return never null, the historical execution times of the test classes
+     */
+    Map<String, Long> getTestClassDurations();
+
+    /**
+     * Derives a build launch request from this request that executes the given launchables with the same settings as this request.
+     *
+     * @param launchables the launchables to execute
+     * @return the new build launch request instance
+     * @see ShardedTestLaunch
+     */
+    BuildLaunchRequest deriveForLaunchables(LaunchableConfig launchables);
+
 }
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.model.DomainObjectSet;
+import org.gradle.tooling.model.UnsupportedMethodException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the entries of a request journal. A journal is a GZIP-compressed file that holds a header followed by one record per
+ * entry, each record being the length of the serialized entry followed by the entry serialized with Java serialization. A record of
+ * length zero marks the end of a journal that has been closed properly, a journal that ends without it is read up to its last complete
+ * record.
+ * <p/>
+ * The models and events received from the Tooling API are proxies or plain objects that are not serializable. When an entry is written,
+ * each such object is captured as the values of the properties of the Tooling API interfaces it implements, recursively. When an entry is
+ * read, each captured object is replaced by a proxy that implements the same interfaces and returns the captured values, such that
+ * models that refer to each other keep referring to each other. Properties that were not supported by the recorded Gradle version keep
+ * throwing an {@link UnsupportedMethodException}.
+ *
+ * @author Etienne Studer
+ */
+public final class JournalCodec {
+
+    private static final int MAGIC = 0x474A524E;
+    private static final int VERSION = 1;
+
+    private static final String TOOLING_API_PACKAGE = "org.gradle.tooling.";
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Reads all entries of the given journal.
+     *
+     * @param file the journal file
+     * @return the entries, in the order in which they were recorded
+     * @throws UncheckedIOException if the journal cannot be read
+     */
+    public static ImmutableList<JournalEntry> read(File file) {
+        Preconditions.checkNotNull(file);
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    throw new IOException("Not a request journal of the supported version.");
+                }
+
+                ImmutableList.Builder<JournalEntry> entries = ImmutableList.builder();
+                while (true) {
+                    byte[] record;
+                    try {
+                        int length = input.readInt();
+                        if (length == 0) {
+                            break;
+                        }
+                        record = new byte[length];
+                        input.readFully(record);
+                    } catch (EOFException e) {
+                        // the journal has not been closed, the entries recorded so far are still usable
+                        break;
+                    }
+                    entries.add(readEntry(record));
+                }
+                return entries.build();
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot read request journal %s.", file), e);
+        }
+    }
+
+    private static JournalEntry readEntry(byte[] record) throws IOException {
+        ObjectInputStream input = new ResolvingObjectInputStream(new ByteArrayInputStream(record));
+        try {
+            return (JournalEntry) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot read request journal entry.", e);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static byte[] writeEntry(JournalEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new CapturingObjectOutputStream(bytes);
+        output.writeObject(entry);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static boolean isToolingApiType(Class<?> type) {
+        return type.getName().startsWith(TOOLING_API_PACKAGE) && Modifier.isPublic(type.getModifiers());
+    }
+
+    private static void collectToolingApiInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Class<?> implemented : c.getInterfaces()) {
+                if (isToolingApiType(implemented)) {
+                    interfaces.add(implemented);
+                }
+                collectToolingApiInterfaces(implemented, interfaces);
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of a journal. Instances are thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream output;
+        private boolean closed;
+
+        private Writer(DataOutputStream output) {
+            this.output = output;
+        }
+
+        /**
+         * Writes the given entry. If the result or the events of the entry cannot be captured, the entry is written as a failed
+         * operation instead, such that replaying it fails with a message that explains why. Entries written after the journal has been
+         * closed are ignored.
+         *
+         * @param entry the entry to write
+         * @throws UncheckedIOException if the entry cannot be written
+         */
+        public synchronized void write(JournalEntry entry) {
+            if (this.closed) {
+                return;
+            }
+
+            byte[] record;
+            try {
+                record = writeEntry(entry);
+            } catch (IOException e) {
+                try {
+                    record = writeEntry(JournalEntry.failure(entry.getOperation(), entry.getTarget(), entry.getAttributes(), ImmutableList.<JournalEntry.Event>of(),
+                            entry.getDurationNanos(), "The result of the operation could not be recorded: " + e));
+                } catch (IOException f) {
+                    throw new UncheckedIOException("Cannot write request journal entry.", f);
+                }
+            }
+
+            try {
+                this.output.writeInt(record.length);
+                this.output.write(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write request journal entry.", e);
+            }
+        }
+
+        /**
+         * Marks the end of the journal and closes the journal file.
+         *
+         * @throws IOException if the journal cannot be closed
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.output.writeInt(0);
+            } finally {
+                this.output.close();
+            }
+        }
+
+        /**
+         * Creates a new journal in the given file, replacing any existing file.
+         *
+         * @param file the journal file
+         * @return the writer of the new journal
+         * @throws UncheckedIOException if the journal cannot be created
+         */
+        public static Writer create(File file) {
+            Preconditions.checkNotNull(file);
+            try {
+                OutputStream fileOutput = new FileOutputStream(file);
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileOutput)));
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                return new Writer(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Cannot create request journal %s.", file), e);
+            }
+        }
+
+    }
+
+    /**
+     * Object output stream that captures the objects of the Tooling API that are not serializable.
+     */
+    private static final class CapturingObjectOutputStream extends ObjectOutputStream {
+
+        // the same object is always captured as the same instance, such that references between captured objects are preserved
+        private final Map<Object, CapturedObject> capturedObjects;
+
+        private CapturingObjectOutputStream(OutputStream output) throws IOException {
+            super(output);
+            this.capturedObjects = new IdentityHashMap<Object, CapturedObject>();
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) {
+            if (object instanceof CapturedObject || object instanceof Class || !(Proxy.isProxyClass(object.getClass()) || !(object instanceof Serializable))) {
+                return object;
+            }
+
+            CapturedObject captured = this.capturedObjects.get(object);
+            if (captured == null) {
+                Set<Class<?>> interfaces = Sets.newLinkedHashSet();
+                collectToolingApiInterfaces(object.getClass(), interfaces);
+                if (interfaces.isEmpty()) {
+                    return object;
+                }
+                captured = CapturedObject.capture(object, interfaces);
+                this.capturedObjects.put(object, captured);
+            }
+            return captured;
+        }
+
+    }
+
+    /**
+     * Object input stream that replaces the captured objects by proxies.
+     */
+    private static final class ResolvingObjectInputStream extends ObjectInputStream {
+
+        private final Materializer materializer;
+
+        private ResolvingObjectInputStream(InputStream input) throws IOException {
+            super(input);
+            this.materializer = new Materializer();
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object object) {
+            return object instanceof CapturedObject ? this.materializer.materialize((CapturedObject) object) : object;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            try {
+                return super.resolveClass(descriptor);
+            } catch (ClassNotFoundException e) {
+                ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+                if (contextClassLoader == null) {
+                    throw e;
+                }
+                return Class.forName(descriptor.getName(), false, contextClassLoader);
+            }
+        }
+
+    }
+
+    /**
+     * The values of the properties of an object of the Tooling API, keyed by the name of the property getter. Collections and maps are
+     * captured as lists and maps of their elements, the elements themselves are captured when the captured object is serialized.
+     */
+    private static final class CapturedObject implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ImmutableList<String> interfaceNames;
+        private final LinkedHashMap<String, Object> properties;
+
+        private CapturedObject(ImmutableList<String> interfaceNames, LinkedHashMap<String, Object> properties) {
+            this.interfaceNames = interfaceNames;
+            this.properties = properties;
+        }
+
+        private static CapturedObject capture(Object object, Set<Class<?>> interfaces) {
+            ImmutableList.Builder<String> interfaceNames = ImmutableList.builder();
+            LinkedHashMap<String, Object> properties = Maps.newLinkedHashMap();
+            for (Class<?> type : interfaces) {
+                interfaceNames.add(type.getName());
+                for (Method method : type.getMethods()) {
+                    if (isGetter(method) && !properties.containsKey(method.getName())) {
+                        properties.put(method.getName(), captureProperty(object, method));
+                    }
+                }
+            }
+            return new CapturedObject(interfaceNames.build(), properties);
+        }
+
+        private static boolean isGetter(Method method) {
+            String name = method.getName();
+            return method.getParameterTypes().length == 0 && method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())
+                    && (name.startsWith("get") || name.startsWith("is")) && !name.equals("getClass");
+        }
+
+        private static Object captureProperty(Object object, Method method) {
+            Object value;
+            try {
+                value = method.invoke(object);
+            } catch (InvocationTargetException e) {
+                return new CapturedFailure(e.getCause());
+            } catch (Exception e) {
+                return new CapturedFailure(e);
+            }
+
+            if (value instanceof Collection) {
+                return Lists.newArrayList((Collection<?>) value);
+            } else if (value instanceof Map) {
+                return Maps.newLinkedHashMap((Map<?, ?>) value);
+            } else {
+                return value;
+            }
+        }
+
+    }
+
+    /**
+     * The failure with which a property getter failed when its value was captured.
+     */
+    private static final class CapturedFailure implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean unsupported;
+        private final String message;
+
+        private CapturedFailure(Throwable failure) {
+            this.unsupported = failure instanceof UnsupportedMethodException;
+            this.message = String.valueOf(failure);
+        }
+
+        private RuntimeException toException() {
+            return this.unsupported ? new UnsupportedMethodException(this.message) : new IllegalStateException(this.message);
+        }
+
+    }
+
+    /**
+     * Creates the proxies of the captured objects of one entry. The same captured object is always materialized as the same proxy.
+     */
+    private static final class Materializer {
+
+        private final Map<CapturedObject, Object> proxies = new IdentityHashMap<CapturedObject, Object>();
+
+        private synchronized Object materialize(CapturedObject captured) {
+            Object proxy = this.proxies.get(captured);
+            if (proxy == null) {
+                ClassLoader classLoader = JournalCodec.class.getClassLoader();
+                List<Class<?>> interfaces = Lists.newArrayList();
+                for (String interfaceName : captured.interfaceNames) {
+                    try {
+                        interfaces.add(Class.forName(interfaceName, false, classLoader));
+                    } catch (ClassNotFoundException e) {
+                        // the interface has been added by a later version of the Tooling API than the one on the class path
+                    }
+                }
+                proxy = Proxy.newProxyInstance(classLoader, interfaces.toArray(new Class<?>[interfaces.size()]), new CapturedObjectHandler(captured, this));
+                this.proxies.put(captured, proxy);
+            }
+            return proxy;
+        }
+
+        private Object convert(Object value, Class<?> type) {
+            if (value instanceof CapturedObject) {
+                return materialize((CapturedObject) value);
+            } else if (value instanceof List) {
+                List<Object> elements = Lists.newArrayList();
+                for (Object element : (List<?>) value) {
+                    elements.add(convert(element, Object.class));
+                }
+                if (type.isAssignableFrom(ListDomainObjectSet.class)) {
+                    return new ListDomainObjectSet<Object>(ImmutableList.copyOf(elements));
+                } else if (type.isAssignableFrom(Set.class)) {
+                    return Collections.unmodifiableSet(Sets.newLinkedHashSet(elements));
+                } else {
+                    return Collections.unmodifiableList(elements);
+                }
+            } else if (value instanceof Map) {
+                Map<Object, Object> entries = Maps.newLinkedHashMap();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    entries.put(convert(entry.getKey(), Object.class), convert(entry.getValue(), Object.class));
+                }
+                return Collections.unmodifiableMap(entries);
+            } else {
+                return value;
+            }
+        }
+
+    }
+
+    /**
+     * Answers the getters of a proxy with the captured values.
+     */
+    private static final class CapturedObjectHandler implements InvocationHandler {
+
+        private static final Object NULL = new Object();
+
+        private final CapturedObject captured;
+        private final Materializer materializer;
+        private final ConcurrentMap<String, Object> values;
+
+        private CapturedObjectHandler(CapturedObject captured, Materializer materializer) {
+            this.captured = captured;
+            this.materializer = materializer;
+            this.values = Maps.newConcurrentMap();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else {
+                    // the string representation of the recorded object is not captured, it might traverse the entire model
+                    return "recorded " + this.captured.interfaceNames.get(0);
+                }
+            }
+
+            if (!this.captured.properties.containsKey(name) || (args != null && args.length > 0)) {
+                throw new UnsupportedMethodException(String.format("The recorded model does not provide %s.", method));
+            }
+            Object capturedValue = this.captured.properties.get(name);
+            if (capturedValue instanceof CapturedFailure) {
+                throw ((CapturedFailure) capturedValue).toException();
+            }
+
+            // convert each value once, such that repeated invocations return the same instance
+            Object value = this.values.get(name);
+            if (value == null) {
+                Object converted = this.materializer.convert(capturedValue, method.getReturnType());
+                value = this.values.putIfAbsent(name, converted != null ? converted : NULL);
+                if (value == null) {
+                    value = converted != null ? converted : NULL;
+                }
+            }
+            return value == NULL ? null : value;
+        }
+
+    }
+
+    /**
+     * Immutable {@link DomainObjectSet} backed by a list.
+     *
+     * @param <T> the type of the elements
+     */
+    private static final class ListDomainObjectSet<T> extends AbstractSet<T> implements DomainObjectSet<T>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ImmutableList<T> elements;
+
+        private ListDomainObjectSet(ImmutableList<T> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this.elements.iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.elements.size();
+        }
+
+        @Override
+        public List<T> getAll() {
+            return this.elements;
+        }
+
+        @Override
+        public T getAt(int index) {
+            return this.elements.get(index);
+        }
+
+    }
+
+}
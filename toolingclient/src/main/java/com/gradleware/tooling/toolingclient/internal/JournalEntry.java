@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request recorded in a {@link com.gradleware.tooling.toolingclient.RequestJournal}: the kind of operation, the attributes with which
+ * the operation was configured, the progress events it emitted, and its result or failure, together with the time it took.
+ * <p/>
+ * The recorded result and events are the objects received from the Tooling API. They are captured when the entry is written to the
+ * journal and replaced by equivalent proxies when the entry is read from the journal.
+ *
+ * @author Etienne Studer
+ */
+public final class JournalEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String MODEL_OPERATION = "model";
+    public static final String BUILD_ACTION_OPERATION = "action";
+    public static final String BUILD_OPERATION = "build";
+    public static final String TEST_OPERATION = "test";
+
+    private final String operation;
+    private final String target;
+    private final ImmutableMap<String, String> attributes;
+    private final ImmutableList<Event> events;
+    private final long durationNanos;
+    private final Object result;
+    private final String failure;
+
+    private JournalEntry(String operation, String target, Map<String, String> attributes, List<Event> events, long durationNanos, Object result, String failure) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.target = target;
+        this.attributes = ImmutableMap.copyOf(attributes);
+        this.events = ImmutableList.copyOf(events);
+        this.durationNanos = durationNanos;
+        this.result = result;
+        this.failure = failure;
+    }
+
+    /**
+     * Returns the kind of operation, one of the operation constants of this class.
+     *
+     * @return the operation, never null
+     */
+    public String getOperation() {
+        return this.operation;
+    }
+
+    /**
+     * Returns the name of the requested model type for model requests, the name of the build action class for build action requests,
+     * and null for build and test launches.
+     *
+     * @return the target of the operation, can be null
+     */
+    public String getTarget() {
+        return this.target;
+    }
+
+    /**
+     * Returns the attributes with which the operation was configured, for example the project directory, the distribution, and the
+     * arguments, as strings.
+     *
+     * @return the attributes, never null
+     */
+    public ImmutableMap<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    public ImmutableList<Event> getEvents() {
+        return this.events;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public Object getResult() {
+        return this.result;
+    }
+
+    /**
+     * Returns the message of the failure with which the operation failed.
+     *
+     * @return the failure message, null if the operation has completed successfully
+     */
+    public String getFailure() {
+        return this.failure;
+    }
+
+    public static JournalEntry success(String operation, String target, Map<String, String> attributes, List<Event> events, long durationNanos, Object result) {
+        return new JournalEntry(operation, target, attributes, events, durationNanos, result, null);
+    }
+
+    public static JournalEntry failure(String operation, String target, Map<String, String> attributes, List<Event> events, long durationNanos, String failure) {
+        return new JournalEntry(operation, target, attributes, events, durationNanos, null, String.valueOf(failure));
+    }
+
+    /**
+     * A progress event received while the operation was running, together with the time it was received relative to the start of the
+     * operation.
+     */
+    public static final class Event implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long offsetNanos;
+        private final boolean typed;
+        private final Object event;
+
+        public Event(long offsetNanos, boolean typed, Object event) {
+            this.offsetNanos = offsetNanos;
+            this.typed = typed;
+            this.event = Preconditions.checkNotNull(event);
+        }
+
+        public long getOffsetNanos() {
+            return this.offsetNanos;
+        }
+
+        /**
+         * Returns whether the event has been received by a typed progress listener or by a plain progress listener.
+         *
+         * @return {@code true} if the event is a {@link org.gradle.tooling.events.ProgressEvent}, {@code false} if it is a
+         * {@link org.gradle.tooling.ProgressEvent}
+         */
+        public boolean isTyped() {
+            return this.typed;
+        }
+
+        public Object getEvent() {
+            return this.event;
+        }
+
+    }
+
+}
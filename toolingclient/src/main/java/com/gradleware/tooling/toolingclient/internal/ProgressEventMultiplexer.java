@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.gradleware.tooling.toolingclient.SelectiveProgressListener;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.task.TaskProgressEvent;
+import org.gradle.tooling.events.test.TestProgressEvent;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Typed progress listener that is registered once per request in place of all the typed progress listeners of the request. Gradle
+ * only sends the events of the union of the operation types that the multiplexed listeners declare, and each event is dispatched
+ * in-process to those listeners that have declared the operation type of the event.
+ * <p/>
+ * The dispatch tables are computed once at construction time, dispatching an event does neither allocate nor lock.
+ *
+ * @author Etienne Studer
+ * @see SelectiveProgressListener
+ */
+final class ProgressEventMultiplexer implements ProgressListener {
+
+    private final ImmutableSet<OperationType> operationTypes;
+    private final ProgressListener[] taskListeners;
+    private final ProgressListener[] testListeners;
+    private final ProgressListener[] genericListeners;
+
+    private ProgressEventMultiplexer(ProgressListener[] listeners) {
+        Set<OperationType> union = EnumSet.noneOf(OperationType.class);
+        List<ProgressListener> taskListeners = Lists.newArrayList();
+        List<ProgressListener> testListeners = Lists.newArrayList();
+        List<ProgressListener> genericListeners = Lists.newArrayList();
+        for (ProgressListener listener : listeners) {
+            Set<OperationType> types = getOperationTypes(Preconditions.checkNotNull(listener));
+            union.addAll(types);
+            if (types.contains(OperationType.TASK)) {
+                taskListeners.add(listener);
+            }
+            if (types.contains(OperationType.TEST)) {
+                testListeners.add(listener);
+            }
+            if (types.contains(OperationType.GENERIC)) {
+                genericListeners.add(listener);
+            }
+        }
+
+        this.operationTypes = ImmutableSet.copyOf(union);
+        this.taskListeners = taskListeners.toArray(new ProgressListener[taskListeners.size()]);
+        this.testListeners = testListeners.toArray(new ProgressListener[testListeners.size()]);
+        this.genericListeners = genericListeners.toArray(new ProgressListener[genericListeners.size()]);
+    }
+
+    private static Set<OperationType> getOperationTypes(ProgressListener listener) {
+        if (listener instanceof SelectiveProgressListener) {
+            return Preconditions.checkNotNull(((SelectiveProgressListener) listener).getOperationTypes());
+        } else {
+            return EnumSet.allOf(OperationType.class);
+        }
+    }
+
+    /**
+     * Returns the union of the operation types declared by the multiplexed listeners. This is the set of operation types for which
+     * the multiplexer must be registered with Gradle.
+     *
+     * @return the operation types, never null
+     */
+    ImmutableSet<OperationType> getOperationTypes() {
+        return this.operationTypes;
+    }
+
+    @Override
+    public void statusChanged(ProgressEvent event) {
+        if (event instanceof TaskProgressEvent) {
+            dispatch(this.taskListeners, event);
+        } else if (event instanceof TestProgressEvent) {
+            dispatch(this.testListeners, event);
+        } else {
+            dispatch(this.genericListeners, event);
+        }
+    }
+
+    private static void dispatch(ProgressListener[] listeners, ProgressEvent event) {
+        for (ProgressListener listener : listeners) {
+            listener.statusChanged(event);
+        }
+    }
+
+    /**
+     * Creates a new instance that multiplexes the given listeners.
+     *
+     * @param listeners the listeners to multiplex
+     * @return the new instance
+     */
+    static ProgressEventMultiplexer from(ProgressListener[] listeners) {
+        Preconditions.checkNotNull(listeners);
+        return new ProgressEventMultiplexer(listeners);
+    }
+
+}
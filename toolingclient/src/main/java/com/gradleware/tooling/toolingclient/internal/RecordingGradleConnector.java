@@ -0,0 +1,391 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildActionExecuter;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.LongRunningOperation;
+import org.gradle.tooling.ModelBuilder;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.TestLauncher;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Connector that passes all requests on to a delegate connector and writes each executed operation to a request journal. The attributes
+ * with which the connector and the operation have been configured, the progress events emitted by the operation, and its result or
+ * failure are recorded. Build actions are recorded with the digest of their serialized form, such that actions of the same class but with
+ * different state can be told apart when the journal is replayed.
+ * <p/>
+ * Progress events are only recorded for the kinds of listeners that are registered with an operation, such that recording does not cause
+ * the build to send more events than it would send anyway. Operations obtained through {@code ProjectConnection#action()} are passed on
+ * without being recorded.
+ *
+ * @author Etienne Studer
+ */
+public final class RecordingGradleConnector extends GradleConnector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecordingGradleConnector.class);
+
+    static final String BUILD_ACTION_ATTRIBUTE = "buildAction";
+
+    private final GradleConnector delegate;
+    private final JournalCodec.Writer journal;
+    private final Map<String, String> attributes;
+
+    public RecordingGradleConnector(GradleConnector delegate, JournalCodec.Writer journal) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.journal = Preconditions.checkNotNull(journal);
+        this.attributes = Collections.synchronizedMap(Maps.<String, String>newLinkedHashMap());
+    }
+
+    @Override
+    public GradleConnector useInstallation(File gradleHome) {
+        this.delegate.useInstallation(gradleHome);
+        this.attributes.put("gradleDistribution", "installation " + gradleHome);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleVersion(String gradleVersion) {
+        this.delegate.useGradleVersion(gradleVersion);
+        this.attributes.put("gradleDistribution", "version " + gradleVersion);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useDistribution(URI gradleDistribution) {
+        this.delegate.useDistribution(gradleDistribution);
+        this.attributes.put("gradleDistribution", "distribution " + gradleDistribution);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useBuildDistribution() {
+        this.delegate.useBuildDistribution();
+        this.attributes.put("gradleDistribution", "wrapper");
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleUserHomeDir(File gradleUserHomeDir) {
+        this.delegate.useGradleUserHomeDir(gradleUserHomeDir);
+        this.attributes.put("gradleUserHomeDir", String.valueOf(gradleUserHomeDir));
+        return this;
+    }
+
+    @Override
+    public GradleConnector forProjectDirectory(File projectDir) {
+        this.delegate.forProjectDirectory(projectDir);
+        this.attributes.put("projectDir", String.valueOf(projectDir));
+        return this;
+    }
+
+    @Override
+    public ProjectConnection connect() {
+        final ProjectConnection connection = this.delegate.connect();
+        final ImmutableMap<String, String> connectorAttributes;
+        synchronized (this.attributes) {
+            connectorAttributes = ImmutableMap.copyOf(this.attributes);
+        }
+
+        return proxy(ProjectConnection.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                Object[] arguments = args != null ? args : new Object[0];
+                if (name.equals("model")) {
+                    Class<?> modelType = (Class<?>) arguments[0];
+                    return recordingOperation(ModelBuilder.class, connection.model(modelType), JournalEntry.MODEL_OPERATION, modelType.getName(), connectorAttributes);
+                } else if (name.equals("getModel")) {
+                    Class<?> modelType = (Class<?>) arguments[0];
+                    ModelBuilder<?> modelBuilder = recordingOperation(ModelBuilder.class, connection.model(modelType), JournalEntry.MODEL_OPERATION, modelType.getName(), connectorAttributes);
+                    if (arguments.length > 1) {
+                        executeAsync(modelBuilder, (ResultHandler<?>) arguments[1]);
+                        return null;
+                    }
+                    return modelBuilder.get();
+                } else if (name.equals("action") && arguments.length == 1) {
+                    BuildAction<?> buildAction = (BuildAction<?>) arguments[0];
+                    return recordingOperation(BuildActionExecuter.class, connection.action(buildAction), JournalEntry.BUILD_ACTION_OPERATION, buildAction.getClass().getName(),
+                            withBuildAction(connectorAttributes, buildAction));
+                } else if (name.equals("newBuild")) {
+                    return recordingOperation(BuildLauncher.class, connection.newBuild(), JournalEntry.BUILD_OPERATION, null, connectorAttributes);
+                } else if (name.equals("newTestLauncher")) {
+                    return recordingOperation(TestLauncher.class, connection.newTestLauncher(), JournalEntry.TEST_OPERATION, null, connectorAttributes);
+                } else if (method.getDeclaringClass() == Object.class && name.equals("equals")) {
+                    return proxy == arguments[0];
+                } else if (method.getDeclaringClass() == Object.class && name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else {
+                    return invokeDelegate(connection, method, args);
+                }
+            }
+        });
+    }
+
+    static Map<String, String> withBuildAction(Map<String, String> attributes, BuildAction<?> buildAction) {
+        Map<String, String> result = Maps.newLinkedHashMap(attributes);
+        result.put(BUILD_ACTION_ATTRIBUTE, digest(buildAction));
+        return result;
+    }
+
+    /*
+     * the build actions of the same class differ in their state, e.g. the project paths for which they fetch models, thus the digest of
+     * their serialized form identifies them
+     */
+    private static String digest(BuildAction<?> buildAction) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream output = new ObjectOutputStream(bytes);
+            try {
+                output.writeObject(buildAction);
+            } finally {
+                output.close();
+            }
+            return Hashing.sha256().hashBytes(bytes.toByteArray()).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot serialize build action %s.", buildAction), e);
+        }
+    }
+
+    /*
+     * records the configuration methods whose arguments have a meaningful string representation, streams, tokens, and listeners are
+     * not recorded
+     */
+    static void recordAttribute(Map<String, String> attributes, String name, Object[] args) {
+        if (args == null || args.length != 1 || args[0] == null) {
+            return;
+        }
+        Object argument = args[0];
+        if (argument instanceof String || argument instanceof File || argument instanceof Boolean || argument instanceof Enum) {
+            attributes.put(name, argument.toString());
+        } else if (argument instanceof String[]) {
+            attributes.put(name, Arrays.toString((String[]) argument));
+        } else if (argument instanceof Iterable) {
+            attributes.put(name, Iterables.toString((Iterable<?>) argument));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void executeAsync(ModelBuilder<T> modelBuilder, ResultHandler<?> resultHandler) {
+        modelBuilder.get((ResultHandler<? super T>) resultHandler);
+    }
+
+    private <T> T recordingOperation(Class<T> type, Object operation, String operationName, String target, Map<String, String> connectorAttributes) {
+        return proxy(type, new RecordingOperationHandler(operation, operationName, target, connectorAttributes));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(RecordingGradleConnector.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invokeDelegate(Object delegate, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Passes the invocations on a model builder, build action executer, build launcher, or test launcher on to the delegate operation
+     * and records the configuration, the progress events, and the outcome of each execution of the operation.
+     */
+    private final class RecordingOperationHandler implements InvocationHandler {
+
+        private final Object delegate;
+        private final String operation;
+        private final String target;
+        private final Map<String, String> attributes;
+        private final Set<OperationType> typedEventTypes;
+        private final List<JournalEntry.Event> events;
+        private boolean legacyEvents;
+        private boolean listenersRegistered;
+        private volatile long startNanos;
+
+        private RecordingOperationHandler(Object delegate, String operation, String target, Map<String, String> connectorAttributes) {
+            this.delegate = delegate;
+            this.operation = operation;
+            this.target = target;
+            this.attributes = Maps.newLinkedHashMap(connectorAttributes);
+            this.typedEventTypes = EnumSet.noneOf(OperationType.class);
+            this.events = Collections.synchronizedList(Lists.<JournalEntry.Event>newArrayList());
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("get") || name.equals("run")) {
+                return execute(method, args);
+            } else if (name.equals("addProgressListener")) {
+                recordListener(args);
+            } else if (method.getDeclaringClass() != Object.class) {
+                recordAttribute(name, args);
+            }
+
+            Object result = invokeDelegate(this.delegate, method, args);
+            return result == this.delegate ? proxy : result;
+        }
+
+        private synchronized void recordListener(Object[] args) {
+            if (args[0] instanceof ProgressListener) {
+                this.legacyEvents = true;
+            } else if (args.length == 1) {
+                this.typedEventTypes.addAll(EnumSet.allOf(OperationType.class));
+            } else if (args[1] instanceof OperationType[]) {
+                this.typedEventTypes.addAll(Arrays.asList((OperationType[]) args[1]));
+            } else if (args[1] instanceof Set) {
+                for (Object operationType : (Set<?>) args[1]) {
+                    this.typedEventTypes.add((OperationType) operationType);
+                }
+            }
+        }
+
+        private synchronized void recordAttribute(String name, Object[] args) {
+            RecordingGradleConnector.recordAttribute(this.attributes, name, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            registerRecordingListeners();
+            this.events.clear();
+            this.startNanos = System.nanoTime();
+
+            if (args != null && args.length == 1 && args[0] instanceof ResultHandler) {
+                final ResultHandler<?> resultHandler = (ResultHandler<?>) args[0];
+                return invokeDelegate(this.delegate, method, new Object[]{new ResultHandler<Object>() {
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public void onComplete(Object result) {
+                        recordSuccess(result);
+                        ((ResultHandler<Object>) resultHandler).onComplete(result);
+                    }
+
+                    @Override
+                    public void onFailure(GradleConnectionException failure) {
+                        recordFailure(failure);
+                        resultHandler.onFailure(failure);
+                    }
+                }});
+            }
+
+            Object result;
+            try {
+                result = invokeDelegate(this.delegate, method, args);
+            } catch (RuntimeException e) {
+                recordFailure(e);
+                throw e;
+            }
+            recordSuccess(result);
+            return result;
+        }
+
+        private synchronized void registerRecordingListeners() {
+            if (this.listenersRegistered) {
+                return;
+            }
+            this.listenersRegistered = true;
+
+            if (this.legacyEvents) {
+                ((LongRunningOperation) this.delegate).addProgressListener(new ProgressListener() {
+
+                    @Override
+                    public void statusChanged(org.gradle.tooling.ProgressEvent event) {
+                        recordEvent(false, event);
+                    }
+                });
+            }
+            if (!this.typedEventTypes.isEmpty()) {
+                ((LongRunningOperation) this.delegate).addProgressListener(new org.gradle.tooling.events.ProgressListener() {
+
+                    @Override
+                    public void statusChanged(ProgressEvent event) {
+                        recordEvent(true, event);
+                    }
+                }, EnumSet.copyOf(this.typedEventTypes));
+            }
+        }
+
+        private void recordEvent(boolean typed, Object event) {
+            this.events.add(new JournalEntry.Event(System.nanoTime() - this.startNanos, typed, event));
+        }
+
+        private void recordSuccess(Object result) {
+            long durationNanos = System.nanoTime() - this.startNanos;
+            write(JournalEntry.success(this.operation, this.target, currentAttributes(), currentEvents(), durationNanos, result));
+        }
+
+        private void recordFailure(Exception failure) {
+            long durationNanos = System.nanoTime() - this.startNanos;
+            write(JournalEntry.failure(this.operation, this.target, currentAttributes(), currentEvents(), durationNanos, failure.toString()));
+        }
+
+        // a journal that cannot be written must not fail the operation that is recorded
+        private void write(JournalEntry entry) {
+            try {
+                RecordingGradleConnector.this.journal.write(entry);
+            } catch (UncheckedIOException e) {
+                LOG.warn("Cannot record {} operation in request journal.", this.operation, e);
+            }
+        }
+
+        private synchronized Map<String, String> currentAttributes() {
+            return ImmutableMap.copyOf(this.attributes);
+        }
+
+        private List<JournalEntry.Event> currentEvents() {
+            synchronized (this.events) {
+                return ImmutableList.copyOf(this.events);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Defaults;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildActionExecuter;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ModelBuilder;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.TestLauncher;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.task.TaskProgressEvent;
+import org.gradle.tooling.events.test.TestProgressEvent;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connector that serves the operations recorded in a request journal instead of connecting to a Gradle daemon.
+ * <p/>
+ * Each operation is answered with the next recorded entry of the same kind and target that was recorded with the same attributes, in the
+ * order in which the entries were recorded, starting over with the first entry once all entries have been served. The attributes are
+ * derived in the same way as by {@link RecordingGradleConnector}: from the distribution, the project directory, and the Gradle user home
+ * of the connector, from the configuration of the operation, and from the digest of the serialized build action. An operation for which
+ * no entry was recorded with the same attributes fails.
+ * <p/>
+ * The recorded progress events are sent to the registered listeners and the operation completes after the recorded duration, both scaled
+ * by the time scale of the recordings. The recorded failures are rethrown as {@link GradleConnectionException}, or as one of its
+ * subclasses for cancelled and failed builds.
+ *
+ * @author Etienne Studer
+ */
+public final class ReplayGradleConnector extends GradleConnector {
+
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Recordings recordings;
+    private final Map<String, String> attributes;
+
+    public ReplayGradleConnector(Recordings recordings) {
+        this.recordings = Preconditions.checkNotNull(recordings);
+        this.attributes = Collections.synchronizedMap(Maps.<String, String>newLinkedHashMap());
+    }
+
+    @Override
+    public GradleConnector useInstallation(File gradleHome) {
+        this.attributes.put("gradleDistribution", "installation " + gradleHome);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleVersion(String gradleVersion) {
+        this.attributes.put("gradleDistribution", "version " + gradleVersion);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useDistribution(URI gradleDistribution) {
+        this.attributes.put("gradleDistribution", "distribution " + gradleDistribution);
+        return this;
+    }
+
+    @Override
+    public GradleConnector useBuildDistribution() {
+        this.attributes.put("gradleDistribution", "wrapper");
+        return this;
+    }
+
+    @Override
+    public GradleConnector useGradleUserHomeDir(File gradleUserHomeDir) {
+        this.attributes.put("gradleUserHomeDir", String.valueOf(gradleUserHomeDir));
+        return this;
+    }
+
+    @Override
+    public GradleConnector forProjectDirectory(File projectDir) {
+        this.attributes.put("projectDir", String.valueOf(projectDir));
+        return this;
+    }
+
+    @Override
+    public ProjectConnection connect() {
+        final ImmutableMap<String, String> connectorAttributes;
+        synchronized (this.attributes) {
+            connectorAttributes = ImmutableMap.copyOf(this.attributes);
+        }
+
+        return proxy(ProjectConnection.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Recordings recordings = ReplayGradleConnector.this.recordings;
+                String name = method.getName();
+                Object[] arguments = args != null ? args : new Object[0];
+                if (name.equals("model")) {
+                    return proxy(ModelBuilder.class, new OperationHandler(recordings, JournalEntry.MODEL_OPERATION, ((Class<?>) arguments[0]).getName(), connectorAttributes));
+                } else if (name.equals("getModel")) {
+                    OperationHandler operation = new OperationHandler(recordings, JournalEntry.MODEL_OPERATION, ((Class<?>) arguments[0]).getName(), connectorAttributes);
+                    return operation.execute(arguments.length > 1 ? (ResultHandler<?>) arguments[1] : null);
+                } else if (name.equals("action") && arguments.length == 1) {
+                    BuildAction<?> buildAction = (BuildAction<?>) arguments[0];
+                    return proxy(BuildActionExecuter.class, new OperationHandler(recordings, JournalEntry.BUILD_ACTION_OPERATION, buildAction.getClass().getName(),
+                            RecordingGradleConnector.withBuildAction(connectorAttributes, buildAction)));
+                } else if (name.equals("newBuild")) {
+                    return proxy(BuildLauncher.class, new OperationHandler(recordings, JournalEntry.BUILD_OPERATION, null, connectorAttributes));
+                } else if (name.equals("newTestLauncher")) {
+                    return proxy(TestLauncher.class, new OperationHandler(recordings, JournalEntry.TEST_OPERATION, null, connectorAttributes));
+                } else if (name.equals("close")) {
+                    return null;
+                } else {
+                    return handleObjectMethod(proxy, method, arguments);
+                }
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ReplayGradleConnector.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("toString")) {
+            return "replayed " + proxy.getClass().getInterfaces()[0].getSimpleName();
+        } else {
+            throw new UnsupportedOperationException(String.format("Replaying a request journal does not support %s.", method));
+        }
+    }
+
+    /**
+     * The entries of a request journal, together with the position up to which the entries of each kind, target, and attributes have been
+     * served. Instances are shared by all connectors that replay the same journal and are thread-safe.
+     */
+    public static final class Recordings {
+
+        private final Map<List<Object>, List<JournalEntry>> entries;
+        private final Map<List<Object>, AtomicInteger> positions;
+        private final double timeScale;
+        private final ExecutorService asyncExecutor;
+
+        private Recordings(Map<List<Object>, List<JournalEntry>> entries, Map<List<Object>, AtomicInteger> positions, double timeScale) {
+            this.entries = entries;
+            this.positions = positions;
+            this.timeScale = timeScale;
+            this.asyncExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("request-journal-replay-%d").setDaemon(true).build());
+        }
+
+        private JournalEntry next(String operation, String target, Map<String, String> attributes) {
+            List<Object> key = Arrays.<Object>asList(operation, target, attributes);
+            List<JournalEntry> candidates = this.entries.get(key);
+            if (candidates == null) {
+                throw new GradleConnectionException(String.format("The request journal does not contain a recorded %s operation for %s with attributes %s.", operation,
+                        target != null ? target : "the build", attributes));
+            }
+            int position = this.positions.get(key).getAndIncrement();
+            return candidates.get((position & Integer.MAX_VALUE) % candidates.size());
+        }
+
+        /**
+         * Creates the recordings for the given entries.
+         *
+         * @param entries the recorded entries, in the order in which they were recorded
+         * @param timeScale the factor by which the recorded timing is scaled, 1 to replay with the original timing, 0 to replay without
+         * any delay
+         * @return the new instance
+         */
+        public static Recordings from(Collection<JournalEntry> entries, double timeScale) {
+            Preconditions.checkArgument(timeScale >= 0, "Time scale must not be negative: %s", timeScale);
+            Map<List<Object>, List<JournalEntry>> entriesByKey = Maps.newHashMap();
+            Map<List<Object>, AtomicInteger> positions = Maps.newHashMap();
+            for (JournalEntry entry : entries) {
+                List<Object> key = Arrays.<Object>asList(entry.getOperation(), entry.getTarget(), entry.getAttributes());
+                if (!entriesByKey.containsKey(key)) {
+                    entriesByKey.put(key, Lists.<JournalEntry>newArrayList());
+                    positions.put(key, new AtomicInteger());
+                }
+                entriesByKey.get(key).add(entry);
+            }
+            return new Recordings(entriesByKey, positions, timeScale);
+        }
+
+    }
+
+    /**
+     * Handles the invocations on a model builder, build action executer, build launcher, or test launcher. The configuration methods are
+     * recorded as attributes like by {@link RecordingGradleConnector}, the progress listeners and the cancellation token are registered,
+     * and the execution methods replay the next recorded entry with the same attributes.
+     */
+    private static final class OperationHandler implements InvocationHandler {
+
+        private final Recordings recordings;
+        private final String operation;
+        private final String target;
+        private final Map<String, String> attributes;
+        private final List<ProgressListener> progressListeners;
+        private final List<TypedProgressListener> typedProgressListeners;
+        private volatile CancellationToken cancellationToken;
+
+        private OperationHandler(Recordings recordings, String operation, String target, Map<String, String> connectorAttributes) {
+            this.recordings = recordings;
+            this.operation = operation;
+            this.target = target;
+            this.attributes = Maps.newLinkedHashMap(connectorAttributes);
+            this.progressListeners = Lists.newCopyOnWriteArrayList();
+            this.typedProgressListeners = Lists.newCopyOnWriteArrayList();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("get") || name.equals("run")) {
+                return execute(args != null && args.length > 0 ? (ResultHandler<?>) args[0] : null);
+            } else if (name.equals("addProgressListener")) {
+                addProgressListener(args);
+                return proxy;
+            } else if (name.equals("withCancellationToken")) {
+                this.cancellationToken = (CancellationToken) args[0];
+                return proxy;
+            } else if (method.getDeclaringClass() == Object.class) {
+                return handleObjectMethod(proxy, method, args);
+            }
+
+            recordAttribute(name, args);
+            if (method.getReturnType().isInstance(proxy)) {
+                return proxy;
+            } else {
+                return Defaults.defaultValue(method.getReturnType());
+            }
+        }
+
+        private synchronized void recordAttribute(String name, Object[] args) {
+            RecordingGradleConnector.recordAttribute(this.attributes, name, args);
+        }
+
+        private synchronized Map<String, String> currentAttributes() {
+            return ImmutableMap.copyOf(this.attributes);
+        }
+
+        private void addProgressListener(Object[] args) {
+            if (args[0] instanceof ProgressListener) {
+                this.progressListeners.add((ProgressListener) args[0]);
+                return;
+            }
+
+            org.gradle.tooling.events.ProgressListener listener = (org.gradle.tooling.events.ProgressListener) args[0];
+            Set<OperationType> operationTypes = EnumSet.noneOf(OperationType.class);
+            if (args.length == 1) {
+                operationTypes.addAll(EnumSet.allOf(OperationType.class));
+            } else if (args[1] instanceof OperationType[]) {
+                operationTypes.addAll(Arrays.asList((OperationType[]) args[1]));
+            } else {
+                for (Object operationType : (Set<?>) args[1]) {
+                    operationTypes.add((OperationType) operationType);
+                }
+            }
+            this.typedProgressListeners.add(new TypedProgressListener(listener, operationTypes));
+        }
+
+        private Object execute(final ResultHandler<?> resultHandler) {
+            if (resultHandler == null) {
+                return replay();
+            }
+
+            this.recordings.asyncExecutor.execute(new Runnable() {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    Object result;
+                    try {
+                        result = replay();
+                    } catch (GradleConnectionException e) {
+                        resultHandler.onFailure(e);
+                        return;
+                    }
+                    ((ResultHandler<Object>) resultHandler).onComplete(result);
+                }
+            });
+            return null;
+        }
+
+        private Object replay() {
+            JournalEntry entry = this.recordings.next(this.operation, this.target, currentAttributes());
+            long startNanos = System.nanoTime();
+            for (JournalEntry.Event event : entry.getEvents()) {
+                awaitOffset(startNanos, event.getOffsetNanos());
+                dispatch(event);
+            }
+            awaitOffset(startNanos, entry.getDurationNanos());
+
+            String failure = entry.getFailure();
+            if (failure == null) {
+                return entry.getResult();
+            } else if (failure.startsWith(BuildCancelledException.class.getName())) {
+                throw new BuildCancelledException(failure);
+            } else if (failure.startsWith(BuildException.class.getName())) {
+                throw new BuildException(failure, null);
+            } else {
+                throw new GradleConnectionException(failure);
+            }
+        }
+
+        private void awaitOffset(long startNanos, long offsetNanos) {
+            long deadline = startNanos + (long) (offsetNanos * this.recordings.timeScale);
+            while (true) {
+                CancellationToken cancellationToken = this.cancellationToken;
+                if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+                    throw new BuildCancelledException("Replay of the recorded operation has been cancelled.");
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(remainingNanos, MAX_SLEEP_NANOS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildCancelledException("Replay of the recorded operation has been interrupted.");
+                }
+            }
+        }
+
+        private void dispatch(JournalEntry.Event event) {
+            if (!event.isTyped()) {
+                for (ProgressListener listener : this.progressListeners) {
+                    listener.statusChanged((org.gradle.tooling.ProgressEvent) event.getEvent());
+                }
+                return;
+            }
+
+            ProgressEvent progressEvent = (ProgressEvent) event.getEvent();
+            OperationType operationType = progressEvent instanceof TaskProgressEvent ? OperationType.TASK
+                    : progressEvent instanceof TestProgressEvent ? OperationType.TEST : OperationType.GENERIC;
+            for (TypedProgressListener listener : this.typedProgressListeners) {
+                if (listener.operationTypes.contains(operationType)) {
+                    listener.listener.statusChanged(progressEvent);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A typed progress listener together with the operation types for which it has been registered.
+     */
+    private static final class TypedProgressListener {
+
+        private final org.gradle.tooling.events.ProgressListener listener;
+        private final Set<OperationType> operationTypes;
+
+        private TypedProgressListener(org.gradle.tooling.events.ProgressListener listener, Set<OperationType> operationTypes) {
+            this.listener = listener;
+            this.operationTypes = operationTypes;
+        }
+
+    }
+
+}
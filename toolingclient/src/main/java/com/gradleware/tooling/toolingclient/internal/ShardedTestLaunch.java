@@ -0,0 +1,426 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingclient.BuildLaunchRequest;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.LaunchableConfig;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import com.gradleware.tooling.toolingclient.SelectiveProgressListener;
+import com.gradleware.tooling.toolingclient.TestConfig;
+import com.gradleware.tooling.toolingclient.TestLaunchRequest;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.TestExecutionException;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executes the tests of a test launch request as multiple test launches that run in parallel, one per shard of the tests. The progress
+ * listeners and the output streams of the request are shared by all test launches and are invoked by one test launch at a time. The
+ * failures of all test launches are merged into a single failure.
+ * <p/>
+ * All test launches run against the same project directory. To keep them from writing the same outputs concurrently, a preparatory
+ * build first executes the dependencies of all test tasks, like the compilation of the test classes, such that the test launches find
+ * them up-to-date. The test launches then run in parallel with an init script that gives the test tasks of each shard their own binary
+ * results and report directories below {@code build/test-results/shards} and {@code build/reports/tests/shards}. Other outputs written
+ * by the test tasks, for example the execution data of code coverage agents, are not isolated and are shared by all shards.
+ *
+ * @author Etienne Studer
+ * @see TestConfig#shard(int, java.util.Map)
+ */
+final class ShardedTestLaunch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedTestLaunch.class);
+
+    private static final String PREPARE_TASK_NAME = "prepareTestShards";
+    private static final String SHARD_PROPERTY = "toolingCommons.testShard";
+
+    private static final String INIT_SCRIPT = ""
+            + "// isolates the outputs of test launches that run in parallel against the same build\n"
+            + "def shard = gradle.startParameter.projectProperties['" + SHARD_PROPERTY + "']\n"
+            + "if (shard == null) {\n"
+            + "    allprojects {\n"
+            + "        tasks.create('" + PREPARE_TASK_NAME + "') {\n"
+            + "            dependsOn { tasks.withType(Test).collect { it.taskDependencies } }\n"
+            + "        }\n"
+            + "    }\n"
+            + "} else {\n"
+            + "    gradle.projectsEvaluated {\n"
+            + "        allprojects {\n"
+            + "            tasks.withType(Test) { test ->\n"
+            + "                def resultsDir = new File(project.buildDir, \"test-results/shards/${shard}/${test.name}\")\n"
+            + "                def reportsDir = new File(project.buildDir, \"reports/tests/shards/${shard}/${test.name}\")\n"
+            + "                if (test.hasProperty('binaryResultsDirectory')) {\n"
+            + "                    test.binaryResultsDirectory.set(new File(resultsDir, 'binary'))\n"
+            + "                } else {\n"
+            + "                    test.binResultsDir = new File(resultsDir, 'binary')\n"
+            + "                }\n"
+            + "                if (test.reports.junitXml.hasProperty('outputLocation')) {\n"
+            + "                    test.reports.junitXml.outputLocation.set(resultsDir)\n"
+            + "                    test.reports.html.outputLocation.set(reportsDir)\n"
+            + "                } else {\n"
+            + "                    test.reports.junitXml.destination = resultsDir\n"
+            + "                    test.reports.html.destination = reportsDir\n"
+            + "                }\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    private final BuildLaunchRequest prepare;
+    private final ImmutableList<TestLaunchRequest> shards;
+    private final File initScript;
+
+    private ShardedTestLaunch(BuildLaunchRequest prepare, List<TestLaunchRequest> shards, File initScript) {
+        this.prepare = prepare;
+        this.shards = ImmutableList.copyOf(shards);
+        this.initScript = initScript;
+    }
+
+    /**
+     * Executes the test launches of all shards and waits until all of them have completed.
+     *
+     * @return null
+     * @throws GradleConnectionException if at least one of the test launches failed
+     */
+    Void executeAndWait() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<GradleConnectionException> failure = new AtomicReference<GradleConnectionException>();
+        execute().onComplete(new Consumer<Void>() {
+
+            @Override
+            public void accept(Void result) {
+                latch.countDown();
+            }
+        }).onFailure(new Consumer<GradleConnectionException>() {
+
+            @Override
+            public void accept(GradleConnectionException exception) {
+                failure.set(exception);
+                latch.countDown();
+            }
+        });
+
+        Uninterruptibles.awaitUninterruptibly(latch);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return null;
+    }
+
+    /**
+     * Executes the preparatory build and then the test launches of all shards asynchronously. The returned promise completes once all
+     * test launches have completed, or once the preparatory build has failed.
+     *
+     * @return the promise of the void result of executing the test launches
+     */
+    LongRunningOperationPromise<Void> execute() {
+        ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+        execute(promise.getResultHandler());
+        return promise;
+    }
+
+    /**
+     * Executes the preparatory build and then the test launches of all shards asynchronously. The given result handler is notified once
+     * all test launches have completed, or once the preparatory build has failed.
+     *
+     * @param resultHandler the handler of the void result of executing the test launches
+     */
+    void execute(final ResultHandler<Void> resultHandler) {
+        this.prepare.execute().onComplete(new Consumer<Void>() {
+
+            @Override
+            public void accept(Void result) {
+                executeShards(resultHandler);
+            }
+        }).onFailure(new Consumer<GradleConnectionException>() {
+
+            @Override
+            public void accept(GradleConnectionException exception) {
+                deleteInitScript();
+                resultHandler.onFailure(exception);
+            }
+        });
+    }
+
+    private void executeShards(final ResultHandler<Void> resultHandler) {
+        final ShardResults results = new ShardResults(this.shards.size(), new ResultHandler<Void>() {
+
+            @Override
+            public void onComplete(Void result) {
+                deleteInitScript();
+                resultHandler.onComplete(result);
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException failure) {
+                deleteInitScript();
+                resultHandler.onFailure(failure);
+            }
+        });
+        for (TestLaunchRequest shard : this.shards) {
+            shard.execute().onComplete(new Consumer<Void>() {
+
+                @Override
+                public void accept(Void result) {
+                    results.shardCompleted(null);
+                }
+            }).onFailure(new Consumer<GradleConnectionException>() {
+
+                @Override
+                public void accept(GradleConnectionException exception) {
+                    results.shardCompleted(exception);
+                }
+            });
+        }
+    }
+
+    private void deleteInitScript() {
+        if (!this.initScript.delete()) {
+            LOG.debug("Cannot delete test shard init script {}.", this.initScript);
+        }
+    }
+
+    /**
+     * Creates the shards of the given test launch request. Each shard is derived from the given request and executes a subset of the
+     * tests in a single test launch.
+     *
+     * @param request the request to shard
+     * @return the new instance
+     */
+    static ShardedTestLaunch from(InspectableTestLaunchRequest request) {
+        Preconditions.checkNotNull(request);
+
+        Object lock = new Object();
+        ProgressListener[] progressListeners = request.getProgressListeners();
+        ProgressListener[] synchronizedProgressListeners = new ProgressListener[progressListeners.length];
+        for (int i = 0; i < progressListeners.length; i++) {
+            synchronizedProgressListeners[i] = new SynchronizedProgressListener(progressListeners[i], lock);
+        }
+        org.gradle.tooling.events.ProgressListener[] typedProgressListeners = request.getTypedProgressListeners();
+        org.gradle.tooling.events.ProgressListener[] synchronizedTypedProgressListeners = new org.gradle.tooling.events.ProgressListener[typedProgressListeners.length];
+        for (int i = 0; i < typedProgressListeners.length; i++) {
+            synchronizedTypedProgressListeners[i] = new SynchronizedTypedProgressListener(typedProgressListeners[i], lock);
+        }
+        OutputStream standardOutput = request.getStandardOutput() != null ? new SynchronizedOutputStream(request.getStandardOutput(), lock) : null;
+        OutputStream standardError = request.getStandardError() != null ? new SynchronizedOutputStream(request.getStandardError(), lock) : null;
+
+        File initScript = createInitScript();
+        BuildLaunchRequest prepare = request.deriveForLaunchables(LaunchableConfig.forTasks(PREPARE_TASK_NAME)).
+                arguments(withArguments(request.getArguments(), "--init-script", initScript.getAbsolutePath())).
+                standardOutput(standardOutput).
+                standardError(standardError).
+                progressListeners(synchronizedProgressListeners).
+                typedProgressListeners(synchronizedTypedProgressListeners);
+
+        ImmutableList.Builder<TestLaunchRequest> shards = ImmutableList.builder();
+        List<TestConfig> shardedTests = request.getTests().shard(request.getShardCount(), request.getTestClassDurations());
+        for (int i = 0; i < shardedTests.size(); i++) {
+            shards.add(request.deriveForTests(shardedTests.get(i)).
+                    shardCount(1).
+                    arguments(withArguments(request.getArguments(), "--init-script", initScript.getAbsolutePath(), "-P" + SHARD_PROPERTY + "=" + i)).
+                    standardOutput(standardOutput).
+                    standardError(standardError).
+                    progressListeners(synchronizedProgressListeners).
+                    typedProgressListeners(synchronizedTypedProgressListeners));
+        }
+        return new ShardedTestLaunch(prepare, shards.build(), initScript);
+    }
+
+    private static String[] withArguments(String[] arguments, String... additionalArguments) {
+        return ObjectArrays.concat(arguments, additionalArguments, String.class);
+    }
+
+    private static File createInitScript() {
+        try {
+            File initScript = File.createTempFile("test-shards", ".gradle");
+            initScript.deleteOnExit();
+            Files.write(INIT_SCRIPT, initScript, Charsets.UTF_8);
+            return initScript;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write test shard init script.", e);
+        }
+    }
+
+    /**
+     * Collects the results of the test launches and notifies the result handler once all test launches have completed.
+     */
+    private static final class ShardResults {
+
+        private final Object LOCK = new Object();
+
+        private final int shardCount;
+        private final ResultHandler<Void> resultHandler;
+        private final List<GradleConnectionException> failures;
+        private int completedCount;
+
+        private ShardResults(int shardCount, ResultHandler<Void> resultHandler) {
+            this.shardCount = shardCount;
+            this.resultHandler = resultHandler;
+            this.failures = Lists.newArrayList();
+            this.completedCount = 0;
+        }
+
+        private void shardCompleted(GradleConnectionException failure) {
+            ImmutableList<GradleConnectionException> allFailures;
+            synchronized (this.LOCK) {
+                if (failure != null) {
+                    this.failures.add(failure);
+                }
+                if (++this.completedCount < this.shardCount) {
+                    return;
+                }
+                allFailures = ImmutableList.copyOf(this.failures);
+            }
+
+            if (allFailures.isEmpty()) {
+                this.resultHandler.onComplete(null);
+            } else {
+                this.resultHandler.onFailure(mergeFailures(allFailures));
+            }
+        }
+
+        private GradleConnectionException mergeFailures(List<GradleConnectionException> failures) {
+            if (failures.size() == 1) {
+                return failures.get(0);
+            }
+
+            boolean allTestFailures = true;
+            for (GradleConnectionException failure : failures) {
+                allTestFailures &= failure instanceof TestExecutionException;
+            }
+            String message = String.format("%d of %d test shards failed.", failures.size(), this.shardCount);
+            GradleConnectionException merged = allTestFailures ? new TestExecutionException(message, failures.get(0)) : new GradleConnectionException(message, failures.get(0));
+            for (GradleConnectionException failure : failures.subList(1, failures.size())) {
+                merged.addSuppressed(failure);
+            }
+            return merged;
+        }
+
+    }
+
+    /**
+     * Progress listener that forwards the events while holding a lock shared by all shards.
+     */
+    private static final class SynchronizedProgressListener implements ProgressListener {
+
+        private final ProgressListener delegate;
+        private final Object lock;
+
+        private SynchronizedProgressListener(ProgressListener delegate, Object lock) {
+            this.delegate = delegate;
+            this.lock = lock;
+        }
+
+        @Override
+        public void statusChanged(org.gradle.tooling.ProgressEvent event) {
+            synchronized (this.lock) {
+                this.delegate.statusChanged(event);
+            }
+        }
+
+    }
+
+    /**
+     * Typed progress listener that forwards the events while holding a lock shared by all shards. The operation types of the delegate
+     * are preserved.
+     */
+    private static final class SynchronizedTypedProgressListener implements SelectiveProgressListener {
+
+        private final org.gradle.tooling.events.ProgressListener delegate;
+        private final Object lock;
+        private final Set<OperationType> operationTypes;
+
+        private SynchronizedTypedProgressListener(org.gradle.tooling.events.ProgressListener delegate, Object lock) {
+            this.delegate = delegate;
+            this.lock = lock;
+            this.operationTypes = delegate instanceof SelectiveProgressListener ?
+                    ((SelectiveProgressListener) delegate).getOperationTypes() : EnumSet.allOf(OperationType.class);
+        }
+
+        @Override
+        public Set<OperationType> getOperationTypes() {
+            return this.operationTypes;
+        }
+
+        @Override
+        public void statusChanged(ProgressEvent event) {
+            synchronized (this.lock) {
+                this.delegate.statusChanged(event);
+            }
+        }
+
+    }
+
+    /**
+     * Output stream that forwards the written bytes while holding a lock shared by all shards.
+     */
+    private static final class SynchronizedOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private final Object lock;
+
+        private SynchronizedOutputStream(OutputStream delegate, Object lock) {
+            this.delegate = delegate;
+            this.lock = lock;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            synchronized (this.lock) {
+                this.delegate.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            synchronized (this.lock) {
+                this.delegate.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (this.lock) {
+                this.delegate.flush();
+            }
+        }
+
+    }
+
+}
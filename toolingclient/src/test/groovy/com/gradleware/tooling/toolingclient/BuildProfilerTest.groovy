@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import org.gradle.tooling.events.OperationType
+import org.gradle.tooling.events.task.TaskFailureResult
+import org.gradle.tooling.events.task.TaskFinishEvent
+import org.gradle.tooling.events.task.TaskOperationDescriptor
+import org.gradle.tooling.events.task.TaskStartEvent
+import org.gradle.tooling.events.task.TaskSuccessResult
+import org.gradle.tooling.events.test.JvmTestKind
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor
+import org.gradle.tooling.events.test.TestFailureResult
+import org.gradle.tooling.events.test.TestFinishEvent
+import org.gradle.tooling.events.test.TestSuccessResult
+import spock.lang.Specification
+
+class BuildProfilerTest extends Specification {
+
+  def "subscribes to task and test events only"() {
+    expect:
+    BuildProfiler.create().operationTypes == [OperationType.TASK, OperationType.TEST] as Set
+  }
+
+  def "records duration and outcome of each task"() {
+    given:
+    def profiler = BuildProfiler.create(1)
+
+    when:
+    task(profiler, ':compileJava', 0, 100, successResult(0, 100, false, false))
+    task(profiler, ':processResources', 0, 10, successResult(0, 10, true, false))
+    task(profiler, ':jar', 100, 120, successResult(100, 120, false, true))
+    task(profiler, ':test', 120, 200, Stub(TaskFailureResult) { getStartTime() >> 120; getEndTime() >> 200 })
+    profiler.statusChanged(taskStartEvent(':check', 200))
+
+    then:
+    def profile = profiler.profile
+    profile.tasks*.path == [':compileJava', ':processResources', ':jar', ':test', ':check']
+    profile.tasks*.outcome == [TaskProfile.Outcome.SUCCESS, TaskProfile.Outcome.UP_TO_DATE, TaskProfile.Outcome.FROM_CACHE, TaskProfile.Outcome.FAILED, TaskProfile.Outcome.RUNNING]
+    profile.tasks*.duration == [100, 10, 20, 80, 0]
+  }
+
+  def "calculates wall clock time, parallelism, and critical path"() {
+    given:
+    def profiler = BuildProfiler.create()
+
+    when:
+    task(profiler, ':a', 0, 100, successResult(0, 100, false, false))
+    task(profiler, ':b', 0, 50, successResult(0, 50, false, false))
+    task(profiler, ':c', 50, 150, successResult(50, 150, false, false))
+    task(profiler, ':d', 150, 200, successResult(150, 200, false, false))
+
+    then:
+    def profile = profiler.profile
+    profile.wallClockTime == 200
+    profile.serialTime == 300
+    profile.averageParallelism == 1.5d
+    profile.maxParallelism == 2
+    profile.getTimeAtParallelism(1) == 100
+    profile.getTimeAtParallelism(2) == 100
+    profile.getParallelismAt(25) == 2
+    profile.getParallelismAt(125) == 1
+    profile.getParallelismAt(250) == 0
+    profile.criticalPath*.path == [':b', ':c', ':d']
+  }
+
+  def "counts the executed and failed tests of each task"() {
+    given:
+    def profiler = BuildProfiler.create()
+    profiler.statusChanged(taskStartEvent(':test', 0))
+    def taskDescriptor = Stub(TaskOperationDescriptor) { getTaskPath() >> ':test' }
+    def suiteDescriptor = Stub(JvmTestOperationDescriptor) { getJvmTestKind() >> JvmTestKind.SUITE; getParent() >> taskDescriptor }
+
+    when:
+    profiler.statusChanged(testFinishEvent(suiteDescriptor, JvmTestKind.ATOMIC, Stub(TestSuccessResult)))
+    profiler.statusChanged(testFinishEvent(suiteDescriptor, JvmTestKind.ATOMIC, Stub(TestFailureResult)))
+    profiler.statusChanged(testFinishEvent(taskDescriptor, JvmTestKind.SUITE, Stub(TestSuccessResult)))
+
+    then:
+    def testTask = profiler.profile.tasks[0]
+    testTask.testCount == 2
+    testTask.failedTestCount == 1
+  }
+
+  def "records a build with 10k tasks"() {
+    given:
+    def profiler = BuildProfiler.create()
+
+    when:
+    10000.times { task(profiler, ":task$it", it * 10, it * 10 + 10, successResult(it * 10, it * 10 + 10, false, false)) }
+
+    then:
+    def profile = profiler.profile
+    profile.tasks.size() == 10000
+    profile.wallClockTime == 100000
+    profile.maxParallelism == 1
+    profile.criticalPath.size() == 10000
+  }
+
+  private void task(BuildProfiler profiler, String path, long startTime, long endTime, def result) {
+    profiler.statusChanged(taskStartEvent(path, startTime))
+    profiler.statusChanged(Stub(TaskFinishEvent) {
+      getDescriptor() >> Stub(TaskOperationDescriptor) { getTaskPath() >> path }
+      getEventTime() >> endTime
+      getResult() >> result
+    })
+  }
+
+  private TaskStartEvent taskStartEvent(String path, long startTime) {
+    Stub(TaskStartEvent) {
+      getDescriptor() >> Stub(TaskOperationDescriptor) { getTaskPath() >> path }
+      getEventTime() >> startTime
+    }
+  }
+
+  private TaskSuccessResult successResult(long startTime, long endTime, boolean upToDate, boolean fromCache) {
+    Stub(TaskSuccessResult) {
+      getStartTime() >> startTime
+      getEndTime() >> endTime
+      isUpToDate() >> upToDate
+      isFromCache() >> fromCache
+    }
+  }
+
+  private TestFinishEvent testFinishEvent(def parent, JvmTestKind kind, def result) {
+    Stub(TestFinishEvent) {
+      getDescriptor() >> Stub(JvmTestOperationDescriptor) { getJvmTestKind() >> kind; getParent() >> parent }
+      getResult() >> result
+    }
+  }
+
+}
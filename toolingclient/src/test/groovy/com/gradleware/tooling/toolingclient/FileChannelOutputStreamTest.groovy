@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileChannelOutputStreamTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "writes small and large chunks to the file in order"() {
+    given:
+    def file = directoryProvider.createFile('output.txt')
+    file.text = 'previous content'
+    def stream = FileChannelOutputStream.create(file, 8)
+    def large = ('x' * 100).bytes
+
+    when:
+    stream.write('a'.bytes)
+    stream.write('b'.bytes[0] as int)
+    stream.write(large)
+    stream.write('cdefghijk'.bytes)
+    stream.close()
+
+    then:
+    file.text == 'ab' + ('x' * 100) + 'cdefghijk'
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class GradleDistributionCacheTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "resolves a distribution referenced by version from a local mirror"() {
+    given:
+    def mirror = directoryProvider.createDir('mirror')
+    createDistribution(mirror, '9.9')
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), mirror.toURI(), true)
+
+    when:
+    def resolved = cache.resolve(GradleDistribution.forVersion('9.9'))
+
+    then:
+    resolved == GradleDistribution.forLocalInstallation(resolved.localInstallationDir)
+    new File(resolved.localInstallationDir, 'lib/gradle-core-9.9.jar').text == 'core'
+    cache.isCached(GradleDistribution.forVersion('9.9'))
+  }
+
+  def "concurrent prefetches of the same distribution share a single installation"() {
+    given:
+    def mirror = directoryProvider.createDir('mirror')
+    createDistribution(mirror, '9.9')
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), mirror.toURI(), true)
+
+    when:
+    def first = cache.prefetch(GradleDistribution.forVersion('9.9'))
+    def second = cache.prefetch(GradleDistribution.forVersion('9.9'))
+
+    then:
+    first.is(second)
+    first.get() == second.get()
+  }
+
+  def "local installations and project-specific distributions are not cached"() {
+    given:
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), directoryProvider.createDir('mirror').toURI(), true)
+
+    expect:
+    cache.resolve(distribution) == distribution
+    !cache.isCached(distribution)
+
+    where:
+    distribution << [GradleDistribution.fromBuild(), GradleDistribution.forLocalInstallation(new File('gradle-home'))]
+  }
+
+  def "fails if the distribution does not match its published checksum"() {
+    given:
+    def mirror = directoryProvider.createDir('mirror')
+    createDistribution(mirror, '9.9')
+    new File(mirror, 'gradle-9.9-bin.zip.sha256').text = '0' * 64
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), mirror.toURI(), true)
+
+    when:
+    cache.resolve(GradleDistribution.forVersion('9.9'))
+
+    then:
+    thrown(IllegalStateException)
+    !cache.isCached(GradleDistribution.forVersion('9.9'))
+  }
+
+  def "fails in offline mode if a remote distribution is not cached"() {
+    given:
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), GradleDistributionCache.DEFAULT_DISTRIBUTIONS_BASE_URI, true)
+
+    when:
+    cache.resolve(GradleDistribution.forVersion('9.9'))
+
+    then:
+    thrown(IllegalStateException)
+  }
+
+  def "a failed installation can be retried"() {
+    given:
+    def mirror = directoryProvider.createDir('mirror')
+    def cache = GradleDistributionCache.create(directoryProvider.file('cache'), mirror.toURI(), true)
+
+    when:
+    cache.resolve(GradleDistribution.forVersion('9.9'))
+
+    then:
+    thrown(RuntimeException)
+
+    when:
+    createDistribution(mirror, '9.9')
+    def resolved = cache.resolve(GradleDistribution.forVersion('9.9'))
+
+    then:
+    new File(resolved.localInstallationDir, 'lib/gradle-core-9.9.jar').isFile()
+  }
+
+  private static void createDistribution(File mirror, String version) {
+    def archive = new File(mirror, "gradle-$version-bin.zip")
+    archive.withOutputStream { output ->
+      def zip = new ZipOutputStream(output)
+      zip.putNextEntry(new ZipEntry("gradle-$version/bin/gradle"))
+      zip.write('#!/bin/sh'.bytes)
+      zip.closeEntry()
+      zip.putNextEntry(new ZipEntry("gradle-$version/lib/gradle-core-${version}.jar"))
+      zip.write('core'.bytes)
+      zip.closeEntry()
+      zip.close()
+    }
+    new File(mirror, "gradle-$version-bin.zip.sha256").text = Files.hash(archive, Hashing.sha256()).toString()
+  }
+
+}
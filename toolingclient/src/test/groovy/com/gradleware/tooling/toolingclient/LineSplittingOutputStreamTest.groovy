@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.google.common.base.Charsets
+import spock.lang.Specification
+
+class LineSplittingOutputStreamTest extends Specification {
+
+  def "lines are passed to the callback without line terminators"() {
+    given:
+    def lines = []
+    def stream = LineSplittingOutputStream.create({ lines << it } as Consumer<String>, Charsets.UTF_8, 100)
+
+    when:
+    stream.write('first\nsec'.getBytes(Charsets.UTF_8))
+    stream.write('ond\r\nthird'.getBytes(Charsets.UTF_8))
+
+    then:
+    lines == ['first', 'second']
+
+    when:
+    stream.close()
+
+    then:
+    lines == ['first', 'second', 'third']
+  }
+
+  def "lines longer than the maximum line length are passed in chunks"() {
+    given:
+    def lines = []
+    def stream = LineSplittingOutputStream.create({ lines << it } as Consumer<String>, Charsets.UTF_8, 4)
+
+    when:
+    stream.write('abcdefghij\n'.getBytes(Charsets.UTF_8))
+    'klmnop'.getBytes(Charsets.UTF_8).each { stream.write(it as int) }
+    stream.close()
+
+    then:
+    lines == ['abcd', 'efgh', 'ij', 'klmn', 'op']
+  }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import com.gradleware.tooling.toolingclient.internal.JournalCodec
+import org.gradle.internal.Factory
+import org.gradle.tooling.BuildAction
+import org.gradle.tooling.BuildActionExecuter
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.BuildController
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ModelBuilder
+import org.gradle.tooling.ProgressEvent
+import org.gradle.tooling.ProgressListener
+import org.gradle.tooling.ProjectConnection
+import org.gradle.tooling.events.OperationType
+import org.gradle.tooling.events.task.TaskStartEvent
+import org.gradle.tooling.model.GradleProject
+import org.gradle.tooling.model.build.BuildEnvironment
+import org.gradle.tooling.model.build.JavaEnvironment
+import org.junit.Rule
+import spock.lang.Specification
+
+class RequestJournalTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "recorded model requests are replayed with their attributes, progress events, and results"() {
+    given:
+    def taskEvent = Mock(TaskStartEvent) { getDisplayName() >> 'Task :compileJava started' }
+    def statusEvent = Mock(ProgressEvent) { getDescription() >> 'Build' }
+    def javaEnvironment = Mock(JavaEnvironment) {
+      getJavaHome() >> new File('jdk')
+      getJvmArguments() >> ['-Xmx512m']
+    }
+    def buildEnvironment = Mock(BuildEnvironment) { getJava() >> javaEnvironment }
+    def file = directoryProvider.file('requests.journal')
+
+    when:
+    def journal = RequestJournal.record(file)
+    def recordingOperation = connect(journal, emittingModelBuilder([taskEvent, statusEvent], buildEnvironment)).model(BuildEnvironment)
+    recordingOperation.withArguments('--offline')
+    def recordedEvents = listenTo(recordingOperation)
+    recordingOperation.get()
+    journal.close()
+
+    then:
+    recordedEvents*.displayName == ['Task :compileJava started']
+    JournalCodec.read(file)*.attributes == [[projectDir: 'project', withArguments: '[--offline]']]
+
+    when:
+    def replayedOperation = RequestJournal.replayConnectorFactory(file, 0).create().connect().model(BuildEnvironment)
+    def replayedEvents = listenTo(replayedOperation)
+    def replayedModel = replayedOperation.get()
+
+    then:
+    replayedEvents*.displayName == ['Task :compileJava started']
+    replayedModel.java.javaHome == new File('jdk')
+    replayedModel.java.jvmArguments == ['-Xmx512m']
+  }
+
+  def "recorded failures are rethrown when replayed"() {
+    given:
+    def modelBuilder = Mock(ModelBuilder)
+    modelBuilder.get() >> { throw new BuildCancelledException('cancelled') }
+    def file = directoryProvider.file('requests.journal')
+    def journal = RequestJournal.record(file)
+
+    when:
+    connect(journal, modelBuilder).model(BuildEnvironment).get()
+
+    then:
+    thrown(BuildCancelledException)
+
+    when:
+    journal.close()
+    RequestJournal.replayConnectorFactory(file, 0).create().connect().model(BuildEnvironment).get()
+
+    then:
+    thrown(BuildCancelledException)
+  }
+
+  def "replaying an operation that has not been recorded fails"() {
+    given:
+    def file = directoryProvider.file('requests.journal')
+    RequestJournal.record(file).close()
+
+    when:
+    RequestJournal.replayConnectorFactory(file, 0).create().connect().model(GradleProject).get()
+
+    then:
+    thrown(GradleConnectionException)
+  }
+
+  def "builds recorded in the same journal are each served their own entry"() {
+    given:
+    def file = directoryProvider.file('requests.journal')
+    def journal = RequestJournal.record(file)
+    connect(journal, connection(modelBuilder(buildEnvironment('jdkA'))), 'projectA').model(BuildEnvironment).get()
+    connect(journal, connection(modelBuilder(buildEnvironment('jdkB'))), 'projectB').model(BuildEnvironment).get()
+    journal.close()
+
+    when:
+    def connectorFactory = RequestJournal.replayConnectorFactory(file, 0)
+    def modelOfB = connectorFactory.create().forProjectDirectory(new File('projectB')).connect().model(BuildEnvironment).get()
+    def modelOfA = connectorFactory.create().forProjectDirectory(new File('projectA')).connect().model(BuildEnvironment).get()
+
+    then:
+    modelOfA.java.javaHome == new File('jdkA')
+    modelOfB.java.javaHome == new File('jdkB')
+  }
+
+  def "build actions of the same class with different state are each served their own result"() {
+    given:
+    def executers = [first: buildActionExecuter('result of first'), second: buildActionExecuter('result of second')]
+    def connection = Mock(ProjectConnection) { action(_) >> { arguments -> executers[arguments[0].value] } }
+    def file = directoryProvider.file('requests.journal')
+    def journal = RequestJournal.record(file)
+    connect(journal, connection, 'project').action(new EchoAction('first')).run()
+    connect(journal, connection, 'project').action(new EchoAction('second')).run()
+    journal.close()
+
+    when:
+    def connectorFactory = RequestJournal.replayConnectorFactory(file, 0)
+    def resultOfSecond = connectorFactory.create().forProjectDirectory(new File('project')).connect().action(new EchoAction('second')).run()
+    def resultOfFirst = connectorFactory.create().forProjectDirectory(new File('project')).connect().action(new EchoAction('first')).run()
+
+    then:
+    resultOfFirst == 'result of first'
+    resultOfSecond == 'result of second'
+  }
+
+  def "replaying an operation with different attributes than recorded fails with the attributes in the message"() {
+    given:
+    def file = directoryProvider.file('requests.journal')
+    def journal = RequestJournal.record(file)
+    connect(journal, connection(modelBuilder(buildEnvironment('jdk'))), 'project').model(BuildEnvironment).withArguments('--offline').get()
+    journal.close()
+
+    when:
+    RequestJournal.replayConnectorFactory(file, 0).create().forProjectDirectory(new File(projectDir)).connect().model(BuildEnvironment).withArguments(arguments as String[]).get()
+
+    then:
+    def e = thrown(GradleConnectionException)
+    e.message.contains("{projectDir=$projectDir, withArguments=$arguments}")
+
+    where:
+    projectDir | arguments
+    'other'    | ['--offline']
+    'project'  | ['--refresh-dependencies']
+  }
+
+  private ProjectConnection connect(RequestJournal journal, ModelBuilder modelBuilder) {
+    def connection = Mock(ProjectConnection) { model(_) >> modelBuilder }
+    def connector = Mock(GradleConnector) { connect() >> connection }
+    journal.recordingConnectorFactory({ connector } as Factory).create().forProjectDirectory(new File('project')).connect()
+  }
+
+  private ProjectConnection connect(RequestJournal journal, ProjectConnection connection, String projectDir) {
+    def connector = Mock(GradleConnector) { connect() >> connection }
+    journal.recordingConnectorFactory({ connector } as Factory).create().forProjectDirectory(new File(projectDir)).connect()
+  }
+
+  private ProjectConnection connection(ModelBuilder modelBuilder) {
+    Mock(ProjectConnection) { model(_) >> modelBuilder }
+  }
+
+  private ModelBuilder modelBuilder(Object model) {
+    def modelBuilder = Mock(ModelBuilder)
+    modelBuilder.withArguments(*_) >> modelBuilder
+    modelBuilder.get() >> model
+    modelBuilder
+  }
+
+  private BuildActionExecuter buildActionExecuter(Object result) {
+    def buildActionExecuter = Mock(BuildActionExecuter)
+    buildActionExecuter.run() >> result
+    buildActionExecuter
+  }
+
+  private BuildEnvironment buildEnvironment(String javaHome) {
+    def javaEnvironment = Mock(JavaEnvironment) {
+      getJavaHome() >> new File(javaHome)
+      getJvmArguments() >> []
+    }
+    Mock(BuildEnvironment) { getJava() >> javaEnvironment }
+  }
+
+  private ModelBuilder emittingModelBuilder(List<Object> events, Object model) {
+    def listeners = []
+    def modelBuilder = Mock(ModelBuilder)
+    modelBuilder.addProgressListener(*_) >> { arguments -> listeners << arguments[0]; modelBuilder }
+    modelBuilder.get() >> {
+      events.each { event ->
+        listeners.each { listener ->
+          if (listener instanceof ProgressListener && event instanceof ProgressEvent) {
+            listener.statusChanged(event)
+          } else if (listener instanceof org.gradle.tooling.events.ProgressListener && event instanceof org.gradle.tooling.events.ProgressEvent) {
+            listener.statusChanged(event)
+          }
+        }
+      }
+      model
+    }
+    modelBuilder
+  }
+
+  private static List<Object> listenTo(ModelBuilder operation) {
+    def events = []
+    operation.addProgressListener({ events << it } as org.gradle.tooling.events.ProgressListener, [OperationType.TASK] as Set)
+    events
+  }
+
+  static class EchoAction implements BuildAction<String> {
+
+    final String value
+
+    EchoAction(String value) {
+      this.value = value
+    }
+
+    @Override
+    String execute(BuildController controller) {
+      value
+    }
+
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.google.common.base.Charsets
+import spock.lang.Specification
+
+class RingBufferOutputStreamTest extends Specification {
+
+  def "keeps all lines while the buffer is not full"() {
+    given:
+    def stream = RingBufferOutputStream.create(5, Charsets.UTF_8, 100)
+
+    when:
+    stream.write('one\ntwo\n'.getBytes(Charsets.UTF_8))
+
+    then:
+    stream.lines == ['one', 'two']
+    stream.totalLineCount == 2
+  }
+
+  def "keeps only the last lines once the buffer is full"() {
+    given:
+    def stream = RingBufferOutputStream.create(3, Charsets.UTF_8, 100)
+
+    when:
+    (1..10000).each { stream.write("line $it\n".getBytes(Charsets.UTF_8)) }
+    stream.write('pending'.getBytes(Charsets.UTF_8))
+
+    then:
+    stream.lines == ['line 9998', 'line 9999', 'line 10000']
+    stream.totalLineCount == 10000
+
+    when:
+    stream.close()
+
+    then:
+    stream.lines == ['line 9999', 'line 10000', 'pending']
+    stream.totalLineCount == 10001
+  }
+
+}
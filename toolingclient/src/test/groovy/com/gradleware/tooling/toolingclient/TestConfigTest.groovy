@@ -138,4 +138,67 @@ class TestConfigTest extends Specification {
       1 * testLauncher2.withJvmTestMethods("alpha", ["gamma", "beta"])
     }
 
+  def "shardBalancesTestClassesByHistoricalDuration"() {
+    setup:
+    def tests = TestConfig.forJvmTestClasses("A", "B", "C", "D")
+
+    when:
+    def shards = tests.shard(2, [A: 100L, B: 60L, C: 50L, D: 10L])
+
+    then:
+    shards.size() == 2
+    shards[0].jvmTestClasses == ["A", "D"]
+    shards[1].jvmTestClasses == ["B", "C"]
+  }
+
+  def "shardKeepsTestMethodsAndTestOperationsTogether"() {
+    setup:
+    def testDescriptor = Mock(TestOperationDescriptor.class)
+    def tests = new TestConfig.Builder().jvmTestClasses("A").jvmTestMethods("B", "beta", "gamma").tests(testDescriptor).build()
+    TestLauncher testLauncher1 = Mock(TestLauncher.class)
+    TestLauncher testLauncher2 = Mock(TestLauncher.class)
+
+    when:
+    def shards = tests.shard(2, [:])
+    shards[0].apply(testLauncher1)
+    shards[1].apply(testLauncher2)
+
+    then:
+    shards.size() == 2
+    1 * testLauncher1.withJvmTestClasses(["A"])
+    1 * testLauncher1.withTests([testDescriptor])
+    1 * testLauncher2.withJvmTestMethods("B", ["beta", "gamma"])
+    1 * testLauncher2.withTests([])
+  }
+
+  def "shardKeepsTestClassesAndTheirTestMethodsOnTheSameShard"() {
+    setup:
+    def tests = new TestConfig.Builder().jvmTestClasses("A", "B").jvmTestMethods("B", "beta").build()
+    TestLauncher testLauncher1 = Mock(TestLauncher.class)
+    TestLauncher testLauncher2 = Mock(TestLauncher.class)
+
+    when:
+    def shards = tests.shard(3, [A: 100L, B: 10L])
+    shards[0].apply(testLauncher1)
+    shards[1].apply(testLauncher2)
+
+    then:
+    shards.size() == 2
+    1 * testLauncher1.withJvmTestClasses(["A"])
+    0 * testLauncher1.withJvmTestMethods(*_)
+    1 * testLauncher2.withJvmTestClasses(["B"])
+    1 * testLauncher2.withJvmTestMethods("B", ["beta"])
+  }
+
+  def "shardNeverCreatesEmptyShards"() {
+    setup:
+    def tests = TestConfig.forJvmTestClasses("A", "B")
+
+    when:
+    def shards = tests.shard(8, [A: 0L])
+
+    then:
+    shards.size() == 2
+  }
+
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import org.gradle.tooling.Failure
+import org.gradle.tooling.events.OperationType
+import org.gradle.tooling.events.test.JvmTestKind
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor
+import org.gradle.tooling.events.test.TestFailureResult
+import org.gradle.tooling.events.test.TestFinishEvent
+import org.gradle.tooling.events.test.TestSkippedResult
+import org.gradle.tooling.events.test.TestStartEvent
+import org.gradle.tooling.events.test.TestSuccessResult
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestResultCollectorTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "subscribes to test events only"() {
+    expect:
+    TestResultCollector.create().operationTypes == [OperationType.TEST] as Set
+  }
+
+  def "builds a result tree of the suites and the failed tests"() {
+    given:
+    def collector = TestResultCollector.create()
+    def root = suite(null, 'Gradle Test Run :test', null)
+    def classSuite = suite(root, 'MyTest', 'MyTest')
+
+    when:
+    collector.statusChanged(startEvent(root))
+    collector.statusChanged(startEvent(classSuite))
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'passes'), Stub(TestSuccessResult) { getStartTime() >> 10; getEndTime() >> 20 }))
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'isSkipped'), Stub(TestSkippedResult)))
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'fails'), failureResult('expected:<1> but was:<2>')))
+    collector.statusChanged(finishEvent(classSuite, failureResult(null)))
+    collector.statusChanged(finishEvent(root, failureResult(null)))
+
+    then:
+    collector.testCount == 3
+    collector.failedTestCount == 1
+    collector.skippedTestCount == 1
+    collector.failedTests*.methodName == ['fails']
+    collector.failedTests[0].failures == ['expected:<1> but was:<2>']
+
+    def results = collector.results
+    results.size() == 1
+    results[0].testCount == 3
+    results[0].failedTestCount == 1
+    results[0].outcome == TestResult.Outcome.FAILED
+    results[0].children*.name == ['MyTest']
+    results[0].children[0].children*.methodName == ['fails']
+  }
+
+  def "streams every test to the report file"() {
+    given:
+    def reportFile = directoryProvider.file('report.txt')
+    def collector = TestResultCollector.create(reportFile)
+    def classSuite = suite(null, 'MyTest', 'MyTest')
+
+    when:
+    collector.statusChanged(startEvent(classSuite))
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'passes'), Stub(TestSuccessResult) { getStartTime() >> 10; getEndTime() >> 25 }))
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'fails'), failureResult('boom')))
+    collector.close()
+
+    then:
+    reportFile.readLines() == ['SUCCESS\tMyTest\tpasses\tpasses\t15', 'FAILED\tMyTest\tfails\tfails\t0']
+  }
+
+  def "keeps only the failed tests of a run with 100k tests"() {
+    given:
+    def collector = TestResultCollector.create()
+    def classSuite = suite(null, 'MyTest', 'MyTest')
+    def passing = finishEvent(test(classSuite, 'MyTest', 'passes'), Stub(TestSuccessResult))
+
+    when:
+    collector.statusChanged(startEvent(classSuite))
+    100000.times { collector.statusChanged(passing) }
+    collector.statusChanged(finishEvent(test(classSuite, 'MyTest', 'fails'), failureResult('boom')))
+
+    then:
+    collector.testCount == 100001
+    collector.results[0].children.size() == 1
+  }
+
+  private JvmTestOperationDescriptor suite(def parent, String name, String className) {
+    Stub(JvmTestOperationDescriptor) {
+      getJvmTestKind() >> JvmTestKind.SUITE
+      getDisplayName() >> name
+      getClassName() >> className
+      getParent() >> parent
+    }
+  }
+
+  private JvmTestOperationDescriptor test(def parent, String className, String methodName) {
+    Stub(JvmTestOperationDescriptor) {
+      getJvmTestKind() >> JvmTestKind.ATOMIC
+      getDisplayName() >> methodName
+      getClassName() >> className
+      getMethodName() >> methodName
+      getParent() >> parent
+    }
+  }
+
+  private TestStartEvent startEvent(JvmTestOperationDescriptor descriptor) {
+    Stub(TestStartEvent) {
+      getDescriptor() >> descriptor
+    }
+  }
+
+  private TestFinishEvent finishEvent(JvmTestOperationDescriptor descriptor, def result) {
+    Stub(TestFinishEvent) {
+      getDescriptor() >> descriptor
+      getResult() >> result
+    }
+  }
+
+  private TestFailureResult failureResult(String description) {
+    Stub(TestFailureResult) {
+      getFailures() >> (description != null ? [Stub(Failure) { getDescription() >> description }] : [])
+    }
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import spock.lang.Specification
+
+class TracingTest extends Specification {
+
+  def cleanup() {
+    Tracing.uninstall()
+  }
+
+  def "spans record nothing while no tracer is installed"() {
+    when:
+    def first = Tracing.startSpan('first')
+    def second = Tracing.startSpan('second')
+
+    then:
+    !first.recording
+    first.is(second)
+
+    cleanup:
+    second.end()
+    first.end()
+  }
+
+  def "spans started while another span is open on the same thread are nested in it"() {
+    given:
+    def tracer = new RecordingTracer()
+    Tracing.install(tracer)
+
+    when:
+    def outer = Tracing.startSpan('outer')
+    def inner = Tracing.startSpan('inner')
+    inner.setAttribute('key', 'value')
+    inner.end()
+    def sibling = Tracing.startSpan('sibling')
+    sibling.end()
+    outer.end()
+    def next = Tracing.startSpan('next')
+    next.end()
+
+    then:
+    tracer.spans*.name == ['outer', 'inner', 'sibling', 'next']
+    tracer.spans*.parent*.name == [null, 'outer', 'outer', null]
+    tracer.spans*.ended == [true, true, true, true]
+    tracer.spans[1].attributes == [key: 'value']
+  }
+
+  def "detached spans are nested in the current span without becoming the current span and can be ended on another thread"() {
+    given:
+    def tracer = new RecordingTracer()
+    Tracing.install(tracer)
+
+    when:
+    def outer = Tracing.startSpan('outer')
+    def detached = Tracing.startDetachedSpan('detached')
+    def sibling = Tracing.startSpan('sibling')
+    sibling.end()
+    outer.end()
+    Thread.start { detached.end() }.join()
+
+    then:
+    tracer.spans*.name == ['outer', 'detached', 'sibling']
+    tracer.spans*.parent*.name == [null, 'outer', 'outer']
+    tracer.spans*.ended == [true, true, true]
+  }
+
+  def "spans started with an explicit parent are nested in it and become the current span until they are ended"() {
+    given:
+    def tracer = new RecordingTracer()
+    Tracing.install(tracer)
+
+    when:
+    def outer = Tracing.startSpan('outer')
+    def detached = Tracing.startDetachedSpan('detached')
+    def child = Tracing.startSpan('child', detached)
+    def grandchild = Tracing.startSpan('grandchild')
+    grandchild.end()
+    child.end()
+    def sibling = Tracing.startSpan('sibling')
+    sibling.end()
+    def childOfOuter = Tracing.startSpan('childOfOuter', outer)
+    childOfOuter.end()
+    outer.end()
+    detached.end()
+
+    then:
+    tracer.spans*.name == ['outer', 'detached', 'child', 'grandchild', 'sibling', 'childOfOuter']
+    tracer.spans*.parent*.name == [null, 'outer', 'detached', 'child', 'outer', 'outer']
+    tracer.spans*.ended == [true, true, true, true, true, true]
+  }
+
+  def "spans started after the tracer has been uninstalled record nothing"() {
+    given:
+    def tracer = new RecordingTracer()
+    Tracing.install(tracer)
+    def span = Tracing.startSpan('traced')
+
+    when:
+    Tracing.uninstall()
+    Tracing.startSpan('untraced').end()
+    span.end()
+
+    then:
+    tracer.spans*.name == ['traced']
+    tracer.spans[0].ended
+  }
+
+  static class RecordingTracer implements Tracer {
+
+    final List<RecordedSpan> spans = []
+
+    @Override
+    Span startSpan(String name, Span parent) {
+      def span = new RecordedSpan(name: name, parent: (RecordedSpan) parent)
+      spans << span
+      span
+    }
+
+  }
+
+  static class RecordedSpan implements Span {
+
+    String name
+    RecordedSpan parent
+    Map<String, String> attributes = [:]
+    boolean ended
+
+    @Override
+    boolean isRecording() {
+      true
+    }
+
+    @Override
+    Span setAttribute(String key, String value) {
+      attributes[key] = value
+      this
+    }
+
+    @Override
+    void end() {
+      ended = true
+    }
+
+  }
+
+}
@@ -33,4 +33,16 @@ class DefaultTestLaunchRequestTest extends Specification {
     assert copy.cancellationToken.is(testLaunchRequest.cancellationToken)
   }
 
+  def "deriveForTestsKeepsShardingSettings"() {
+    setup:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    DefaultTestLaunchRequest testLaunchRequest = new DefaultTestLaunchRequest(toolingClient, TestConfig.forJvmTestClasses('com.foo.MyClass'))
+    testLaunchRequest.shardCount(4).testClassDurations(['com.foo.MyClass': 100L])
+
+    DefaultTestLaunchRequest copy = testLaunchRequest.deriveForTests(TestConfig.forJvmTestClasses('org.bar.MyOtherClass'))
+
+    assert copy.shardCount == 4
+    assert copy.testClassDurations == ['com.foo.MyClass': 100L]
+  }
+
 }
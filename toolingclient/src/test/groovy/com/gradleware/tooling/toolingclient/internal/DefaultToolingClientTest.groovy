@@ -23,14 +23,19 @@ import com.gradleware.tooling.toolingclient.ModelRequest;
 import com.gradleware.tooling.toolingclient.TestConfig
 import com.gradleware.tooling.toolingclient.ToolingClient
 import com.gradleware.tooling.toolingclient.ToolingClient.ConnectionStrategy
+import com.gradleware.tooling.toolingclient.Tracing
+import com.gradleware.tooling.toolingclient.TracingTest
 
 import org.gradle.internal.Factory
 import org.gradle.tooling.BuildAction
 import org.gradle.tooling.BuildController
+import org.gradle.tooling.BuildLauncher
 import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProgressListener
 import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler
+import org.gradle.tooling.TestLauncher
 import org.gradle.tooling.events.ProgressEvent
 import org.gradle.tooling.events.test.JvmTestOperationDescriptor
 import org.gradle.tooling.events.test.TestProgressEvent
@@ -208,6 +213,74 @@ class DefaultToolingClientTest extends Specification {
       toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
     }
 
+  def "the connection of an asynchronously executed request is traced within the span of the request"() {
+    given:
+    def tracer = new TracingTest.RecordingTracer()
+    Tracing.install(tracer)
+    def modelBuilder = Stub(ModelBuilder) {
+      get(_) >> { ResultHandler resultHandler -> resultHandler.onComplete(null) }
+    }
+    Factory<GradleConnector> connectorFactory = Stub(Factory) {
+      create() >> Stub(GradleConnector) { connect() >> Stub(ProjectConnection) { model(_) >> modelBuilder } }
+    }
+    DefaultToolingClient toolingClient = new DefaultToolingClient(connectorFactory, ConnectionStrategy.PER_REQUEST)
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+
+    when:
+    modelRequest.execute()
+
+    then:
+    tracer.spans*.name == ['tooling-client.execute', 'tooling-client.connect']
+    tracer.spans*.parent*.name == [null, 'tooling-client.execute']
+    tracer.spans*.ended == [true, true]
+
+    cleanup:
+    Tracing.uninstall()
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "sharded test launches are traced within the span of the request"() {
+    given:
+    def tracer = new TracingTest.RecordingTracer()
+    Tracing.install(tracer)
+    def buildLauncher = Stub(BuildLauncher) {
+      run(_) >> { ResultHandler resultHandler -> resultHandler.onComplete(null) }
+    }
+    def testLauncher = Stub(TestLauncher) {
+      run(_) >> { ResultHandler resultHandler -> resultHandler.onComplete(null) }
+    }
+    Factory<GradleConnector> connectorFactory = Stub(Factory) {
+      create() >> Stub(GradleConnector) {
+        connect() >> Stub(ProjectConnection) {
+          newBuild() >> buildLauncher
+          newTestLauncher() >> testLauncher
+        }
+      }
+    }
+    DefaultToolingClient toolingClient = new DefaultToolingClient(connectorFactory, ConnectionStrategy.PER_REQUEST)
+    def testLaunchRequest = toolingClient.newTestLaunchRequest(TestConfig.forJvmTestClasses('A', 'B')).shardCount(2)
+    testLaunchRequest.projectDir(directoryProvider.testDirectory)
+
+    when:
+    executeRequest.call(testLaunchRequest)
+
+    then:
+    def requestSpan = tracer.spans[0]
+    requestSpan.name == 'tooling-client.execute'
+    requestSpan.parent == null
+    requestSpan.attributes.shardCount == '2'
+    tracer.spans.count { it.name == 'tooling-client.execute' } == 4
+    tracer.spans.every { it.ended }
+
+    cleanup:
+    Tracing.uninstall()
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+
+    where:
+    executeRequest << [{ it.executeAndWait() }, { it.execute() }]
+  }
+
   def "progressListenersInvokedForModelRequest"() {
     setup:
     // settings.gradle file to ensure test does not pick up Gradle version defined in the wrapper of the commons build itself
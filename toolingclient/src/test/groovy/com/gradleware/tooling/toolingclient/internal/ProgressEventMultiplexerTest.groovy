@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.SelectiveProgressListener
+import org.gradle.tooling.events.OperationType
+import org.gradle.tooling.events.ProgressEvent
+import org.gradle.tooling.events.ProgressListener
+import org.gradle.tooling.events.task.TaskProgressEvent
+import org.gradle.tooling.events.test.TestProgressEvent
+import spock.lang.Specification
+
+class ProgressEventMultiplexerTest extends Specification {
+
+  def "operation types are the union of the types declared by the listeners"() {
+    given:
+    def taskListener = selectiveListener(EnumSet.of(OperationType.TASK))
+    def testListener = selectiveListener(EnumSet.of(OperationType.TEST))
+
+    when:
+    def multiplexer = ProgressEventMultiplexer.from([taskListener, testListener] as ProgressListener[])
+
+    then:
+    multiplexer.operationTypes == [OperationType.TASK, OperationType.TEST] as Set
+  }
+
+  def "listeners that do not declare operation types subscribe to all operation types"() {
+    when:
+    def multiplexer = ProgressEventMultiplexer.from([Mock(ProgressListener)] as ProgressListener[])
+
+    then:
+    multiplexer.operationTypes == EnumSet.allOf(OperationType) as Set
+  }
+
+  def "events are only dispatched to the listeners that declared the operation type of the event"() {
+    given:
+    def taskListener = selectiveListener(EnumSet.of(OperationType.TASK))
+    def testListener = selectiveListener(EnumSet.of(OperationType.TEST))
+    def allListener = Mock(ProgressListener)
+    def multiplexer = ProgressEventMultiplexer.from([taskListener, testListener, allListener] as ProgressListener[])
+
+    def taskEvent = Mock(TaskProgressEvent)
+    def testEvent = Mock(TestProgressEvent)
+    def genericEvent = Mock(ProgressEvent)
+
+    when:
+    multiplexer.statusChanged(taskEvent)
+    multiplexer.statusChanged(testEvent)
+    multiplexer.statusChanged(genericEvent)
+
+    then:
+    1 * taskListener.statusChanged(taskEvent)
+    0 * taskListener.statusChanged(testEvent)
+    0 * taskListener.statusChanged(genericEvent)
+    1 * testListener.statusChanged(testEvent)
+    0 * testListener.statusChanged(taskEvent)
+    0 * testListener.statusChanged(genericEvent)
+    1 * allListener.statusChanged(taskEvent)
+    1 * allListener.statusChanged(testEvent)
+    1 * allListener.statusChanged(genericEvent)
+  }
+
+  def "dispatches a build with 100k task events"() {
+    given:
+    def taskListener = new CountingListener(EnumSet.of(OperationType.TASK))
+    def testListener = new CountingListener(EnumSet.of(OperationType.TEST))
+    def multiplexer = ProgressEventMultiplexer.from([taskListener, testListener] as ProgressListener[])
+    def taskEvent = Stub(TaskProgressEvent)
+
+    when:
+    100000.times { multiplexer.statusChanged(taskEvent) }
+
+    then:
+    taskListener.count == 100000
+    testListener.count == 0
+  }
+
+  private SelectiveProgressListener selectiveListener(Set<OperationType> operationTypes) {
+    Mock(SelectiveProgressListener) {
+      getOperationTypes() >> operationTypes
+    }
+  }
+
+  private static class CountingListener implements SelectiveProgressListener {
+
+    final Set<OperationType> operationTypes
+    int count
+
+    CountingListener(Set<OperationType> operationTypes) {
+      this.operationTypes = operationTypes
+    }
+
+    @Override
+    void statusChanged(ProgressEvent event) {
+      count++
+    }
+
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.TestConfig
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.TestExecutionException
+import org.gradle.tooling.events.ProgressListener
+import spock.lang.Specification
+
+class ShardedTestLaunchTest extends Specification {
+
+  def "each shard executes a subset of the test classes with synchronized listeners"() {
+    setup:
+    List<InspectableTestLaunchRequest> executed = []
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient) {
+      execute(_ as InspectableTestLaunchRequest) >> { InspectableTestLaunchRequest request -> executed << request; completedPromise() }
+    }
+    def listener = Mock(ProgressListener)
+    def request = new DefaultTestLaunchRequest(toolingClient, TestConfig.forJvmTestClasses('A', 'B', 'C')).shardCount(2).typedProgressListeners(listener)
+
+    when:
+    ShardedTestLaunch.from(request).executeAndWait()
+
+    then:
+    executed.size() == 2
+    executed*.shardCount == [1, 1]
+    executed.collect { it.tests.jvmTestClasses }.flatten() as Set == ['A', 'B', 'C'] as Set
+    executed.every { it.typedProgressListeners.length == 1 && !it.typedProgressListeners[0].is(listener) }
+    executed.every { it.cancellationToken.is(request.cancellationToken) }
+  }
+
+  def "failures of multiple shards are merged"() {
+    setup:
+    def failure1 = new TestExecutionException('shard 1 failed')
+    def failure2 = new TestExecutionException('shard 2 failed')
+    def failures = [failure1, failure2]
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient) {
+      execute(_ as InspectableTestLaunchRequest) >> { failedPromise(failures.remove(0)) }
+    }
+    def request = new DefaultTestLaunchRequest(toolingClient, TestConfig.forJvmTestClasses('A', 'B')).shardCount(2)
+
+    when:
+    ShardedTestLaunch.from(request).executeAndWait()
+
+    then:
+    def e = thrown(TestExecutionException)
+    e.message == '2 of 2 test shards failed.'
+    e.cause.is(failure1)
+    e.suppressed as List == [failure2]
+  }
+
+  def "a single failed shard fails the launch once all shards have completed"() {
+    setup:
+    def failure = new GradleConnectionException('shard failed')
+    def promises = [completedPromise(), failedPromise(failure)]
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient) {
+      execute(_ as InspectableTestLaunchRequest) >> { promises.remove(0) }
+    }
+    def request = new DefaultTestLaunchRequest(toolingClient, TestConfig.forJvmTestClasses('A', 'B')).shardCount(2)
+    GradleConnectionException reported = null
+
+    when:
+    ShardedTestLaunch.from(request).execute().onFailure({ reported = it } as Consumer<GradleConnectionException>)
+
+    then:
+    reported.is(failure)
+  }
+
+  private static ResultHandlerPromise<Void> completedPromise() {
+    def promise = new ResultHandlerPromise<Void>()
+    promise.resultHandler.onComplete(null)
+    promise
+  }
+
+  private static ResultHandlerPromise<Void> failedPromise(GradleConnectionException failure) {
+    def promise = new ResultHandlerPromise<Void>()
+    promise.resultHandler.onFailure(failure)
+    promise
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel;
+
+import com.gradleware.tooling.toolingutils.ImmutableCollection;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Index of the projects that depend on a given external artifact or on a given project, built from a set of {@link OmniEclipseProject}
+ * instances. External artifacts are identified either by their file or by their module version, projects are identified by the
+ * {@code OmniEclipseProject} instances the index has been built from.
+ * <p/>
+ * The transitive dependents are calculated through the project dependencies and memoized, such that repeated queries are cheap.
+ *
+ * @author Etienne Studer
+ */
+public interface OmniEclipseDependencyIndex {
+
+    /**
+     * Returns the projects from which this index has been built.
+     *
+     * @return the indexed projects
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getProjects();
+
+    /**
+     * Returns the projects that have the given artifact file as an external dependency.
+     *
+     * @param artifactFile the file of the external artifact
+     * @return the projects that directly depend on the artifact, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getDependents(File artifactFile);
+
+    /**
+     * Returns the projects that have an external dependency on the given module version.
+     *
+     * @param moduleVersion the module version of the external artifact
+     * @return the projects that directly depend on the module version, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getDependents(OmniGradleModuleVersion moduleVersion);
+
+    /**
+     * Returns the projects that have a project dependency on the given project.
+     *
+     * @param project the project, must be one of the indexed projects
+     * @return the projects that directly depend on the project, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getDependents(OmniEclipseProject project);
+
+    /**
+     * Returns the projects that depend on the given artifact file either directly or through other projects.
+     *
+     * @param artifactFile the file of the external artifact
+     * @return the projects that directly or transitively depend on the artifact, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getTransitiveDependents(File artifactFile);
+
+    /**
+     * Returns the projects that depend on the given module version either directly or through other projects.
+     *
+     * @param moduleVersion the module version of the external artifact
+     * @return the projects that directly or transitively depend on the module version, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getTransitiveDependents(OmniGradleModuleVersion moduleVersion);
+
+    /**
+     * Returns the projects that depend on the given project either directly or through other projects. The given project itself is
+     * not contained, even if it is part of a dependency cycle.
+     *
+     * @param project the project, must be one of the indexed projects
+     * @return the projects that directly or transitively depend on the project, never null
+     */
+    @ImmutableCollection
+    Set<OmniEclipseProject> getTransitiveDependents(OmniEclipseProject project);
+
+}
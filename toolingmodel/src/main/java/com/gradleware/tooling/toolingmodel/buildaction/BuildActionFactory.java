@@ -19,6 +19,9 @@ package com.gradleware.tooling.toolingmodel.buildaction;
 import com.google.common.base.Preconditions;
 import org.gradle.tooling.BuildAction;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
 /**
  * Factory for {@link org.gradle.tooling.BuildAction} instances.
  *
@@ -52,6 +55,21 @@ public final class BuildActionFactory {
         return new ModelForAllProjectsBuildAction<T>(modelType);
     }
 
+    /**
+     * Creates a new {@code ModelsForProjectsBuildAction} that fetches the given models for the projects with the given paths.
+     *
+     * @param projectPaths the paths of the projects for which to fetch the models
+     * @param modelTypes the models to fetch
+     * @return the build action
+     */
+    public static ModelsForProjectsBuildAction getModelsForProjects(Collection<String> projectPaths, Class<?>... modelTypes) {
+        Preconditions.checkNotNull(projectPaths);
+        Preconditions.checkNotNull(modelTypes);
+        Preconditions.checkArgument(modelTypes.length > 0, "At least one model type must be specified.");
+        // copy the arguments into plain arrays such that the serialized action does not depend on the collection implementation
+        return new ModelsForProjectsBuildAction(new LinkedHashSet<String>(projectPaths).toArray(new String[0]), modelTypes.clone());
+    }
+
     /**
      * Creates a new {@code RootModelsForCompositeProjectBuildAction} that fetches the given model for all projects of the composite build.
      *
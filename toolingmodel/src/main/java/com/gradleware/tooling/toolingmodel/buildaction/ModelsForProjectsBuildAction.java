@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.buildaction;
+
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Build action to get a set of models for a subset of the projects of a build in a single round trip.
+ * <p/>
+ * The projects of the build are indexed by their path once per execution, such that looking up the requested projects does not
+ * depend on the size of the build.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelsForProjectsBuildAction implements BuildAction<ProjectModels> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] projectPaths;
+    private final Class<?>[] modelTypes;
+
+    ModelsForProjectsBuildAction(String[] projectPaths, Class<?>[] modelTypes) {
+        this.projectPaths = projectPaths;
+        this.modelTypes = modelTypes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProjectModels execute(BuildController controller) {
+        Map<String, BasicGradleProject> projectsByPath = new HashMap<String, BasicGradleProject>();
+        for (BasicGradleProject project : controller.getBuildModel().getProjects()) {
+            projectsByPath.put(project.getPath(), project);
+        }
+
+        Map<String, Object[]> models = new LinkedHashMap<String, Object[]>();
+        for (String projectPath : this.projectPaths) {
+            BasicGradleProject project = projectsByPath.get(projectPath);
+            if (project == null) {
+                throw new IllegalStateException("Invalid project path: " + projectPath);
+            }
+
+            Object[] projectModels = new Object[this.modelTypes.length];
+            for (int i = 0; i < this.modelTypes.length; i++) {
+                projectModels[i] = controller.getModel(project, this.modelTypes[i]);
+            }
+            models.put(projectPath, projectModels);
+        }
+        return new ProjectModels(this.modelTypes, models);
+    }
+
+}
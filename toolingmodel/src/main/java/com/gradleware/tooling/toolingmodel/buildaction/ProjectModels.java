@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.buildaction;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the models fetched by a {@link ModelsForProjectsBuildAction}.
+ * <p/>
+ * The models of each project are stored in a plain array in the order of the requested model types, such that the result carries no
+ * per-model map entries across the wire.
+ *
+ * @author Etienne Studer
+ */
+@SuppressWarnings("NonSerializableFieldInSerializableClass")
+public final class ProjectModels implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?>[] modelTypes;
+    private final Map<String, Object[]> models;
+
+    ProjectModels(Class<?>[] modelTypes, Map<String, Object[]> models) {
+        this.modelTypes = modelTypes;
+        this.models = models;
+    }
+
+    /**
+     * Returns the paths of the projects for which the models have been fetched, in the order in which they were requested.
+     *
+     * @return the project paths, never null
+     */
+    public Set<String> getProjectPaths() {
+        return Collections.unmodifiableSet(this.models.keySet());
+    }
+
+    /**
+     * Returns the model of the given type for the project with the given path.
+     *
+     * @param projectPath the path of the project
+     * @param modelType the type of the model
+     * @param <T> the model type
+     * @return the model, never null
+     * @throws IllegalArgumentException if the models have not been fetched for the given project or the given model type
+     */
+    public <T> T getModel(String projectPath, Class<T> modelType) {
+        Object[] projectModels = this.models.get(projectPath);
+        if (projectModels == null) {
+            throw new IllegalArgumentException("Models have not been fetched for project: " + projectPath);
+        }
+        return modelType.cast(projectModels[indexOf(modelType)]);
+    }
+
+    /**
+     * Returns the models of the given type for all projects, mapped by project path.
+     *
+     * @param modelType the type of the models
+     * @param <T> the model type
+     * @return the models, never null
+     * @throws IllegalArgumentException if the models have not been fetched for the given model type
+     */
+    public <T> Map<String, T> getModels(Class<T> modelType) {
+        int index = indexOf(modelType);
+        Map<String, T> result = new LinkedHashMap<String, T>();
+        for (Map.Entry<String, Object[]> entry : this.models.entrySet()) {
+            result.put(entry.getKey(), modelType.cast(entry.getValue()[index]));
+        }
+        return result;
+    }
+
+    private int indexOf(Class<?> modelType) {
+        for (int i = 0; i < this.modelTypes.length; i++) {
+            if (this.modelTypes[i].equals(modelType)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Models have not been fetched for model type: " + modelType.getName());
+    }
+
+}
@@ -25,6 +25,7 @@ import com.gradleware.tooling.toolingutils.ImmutableCollection;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -33,7 +34,9 @@ import java.util.List;
  *
  * @author Etienne Studer
  */
-public final class FixedRequestAttributes {
+public final class FixedRequestAttributes implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final File projectDir;
     private final File gradleUserHome;
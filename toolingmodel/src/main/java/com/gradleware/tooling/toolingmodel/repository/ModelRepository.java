@@ -78,4 +78,26 @@ public interface ModelRepository {
      * @return the eclipse projects, never null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
      */
     Set<OmniEclipseProject> fetchEclipseGradleProjects(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniEclipseProject} instances synchronously and returns the {@link OmniEclipseDependencyIndex} built from them.
+     * The index is built once per set of fetched projects and rebuilt whenever the projects are reloaded.
+     *
+     * @param transientRequestAttributes the transient request attributes
+     * @param fetchStrategy              the fetch strategy
+     * @return the dependency index, never null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the projects are not in the cache
+     */
+    OmniEclipseDependencyIndex fetchEclipseDependencyIndex(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Reloads the {@link OmniEclipseProject} instances with the given paths synchronously, replaces them in the cached projects, and
+     * broadcasts only the reloaded projects through a {@link EclipseProjectUpdateEvent}. All other cached projects keep their
+     * attribute values. If no projects are cached yet, or if the cached projects do not contain all the given paths, all projects are
+     * loaded and broadcast instead.
+     *
+     * @param projectPaths               the paths of the projects to reload
+     * @param transientRequestAttributes the transient request attributes
+     * @return the eclipse projects, never null
+     */
+    Set<OmniEclipseProject> reloadEclipseGradleProjects(Set<Path> projectPaths, TransientRequestAttributes transientRequestAttributes);
 }
@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingmodel.repository;
 import com.google.common.eventbus.EventBus;
 import com.gradleware.tooling.toolingclient.ToolingClient;
 import com.gradleware.tooling.toolingmodel.repository.internal.DefaultModelRepositoryProvider;
+import com.gradleware.tooling.toolingmodel.repository.internal.SharedModelRepositoryProvider;
 import org.gradle.internal.Factory;
 
 /**
@@ -49,4 +50,29 @@ public final class ModelRepositoryProviderFactory {
         return new DefaultModelRepositoryProvider(toolingClient, eventBusFactory);
     }
 
+    /**
+     * Creates a new instance whose repositories obtain the Gradle projects and Eclipse projects from the shared model cache service
+     * listening on the given port of the loopback interface.
+     *
+     * @param toolingClient the backing tooling client
+     * @param port the port of the shared model cache service
+     * @return the new repository provider instance
+     */
+    public static ModelRepositoryProvider createShared(ToolingClient toolingClient, int port) {
+        return new SharedModelRepositoryProvider(toolingClient, port);
+    }
+
+    /**
+     * Creates a new instance whose repositories obtain the Gradle projects and Eclipse projects from the shared model cache service
+     * listening on the given port of the loopback interface.
+     *
+     * @param toolingClient the backing tooling client
+     * @param port the port of the shared model cache service
+     * @param eventBusFactory the factory for the event bus that is used to send events upon model changes
+     * @return the new repository provider instance
+     */
+    public static ModelRepositoryProvider createShared(ToolingClient toolingClient, int port, Factory<EventBus> eventBusFactory) {
+        return new SharedModelRepositoryProvider(toolingClient, port, eventBusFactory);
+    }
+
 }
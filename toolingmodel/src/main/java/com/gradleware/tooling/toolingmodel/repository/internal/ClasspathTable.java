@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingmodel.OmniAccessRule;
+import com.gradleware.tooling.toolingmodel.OmniClasspathAttribute;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build-wide table of external dependencies that stores each distinct classpath entry once. The external dependencies of each project
+ * are kept as an immutable list that references the entries of the table.
+ * <p/>
+ * In large builds, most external dependencies are shared by many projects. Sharing the table between all projects of a build keeps
+ * only one instance of each distinct entry and one reference per project and entry, instead of one converted instance per project
+ * and entry.
+ * <p/>
+ * The table is filled while the projects of a build are converted and must not be filled concurrently. Once filled, the table can be
+ * read from any thread.
+ *
+ * @author Etienne Studer
+ */
+public final class ClasspathTable {
+
+    private final Map<List<Object>, OmniExternalDependency> entries;
+
+    private ClasspathTable() {
+        this.entries = Maps.newHashMap();
+    }
+
+    /**
+     * Returns the number of distinct entries in this table.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Adds the given external dependencies to this table, unless an equal entry is already contained, and returns the entries of this
+     * table that are equal to them.
+     *
+     * @param externalDependencies the external dependencies of a project
+     * @return the entries of this table that are equal to the given external dependencies, in the same order
+     */
+    ImmutableList<OmniExternalDependency> add(List<? extends OmniExternalDependency> externalDependencies) {
+        ImmutableList.Builder<OmniExternalDependency> entries = ImmutableList.builder();
+        for (OmniExternalDependency externalDependency : externalDependencies) {
+            entries.add(add(externalDependency));
+        }
+        return entries.build();
+    }
+
+    private OmniExternalDependency add(OmniExternalDependency externalDependency) {
+        List<Object> key = toKey(externalDependency);
+        OmniExternalDependency entry = this.entries.get(key);
+        if (entry == null) {
+            entry = externalDependency;
+            this.entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    static List<Object> toKey(OmniExternalDependency externalDependency) {
+        // the converted external dependencies do not implement equals, thus the key is made of all their attribute values
+        OmniGradleModuleVersion moduleVersion = externalDependency.getGradleModuleVersion().or(null);
+        return Arrays.asList(
+                externalDependency.getFile(),
+                externalDependency.getSource(),
+                externalDependency.getJavadoc(),
+                externalDependency.getGradleModuleVersion().isPresent(),
+                moduleVersion != null ? moduleVersion.getGroup() : null,
+                moduleVersion != null ? moduleVersion.getName() : null,
+                moduleVersion != null ? moduleVersion.getVersion() : null,
+                externalDependency.isExported(),
+                toKey(externalDependency.getClasspathAttributes(), externalDependency.getAccessRules()));
+    }
+
+    static List<Object> toKey(Optional<List<OmniClasspathAttribute>> classpathAttributes, Optional<List<OmniAccessRule>> accessRules) {
+        ImmutableList.Builder<Object> key = ImmutableList.builder();
+        key.add(classpathAttributes.isPresent());
+        if (classpathAttributes.isPresent()) {
+            for (OmniClasspathAttribute attribute : classpathAttributes.get()) {
+                key.add(String.valueOf(attribute.getName()), String.valueOf(attribute.getValue()));
+            }
+        }
+        key.add(accessRules.isPresent());
+        if (accessRules.isPresent()) {
+            for (OmniAccessRule accessRule : accessRules.get()) {
+                key.add(accessRule.getKind(), String.valueOf(accessRule.getPattern()));
+            }
+        }
+        return key.build();
+    }
+
+    /**
+     * Creates a new, empty instance.
+     *
+     * @return the new instance
+     */
+    public static ClasspathTable create() {
+        return new ClasspathTable();
+    }
+
+}
@@ -16,18 +16,24 @@
 
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.gradleware.tooling.toolingclient.*;
 import com.gradleware.tooling.toolingmodel.*;
 import com.gradleware.tooling.toolingmodel.buildaction.BuildActionFactory;
+import com.gradleware.tooling.toolingmodel.buildaction.ProjectModels;
 import com.gradleware.tooling.toolingmodel.buildaction.RootModelsForCompositeProjectBuildAction;
 import com.gradleware.tooling.toolingmodel.repository.*;
+import com.gradleware.tooling.toolingmodel.util.Pair;
 import org.gradle.tooling.BuildAction;
 import org.gradle.tooling.model.GradleProject;
 import org.gradle.tooling.model.build.BuildEnvironment;
@@ -35,11 +41,16 @@ import org.gradle.tooling.model.eclipse.EclipseProject;
 import org.gradle.tooling.model.gradle.GradleBuild;
 import org.gradle.util.GradleVersion;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Repository for Gradle build models.
@@ -52,12 +63,31 @@ public final class DefaultModelRepository implements ModelRepository {
     private final EventBus eventBus;
     private final Cache<Object, Object> cache;
     private final FixedRequestAttributes fixedRequestAttributes;
+    private final AtomicReference<Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>> eclipseDependencyIndex;
+    private final ConcurrentMap<Class<?>, Object> replacedModels;
+    private final boolean shareClasspathEntries;
 
     public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus) {
+        this(fixedRequestAttributes, toolingClient, eventBus, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fixedRequestAttributes the attributes of the build whose models are provided
+     * @param toolingClient the client through which the models are fetched
+     * @param eventBus the event bus through which model changes are broadcast
+     * @param shareClasspathEntries {@code true} if the equal external dependencies of all Eclipse projects of a build are converted into a
+     * single instance kept in a {@link ClasspathTable}, {@code false} if each project has its own instances
+     */
+    public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, boolean shareClasspathEntries) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
         this.eventBus = Preconditions.checkNotNull(eventBus);
         this.cache = CacheBuilder.newBuilder().build();
         this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.eclipseDependencyIndex = new AtomicReference<Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>>();
+        this.replacedModels = Maps.newConcurrentMap();
+        this.shareClasspathEntries = shareClasspathEntries;
     }
 
     /**
@@ -162,7 +192,11 @@ public final class DefaultModelRepository implements ModelRepository {
 
                 @Override
                 public Set<OmniGradleProject> apply(GradleProject gradleProject) {
-                    return ImmutableSet.copyOf(DefaultOmniGradleProject.from(gradleProject).getAll());
+                    Optional<ModelInterner> interner = getReplacedGradleProjects();
+                    if (!interner.isPresent()) {
+                        return ImmutableSet.copyOf(DefaultOmniGradleProject.from(gradleProject).getAll());
+                    }
+                    return interner.get().shareProjects(ImmutableSet.copyOf(DefaultOmniGradleProject.from(gradleProject, interner.get()).getAll()));
                 }
 
             };
@@ -179,11 +213,13 @@ public final class DefaultModelRepository implements ModelRepository {
 
                 @Override
                 public Set<OmniGradleProject> apply(Collection<GradleProject> gradleProjects) {
+                    Optional<ModelInterner> interner = getReplacedGradleProjects();
                     ImmutableSet.Builder<OmniGradleProject> projects = ImmutableSet.builder();
                     for (GradleProject gradleProject : gradleProjects) {
-                        projects.addAll(DefaultOmniGradleProject.from(gradleProject).getAll());
+                        OmniGradleProject root = interner.isPresent() ? DefaultOmniGradleProject.from(gradleProject, interner.get()) : DefaultOmniGradleProject.from(gradleProject);
+                        projects.addAll(root.getAll());
                     }
-                    return projects.build();
+                    return interner.isPresent() ? interner.get().shareProjects(projects.build()) : projects.build();
                 }
 
             };
@@ -211,7 +247,9 @@ public final class DefaultModelRepository implements ModelRepository {
 
                 @Override
                 public Set<OmniEclipseProject> apply(EclipseProject eclipseProject) {
-                    return ImmutableSet.copyOf(DefaultOmniEclipseProject.from(eclipseProject).getAll());
+                    Optional<ModelInterner> interner = getReplacedEclipseProjects();
+                    Set<OmniEclipseProject> projects = ImmutableSet.copyOf(DefaultOmniEclipseProject.from(eclipseProject, newClasspathTable(), interner).getAll());
+                    return interner.isPresent() ? interner.get().shareProjects(projects) : projects;
                 }
             };
         return executeRequest(request, successHandler, fetchStrategy, OmniEclipseProject.class, converter);
@@ -227,11 +265,13 @@ public final class DefaultModelRepository implements ModelRepository {
 
                 @Override
                 public Set<OmniEclipseProject> apply(Collection<EclipseProject> eclipseProjects) {
+                    Optional<ModelInterner> interner = getReplacedEclipseProjects();
+                    Optional<ClasspathTable> classpathTable = newClasspathTable();
                     ImmutableSet.Builder<OmniEclipseProject> projects = ImmutableSet.builder();
                     for (EclipseProject eclipseProject : eclipseProjects) {
-                        projects.addAll(DefaultOmniEclipseProject.from(eclipseProject).getAll());
+                        projects.addAll(DefaultOmniEclipseProject.from(eclipseProject, classpathTable, interner).getAll());
                     }
-                    return projects.build();
+                    return interner.isPresent() ? interner.get().shareProjects(projects.build()) : projects.build();
                 }
 
             };
@@ -239,6 +279,136 @@ public final class DefaultModelRepository implements ModelRepository {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private Optional<ModelInterner> getReplacedGradleProjects() {
+        Set<OmniGradleProject> replacedProjects = (Set<OmniGradleProject>) this.replacedModels.get(OmniGradleProject.class);
+        return replacedProjects != null ? Optional.of(ModelInterner.fromGradleProjects(replacedProjects)) : Optional.<ModelInterner>absent();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<ModelInterner> getReplacedEclipseProjects() {
+        Set<OmniEclipseProject> replacedProjects = (Set<OmniEclipseProject>) this.replacedModels.get(OmniEclipseProject.class);
+        return replacedProjects != null ? Optional.of(ModelInterner.fromEclipseProjects(replacedProjects)) : Optional.<ModelInterner>absent();
+    }
+
+    private Optional<ClasspathTable> newClasspathTable() {
+        return this.shareClasspathEntries ? Optional.of(ClasspathTable.create()) : Optional.<ClasspathTable>absent();
+    }
+
+    @Override
+    public OmniEclipseDependencyIndex fetchEclipseDependencyIndex(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Set<OmniEclipseProject> projects = fetchEclipseGradleProjects(transientRequestAttributes, fetchStrategy);
+        if (projects == null) {
+            return null;
+        }
+
+        // the index is kept for the set of projects it has been built from, concurrent callers might build the same index twice
+        Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex> indexedProjects = this.eclipseDependencyIndex.get();
+        if (indexedProjects == null || indexedProjects.getFirst() != projects) {
+            indexedProjects = new Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>(projects, DefaultOmniEclipseDependencyIndex.from(projects));
+            this.eclipseDependencyIndex.set(indexedProjects);
+        }
+        return indexedProjects.getSecond();
+    }
+
+    /*
+     * supported by all Gradle versions >= 1.8 through a build action, for older versions all projects are reloaded
+     * the paths refer to the projects of the root build, the projects of included builds are never reloaded partially
+     */
+    @Override
+    public Set<OmniEclipseProject> reloadEclipseGradleProjects(Set<Path> projectPaths, TransientRequestAttributes transientRequestAttributes) {
+        Preconditions.checkNotNull(projectPaths);
+        Preconditions.checkNotNull(transientRequestAttributes);
+
+        Span span = Tracing.startSpan("model-repository.reload");
+        try {
+            if (span.isRecording()) {
+                span.setAttribute("projectDir", String.valueOf(this.fixedRequestAttributes.getProjectDir()));
+                span.setAttribute("projectCount", String.valueOf(projectPaths.size()));
+            }
+            return reloadProjects(projectPaths, transientRequestAttributes);
+        } finally {
+            span.end();
+        }
+    }
+
+    private Set<OmniEclipseProject> reloadProjects(Set<Path> projectPaths, TransientRequestAttributes transientRequestAttributes) {
+        Set<OmniEclipseProject> cachedProjects = fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY);
+        if (cachedProjects == null) {
+            return fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        } else if (projectPaths.isEmpty()) {
+            return cachedProjects;
+        } else if (!targetGradleVersionIsEqualOrHigherThan("1.8", transientRequestAttributes)) {
+            return fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FORCE_RELOAD);
+        }
+
+        // fetch the models of the given projects only, all in a single round trip
+        List<String> paths = Lists.newArrayList();
+        for (Path projectPath : projectPaths) {
+            paths.add(projectPath.getPath());
+        }
+        BuildActionRequest<ProjectModels> request = createBuildActionRequestForBuildAction(BuildActionFactory.getModelsForProjects(paths, EclipseProject.class), transientRequestAttributes);
+        ProjectModels projectModels = request.executeAndWait();
+        Map<Path, EclipseProject> replacements = Maps.newHashMap();
+        for (Path projectPath : projectPaths) {
+            replacements.put(projectPath, projectModels.getModel(projectPath.getPath(), EclipseProject.class));
+        }
+        File rootProjectDirectory = getRootProjectDirectory(replacements.values().iterator().next());
+
+        // splice the reloaded projects into the cached projects, start over if the cached projects have been replaced in the meantime
+        while (true) {
+            cachedProjects = fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY);
+            if (cachedProjects == null) {
+                return fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+            }
+
+            Optional<Set<OmniEclipseProject>> splicedProjects = spliceEclipseProjects(cachedProjects, replacements, rootProjectDirectory);
+            if (!splicedProjects.isPresent()) {
+                // the project structure has changed since the projects were cached
+                return fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FORCE_RELOAD);
+            }
+
+            if (this.cache.asMap().replace(OmniEclipseProject.class, cachedProjects, splicedProjects.get())) {
+                ImmutableSet.Builder<OmniEclipseProject> reloadedProjects = ImmutableSet.builder();
+                for (OmniEclipseProject project : splicedProjects.get()) {
+                    if (replacements.containsKey(project.getPath()) && project.getRoot().getProjectDirectory().equals(rootProjectDirectory)) {
+                        reloadedProjects.add(project);
+                    }
+                }
+                this.eventBus.post(new EclipseProjectUpdateEvent(reloadedProjects.build()));
+                return splicedProjects.get();
+            }
+        }
+    }
+
+    private static File getRootProjectDirectory(EclipseProject project) {
+        EclipseProject root = project;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root.getProjectDirectory();
+    }
+
+    private static Optional<Set<OmniEclipseProject>> spliceEclipseProjects(Set<OmniEclipseProject> projects, Map<Path, EclipseProject> replacements, File rootProjectDirectory) {
+        Set<Path> unknownPaths = Sets.newHashSet(replacements.keySet());
+        ModelInterner interner = ModelInterner.fromEclipseProjects(projects);
+        ImmutableSet.Builder<OmniEclipseProject> result = ImmutableSet.builder();
+        for (OmniEclipseProject project : projects) {
+            // the projects of each build are contained in the order of their hierarchy, starting with the root project
+            if (project.getParent() == null) {
+                OmniEclipseProject root = project;
+                if (root.getProjectDirectory().equals(rootProjectDirectory)) {
+                    for (OmniEclipseProject cachedProject : root.getAll()) {
+                        unknownPaths.remove(cachedProject.getPath());
+                    }
+                    root = interner.shareHierarchy(DefaultOmniEclipseProject.splice(root, replacements, interner));
+                }
+                result.addAll(root.getAll());
+            }
+        }
+        return unknownPaths.isEmpty() ? Optional.of(interner.shareProjects(result.build())) : Optional.<Set<OmniEclipseProject>>absent();
+    }
+
     private boolean supportsCompositeBuilds(TransientRequestAttributes transientRequestAttributes) {
         return targetGradleVersionIsEqualOrHigherThan("3.3", transientRequestAttributes);
     }
@@ -266,7 +436,6 @@ public final class DefaultModelRepository implements ModelRepository {
         return request;
     }
 
-    @SuppressWarnings({ "UnusedDeclaration", "unused" })
     private <T> BuildActionRequest<T> createBuildActionRequestForBuildAction(BuildAction<T> buildAction, TransientRequestAttributes transientRequestAttributes) {
         // build the request
         BuildActionRequest<T> request = this.toolingClient.newBuildActionRequest(buildAction);
@@ -291,34 +460,77 @@ public final class DefaultModelRepository implements ModelRepository {
 
     protected <T, U> U executeRequest(final Supplier<T> operation, final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<?> cacheKey,
                                       final Converter<T, U> resultConverter) {
+        Span span = Tracing.startSpan("model-repository.fetch");
+        try {
+            if (span.isRecording()) {
+                span.setAttribute("projectDir", String.valueOf(this.fixedRequestAttributes.getProjectDir()));
+                span.setAttribute("modelType", cacheKey.getName());
+                span.setAttribute("fetchStrategy", fetchStrategy.name());
+                OmniBuildEnvironment buildEnvironment = (OmniBuildEnvironment) this.cache.getIfPresent(OmniBuildEnvironment.class);
+                if (buildEnvironment != null) {
+                    span.setAttribute("gradleVersion", buildEnvironment.getGradle().getGradleVersion());
+                }
+            }
+            return getOrLoad(operation, newCacheEntryHandler, fetchStrategy, cacheKey, resultConverter, span);
+        } finally {
+            span.end();
+        }
+    }
+
+    private <T, U> U getOrLoad(final Supplier<T> operation, Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<?> cacheKey,
+                               final Converter<T, U> resultConverter, Span span) {
         // if model is only accessed from the cache, we can return immediately
         if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy) {
             @SuppressWarnings("unchecked")
             U result = (U) this.cache.getIfPresent(cacheKey);
+            if (span.isRecording()) {
+                span.setAttribute("cacheHit", String.valueOf(result != null));
+            }
             return result;
         }
 
         // if model must be reloaded, we can invalidate the cache entry and then proceed as for
-        // FetchStrategy.LOAD_IF_NOT_CACHED
+        // FetchStrategy.LOAD_IF_NOT_CACHED, the replaced model is kept while the model is reloaded
+        // such that the reloaded model can share the parts that have not changed
+        Object replacedModel = null;
         if (FetchStrategy.FORCE_RELOAD == fetchStrategy) {
-            this.cache.invalidate(cacheKey);
+            replacedModel = this.cache.asMap().remove(cacheKey);
+            if (replacedModel != null) {
+                this.replacedModels.put(cacheKey, replacedModel);
+            }
         }
 
         // load the values from the cache iff not already cached
         final AtomicBoolean modelLoaded = new AtomicBoolean(false);
-        U value = getFromCache(cacheKey, new Callable<U>() {
+        U value;
+        try {
+            value = getFromCache(cacheKey, new Callable<U>() {
 
-            @Override
-            public U call() {
-                U model = executeAndWait(operation, resultConverter);
-                modelLoaded.set(true);
-                return model;
+                @Override
+                public U call() {
+                    U model = executeAndWait(operation, resultConverter);
+                    modelLoaded.set(true);
+                    return model;
+                }
+            });
+        } finally {
+            if (replacedModel != null) {
+                this.replacedModels.remove(cacheKey, replacedModel);
             }
-        });
+        }
+
+        if (span.isRecording()) {
+            span.setAttribute("cacheHit", String.valueOf(!modelLoaded.get()));
+        }
 
         // if the model was not in the cache before, notify the callback about the new cache entry
         if (modelLoaded.get()) {
-            newCacheEntryHandler.accept(value);
+            Span notifySpan = Tracing.startSpan("model-repository.notify");
+            try {
+                newCacheEntryHandler.accept(value);
+            } finally {
+                notifySpan.end();
+            }
         }
 
         return value;
@@ -352,7 +564,19 @@ public final class DefaultModelRepository implements ModelRepository {
 
     private <T, U> U executeAndWait(Supplier<T> operation, Converter<T, U> resultConverter) {
         // invoke the operation and convert the result
-        T result = operation.get();
-        return resultConverter.apply(result);
+        T result;
+        Span loadSpan = Tracing.startSpan("model-repository.load");
+        try {
+            result = operation.get();
+        } finally {
+            loadSpan.end();
+        }
+
+        Span convertSpan = Tracing.startSpan("model-repository.convert");
+        try {
+            return resultConverter.apply(result);
+        } finally {
+            convertSpan.end();
+        }
     }
 }
@@ -37,15 +37,30 @@ public final class DefaultModelRepositoryProvider implements ModelRepositoryProv
     private final ToolingClient toolingClient;
     private final Factory<EventBus> eventBusFactory;
     private final Map<FixedRequestAttributes, ModelRepository> modelRepositories;
+    private final boolean shareClasspathEntries;
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient) {
         this(toolingClient, DefaultEventBusFactory.INSTANCE);
     }
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory) {
+        this(toolingClient, eventBusFactory, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param toolingClient the client through which the models are fetched
+     * @param eventBusFactory the factory of the event bus of each model repository
+     * @param shareClasspathEntries {@code true} if the model repositories keep the external dependencies of the Eclipse projects of each
+     * build in a {@link ClasspathTable}
+     * @see DefaultModelRepository#DefaultModelRepository(FixedRequestAttributes, ToolingClient, EventBus, boolean)
+     */
+    public DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, boolean shareClasspathEntries) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
         this.eventBusFactory = Preconditions.checkNotNull(eventBusFactory);
         this.modelRepositories = Maps.newHashMap();
+        this.shareClasspathEntries = shareClasspathEntries;
     }
 
     @Override
@@ -58,7 +73,7 @@ public final class DefaultModelRepositoryProvider implements ModelRepositoryProv
         ModelRepository modelRepository;
         synchronized (this.modelRepositories) {
             if (!this.modelRepositories.containsKey(fixedRequestAttributes)) {
-                modelRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, this.eventBusFactory.create());
+                modelRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, this.eventBusFactory.create(), this.shareClasspathEntries);
                 this.modelRepositories.put(fixedRequestAttributes, modelRepository);
             } else {
                 modelRepository = this.modelRepositories.get(fixedRequestAttributes);
@@ -32,7 +32,7 @@ public final class DefaultOmniEclipseBuildCommand implements OmniEclipseBuildCom
     private final String name;
     private final Map<String, String> arguments;
 
-    private DefaultOmniEclipseBuildCommand(String name, Map<String, String> arguments) {
+    DefaultOmniEclipseBuildCommand(String name, Map<String, String> arguments) {
         this.name = name;
         this.arguments = ImmutableMap.copyOf(arguments);
     }
@@ -34,7 +34,7 @@ public class DefaultOmniEclipseClasspathContainer extends AbstractOmniClasspathE
     private final String path;
     private final boolean isExported;
 
-    private DefaultOmniEclipseClasspathContainer(String path, boolean isExported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
+    DefaultOmniEclipseClasspathContainer(String path, boolean isExported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
         super(attributes, accessRules);
         this.path = path;
         this.isExported = isExported;
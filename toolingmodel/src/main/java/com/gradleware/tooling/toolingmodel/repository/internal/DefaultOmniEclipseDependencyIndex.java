@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.gradleware.tooling.toolingmodel.OmniEclipseDependencyIndex;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default implementation of the {@link OmniEclipseDependencyIndex} interface.
+ * <p/>
+ * The direct dependents are indexed eagerly when the index is created. The transitive dependents are calculated on first request
+ * through a breadth-first traversal of the reverse project dependencies, which stops at every project whose transitive dependents
+ * have already been calculated. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class DefaultOmniEclipseDependencyIndex implements OmniEclipseDependencyIndex {
+
+    private final ImmutableSet<OmniEclipseProject> projects;
+    private final ImmutableSetMultimap<File, OmniEclipseProject> dependentsByFile;
+    private final ImmutableSetMultimap<String, OmniEclipseProject> dependentsByModuleVersion;
+    private final ImmutableSetMultimap<OmniEclipseProject, OmniEclipseProject> dependentsByProject;
+    private final ConcurrentMap<OmniEclipseProject, ImmutableSet<OmniEclipseProject>> transitiveDependentsByProject;
+    private final ConcurrentMap<Object, ImmutableSet<OmniEclipseProject>> transitiveDependentsByArtifact;
+
+    private DefaultOmniEclipseDependencyIndex(ImmutableSet<OmniEclipseProject> projects, ImmutableSetMultimap<File, OmniEclipseProject> dependentsByFile,
+                                              ImmutableSetMultimap<String, OmniEclipseProject> dependentsByModuleVersion,
+                                              ImmutableSetMultimap<OmniEclipseProject, OmniEclipseProject> dependentsByProject) {
+        this.projects = projects;
+        this.dependentsByFile = dependentsByFile;
+        this.dependentsByModuleVersion = dependentsByModuleVersion;
+        this.dependentsByProject = dependentsByProject;
+        this.transitiveDependentsByProject = Maps.newConcurrentMap();
+        this.transitiveDependentsByArtifact = Maps.newConcurrentMap();
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getProjects() {
+        return this.projects;
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getDependents(File artifactFile) {
+        return this.dependentsByFile.get(Preconditions.checkNotNull(artifactFile));
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getDependents(OmniGradleModuleVersion moduleVersion) {
+        return this.dependentsByModuleVersion.get(toKey(moduleVersion));
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getDependents(OmniEclipseProject project) {
+        checkIndexed(project);
+        return this.dependentsByProject.get(project);
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getTransitiveDependents(File artifactFile) {
+        return getTransitiveDependentsOfArtifact(Preconditions.checkNotNull(artifactFile), getDependents(artifactFile));
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getTransitiveDependents(OmniGradleModuleVersion moduleVersion) {
+        String key = toKey(moduleVersion);
+        return getTransitiveDependentsOfArtifact(key, this.dependentsByModuleVersion.get(key));
+    }
+
+    @Override
+    public ImmutableSet<OmniEclipseProject> getTransitiveDependents(OmniEclipseProject project) {
+        checkIndexed(project);
+        ImmutableSet<OmniEclipseProject> result = this.transitiveDependentsByProject.get(project);
+        if (result == null) {
+            // concurrent calculations of the same project yield the same result, thus the first result is kept
+            Set<OmniEclipseProject> dependents = collectTransitiveDependents(this.dependentsByProject.get(project));
+            dependents.remove(project);
+            result = ImmutableSet.copyOf(dependents);
+            ImmutableSet<OmniEclipseProject> existing = this.transitiveDependentsByProject.putIfAbsent(project, result);
+            result = existing != null ? existing : result;
+        }
+        return result;
+    }
+
+    private ImmutableSet<OmniEclipseProject> getTransitiveDependentsOfArtifact(Object key, ImmutableSet<OmniEclipseProject> directDependents) {
+        ImmutableSet<OmniEclipseProject> result = this.transitiveDependentsByArtifact.get(key);
+        if (result == null) {
+            result = ImmutableSet.copyOf(collectTransitiveDependents(directDependents));
+            ImmutableSet<OmniEclipseProject> existing = this.transitiveDependentsByArtifact.putIfAbsent(key, result);
+            result = existing != null ? existing : result;
+        }
+        return result;
+    }
+
+    private Set<OmniEclipseProject> collectTransitiveDependents(Collection<OmniEclipseProject> directDependents) {
+        Set<OmniEclipseProject> result = Sets.newLinkedHashSet(directDependents);
+        Deque<OmniEclipseProject> pending = new ArrayDeque<OmniEclipseProject>(directDependents);
+        while (!pending.isEmpty()) {
+            OmniEclipseProject project = pending.removeFirst();
+            ImmutableSet<OmniEclipseProject> memoized = this.transitiveDependentsByProject.get(project);
+            if (memoized != null) {
+                // the memoized dependents are already complete, no need to traverse them again
+                result.addAll(memoized);
+            } else {
+                for (OmniEclipseProject dependent : this.dependentsByProject.get(project)) {
+                    if (result.add(dependent)) {
+                        pending.addLast(dependent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void checkIndexed(OmniEclipseProject project) {
+        Preconditions.checkArgument(this.projects.contains(Preconditions.checkNotNull(project)), "Project is not indexed: %s", project.getPath());
+    }
+
+    private static String toKey(OmniGradleModuleVersion moduleVersion) {
+        Preconditions.checkNotNull(moduleVersion);
+        return moduleVersion.getGroup() + ':' + moduleVersion.getName() + ':' + moduleVersion.getVersion();
+    }
+
+    /**
+     * Creates a new instance that indexes the given projects. Project dependencies are resolved through the project names, which are
+     * unique among the given projects. Project dependencies on projects that are not contained in the given projects are ignored.
+     *
+     * @param projects the projects to index
+     * @return the new instance
+     */
+    public static DefaultOmniEclipseDependencyIndex from(Collection<? extends OmniEclipseProject> projects) {
+        ImmutableSet<OmniEclipseProject> indexedProjects = ImmutableSet.<OmniEclipseProject>copyOf(projects);
+
+        // project dependencies reference their target project through the Eclipse path, i.e. the project name prefixed with a slash
+        Map<String, OmniEclipseProject> projectsByEclipsePath = Maps.newHashMap();
+        for (OmniEclipseProject project : indexedProjects) {
+            projectsByEclipsePath.put("/" + project.getName(), project);
+        }
+
+        ImmutableSetMultimap.Builder<File, OmniEclipseProject> dependentsByFile = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<String, OmniEclipseProject> dependentsByModuleVersion = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<OmniEclipseProject, OmniEclipseProject> dependentsByProject = ImmutableSetMultimap.builder();
+        for (OmniEclipseProject project : indexedProjects) {
+            for (OmniExternalDependency externalDependency : project.getExternalDependencies()) {
+                if (externalDependency.getFile() != null) {
+                    dependentsByFile.put(externalDependency.getFile(), project);
+                }
+                // the module version is absent for older Gradle versions and null for file dependencies
+                OmniGradleModuleVersion moduleVersion = externalDependency.getGradleModuleVersion().or(null);
+                if (moduleVersion != null) {
+                    dependentsByModuleVersion.put(toKey(moduleVersion), project);
+                }
+            }
+            for (OmniEclipseProjectDependency projectDependency : project.getProjectDependencies()) {
+                OmniEclipseProject target = projectsByEclipsePath.get(projectDependency.getPath());
+                if (target != null) {
+                    dependentsByProject.put(target, project);
+                }
+            }
+        }
+
+        return new DefaultOmniEclipseDependencyIndex(indexedProjects, dependentsByFile.build(), dependentsByModuleVersion.build(), dependentsByProject.build());
+    }
+
+}
@@ -31,7 +31,7 @@ public final class DefaultOmniEclipseLinkedResource implements OmniEclipseLinked
     private final String location;
     private final String locationUri;
 
-    private DefaultOmniEclipseLinkedResource(String name, String type, String location, String locationUri) {
+    DefaultOmniEclipseLinkedResource(String name, String type, String location, String locationUri) {
         this.name = name;
         this.type = type;
         this.location = location;
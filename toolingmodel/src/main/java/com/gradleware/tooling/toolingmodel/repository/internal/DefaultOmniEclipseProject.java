@@ -26,6 +26,7 @@ import com.gradleware.tooling.toolingmodel.*;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.specs.Spec;
 import org.gradle.tooling.model.DomainObjectSet;
+import org.gradle.tooling.model.GradleProject;
 import org.gradle.tooling.model.ProjectIdentifier;
 import org.gradle.tooling.model.eclipse.*;
 import org.gradle.tooling.model.java.InstalledJdk;
@@ -250,6 +251,54 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
     }
 
     public static DefaultOmniEclipseProject from(EclipseProject project, Map<Path, DefaultOmniEclipseProject> knownProjects, Map<ProjectIdentifier, DefaultOmniGradleProject> knownGradleProjects) {
+        return from(project, knownProjects, knownGradleProjects, Optional.<ClasspathTable>absent(), Optional.<ModelInterner>absent());
+    }
+
+    /**
+     * Converts the given project and its hierarchy, keeping the external dependencies of all projects in the given classpath table
+     * instead of in a separate list per project.
+     *
+     * @param project the project to convert
+     * @param classpathTable the table to add the external dependencies to, typically shared by all projects of a build
+     * @return the converted project
+     */
+    public static DefaultOmniEclipseProject from(EclipseProject project, ClasspathTable classpathTable) {
+        return from(project, Maps.<Path, DefaultOmniEclipseProject>newHashMap(), Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap(), Optional.of(classpathTable),
+                Optional.<ModelInterner>absent());
+    }
+
+    /**
+     * Converts the given project and its hierarchy, sharing all values that are equal to the values of the previous version of the
+     * projects registered with the given table. If none of the projects in the hierarchy has changed, the previous version of the
+     * hierarchy is returned.
+     *
+     * @param project the project to convert
+     * @param interner the table holding the values of the previous version of the projects
+     * @return the converted project, or the previous version of the project if the hierarchy has not changed
+     */
+    public static OmniEclipseProject from(EclipseProject project, ModelInterner interner) {
+        return from(project, Optional.<ClasspathTable>absent(), Optional.of(interner));
+    }
+
+    /**
+     * Converts the given project and its hierarchy, optionally keeping the external dependencies in the given classpath table and sharing
+     * the values of the previous version of the projects registered with the given table.
+     *
+     * @param project the project to convert
+     * @param classpathTable the table to add the external dependencies to, typically shared by all projects of a build
+     * @param interner the table holding the values of the previous version of the projects
+     * @return the root of the converted hierarchy, or the previous version of the hierarchy if it has not changed
+     * @see #from(EclipseProject, ClasspathTable)
+     * @see #from(EclipseProject, ModelInterner)
+     */
+    static OmniEclipseProject from(EclipseProject project, Optional<ClasspathTable> classpathTable, Optional<ModelInterner> interner) {
+        DefaultOmniEclipseProject eclipseProject = from(project, Maps.<Path, DefaultOmniEclipseProject>newHashMap(), Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap(),
+                classpathTable, interner);
+        return interner.isPresent() ? interner.get().shareHierarchy(eclipseProject.getRoot()) : eclipseProject.getRoot();
+    }
+
+    private static DefaultOmniEclipseProject from(EclipseProject project, Map<Path, DefaultOmniEclipseProject> knownProjects, Map<ProjectIdentifier, DefaultOmniGradleProject> knownGradleProjects,
+                                                  Optional<ClasspathTable> classpathTable, Optional<ModelInterner> interner) {
         Path path = Path.from(project.getGradleProject().getPath());
         if (knownProjects.containsKey(path)) {
             return knownProjects.get(path);
@@ -258,19 +307,77 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         DefaultOmniEclipseProject eclipseProject = new DefaultOmniEclipseProject(OmniEclipseProjectComparator.INSTANCE);
         knownProjects.put(path, eclipseProject);
 
+        populate(eclipseProject, project, classpathTable, interner);
+        eclipseProject.setGradleProject(DefaultOmniGradleProject.from(project.getGradleProject(), knownGradleProjects, interner));
+        if (project.getParent() != null) {
+            eclipseProject.setParent(from(project.getParent(), knownProjects, knownGradleProjects, classpathTable, interner));
+        }
+
+        for (EclipseProject child : project.getChildren()) {
+            DefaultOmniEclipseProject eclipseChildProject = from(child, knownProjects, knownGradleProjects, classpathTable, interner);
+            eclipseProject.addChild(eclipseChildProject);
+        }
+
+        return eclipseProject;
+    }
+
+    /**
+     * Creates a copy of the hierarchy of the given project in which the projects with the given paths are converted from the given
+     * models. All other projects take over the attributes of the projects they are copied from. The projects are copied rather than
+     * reused since each project references its parent project, but all their attribute values are shared with the given hierarchy.
+     * <p/>
+     * The hierarchy of the Gradle projects is spliced in the same way, such that all copied projects reference the Gradle projects of a
+     * single hierarchy.
+     * <p/>
+     * The project structure is taken from the given hierarchy, the children of the given models are ignored.
+     *
+     * @param project the root of the hierarchy to copy
+     * @param replacements the models of the projects to replace, mapped by project path
+     * @param interner the table through which the converted projects share the unchanged values of the projects they replace
+     * @return the root of the copied hierarchy
+     */
+    static DefaultOmniEclipseProject splice(OmniEclipseProject project, Map<Path, EclipseProject> replacements, ModelInterner interner) {
+        Map<Path, GradleProject> gradleReplacements = Maps.newHashMap();
+        for (Map.Entry<Path, EclipseProject> replacement : replacements.entrySet()) {
+            gradleReplacements.put(replacement.getKey(), replacement.getValue().getGradleProject());
+        }
+        OmniGradleProject gradleRoot = interner.shareHierarchy(DefaultOmniGradleProject.splice(project.getGradleProject().getRoot(), gradleReplacements, interner));
+        Map<Path, OmniGradleProject> gradleProjects = Maps.newHashMap();
+        for (OmniGradleProject gradleProject : gradleRoot.getAll()) {
+            gradleProjects.put(gradleProject.getPath(), gradleProject);
+        }
+        return splice(project, replacements, gradleProjects, interner);
+    }
+
+    private static DefaultOmniEclipseProject splice(OmniEclipseProject project, Map<Path, EclipseProject> replacements, Map<Path, OmniGradleProject> gradleProjects,
+                                                    ModelInterner interner) {
+        DefaultOmniEclipseProject eclipseProject = new DefaultOmniEclipseProject(OmniEclipseProjectComparator.INSTANCE);
+        EclipseProject replacement = replacements.get(project.getPath());
+        if (replacement != null) {
+            populate(eclipseProject, replacement, Optional.<ClasspathTable>absent(), Optional.of(interner));
+        } else {
+            copy(eclipseProject, project);
+        }
+        eclipseProject.setGradleProject(Preconditions.checkNotNull(gradleProjects.get(project.getPath()), "No Gradle project with path %s.", project.getPath()));
+
+        for (OmniEclipseProject child : project.getChildren()) {
+            eclipseProject.addChild(splice(child, replacements, gradleProjects, interner));
+        }
+
+        return eclipseProject;
+    }
+
+    private static void populate(DefaultOmniEclipseProject eclipseProject, EclipseProject project, Optional<ClasspathTable> classpathTable, Optional<ModelInterner> interner) {
         eclipseProject.setProjectIdentifier(project.getProjectIdentifier());
         eclipseProject.setName(project.getName());
         eclipseProject.setDescription(project.getDescription());
         eclipseProject.setPath(Path.from(project.getGradleProject().getPath()));
         eclipseProject.setProjectDirectory(project.getProjectDirectory());
         eclipseProject.setProjectDependencies(toProjectDependencies(project.getProjectDependencies()));
-        eclipseProject.setExternalDependencies(toExternalDependencies(project.getClasspath()));
+        List<OmniExternalDependency> externalDependencies = toExternalDependencies(project.getClasspath());
+        eclipseProject.setExternalDependencies(classpathTable.isPresent() ? classpathTable.get().add(externalDependencies) : externalDependencies);
         eclipseProject.setLinkedResources(toLinkedResources(project.getLinkedResources()));
         eclipseProject.setSourceDirectories(toSourceDirectories(project.getSourceDirectories()));
-        eclipseProject.setGradleProject(DefaultOmniGradleProject.from(project.getGradleProject(), knownGradleProjects));
-        if (project.getParent() != null) {
-            eclipseProject.setParent(from(project.getParent(), knownProjects, knownGradleProjects));
-        }
         setProjectNatures(eclipseProject, project);
         setBuildCommands(eclipseProject, project);
         setJavaSourceSettings(eclipseProject, project);
@@ -278,12 +385,38 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         setClasspathContainers(eclipseProject, project);
         setOutputLocation(eclipseProject, project);
 
-        for (EclipseProject child : project.getChildren()) {
-            DefaultOmniEclipseProject eclipseChildProject = from(child, knownProjects, knownGradleProjects);
-            eclipseProject.addChild(eclipseChildProject);
+        if (interner.isPresent()) {
+            share(eclipseProject, interner.get());
         }
+    }
 
-        return eclipseProject;
+    private static void share(DefaultOmniEclipseProject eclipseProject, ModelInterner interner) {
+        eclipseProject.setProjectDependencies(interner.intern(eclipseProject.getProjectDependencies()));
+        eclipseProject.setExternalDependencies(interner.intern(eclipseProject.getExternalDependencies()));
+        eclipseProject.setLinkedResources(interner.intern(eclipseProject.getLinkedResources()));
+        eclipseProject.setSourceDirectories(interner.intern(eclipseProject.getSourceDirectories()));
+        eclipseProject.setProjectNatures(interner.intern(eclipseProject.getProjectNatures()));
+        eclipseProject.setBuildCommands(interner.intern(eclipseProject.getBuildCommands()));
+        eclipseProject.setJavaSourceSettings(interner.intern(eclipseProject.getJavaSourceSettings()));
+        eclipseProject.setClasspathContainers(interner.intern(eclipseProject.getClasspathContainers()));
+        eclipseProject.setOutputLocation(interner.intern(eclipseProject.getOutputLocation()));
+    }
+
+    private static void copy(DefaultOmniEclipseProject eclipseProject, OmniEclipseProject project) {
+        eclipseProject.setProjectIdentifier(project.getProjectIdentifier());
+        eclipseProject.setName(project.getName());
+        eclipseProject.setDescription(project.getDescription());
+        eclipseProject.setPath(project.getPath());
+        eclipseProject.setProjectDirectory(project.getProjectDirectory());
+        eclipseProject.setProjectDependencies(project.getProjectDependencies());
+        eclipseProject.setExternalDependencies(project.getExternalDependencies());
+        eclipseProject.setLinkedResources(project.getLinkedResources());
+        eclipseProject.setSourceDirectories(project.getSourceDirectories());
+        eclipseProject.setProjectNatures(project.getProjectNatures());
+        eclipseProject.setBuildCommands(project.getBuildCommands());
+        eclipseProject.setJavaSourceSettings(project.getJavaSourceSettings());
+        eclipseProject.setClasspathContainers(project.getClasspathContainers());
+        eclipseProject.setOutputLocation(project.getOutputLocation());
     }
 
     private static ImmutableList<OmniEclipseProjectDependency> toProjectDependencies(DomainObjectSet<? extends EclipseProjectDependency> projectDependencies) {
@@ -34,7 +34,7 @@ public final class DefaultOmniEclipseProjectDependency extends AbstractOmniClass
     private final String path;
     private final boolean exported;
 
-    private DefaultOmniEclipseProjectDependency(String path, boolean exported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
+    DefaultOmniEclipseProjectDependency(String path, boolean exported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
         super(attributes, accessRules);
         this.path = path;
         this.exported = exported;
@@ -28,7 +28,7 @@ public final class DefaultOmniEclipseProjectNature implements OmniEclipseProject
 
     private final String id;
 
-    private DefaultOmniEclipseProjectNature(String id) {
+    DefaultOmniEclipseProjectNature(String id) {
         this.id = id;
     }
 
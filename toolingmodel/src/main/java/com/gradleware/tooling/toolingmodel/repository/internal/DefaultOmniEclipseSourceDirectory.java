@@ -39,7 +39,7 @@ public final class DefaultOmniEclipseSourceDirectory extends AbstractOmniClasspa
     private final Optional<List<String>> includes;
     private final Maybe<String> output;
 
-    private DefaultOmniEclipseSourceDirectory(File directory, String path,
+    DefaultOmniEclipseSourceDirectory(File directory, String path,
                                               Optional<List<String>> excludes, Optional<List<String>> includes,
                                               Maybe<String> output, Optional<List<OmniClasspathAttribute>> attributes,
                                               Optional<List<OmniAccessRule>> accessRules) {
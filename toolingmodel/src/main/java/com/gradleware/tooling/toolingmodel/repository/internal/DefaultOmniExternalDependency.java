@@ -42,7 +42,7 @@ public final class DefaultOmniExternalDependency extends AbstractOmniClasspathEn
     private final Maybe<OmniGradleModuleVersion> gradleModuleVersion;
     private final boolean exported;
 
-    private DefaultOmniExternalDependency(File file, File source, File javadoc, Maybe<OmniGradleModuleVersion> gradleModuleVersion, boolean exported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
+    DefaultOmniExternalDependency(File file, File source, File javadoc, Maybe<OmniGradleModuleVersion> gradleModuleVersion, boolean exported, Optional<List<OmniClasspathAttribute>> attributes, Optional<List<OmniAccessRule>> accessRules) {
         super(attributes, accessRules);
         this.file = file;
         this.source = source;
@@ -30,7 +30,7 @@ public final class DefaultOmniGradleModuleVersion implements OmniGradleModuleVer
     private final String name;
     private final String version;
 
-    private DefaultOmniGradleModuleVersion(String group, String name, String version) {
+    DefaultOmniGradleModuleVersion(String group, String name, String version) {
         this.group = group;
         this.name = name;
         this.version = version;
@@ -180,17 +180,79 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
     }
 
     public static DefaultOmniGradleProject from(GradleProject project, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects) {
+        return from(project, knownProjects, Optional.<ModelInterner>absent());
+    }
+
+    /**
+     * Converts the given project and its hierarchy, sharing all values that are equal to the values of the previous version of the
+     * projects registered with the given table. If none of the projects in the hierarchy has changed, the previous version of the
+     * hierarchy is returned.
+     *
+     * @param project the project to convert
+     * @param interner the table holding the values of the previous version of the projects
+     * @return the converted project, or the previous version of the project if the hierarchy has not changed
+     */
+    public static OmniGradleProject from(GradleProject project, ModelInterner interner) {
+        DefaultOmniGradleProject gradleProject = from(project, Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap(), Optional.of(interner));
+        return interner.shareHierarchy(gradleProject.getRoot());
+    }
+
+    static DefaultOmniGradleProject from(GradleProject project, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects, Optional<ModelInterner> interner) {
         OmniBuildInvocationsContainer buildInvocationsContainer = DefaultOmniBuildInvocationsContainerBuilder.build(project);
-        return convert(project, buildInvocationsContainer, knownProjects);
+        return convert(project, buildInvocationsContainer, knownProjects, interner);
     }
 
-    private static DefaultOmniGradleProject convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects) {
+    private static DefaultOmniGradleProject convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects,
+                                                    Optional<ModelInterner> interner) {
         ProjectIdentifier id = project.getProjectIdentifier();
         if (knownProjects.containsKey(id)) {
             return knownProjects.get(id);
         }
         DefaultOmniGradleProject gradleProject = new DefaultOmniGradleProject(OmniGradleProjectComparator.INSTANCE);
         knownProjects.put(id, gradleProject);
+        populate(gradleProject, project, buildInvocationsContainer);
+        if (interner.isPresent()) {
+            share(gradleProject, interner.get());
+        }
+
+        for (GradleProject child : project.getChildren()) {
+            DefaultOmniGradleProject gradleProjectChild = convert(child, buildInvocationsContainer, knownProjects, interner);
+            gradleProject.addChild(gradleProjectChild);
+        }
+
+        return gradleProject;
+    }
+
+    /**
+     * Creates a copy of the hierarchy of the given project in which the projects with the given paths are converted from the given
+     * models. All other projects take over the attributes of the projects they are copied from.
+     * <p/>
+     * The project structure is taken from the given hierarchy, the children of the given models are ignored.
+     *
+     * @param project the root of the hierarchy to copy
+     * @param replacements the models of the projects to replace, mapped by project path
+     * @param interner the table through which the converted projects share the unchanged values of the projects they replace
+     * @return the root of the copied hierarchy
+     * @see DefaultOmniEclipseProject#splice(OmniEclipseProject, Map, ModelInterner)
+     */
+    static DefaultOmniGradleProject splice(OmniGradleProject project, Map<Path, GradleProject> replacements, ModelInterner interner) {
+        DefaultOmniGradleProject gradleProject = new DefaultOmniGradleProject(OmniGradleProjectComparator.INSTANCE);
+        GradleProject replacement = replacements.get(project.getPath());
+        if (replacement != null) {
+            populate(gradleProject, replacement, DefaultOmniBuildInvocationsContainerBuilder.build(replacement));
+            share(gradleProject, interner);
+        } else {
+            copy(gradleProject, project);
+        }
+
+        for (OmniGradleProject child : project.getChildren()) {
+            gradleProject.addChild(splice(child, replacements, interner));
+        }
+
+        return gradleProject;
+    }
+
+    private static void populate(DefaultOmniGradleProject gradleProject, GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer) {
         gradleProject.setName(project.getName());
         gradleProject.setDescription(project.getDescription());
         gradleProject.setPath(Path.from(project.getPath()));
@@ -201,13 +263,24 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
         OmniBuildInvocations buildInvocations = buildInvocationsContainer.asMap().get(Path.from(project.getPath()));
         gradleProject.setProjectTasks(buildInvocations.getProjectTasks());
         gradleProject.setTaskSelectors(buildInvocations.getTaskSelectors());
+    }
 
-        for (GradleProject child : project.getChildren()) {
-            DefaultOmniGradleProject gradleProjectChild = convert(child, buildInvocationsContainer, knownProjects);
-            gradleProject.addChild(gradleProjectChild);
-        }
+    private static void copy(DefaultOmniGradleProject gradleProject, OmniGradleProject project) {
+        gradleProject.setName(project.getName());
+        gradleProject.setDescription(project.getDescription());
+        gradleProject.setPath(project.getPath());
+        gradleProject.setProjectIdentifier(project.getProjectIdentifier());
+        gradleProject.setProjectDirectory(project.getProjectDirectory());
+        gradleProject.setBuildDirectory(project.getBuildDirectory());
+        gradleProject.setBuildScript(project.getBuildScript());
+        gradleProject.setProjectTasks(project.getProjectTasks());
+        gradleProject.setTaskSelectors(project.getTaskSelectors());
+    }
 
-        return gradleProject;
+    private static void share(DefaultOmniGradleProject gradleProject, ModelInterner interner) {
+        gradleProject.setBuildScript(interner.intern(gradleProject.getBuildScript()));
+        gradleProject.setProjectTasks(interner.intern(gradleProject.getProjectTasks()));
+        gradleProject.setTaskSelectors(interner.intern(gradleProject.getTaskSelectors()));
     }
 
     /**
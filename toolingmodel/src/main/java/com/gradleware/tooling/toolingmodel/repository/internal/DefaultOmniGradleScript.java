@@ -30,7 +30,7 @@ public final class DefaultOmniGradleScript implements OmniGradleScript {
 
     private final File sourceFile;
 
-    private DefaultOmniGradleScript(File sourceFile) {
+    DefaultOmniGradleScript(File sourceFile) {
         this.sourceFile = sourceFile;
     }
 
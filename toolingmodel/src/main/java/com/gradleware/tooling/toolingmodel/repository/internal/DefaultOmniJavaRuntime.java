@@ -32,7 +32,7 @@ public final class DefaultOmniJavaRuntime implements OmniJavaRuntime {
     private final OmniJavaVersion javaVersion;
     private final File homeDirectory;
 
-    private DefaultOmniJavaRuntime(OmniJavaVersion javaVersion, File homeDirectory) {
+    DefaultOmniJavaRuntime(OmniJavaVersion javaVersion, File homeDirectory) {
         this.javaVersion = javaVersion;
         this.homeDirectory = homeDirectory;
     }
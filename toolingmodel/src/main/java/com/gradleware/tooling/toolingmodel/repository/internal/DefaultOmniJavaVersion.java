@@ -28,8 +28,8 @@ public final class DefaultOmniJavaVersion implements OmniJavaVersion {
 
     private final String name;
 
-    private DefaultOmniJavaVersion(JavaVersion javaVersion) {
-        this.name = javaVersion.isJava9Compatible() ? javaVersion.getMajorVersion() : javaVersion.toString();
+    DefaultOmniJavaVersion(String name) {
+        this.name = name;
     }
 
     @Override
@@ -38,7 +38,7 @@ public final class DefaultOmniJavaVersion implements OmniJavaVersion {
     }
 
     public static DefaultOmniJavaVersion from(JavaVersion name) {
-        return new DefaultOmniJavaVersion(name);
+        return new DefaultOmniJavaVersion(name.isJava9Compatible() ? name.getMajorVersion() : name.toString());
     }
 
 }
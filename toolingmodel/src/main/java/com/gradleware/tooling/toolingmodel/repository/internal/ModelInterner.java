@@ -0,0 +1,439 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspathContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
+import com.gradleware.tooling.toolingmodel.OmniEclipseOutputLocation;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature;
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleScript;
+import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings;
+import com.gradleware.tooling.toolingmodel.OmniProjectTask;
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash-consing table through which a reloaded model shares the parts that have not changed with the previous version of the model. The
+ * table is filled with the values of the previous version and each value of the reloaded model is replaced by the equal value of the
+ * previous version, if there is one. Unchanged values thus keep their identity across reloads, and comparing the values of two versions
+ * by reference tells whether they have changed.
+ * <p/>
+ * Values are shared at the level of the classpath entries, source directories, linked resources, natures, build commands, tasks, task
+ * selectors, and the lists that hold them. Since each project references its parent and its children, a project is only shared together
+ * with its entire hierarchy, when none of the projects in the hierarchy has changed.
+ * <p/>
+ * The converted values do not implement equals, thus each value is keyed by all of its attribute values, while the values it contains
+ * are compared by reference after they have been shared themselves. The table is filled while a model is converted and must not be
+ * filled concurrently.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelInterner {
+
+    private final Map<List<Object>, Object> values;
+    private final Map<Object, OmniEclipseProject> eclipseRoots;
+    private final Map<Object, OmniGradleProject> gradleRoots;
+    private final Collection<?> previousProjects;
+
+    private ModelInterner(Collection<?> previousProjects) {
+        this.values = Maps.newHashMap();
+        this.eclipseRoots = Maps.newHashMap();
+        this.gradleRoots = Maps.newHashMap();
+        this.previousProjects = previousProjects;
+    }
+
+    /**
+     * Returns the value of the previous version that is equal to the given value, or the given value if there is none, in which case the
+     * given value is shared with all equal values passed to this table later on. Lists, {@link Optional} and {@link Maybe} instances are
+     * shared together with the values they contain. Values of any other type are returned as they are.
+     *
+     * @param value the value to share, can be null
+     * @param <T> the type of the value
+     * @return the shared value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T intern(T value) {
+        return (T) share(value);
+    }
+
+    private Object share(Object value) {
+        if (value instanceof List) {
+            List<?> elements = (List<?>) value;
+            ImmutableList.Builder<Object> sharedElements = ImmutableList.builder();
+            boolean unchanged = true;
+            for (Object element : elements) {
+                Object sharedElement = share(element);
+                sharedElements.add(sharedElement);
+                unchanged &= sharedElement == element;
+            }
+            // lists are immutable once converted, thus the given list itself can be shared if all its elements have been shared already
+            ImmutableList<Object> sharedList = sharedElements.build();
+            return lookup(Arrays.<Object>asList(List.class, sharedList), unchanged && value instanceof ImmutableList ? value : sharedList);
+        } else if (value instanceof Optional) {
+            Optional<?> optional = (Optional<?>) value;
+            if (!optional.isPresent()) {
+                return optional;
+            }
+            Object sharedValue = share(optional.get());
+            return sharedValue == optional.get() ? optional : Optional.of(sharedValue);
+        } else if (value instanceof Maybe) {
+            Maybe<?> maybe = (Maybe<?>) value;
+            if (!maybe.isPresent() || maybe.get() == null) {
+                return maybe;
+            }
+            Object sharedValue = share(maybe.get());
+            return sharedValue == maybe.get() ? maybe : Maybe.of(sharedValue);
+        } else {
+            ValueKind kind = ValueKind.of(value);
+            return kind != null ? lookup(kind.toKey(value), value) : value;
+        }
+    }
+
+    private Object lookup(List<Object> key, Object value) {
+        Object sharedValue = this.values.get(key);
+        if (sharedValue == null) {
+            this.values.put(key, value);
+            return value;
+        }
+        return sharedValue;
+    }
+
+    /**
+     * Returns the hierarchy of the previous version that is equal to the hierarchy of the given project, or the given project if the
+     * hierarchy has changed or was not part of the previous version. The attributes of the given hierarchy must have been shared through
+     * this table already.
+     *
+     * @param root the root project of the converted hierarchy
+     * @return the root project of the shared hierarchy
+     */
+    public OmniEclipseProject shareHierarchy(OmniEclipseProject root) {
+        OmniEclipseProject previousRoot = this.eclipseRoots.get(root.getProjectDirectory());
+        if (previousRoot == null || previousRoot.getAll().size() != root.getAll().size()) {
+            return root;
+        }
+        for (int i = 0; i < root.getAll().size(); i++) {
+            if (!toKey(previousRoot.getAll().get(i)).equals(toKey(root.getAll().get(i)))) {
+                return root;
+            }
+        }
+        return previousRoot;
+    }
+
+    /**
+     * Returns the hierarchy of the previous version that is equal to the hierarchy of the given project, or the given project if the
+     * hierarchy has changed or was not part of the previous version. The attributes of the given hierarchy must have been shared through
+     * this table already.
+     *
+     * @param root the root project of the converted hierarchy
+     * @return the root project of the shared hierarchy
+     */
+    public OmniGradleProject shareHierarchy(OmniGradleProject root) {
+        OmniGradleProject previousRoot = this.gradleRoots.get(toRootKey(root));
+        if (previousRoot == null || previousRoot.getAll().size() != root.getAll().size()) {
+            return root;
+        }
+        for (int i = 0; i < root.getAll().size(); i++) {
+            if (!toKey(previousRoot.getAll().get(i)).equals(toKey(root.getAll().get(i)))) {
+                return root;
+            }
+        }
+        return previousRoot;
+    }
+
+    /**
+     * Returns the previous set of projects if it contains the same projects as the given set, such that an entirely unchanged model keeps
+     * its identity, too.
+     *
+     * @param projects the projects of the converted model
+     * @param <T> the type of the projects
+     * @return the previous set of projects if it is equal to the given set, the given set otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Set<T> shareProjects(Set<T> projects) {
+        return projects.equals(this.previousProjects) ? (Set<T>) this.previousProjects : projects;
+    }
+
+    private void registerEclipseProject(OmniEclipseProject project) {
+        if (project.getParent() == null) {
+            this.eclipseRoots.put(project.getProjectDirectory(), project);
+        }
+        intern(project.getProjectDependencies());
+        intern(project.getExternalDependencies());
+        intern(project.getLinkedResources());
+        intern(project.getSourceDirectories());
+        intern(project.getProjectNatures());
+        intern(project.getBuildCommands());
+        intern(project.getJavaSourceSettings());
+        intern(project.getClasspathContainers());
+        intern(project.getOutputLocation());
+        registerGradleProject(project.getGradleProject());
+    }
+
+    private void registerGradleProject(OmniGradleProject project) {
+        if (project.getParent() == null) {
+            this.gradleRoots.put(toRootKey(project), project);
+        }
+        intern(project.getBuildScript());
+        intern(project.getProjectTasks());
+        intern(project.getTaskSelectors());
+    }
+
+    private static Object toRootKey(OmniGradleProject root) {
+        return Arrays.asList(root.getName(), root.getProjectDirectory());
+    }
+
+    /*
+     * the values of the previous version are not shared among each other, thus the attributes are passed through the table to compare
+     * the values the previous version shares with the converted projects
+     */
+    private List<Object> toKey(OmniEclipseProject project) {
+        return Arrays.asList(
+                project.getName(),
+                project.getDescription(),
+                project.getPath(),
+                project.getProjectDirectory(),
+                toKey(project.getProjectIdentifier()),
+                intern(project.getProjectDependencies()),
+                intern(project.getExternalDependencies()),
+                intern(project.getLinkedResources()),
+                intern(project.getSourceDirectories()),
+                intern(project.getProjectNatures()),
+                intern(project.getBuildCommands()),
+                intern(project.getJavaSourceSettings()),
+                intern(project.getClasspathContainers()),
+                intern(project.getOutputLocation()),
+                toKey(project.getGradleProject()),
+                toPaths(project.getChildren()));
+    }
+
+    private List<Object> toKey(OmniGradleProject project) {
+        return Arrays.asList(
+                project.getName(),
+                project.getDescription(),
+                project.getPath(),
+                project.getProjectDirectory(),
+                project.getBuildDirectory(),
+                toKey(project.getProjectIdentifier()),
+                intern(project.getBuildScript()),
+                intern(project.getProjectTasks()),
+                intern(project.getTaskSelectors()),
+                toGradlePaths(project.getChildren()));
+    }
+
+    private static Object toKey(ProjectIdentifier projectIdentifier) {
+        return projectIdentifier != null ? Arrays.asList(projectIdentifier.getProjectPath(), projectIdentifier.getBuildIdentifier().getRootDir()) : null;
+    }
+
+    private static List<Object> toPaths(List<OmniEclipseProject> projects) {
+        ImmutableList.Builder<Object> paths = ImmutableList.builder();
+        for (OmniEclipseProject project : projects) {
+            paths.add(project.getPath());
+        }
+        return paths.build();
+    }
+
+    private static List<Object> toGradlePaths(List<OmniGradleProject> projects) {
+        ImmutableList.Builder<Object> paths = ImmutableList.builder();
+        for (OmniGradleProject project : projects) {
+            paths.add(project.getPath());
+        }
+        return paths.build();
+    }
+
+    /**
+     * Creates a new instance that shares the values of the given Eclipse projects and their Gradle projects.
+     *
+     * @param projects the projects of the previous version
+     * @return the new instance
+     */
+    public static ModelInterner fromEclipseProjects(Set<OmniEclipseProject> projects) {
+        ModelInterner interner = new ModelInterner(projects);
+        for (OmniEclipseProject project : projects) {
+            interner.registerEclipseProject(project);
+        }
+        return interner;
+    }
+
+    /**
+     * Creates a new instance that shares the values of the given Gradle projects.
+     *
+     * @param projects the projects of the previous version
+     * @return the new instance
+     */
+    public static ModelInterner fromGradleProjects(Set<OmniGradleProject> projects) {
+        ModelInterner interner = new ModelInterner(projects);
+        for (OmniGradleProject project : projects) {
+            interner.registerGradleProject(project);
+        }
+        return interner;
+    }
+
+    /**
+     * Enumerates the kinds of values that are shared, together with the attribute values that make up their keys.
+     */
+    private enum ValueKind {
+
+        EXTERNAL_DEPENDENCY {
+            @Override
+            List<Object> toAttributes(Object value) {
+                return ClasspathTable.toKey((OmniExternalDependency) value);
+            }
+        },
+
+        PROJECT_DEPENDENCY {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniEclipseProjectDependency dependency = (OmniEclipseProjectDependency) value;
+                return Arrays.<Object>asList(dependency.getPath(), dependency.isExported(), ClasspathTable.toKey(dependency.getClasspathAttributes(), dependency.getAccessRules()));
+            }
+        },
+
+        CLASSPATH_CONTAINER {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniEclipseClasspathContainer container = (OmniEclipseClasspathContainer) value;
+                return Arrays.<Object>asList(container.getPath(), container.isExported(), ClasspathTable.toKey(container.getClasspathAttributes(), container.getAccessRules()));
+            }
+        },
+
+        SOURCE_DIRECTORY {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniEclipseSourceDirectory directory = (OmniEclipseSourceDirectory) value;
+                return Arrays.<Object>asList(directory.getDirectory(), directory.getPath(), directory.getExcludes(), directory.getIncludes(), directory.getOutput(),
+                        ClasspathTable.toKey(directory.getClasspathAttributes(), directory.getAccessRules()));
+            }
+        },
+
+        LINKED_RESOURCE {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniEclipseLinkedResource resource = (OmniEclipseLinkedResource) value;
+                return Arrays.<Object>asList(resource.getName(), resource.getType(), resource.getLocation(), resource.getLocationUri());
+            }
+        },
+
+        PROJECT_NATURE {
+            @Override
+            List<Object> toAttributes(Object value) {
+                return Arrays.<Object>asList(((OmniEclipseProjectNature) value).getId());
+            }
+        },
+
+        BUILD_COMMAND {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniEclipseBuildCommand command = (OmniEclipseBuildCommand) value;
+                return Arrays.<Object>asList(command.getName(), command.getArguments());
+            }
+        },
+
+        OUTPUT_LOCATION {
+            @Override
+            List<Object> toAttributes(Object value) {
+                return Arrays.<Object>asList(((OmniEclipseOutputLocation) value).getPath());
+            }
+        },
+
+        JAVA_SOURCE_SETTINGS {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniJavaSourceSettings settings = (OmniJavaSourceSettings) value;
+                return Arrays.<Object>asList(settings.getSourceLanguageLevel().getName(), settings.getTargetBytecodeLevel().getName(),
+                        settings.getTargetRuntime().getJavaVersion().getName(), settings.getTargetRuntime().getHomeDirectory());
+            }
+        },
+
+        PROJECT_TASK {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniProjectTask task = (OmniProjectTask) value;
+                return Arrays.<Object>asList(task.getName(), task.getDescription(), task.getPath(), task.isPublic(), task.getGroup());
+            }
+        },
+
+        TASK_SELECTOR {
+            @Override
+            List<Object> toAttributes(Object value) {
+                OmniTaskSelector selector = (OmniTaskSelector) value;
+                return Arrays.<Object>asList(selector.getName(), selector.getDescription(), selector.getProjectPath(), selector.isPublic(), selector.getGroup(),
+                        selector.getSelectedTaskPaths());
+            }
+        },
+
+        GRADLE_SCRIPT {
+            @Override
+            List<Object> toAttributes(Object value) {
+                return Arrays.<Object>asList(((OmniGradleScript) value).getSourceFile());
+            }
+        };
+
+        abstract List<Object> toAttributes(Object value);
+
+        private List<Object> toKey(Object value) {
+            return Arrays.<Object>asList(this, toAttributes(value));
+        }
+
+        private static ValueKind of(Object value) {
+            if (value instanceof OmniExternalDependency) {
+                return EXTERNAL_DEPENDENCY;
+            } else if (value instanceof OmniEclipseProjectDependency) {
+                return PROJECT_DEPENDENCY;
+            } else if (value instanceof OmniEclipseClasspathContainer) {
+                return CLASSPATH_CONTAINER;
+            } else if (value instanceof OmniEclipseSourceDirectory) {
+                return SOURCE_DIRECTORY;
+            } else if (value instanceof OmniEclipseLinkedResource) {
+                return LINKED_RESOURCE;
+            } else if (value instanceof OmniEclipseProjectNature) {
+                return PROJECT_NATURE;
+            } else if (value instanceof OmniEclipseBuildCommand) {
+                return BUILD_COMMAND;
+            } else if (value instanceof OmniEclipseOutputLocation) {
+                return OUTPUT_LOCATION;
+            } else if (value instanceof OmniJavaSourceSettings) {
+                return JAVA_SOURCE_SETTINGS;
+            } else if (value instanceof OmniProjectTask) {
+                return PROJECT_TASK;
+            } else if (value instanceof OmniTaskSelector) {
+                return TASK_SELECTOR;
+            } else if (value instanceof OmniGradleScript) {
+                return GRADLE_SCRIPT;
+            } else {
+                return null;
+            }
+        }
+
+    }
+
+}
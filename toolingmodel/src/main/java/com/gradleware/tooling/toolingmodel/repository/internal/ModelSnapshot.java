@@ -0,0 +1,660 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingmodel.OmniAccessRule;
+import com.gradleware.tooling.toolingmodel.OmniClasspathAttribute;
+import com.gradleware.tooling.toolingmodel.OmniClasspathEntry;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.model.BuildIdentifier;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only snapshot of a set of {@link OmniEclipseProject} and {@link OmniGradleProject} instances, stored in a file that is
+ * memory-mapped when the snapshot is opened. Several processes that open the same snapshot file share its pages through the page cache of
+ * the operating system.
+ * <p/>
+ * Opening a snapshot only maps the file and validates its header. The projects of an opened snapshot navigate their hierarchy through the
+ * index of the snapshot and decode their attributes from the mapped file when any of their attributes is accessed for the first time. The
+ * heap held by an opened snapshot is thus proportional to the projects that are actually queried. The projects are immutable and can be
+ * queried from any thread.
+ * <p/>
+ * A snapshot is written to a temporary file that is then atomically moved to the target location, such that processes never map a
+ * partially written snapshot. The mapping is released once the snapshot and all projects obtained from it are no longer reachable.
+ * <p/>
+ * A file must not be rewritten while any process may still have it mapped. On Windows, a mapped file cannot be replaced and writing the
+ * snapshot fails, while on other platforms the processes that mapped the previous snapshot keep seeing its contents. Callers that update a
+ * snapshot which other processes may have opened write each snapshot to a fresh file name instead, as {@link SharedModelCacheService} does.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelSnapshot {
+
+    // 'OMSN'
+    private static final int MAGIC = 0x4F4D534E;
+    private static final int VERSION = 1;
+
+    // magic, version, string count, string data length, Gradle project count, Eclipse project count
+    private static final int HEADER_SIZE = 6 * 4;
+
+    private static final int NONE = -1;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int stringOffsetsPosition;
+    private final int gradleProjectOffsetsPosition;
+    private final int eclipseProjectOffsetsPosition;
+    private final int stringDataPosition;
+    private final int recordsPosition;
+    private final AtomicReferenceArray<String> strings;
+    private final AtomicReferenceArray<SnapshotOmniGradleProject> gradleProjects;
+    private final AtomicReferenceArray<SnapshotOmniEclipseProject> eclipseProjects;
+    private final AtomicInteger decodedRecordCount;
+
+    private ModelSnapshot(File file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(String.format("File '%s' is not a model snapshot.", file));
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException(String.format("Model snapshot '%s' has version %d, expected version %d.", file, version, VERSION));
+        }
+        int stringCount = buffer.getInt(8);
+        int stringDataLength = buffer.getInt(12);
+        int gradleProjectCount = buffer.getInt(16);
+        int eclipseProjectCount = buffer.getInt(20);
+
+        this.stringOffsetsPosition = HEADER_SIZE;
+        this.gradleProjectOffsetsPosition = this.stringOffsetsPosition + 4 * (stringCount + 1);
+        this.eclipseProjectOffsetsPosition = this.gradleProjectOffsetsPosition + 4 * gradleProjectCount;
+        this.stringDataPosition = this.eclipseProjectOffsetsPosition + 4 * eclipseProjectCount;
+        this.recordsPosition = this.stringDataPosition + stringDataLength;
+        if (this.recordsPosition > buffer.limit()) {
+            throw new IllegalArgumentException(String.format("Model snapshot '%s' is truncated.", file));
+        }
+
+        this.strings = new AtomicReferenceArray<String>(stringCount);
+        this.gradleProjects = new AtomicReferenceArray<SnapshotOmniGradleProject>(gradleProjectCount);
+        this.eclipseProjects = new AtomicReferenceArray<SnapshotOmniEclipseProject>(eclipseProjectCount);
+        this.decodedRecordCount = new AtomicInteger();
+    }
+
+    /**
+     * Returns the file from which this snapshot was opened.
+     *
+     * @return the file, never null
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns all Eclipse projects of this snapshot, including the projects of all hierarchies. The attributes of the projects are not
+     * decoded by this method.
+     *
+     * @return the Eclipse projects, never null
+     */
+    public ImmutableSet<OmniEclipseProject> getEclipseProjects() {
+        ImmutableSet.Builder<OmniEclipseProject> projects = ImmutableSet.builder();
+        for (int i = 0; i < this.eclipseProjects.length(); i++) {
+            projects.add(getEclipseProject(i));
+        }
+        return projects.build();
+    }
+
+    /**
+     * Returns all Gradle projects of this snapshot, including the projects of all hierarchies. The attributes of the projects are not
+     * decoded by this method.
+     *
+     * @return the Gradle projects, never null
+     */
+    public ImmutableSet<OmniGradleProject> getGradleProjects() {
+        ImmutableSet.Builder<OmniGradleProject> projects = ImmutableSet.builder();
+        for (int i = 0; i < this.gradleProjects.length(); i++) {
+            projects.add(getGradleProject(i));
+        }
+        return projects.build();
+    }
+
+    SnapshotOmniEclipseProject getEclipseProject(int index) {
+        SnapshotOmniEclipseProject project = this.eclipseProjects.get(index);
+        if (project == null) {
+            this.eclipseProjects.compareAndSet(index, null, new SnapshotOmniEclipseProject(this, index));
+            project = this.eclipseProjects.get(index);
+        }
+        return project;
+    }
+
+    SnapshotOmniGradleProject getGradleProject(int index) {
+        SnapshotOmniGradleProject project = this.gradleProjects.get(index);
+        if (project == null) {
+            this.gradleProjects.compareAndSet(index, null, new SnapshotOmniGradleProject(this, index));
+            project = this.gradleProjects.get(index);
+        }
+        return project;
+    }
+
+    int getEclipseProjectRecord(int index) {
+        return this.recordsPosition + this.buffer.getInt(this.eclipseProjectOffsetsPosition + 4 * index);
+    }
+
+    int getGradleProjectRecord(int index) {
+        return this.recordsPosition + this.buffer.getInt(this.gradleProjectOffsetsPosition + 4 * index);
+    }
+
+    int getParent(int record) {
+        return this.buffer.getInt(record);
+    }
+
+    int[] getChildren(int record) {
+        int[] children = new int[this.buffer.getInt(record + 4)];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = this.buffer.getInt(record + 8 + 4 * i);
+        }
+        return children;
+    }
+
+    Decoder decodeAttributes(int record) {
+        this.decodedRecordCount.incrementAndGet();
+        int attributesPosition = record + 8 + 4 * this.buffer.getInt(record + 4);
+        return new Decoder(this, attributesPosition);
+    }
+
+    /**
+     * Returns the number of project records that have been decoded so far. Intended for tests and diagnostics.
+     *
+     * @return the number of decoded records
+     */
+    int getDecodedRecordCount() {
+        return this.decodedRecordCount.get();
+    }
+
+    private String getString(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        String string = this.strings.get(id);
+        if (string == null) {
+            int start = this.buffer.getInt(this.stringOffsetsPosition + 4 * id);
+            int end = this.buffer.getInt(this.stringOffsetsPosition + 4 * (id + 1));
+            byte[] bytes = new byte[end - start];
+            ByteBuffer data = this.buffer.duplicate();
+            data.position(this.stringDataPosition + start);
+            data.get(bytes);
+            string = new String(bytes, Charsets.UTF_8);
+            this.strings.lazySet(id, string);
+        }
+        return string;
+    }
+
+    /**
+     * Opens the snapshot stored in the given file. The file is mapped into memory and closed again before this method returns.
+     *
+     * @param file the snapshot file
+     * @return the opened snapshot
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a model snapshot of the supported version
+     */
+    public static ModelSnapshot open(File file) {
+        Preconditions.checkNotNull(file);
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                return new ModelSnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot open model snapshot '%s'.", file), e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given Eclipse projects to the given file. All projects of the hierarchies the given projects belong to
+     * are written, together with the Gradle project hierarchies they reference. If the file already exists, it is replaced, which fails
+     * on Windows if the file is mapped by any process.
+     *
+     * @param eclipseProjects the Eclipse projects to write
+     * @param file the snapshot file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void write(Collection<? extends OmniEclipseProject> eclipseProjects, File file) {
+        write(eclipseProjects, ImmutableList.<OmniGradleProject>of(), file);
+    }
+
+    /**
+     * Writes a snapshot of the given Eclipse projects and Gradle projects to the given file. All projects of the hierarchies the given
+     * projects belong to are written, together with the Gradle project hierarchies the Eclipse projects reference. If the file already
+     * exists, it is replaced, which fails on Windows if the file is mapped by any process.
+     *
+     * @param eclipseProjects the Eclipse projects to write
+     * @param gradleProjects the Gradle projects to write
+     * @param file the snapshot file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void write(Collection<? extends OmniEclipseProject> eclipseProjects, Collection<? extends OmniGradleProject> gradleProjects, File file) {
+        Preconditions.checkNotNull(eclipseProjects);
+        Preconditions.checkNotNull(gradleProjects);
+        Preconditions.checkNotNull(file);
+        File target = file.getAbsoluteFile();
+        try {
+            File temporaryFile = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+            try {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+                try {
+                    new Encoder().encode(eclipseProjects, gradleProjects).writeTo(output);
+                } finally {
+                    output.close();
+                }
+                Files.move(temporaryFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporaryFile.toPath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot write model snapshot '%s'.", file), e);
+        }
+    }
+
+    /**
+     * Encodes the projects of a snapshot. The strings of all records are collected in a table of distinct strings and the records refer
+     * to them by their index in the table.
+     */
+    static final class Encoder {
+
+        private final Map<String, Integer> stringIds;
+        private final List<Integer> stringOffsets;
+        private final ByteArrayOutputStream stringData;
+        private final Map<OmniGradleProject, Integer> gradleProjectIndices;
+        private final Map<OmniEclipseProject, Integer> eclipseProjectIndices;
+        private final List<Integer> gradleProjectOffsets;
+        private final List<Integer> eclipseProjectOffsets;
+        private final ByteArrayOutputStream records;
+        private final DataOutputStream output;
+
+        private Encoder() {
+            this.stringIds = Maps.newHashMap();
+            this.stringOffsets = Lists.newArrayList(0);
+            this.stringData = new ByteArrayOutputStream();
+            this.gradleProjectIndices = new IdentityHashMap<OmniGradleProject, Integer>();
+            this.eclipseProjectIndices = new IdentityHashMap<OmniEclipseProject, Integer>();
+            this.gradleProjectOffsets = Lists.newArrayList();
+            this.eclipseProjectOffsets = Lists.newArrayList();
+            this.records = new ByteArrayOutputStream();
+            this.output = new DataOutputStream(this.records);
+        }
+
+        private Encoder encode(Collection<? extends OmniEclipseProject> eclipseProjects, Collection<? extends OmniGradleProject> gradleProjects) throws IOException {
+            // projects are indexed in the order of the getAll() method of their root, such that the index order matches the project order
+            List<OmniEclipseProject> eclipseProjectOrder = Lists.newArrayList();
+            for (OmniEclipseProject eclipseProject : eclipseProjects) {
+                OmniEclipseProject root = eclipseProject.getRoot();
+                if (!this.eclipseProjectIndices.containsKey(root)) {
+                    index(root.getAll(), this.eclipseProjectIndices, eclipseProjectOrder);
+                }
+            }
+            List<OmniGradleProject> gradleProjectOrder = Lists.newArrayList();
+            for (OmniGradleProject gradleProject : gradleProjects) {
+                indexHierarchy(gradleProject, gradleProjectOrder);
+            }
+            for (OmniEclipseProject eclipseProject : eclipseProjectOrder) {
+                indexHierarchy(eclipseProject.getGradleProject(), gradleProjectOrder);
+            }
+
+            for (OmniGradleProject gradleProject : gradleProjectOrder) {
+                this.gradleProjectOffsets.add(this.output.size());
+                writeHierarchy(gradleProject.getParent(), gradleProject.getChildren(), this.gradleProjectIndices);
+                SnapshotOmniGradleProject.writeAttributes(gradleProject, this);
+            }
+            for (OmniEclipseProject eclipseProject : eclipseProjectOrder) {
+                this.eclipseProjectOffsets.add(this.output.size());
+                writeHierarchy(eclipseProject.getParent(), eclipseProject.getChildren(), this.eclipseProjectIndices);
+                SnapshotOmniEclipseProject.writeAttributes(eclipseProject, this);
+            }
+            return this;
+        }
+
+        private void indexHierarchy(OmniGradleProject gradleProject, List<OmniGradleProject> gradleProjectOrder) {
+            if (gradleProject != null && !this.gradleProjectIndices.containsKey(gradleProject.getRoot())) {
+                index(gradleProject.getRoot().getAll(), this.gradleProjectIndices, gradleProjectOrder);
+            }
+        }
+
+        private static <T> void index(List<T> projects, Map<T, Integer> indices, List<T> order) {
+            for (T project : projects) {
+                indices.put(project, order.size());
+                order.add(project);
+            }
+        }
+
+        private <T> void writeHierarchy(T parent, List<T> children, Map<T, Integer> indices) throws IOException {
+            this.output.writeInt(parent != null ? indices.get(parent) : NONE);
+            this.output.writeInt(children.size());
+            for (T child : children) {
+                this.output.writeInt(indices.get(child));
+            }
+        }
+
+        private void writeTo(DataOutputStream snapshot) throws IOException {
+            Preconditions.checkState(this.stringData.size() + this.records.size() < Integer.MAX_VALUE / 2, "Model snapshot exceeds the maximum size.");
+            snapshot.writeInt(MAGIC);
+            snapshot.writeInt(VERSION);
+            snapshot.writeInt(this.stringIds.size());
+            snapshot.writeInt(this.stringData.size());
+            snapshot.writeInt(this.gradleProjectOffsets.size());
+            snapshot.writeInt(this.eclipseProjectOffsets.size());
+            for (int offset : this.stringOffsets) {
+                snapshot.writeInt(offset);
+            }
+            for (int offset : this.gradleProjectOffsets) {
+                snapshot.writeInt(offset);
+            }
+            for (int offset : this.eclipseProjectOffsets) {
+                snapshot.writeInt(offset);
+            }
+            this.stringData.writeTo(snapshot);
+            this.records.writeTo(snapshot);
+        }
+
+        void writeInt(int value) throws IOException {
+            this.output.writeInt(value);
+        }
+
+        void writeBoolean(boolean value) throws IOException {
+            this.output.writeBoolean(value);
+        }
+
+        void writeString(String string) throws IOException {
+            if (string == null) {
+                this.output.writeInt(NONE);
+                return;
+            }
+            Integer id = this.stringIds.get(string);
+            if (id == null) {
+                id = this.stringIds.size();
+                this.stringIds.put(string, id);
+                byte[] bytes = string.getBytes(Charsets.UTF_8);
+                this.stringData.write(bytes, 0, bytes.length);
+                this.stringOffsets.add(this.stringData.size());
+            }
+            this.output.writeInt(id);
+        }
+
+        void writeFile(File file) throws IOException {
+            writeString(file != null ? file.getPath() : null);
+        }
+
+        void writeMaybeString(Maybe<String> string) throws IOException {
+            this.output.writeBoolean(string.isPresent());
+            if (string.isPresent()) {
+                writeString(string.get());
+            }
+        }
+
+        void writeMaybeFile(Maybe<File> file) throws IOException {
+            this.output.writeBoolean(file.isPresent());
+            if (file.isPresent()) {
+                writeFile(file.get());
+            }
+        }
+
+        void writeStrings(Collection<String> strings) throws IOException {
+            this.output.writeInt(strings.size());
+            for (String string : strings) {
+                writeString(string);
+            }
+        }
+
+        void writeOptionalStrings(Optional<List<String>> strings) throws IOException {
+            this.output.writeBoolean(strings.isPresent());
+            if (strings.isPresent()) {
+                writeStrings(strings.get());
+            }
+        }
+
+        void writeClasspathEntry(OmniClasspathEntry entry) throws IOException {
+            Optional<List<OmniClasspathAttribute>> attributes = entry.getClasspathAttributes();
+            this.output.writeBoolean(attributes.isPresent());
+            if (attributes.isPresent()) {
+                this.output.writeInt(attributes.get().size());
+                for (OmniClasspathAttribute attribute : attributes.get()) {
+                    writeString(attribute.getName());
+                    writeString(attribute.getValue());
+                }
+            }
+            Optional<List<OmniAccessRule>> accessRules = entry.getAccessRules();
+            this.output.writeBoolean(accessRules.isPresent());
+            if (accessRules.isPresent()) {
+                this.output.writeInt(accessRules.get().size());
+                for (OmniAccessRule accessRule : accessRules.get()) {
+                    this.output.writeInt(accessRule.getKind());
+                    writeString(accessRule.getPattern());
+                }
+            }
+        }
+
+        void writeProjectIdentifier(ProjectIdentifier projectIdentifier) throws IOException {
+            this.output.writeBoolean(projectIdentifier != null);
+            if (projectIdentifier != null) {
+                writeFile(projectIdentifier.getBuildIdentifier().getRootDir());
+                writeString(projectIdentifier.getProjectPath());
+            }
+        }
+
+        void writeGradleProjectReference(OmniGradleProject gradleProject) throws IOException {
+            this.output.writeInt(gradleProject != null ? this.gradleProjectIndices.get(gradleProject) : NONE);
+        }
+
+    }
+
+    /**
+     * Decodes the attributes of a single project record. The decoder reads from its own view of the mapped file and must only be used
+     * by the thread that created it.
+     */
+    static final class Decoder {
+
+        private final ModelSnapshot snapshot;
+        private final ByteBuffer input;
+
+        private Decoder(ModelSnapshot snapshot, int position) {
+            this.snapshot = snapshot;
+            this.input = snapshot.buffer.duplicate();
+            this.input.position(position);
+        }
+
+        int readInt() {
+            return this.input.getInt();
+        }
+
+        boolean readBoolean() {
+            return this.input.get() != 0;
+        }
+
+        String readString() {
+            return this.snapshot.getString(this.input.getInt());
+        }
+
+        File readFile() {
+            String path = readString();
+            return path != null ? new File(path) : null;
+        }
+
+        Maybe<String> readMaybeString() {
+            return readBoolean() ? Maybe.of(readString()) : Maybe.<String>absent();
+        }
+
+        Maybe<File> readMaybeFile() {
+            return readBoolean() ? Maybe.of(readFile()) : Maybe.<File>absent();
+        }
+
+        ImmutableList<String> readStrings() {
+            int count = readInt();
+            ImmutableList.Builder<String> strings = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                strings.add(readString());
+            }
+            return strings.build();
+        }
+
+        Optional<List<String>> readOptionalStrings() {
+            return readBoolean() ? Optional.<List<String>>of(readStrings()) : Optional.<List<String>>absent();
+        }
+
+        Optional<List<OmniClasspathAttribute>> readClasspathAttributes() {
+            if (!readBoolean()) {
+                return Optional.absent();
+            }
+            int count = readInt();
+            ImmutableList.Builder<OmniClasspathAttribute> attributes = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                attributes.add(new DefaultOmniClasspathAttribute(readString(), readString()));
+            }
+            return Optional.<List<OmniClasspathAttribute>>of(attributes.build());
+        }
+
+        Optional<List<OmniAccessRule>> readAccessRules() {
+            if (!readBoolean()) {
+                return Optional.absent();
+            }
+            int count = readInt();
+            ImmutableList.Builder<OmniAccessRule> accessRules = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                accessRules.add(new DefaultOmniAccessRule(readInt(), readString()));
+            }
+            return Optional.<List<OmniAccessRule>>of(accessRules.build());
+        }
+
+        ProjectIdentifier readProjectIdentifier() {
+            return readBoolean() ? new SnapshotProjectIdentifier(new SnapshotBuildIdentifier(readFile()), readString()) : null;
+        }
+
+        OmniGradleProject readGradleProjectReference() {
+            int index = readInt();
+            return index != NONE ? this.snapshot.getGradleProject(index) : null;
+        }
+
+    }
+
+    /**
+     * Identifies a project of a snapshot by the build it belongs to and its project path.
+     */
+    private static final class SnapshotProjectIdentifier implements ProjectIdentifier {
+
+        private final BuildIdentifier buildIdentifier;
+        private final String projectPath;
+
+        private SnapshotProjectIdentifier(BuildIdentifier buildIdentifier, String projectPath) {
+            this.buildIdentifier = buildIdentifier;
+            this.projectPath = projectPath;
+        }
+
+        @Override
+        public String getProjectPath() {
+            return this.projectPath;
+        }
+
+        @Override
+        public BuildIdentifier getBuildIdentifier() {
+            return this.buildIdentifier;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            SnapshotProjectIdentifier that = (SnapshotProjectIdentifier) obj;
+            return Objects.equal(this.buildIdentifier, that.buildIdentifier) && Objects.equal(this.projectPath, that.projectPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.buildIdentifier, this.projectPath);
+        }
+
+    }
+
+    /**
+     * Identifies a build of a snapshot by its root directory.
+     */
+    private static final class SnapshotBuildIdentifier implements BuildIdentifier {
+
+        private final File rootDir;
+
+        private SnapshotBuildIdentifier(File rootDir) {
+            this.rootDir = rootDir;
+        }
+
+        @Override
+        public File getRootDir() {
+            return this.rootDir;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            SnapshotBuildIdentifier that = (SnapshotBuildIdentifier) obj;
+            return Objects.equal(this.rootDir, that.rootDir);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.rootDir);
+        }
+
+    }
+
+}
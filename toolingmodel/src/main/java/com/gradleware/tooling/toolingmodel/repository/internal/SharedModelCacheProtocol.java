@@ -0,0 +1,476 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.io.BaseEncoding;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import org.gradle.tooling.GradleConnectionException;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Protocol between the {@link SharedModelCacheService} and the {@link SharedModelRepository} instances that connect to it. Each request
+ * is sent over its own connection and answered with exactly one response. The models themselves are not sent over the connection, the
+ * service writes them to a {@link ModelSnapshot} that the client maps into memory.
+ * <p/>
+ * Messages are exchanged through Java serialization, restricted to the classes that make up the messages. Each connection starts with
+ * the secret token of the user that runs the service, read from a file that only this user can access. The service closes connections
+ * that do not present the token before it reads the message, such that other users on the same machine cannot have the service
+ * execute builds on their behalf.
+ *
+ * @author Etienne Studer
+ */
+final class SharedModelCacheProtocol {
+
+    private static final int VERSION = 3;
+
+    private static final int TOKEN_LENGTH = 32;
+
+    private static final String[] ALLOWED_CLASS_NAME_PREFIXES = {
+            "java.lang.",
+            "java.io.File",
+            "java.net.URI",
+            "com.google.common.collect.",
+            "com.gradleware.tooling.toolingclient.GradleDistribution",
+            "com.gradleware.tooling.toolingmodel.repository.FetchStrategy",
+            "com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes",
+            "com.gradleware.tooling.toolingmodel.repository.internal.SharedModelCacheProtocol$"
+    };
+
+    private SharedModelCacheProtocol() {
+    }
+
+    /**
+     * Returns the file holding the token of the current user if no other token file is specified.
+     *
+     * @return the default token file
+     */
+    static File getDefaultTokenFile() {
+        return new File(System.getProperty("user.home"), ".tooling-commons/shared-model-cache.token");
+    }
+
+    /**
+     * Reads the token from the given file, or creates the file with a new random token if it does not exist yet. The file is created
+     * such that only the current user can access it, and an existing file is rejected if other users can access it, too.
+     *
+     * @param tokenFile the token file
+     * @return the token
+     * @throws IOException if the file cannot be read or created, or if other users can access it
+     */
+    static byte[] loadToken(File tokenFile) throws IOException {
+        return loadToken(tokenFile, isPosix(tokenFile.toPath().toAbsolutePath().getRoot()));
+    }
+
+    // package-private such that the non-POSIX access restriction can be tested on POSIX file systems, too
+    static byte[] loadToken(File tokenFile, boolean posix) throws IOException {
+        Path path = tokenFile.toPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                createTokenFile(path, posix);
+            } catch (FileAlreadyExistsException e) {
+                // another process has created the token file in the meantime
+            }
+        }
+
+        checkOwnerOnly(path, posix);
+        byte[] token;
+        try {
+            token = BaseEncoding.base16().decode(new String(Files.readAllBytes(path), Charsets.US_ASCII).trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Invalid shared model cache token file %s.", tokenFile), e);
+        }
+        if (token.length != TOKEN_LENGTH) {
+            throw new IOException(String.format("Invalid shared model cache token file %s.", tokenFile));
+        }
+        return token;
+    }
+
+    private static void createTokenFile(Path path, boolean posix) throws IOException {
+        byte[] token = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(token);
+        byte[] content = BaseEncoding.base16().encode(token).getBytes(Charsets.US_ASCII);
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (posix) {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ,
+                        PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+            }
+            // the file is created with the restricted permissions right away, such that the token is never readable by other users
+            FileAttribute<Set<PosixFilePermission>> ownerOnly = PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+            Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp", ownerOnly);
+            try {
+                Files.write(tempFile, content);
+                Files.createLink(path, tempFile);
+            } finally {
+                Files.delete(tempFile);
+            }
+        } else {
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                // the token is only written once the access to the file has been restricted to its owner, file systems without access
+                // control lists, e.g. FAT, cannot restrict the access, the token file is located in the user profile in that case
+                AclFileAttributeView acl = Files.getFileAttributeView(tempFile, AclFileAttributeView.class);
+                if (acl != null) {
+                    restrictToOwner(acl);
+                }
+                Files.write(tempFile, content);
+                Files.move(tempFile, path);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private static void restrictToOwner(AclFileAttributeView acl) throws IOException {
+        AclEntry ownerOnly = AclEntry.newBuilder().
+                setType(AclEntryType.ALLOW).
+                setPrincipal(acl.getOwner()).
+                setPermissions(EnumSet.allOf(AclEntryPermission.class)).
+                build();
+        acl.setAcl(ImmutableList.of(ownerOnly));
+    }
+
+    private static void checkOwnerOnly(Path path, boolean posix) throws IOException {
+        if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException(String.format("Shared model cache token file %s is not a regular file.", path));
+        }
+        if (posix) {
+            PosixFileAttributeView attributes = Files.getFileAttributeView(path, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+            UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+            if (!attributes.getOwner().equals(currentUser)) {
+                throw new IOException(String.format("Shared model cache token file %s is not owned by the current user.", path));
+            }
+            Set<PosixFilePermission> permissions = attributes.readAttributes().permissions();
+            if (!EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE).containsAll(permissions)) {
+                throw new IOException(String.format("Shared model cache token file %s must only be accessible by its owner.", path));
+            }
+        }
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    static void writeToken(byte[] token, OutputStream output) throws IOException {
+        output.write(token);
+    }
+
+    /**
+     * Reads the token presented by the client and compares it with the given token, without deserializing anything.
+     *
+     * @param token the expected token
+     * @param input the stream to read from
+     * @return {@code true} if the client presented the expected token
+     * @throws IOException if the token cannot be read
+     */
+    static boolean readToken(byte[] token, InputStream input) throws IOException {
+        byte[] presentedToken = new byte[TOKEN_LENGTH];
+        new DataInputStream(input).readFully(presentedToken);
+        return MessageDigest.isEqual(token, presentedToken);
+    }
+
+    static void write(Serializable message, OutputStream output) throws IOException {
+        ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+        objectOutput.writeInt(VERSION);
+        objectOutput.writeObject(message);
+        objectOutput.flush();
+    }
+
+    static <T> T read(Class<T> messageType, InputStream input) throws IOException {
+        ObjectInputStream objectInput = new RestrictedObjectInputStream(input);
+        int version = objectInput.readInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported shared model cache protocol version %d, expected version %d.", version, VERSION));
+        }
+        try {
+            return messageType.cast(objectInput.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot read shared model cache message.", e);
+        } catch (ClassCastException e) {
+            throw new IOException("Unexpected shared model cache message.", e);
+        }
+    }
+
+    /**
+     * Enumerates the operations the service executes on behalf of its clients.
+     */
+    enum Operation {
+        FETCH_GRADLE_PROJECTS, FETCH_ECLIPSE_PROJECTS, RELOAD_ECLIPSE_PROJECTS
+    }
+
+    /**
+     * Requests a model of the build identified by the fixed request attributes.
+     */
+    static final class Request implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FixedRequestAttributes fixedRequestAttributes;
+        private final Operation operation;
+        private final FetchStrategy fetchStrategy;
+        private final ImmutableList<String> projectPaths;
+
+        Request(FixedRequestAttributes fixedRequestAttributes, Operation operation, FetchStrategy fetchStrategy, List<String> projectPaths) {
+            this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+            this.operation = Preconditions.checkNotNull(operation);
+            this.fetchStrategy = Preconditions.checkNotNull(fetchStrategy);
+            this.projectPaths = ImmutableList.copyOf(projectPaths);
+        }
+
+        FixedRequestAttributes getFixedRequestAttributes() {
+            return this.fixedRequestAttributes;
+        }
+
+        Operation getOperation() {
+            return this.operation;
+        }
+
+        FetchStrategy getFetchStrategy() {
+            return this.fetchStrategy;
+        }
+
+        ImmutableList<String> getProjectPaths() {
+            return this.projectPaths;
+        }
+
+        /**
+         * Returns the request that reads the cached result of this request without executing it again.
+         *
+         * @return the request for the cached result
+         */
+        Request fromCacheOnly() {
+            Operation fetchOperation = this.operation == Operation.RELOAD_ECLIPSE_PROJECTS ? Operation.FETCH_ECLIPSE_PROJECTS : this.operation;
+            return new Request(this.fixedRequestAttributes, fetchOperation, FetchStrategy.FROM_CACHE_ONLY, ImmutableList.<String>of());
+        }
+
+    }
+
+    /**
+     * Answers a request with the snapshot that holds the requested model, with no snapshot if the model is not cached and has not been
+     * requested to be loaded, or with the failure that occurred while loading the model.
+     */
+    static final class Response implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final File snapshotFile;
+        private final Failure failure;
+
+        private Response(File snapshotFile, Failure failure) {
+            this.snapshotFile = snapshotFile;
+            this.failure = failure;
+        }
+
+        File getSnapshotFile() {
+            return this.snapshotFile;
+        }
+
+        Failure getFailure() {
+            return this.failure;
+        }
+
+        static Response snapshot(File snapshotFile) {
+            return new Response(Preconditions.checkNotNull(snapshotFile), null);
+        }
+
+        static Response notCached() {
+            return new Response(null, null);
+        }
+
+        static Response failure(Throwable failure) {
+            return new Response(null, Failure.from(failure));
+        }
+
+    }
+
+    /**
+     * Describes a failure that occurred in the service through the class name, the message, and the stack trace of the failure and of
+     * its causes. The failure itself is not serialized, since its classes are not part of the protocol.
+     */
+    static final class Failure implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int MAX_CAUSES = 16;
+
+        private static final String[] INSTANTIABLE_CLASS_NAME_PREFIXES = {
+                "java.",
+                "org.gradle.",
+                "com.gradleware.tooling."
+        };
+
+        private final String className;
+        private final String message;
+        private final StackTraceElement[] stackTrace;
+        private final Failure cause;
+
+        private Failure(String className, String message, StackTraceElement[] stackTrace, Failure cause) {
+            this.className = className;
+            this.message = message;
+            this.stackTrace = stackTrace;
+            this.cause = cause;
+        }
+
+        String getClassName() {
+            return this.className;
+        }
+
+        String getMessage() {
+            return this.message;
+        }
+
+        /**
+         * Creates an exception equivalent to the failure that occurred in the service. The exception and its causes are of the same
+         * classes as the original ones where these classes can be instantiated with a message and a cause, the other ones are
+         * represented by a {@link RemoteFailureException} that carries the original class name. The stack trace of the exception
+         * starts with the stack trace of the failure in the service, followed by the stack trace of the calling thread. Checked
+         * failures are wrapped in a {@code GradleConnectionException}.
+         *
+         * @return the exception to throw on the client
+         */
+        RuntimeException toException() {
+            Throwable exception = toThrowable();
+            if (exception instanceof RuntimeException) {
+                exception.setStackTrace(ObjectArrays.concat(this.stackTrace, new Throwable().getStackTrace(), StackTraceElement.class));
+                return (RuntimeException) exception;
+            }
+            // checked failures are wrapped, the wrapper carries the stack trace of the calling thread
+            return new GradleConnectionException(this.message, exception);
+        }
+
+        private Throwable toThrowable() {
+            Throwable cause = this.cause != null ? this.cause.toThrowable() : null;
+            Throwable throwable = instantiate(cause);
+            throwable.setStackTrace(this.stackTrace);
+            return throwable;
+        }
+
+        private Throwable instantiate(Throwable cause) {
+            for (String prefix : INSTANTIABLE_CLASS_NAME_PREFIXES) {
+                if (this.className.startsWith(prefix)) {
+                    try {
+                        Class<?> type = Class.forName(this.className, false, Failure.class.getClassLoader());
+                        if (Throwable.class.isAssignableFrom(type)) {
+                            return (Throwable) type.getConstructor(String.class, Throwable.class).newInstance(this.message, cause);
+                        }
+                    } catch (ReflectiveOperationException e) {
+                        // the class cannot be instantiated with a message and a cause
+                    } catch (LinkageError e) {
+                        // the class cannot be loaded
+                    }
+                    break;
+                }
+            }
+            return new RemoteFailureException(this.className, this.message, cause);
+        }
+
+        static Failure from(Throwable failure) {
+            return from(Preconditions.checkNotNull(failure), 0);
+        }
+
+        private static Failure from(Throwable failure, int depth) {
+            Throwable cause = failure.getCause();
+            Failure remoteCause = cause != null && cause != failure && depth < MAX_CAUSES ? from(cause, depth + 1) : null;
+            return new Failure(failure.getClass().getName(), failure.getMessage(), failure.getStackTrace(), remoteCause);
+        }
+
+    }
+
+    /**
+     * Represents a failure of the service whose class cannot be instantiated on the client.
+     */
+    static final class RemoteFailureException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        RemoteFailureException(String className, String message, Throwable cause) {
+            super(message, cause);
+            this.className = className;
+        }
+
+        String getClassName() {
+            return this.className;
+        }
+
+        @Override
+        public String toString() {
+            String message = getLocalizedMessage();
+            return message != null ? this.className + ": " + message : this.className;
+        }
+
+    }
+
+    /**
+     * Object input stream that only resolves the classes that make up the messages of the protocol.
+     */
+    private static final class RestrictedObjectInputStream extends ObjectInputStream {
+
+        private RestrictedObjectInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            String className = descriptor.getName();
+            String componentClassName = className.startsWith("[L") ? className.substring(2) : className;
+            for (String prefix : ALLOWED_CLASS_NAME_PREFIXES) {
+                if (componentClassName.startsWith(prefix)) {
+                    return super.resolveClass(descriptor);
+                }
+            }
+            throw new InvalidClassException(className, "Class is not part of the shared model cache protocol.");
+        }
+
+    }
+
+}
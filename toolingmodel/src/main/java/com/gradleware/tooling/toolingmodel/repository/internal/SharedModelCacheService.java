@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.tooling.GradleConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local service that fetches the models of a build on behalf of several {@link SharedModelRepository} instances, typically running in
+ * different processes on the same machine. The service owns one {@link DefaultModelRepository} per set of {@link FixedRequestAttributes}
+ * and executes the requests of its clients against it, such that each build is configured once per machine rather than once per tool.
+ * <p/>
+ * The service listens on a port of the loopback interface and only accepts requests that present the token stored in the token file of
+ * the user that runs the service, see {@link SharedModelCacheProtocol}. The fetched projects are written to a {@link ModelSnapshot} in the given
+ * snapshot directory, and only the location of the snapshot is sent back to the client. A snapshot is written once per cached model and
+ * the last two snapshots of each model are kept, such that a client that has just been answered can still open its snapshot while the
+ * model is reloaded by another client.
+ * <p/>
+ * The requests are executed with default transient request attributes, the listeners, streams, and cancellation token of a client are
+ * not forwarded to the service.
+ *
+ * @author Etienne Studer
+ */
+public final class SharedModelCacheService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedModelCacheService.class);
+
+    private static final int TOKEN_TIMEOUT_MILLIS = 10000;
+
+    private final DefaultModelRepositoryProvider modelRepositoryProvider;
+    private final File snapshotDirectory;
+    private final ServerSocket serverSocket;
+    private final byte[] token;
+    private final ExecutorService executor;
+    private final ConcurrentMap<List<Object>, SnapshotEntry> snapshots;
+    private final AtomicLong snapshotCounter;
+
+    private SharedModelCacheService(ToolingClient toolingClient, File snapshotDirectory, ServerSocket serverSocket, byte[] token) {
+        this.modelRepositoryProvider = new DefaultModelRepositoryProvider(toolingClient);
+        this.snapshotDirectory = snapshotDirectory;
+        this.serverSocket = serverSocket;
+        this.token = token;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("shared-model-cache-%d").setDaemon(true).build());
+        this.snapshots = Maps.newConcurrentMap();
+        this.snapshotCounter = new AtomicLong();
+    }
+
+    /**
+     * Returns the port on which this service accepts requests.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting requests, aborts the requests that are currently executed, and deletes the snapshots written by this service.
+     * Clients that have already opened a snapshot can continue to query it.
+     */
+    public void stop() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            LOG.debug("Cannot close shared model cache service socket.", e);
+        }
+        this.executor.shutdownNow();
+        for (SnapshotEntry snapshot : this.snapshots.values()) {
+            snapshot.delete();
+        }
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (SocketException e) {
+                // the socket has been closed by stop()
+                return;
+            } catch (IOException e) {
+                LOG.warn("Cannot accept shared model cache request.", e);
+                continue;
+            }
+            try {
+                this.executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the service has been stopped after the connection was accepted, the client sees the connection closed
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOG.debug("Cannot close shared model cache connection.", e);
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            try {
+                // close connections of clients that do not know the token before anything is deserialized
+                InputStream input = new BufferedInputStream(socket.getInputStream());
+                socket.setSoTimeout(TOKEN_TIMEOUT_MILLIS);
+                if (!SharedModelCacheProtocol.readToken(this.token, input)) {
+                    LOG.warn("Rejected shared model cache request from {} with invalid token.", socket.getRemoteSocketAddress());
+                    return;
+                }
+                socket.setSoTimeout(0);
+
+                SharedModelCacheProtocol.Request request = SharedModelCacheProtocol.read(SharedModelCacheProtocol.Request.class, input);
+                SharedModelCacheProtocol.Response response;
+                try {
+                    response = execute(request);
+                } catch (RuntimeException e) {
+                    LOG.debug("Shared model cache request failed.", e);
+                    response = SharedModelCacheProtocol.Response.failure(e);
+                }
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                SharedModelCacheProtocol.write(response, output);
+                output.flush();
+            } finally {
+                socket.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot handle shared model cache request.", e);
+        }
+    }
+
+    private SharedModelCacheProtocol.Response execute(SharedModelCacheProtocol.Request request) {
+        FixedRequestAttributes fixedRequestAttributes = request.getFixedRequestAttributes();
+        ModelRepository modelRepository = this.modelRepositoryProvider.getModelRepository(fixedRequestAttributes);
+        TransientRequestAttributes transientRequestAttributes = createTransientRequestAttributes();
+
+        switch (request.getOperation()) {
+            case FETCH_GRADLE_PROJECTS:
+                Set<OmniGradleProject> gradleProjects = modelRepository.fetchGradleProjects(transientRequestAttributes, request.getFetchStrategy());
+                return toResponse(getSnapshotEntry(fixedRequestAttributes, OmniGradleProject.class), gradleProjects, ImmutableList.<OmniEclipseProject>of(), gradleProjects);
+            case FETCH_ECLIPSE_PROJECTS:
+                Set<OmniEclipseProject> eclipseProjects = modelRepository.fetchEclipseGradleProjects(transientRequestAttributes, request.getFetchStrategy());
+                return toResponse(getSnapshotEntry(fixedRequestAttributes, OmniEclipseProject.class), eclipseProjects, eclipseProjects, ImmutableList.<OmniGradleProject>of());
+            case RELOAD_ECLIPSE_PROJECTS:
+                ImmutableSet.Builder<Path> projectPaths = ImmutableSet.builder();
+                for (String projectPath : request.getProjectPaths()) {
+                    projectPaths.add(Path.from(projectPath));
+                }
+                Set<OmniEclipseProject> reloadedProjects = modelRepository.reloadEclipseGradleProjects(projectPaths.build(), transientRequestAttributes);
+                return toResponse(getSnapshotEntry(fixedRequestAttributes, OmniEclipseProject.class), reloadedProjects, reloadedProjects, ImmutableList.<OmniGradleProject>of());
+            default:
+                throw new IllegalStateException("Unsupported operation: " + request.getOperation());
+        }
+    }
+
+    private static SharedModelCacheProtocol.Response toResponse(SnapshotEntry snapshot, Set<?> model, Collection<? extends OmniEclipseProject> eclipseProjects,
+                                                                Collection<? extends OmniGradleProject> gradleProjects) {
+        if (model == null) {
+            return SharedModelCacheProtocol.Response.notCached();
+        }
+        return SharedModelCacheProtocol.Response.snapshot(snapshot.update(model, eclipseProjects, gradleProjects));
+    }
+
+    private SnapshotEntry getSnapshotEntry(FixedRequestAttributes fixedRequestAttributes, Class<?> modelType) {
+        List<Object> key = Arrays.<Object>asList(fixedRequestAttributes, modelType);
+        SnapshotEntry snapshot = this.snapshots.get(key);
+        if (snapshot == null) {
+            SnapshotEntry newSnapshot = new SnapshotEntry();
+            snapshot = this.snapshots.putIfAbsent(key, newSnapshot);
+            if (snapshot == null) {
+                snapshot = newSnapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    private static TransientRequestAttributes createTransientRequestAttributes() {
+        return new TransientRequestAttributes(true, null, null, null, ImmutableList.of(), ImmutableList.of(), GradleConnector.newCancellationTokenSource().token());
+    }
+
+    /**
+     * Starts a new service that accepts requests on the given port of the loopback interface. Clients must present the token stored in
+     * the default token file of the current user.
+     *
+     * @param toolingClient the tooling client through which the models are fetched
+     * @param snapshotDirectory the directory to which the snapshots of the fetched models are written
+     * @param port the port on which to accept requests, or 0 to pick any free port
+     * @return the started service
+     * @throws UncheckedIOException if the token cannot be loaded or the service cannot listen on the given port
+     */
+    public static SharedModelCacheService start(ToolingClient toolingClient, File snapshotDirectory, int port) {
+        return start(toolingClient, snapshotDirectory, SharedModelCacheProtocol.getDefaultTokenFile(), port);
+    }
+
+    /**
+     * Starts a new service that accepts requests on the given port of the loopback interface. Clients must present the token stored in
+     * the given token file, which is created if it does not exist yet and which must only be accessible by the current user.
+     *
+     * @param toolingClient the tooling client through which the models are fetched
+     * @param snapshotDirectory the directory to which the snapshots of the fetched models are written
+     * @param tokenFile the file holding the token that clients must present
+     * @param port the port on which to accept requests, or 0 to pick any free port
+     * @return the started service
+     * @throws UncheckedIOException if the token cannot be loaded or the service cannot listen on the given port
+     */
+    public static SharedModelCacheService start(ToolingClient toolingClient, File snapshotDirectory, File tokenFile, int port) {
+        Preconditions.checkNotNull(toolingClient);
+        Preconditions.checkNotNull(snapshotDirectory);
+        Preconditions.checkNotNull(tokenFile);
+        Preconditions.checkArgument(snapshotDirectory.isDirectory(), "Snapshot directory %s does not exist.", snapshotDirectory);
+
+        byte[] token;
+        try {
+            token = SharedModelCacheProtocol.loadToken(tokenFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot load shared model cache token from %s.", tokenFile), e);
+        }
+
+        ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot start shared model cache service on port %d.", port), e);
+        }
+
+        final SharedModelCacheService service = new SharedModelCacheService(toolingClient, snapshotDirectory.getAbsoluteFile(), serverSocket, token);
+        service.executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                service.accept();
+            }
+        });
+        return service;
+    }
+
+    /**
+     * Holds the snapshots written for the cached model of one build. A new snapshot is only written when the cached model has been
+     * replaced since the last snapshot was written.
+     */
+    private final class SnapshotEntry {
+
+        private Object model;
+        private File snapshotFile;
+        private File previousSnapshotFile;
+
+        private synchronized File update(Object model, Collection<? extends OmniEclipseProject> eclipseProjects, Collection<? extends OmniGradleProject> gradleProjects) {
+            if (model != this.model) {
+                File newSnapshotFile = new File(SharedModelCacheService.this.snapshotDirectory, SharedModelCacheService.this.snapshotCounter.incrementAndGet() + ".snapshot");
+                ModelSnapshot.write(eclipseProjects, gradleProjects, newSnapshotFile);
+                deleteFile(this.previousSnapshotFile);
+                this.previousSnapshotFile = this.snapshotFile;
+                this.snapshotFile = newSnapshotFile;
+                this.model = model;
+            }
+            return this.snapshotFile;
+        }
+
+        private synchronized void delete() {
+            deleteFile(this.previousSnapshotFile);
+            deleteFile(this.snapshotFile);
+            this.previousSnapshotFile = null;
+            this.snapshotFile = null;
+            this.model = null;
+        }
+
+        private void deleteFile(File file) {
+            if (file != null && !file.delete()) {
+                LOG.debug("Cannot delete model snapshot {}.", file);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
+import com.gradleware.tooling.toolingmodel.OmniEclipseDependencyIndex;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.EclipseProjectUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import com.gradleware.tooling.toolingmodel.util.Pair;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Repository for Gradle build models that obtains the Gradle projects and Eclipse projects from a {@link SharedModelCacheService}. The
+ * fetch strategies apply to the models cached by the service, such that a model loaded on behalf of one client is returned from the
+ * cache to all other clients of the same build. The projects are read from the snapshot written by the service.
+ * <p/>
+ * The build environment and the Gradle build do not require the projects of the build to be configured and are fetched by this
+ * repository directly. An update event is broadcast whenever this repository receives a model it has not seen before, regardless of
+ * which client caused the service to load it.
+ *
+ * @author Etienne Studer
+ */
+final class SharedModelRepository implements ModelRepository {
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final int port;
+    private final byte[] token;
+    private final EventBus eventBus;
+    private final DefaultModelRepository localModelRepository;
+    private final AtomicReference<Pair<File, Set<OmniGradleProject>>> gradleProjects;
+    private final AtomicReference<Pair<File, Set<OmniEclipseProject>>> eclipseProjects;
+    private final AtomicReference<Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>> eclipseDependencyIndex;
+
+    SharedModelRepository(FixedRequestAttributes fixedRequestAttributes, int port, byte[] token, ToolingClient toolingClient, EventBus eventBus) {
+        this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.port = port;
+        this.token = Preconditions.checkNotNull(token);
+        this.eventBus = Preconditions.checkNotNull(eventBus);
+        this.localModelRepository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, eventBus);
+        this.gradleProjects = new AtomicReference<Pair<File, Set<OmniGradleProject>>>();
+        this.eclipseProjects = new AtomicReference<Pair<File, Set<OmniEclipseProject>>>();
+        this.eclipseDependencyIndex = new AtomicReference<Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>>();
+    }
+
+    @Override
+    public void register(Object listener) {
+        this.localModelRepository.register(listener);
+    }
+
+    @Override
+    public void unregister(Object listener) {
+        this.localModelRepository.unregister(listener);
+    }
+
+    @Override
+    public OmniBuildEnvironment fetchBuildEnvironment(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        return this.localModelRepository.fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+    }
+
+    @Override
+    public OmniGradleBuild fetchGradleBuild(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        return this.localModelRepository.fetchGradleBuild(transientRequestAttributes, fetchStrategy);
+    }
+
+    @Override
+    public Set<OmniGradleProject> fetchGradleProjects(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        SharedModelCacheProtocol.Request request = new SharedModelCacheProtocol.Request(this.fixedRequestAttributes,
+                SharedModelCacheProtocol.Operation.FETCH_GRADLE_PROJECTS, fetchStrategy, ImmutableList.<String>of());
+        Pair<File, Set<OmniGradleProject>> previousProjects = this.gradleProjects.get();
+        Set<OmniGradleProject> projects = receiveProjects(request, this.gradleProjects, GradleProjectsReader.INSTANCE);
+        if (projects != null && (previousProjects == null || previousProjects.getSecond() != projects)) {
+            this.eventBus.post(new GradleProjectUpdateEvent(projects));
+        }
+        return projects;
+    }
+
+    @Override
+    public Set<OmniEclipseProject> fetchEclipseGradleProjects(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        SharedModelCacheProtocol.Request request = new SharedModelCacheProtocol.Request(this.fixedRequestAttributes,
+                SharedModelCacheProtocol.Operation.FETCH_ECLIPSE_PROJECTS, fetchStrategy, ImmutableList.<String>of());
+        Pair<File, Set<OmniEclipseProject>> previousProjects = this.eclipseProjects.get();
+        Set<OmniEclipseProject> projects = receiveProjects(request, this.eclipseProjects, EclipseProjectsReader.INSTANCE);
+        if (projects != null && (previousProjects == null || previousProjects.getSecond() != projects)) {
+            this.eventBus.post(new EclipseProjectUpdateEvent(projects));
+        }
+        return projects;
+    }
+
+    @Override
+    public OmniEclipseDependencyIndex fetchEclipseDependencyIndex(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Set<OmniEclipseProject> projects = fetchEclipseGradleProjects(transientRequestAttributes, fetchStrategy);
+        if (projects == null) {
+            return null;
+        }
+
+        // the index is kept for the set of projects it has been built from, concurrent callers might build the same index twice
+        Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex> indexedProjects = this.eclipseDependencyIndex.get();
+        if (indexedProjects == null || indexedProjects.getFirst() != projects) {
+            indexedProjects = new Pair<Set<OmniEclipseProject>, OmniEclipseDependencyIndex>(projects, DefaultOmniEclipseDependencyIndex.from(projects));
+            this.eclipseDependencyIndex.set(indexedProjects);
+        }
+        return indexedProjects.getSecond();
+    }
+
+    /*
+     * the service reloads the projects in its cache, only the projects with the given paths are broadcast if projects were received before
+     */
+    @Override
+    public Set<OmniEclipseProject> reloadEclipseGradleProjects(Set<Path> projectPaths, TransientRequestAttributes transientRequestAttributes) {
+        Preconditions.checkNotNull(projectPaths);
+        Preconditions.checkNotNull(transientRequestAttributes);
+
+        ImmutableList.Builder<String> paths = ImmutableList.builder();
+        for (Path projectPath : projectPaths) {
+            paths.add(projectPath.getPath());
+        }
+        SharedModelCacheProtocol.Request request = new SharedModelCacheProtocol.Request(this.fixedRequestAttributes,
+                SharedModelCacheProtocol.Operation.RELOAD_ECLIPSE_PROJECTS, FetchStrategy.LOAD_IF_NOT_CACHED, paths.build());
+        Pair<File, Set<OmniEclipseProject>> previousProjects = this.eclipseProjects.get();
+        Set<OmniEclipseProject> projects = receiveProjects(request, this.eclipseProjects, EclipseProjectsReader.INSTANCE);
+        if (previousProjects == null) {
+            this.eventBus.post(new EclipseProjectUpdateEvent(projects));
+        } else if (previousProjects.getSecond() != projects) {
+            ImmutableSet.Builder<OmniEclipseProject> reloadedProjects = ImmutableSet.builder();
+            for (OmniEclipseProject project : projects) {
+                if (projectPaths.contains(project.getPath())) {
+                    reloadedProjects.add(project);
+                }
+            }
+            this.eventBus.post(new EclipseProjectUpdateEvent(reloadedProjects.build()));
+        }
+        return projects;
+    }
+
+    /*
+     * returns the projects received before if the service answers with the same snapshot, such that the projects keep their identity
+     * as long as the model cached by the service is not replaced
+     */
+    private <T> Set<T> receiveProjects(SharedModelCacheProtocol.Request request, AtomicReference<Pair<File, Set<T>>> receivedProjects, Function<ModelSnapshot, Set<T>> projectsReader) {
+        File snapshotFile = send(request).getSnapshotFile();
+        if (snapshotFile == null) {
+            return null;
+        }
+
+        Pair<File, Set<T>> previousProjects = receivedProjects.get();
+        if (previousProjects != null && previousProjects.getFirst().equals(snapshotFile)) {
+            return previousProjects.getSecond();
+        }
+
+        ModelSnapshot snapshot;
+        try {
+            snapshot = ModelSnapshot.open(snapshotFile);
+        } catch (UncheckedIOException e) {
+            // the snapshot has been replaced twice since the response was sent, read the snapshot of the now cached model instead
+            if (request.getFetchStrategy() == FetchStrategy.FROM_CACHE_ONLY) {
+                throw e;
+            }
+            return receiveProjects(request.fromCacheOnly(), receivedProjects, projectsReader);
+        }
+
+        Set<T> projects = projectsReader.apply(snapshot);
+        receivedProjects.set(new Pair<File, Set<T>>(snapshotFile, projects));
+        return projects;
+    }
+
+    private SharedModelCacheProtocol.Response send(SharedModelCacheProtocol.Request request) {
+        SharedModelCacheProtocol.Response response;
+        try {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port);
+            try {
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                SharedModelCacheProtocol.writeToken(this.token, output);
+                SharedModelCacheProtocol.write(request, output);
+                output.flush();
+                response = SharedModelCacheProtocol.read(SharedModelCacheProtocol.Response.class, new BufferedInputStream(socket.getInputStream()));
+            } finally {
+                socket.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot reach shared model cache service on port %d.", this.port), e);
+        }
+
+        if (response.getFailure() != null) {
+            // rethrow an equivalent of the failure that occurred in the service, e.g. a cancellation or a build failure
+            throw response.getFailure().toException();
+        }
+        return response;
+    }
+
+    /**
+     * Reads the Gradle projects of a snapshot.
+     */
+    private enum GradleProjectsReader implements Function<ModelSnapshot, Set<OmniGradleProject>> {
+
+        INSTANCE;
+
+        @Override
+        public Set<OmniGradleProject> apply(ModelSnapshot snapshot) {
+            return snapshot.getGradleProjects();
+        }
+
+    }
+
+    /**
+     * Reads the Eclipse projects of a snapshot.
+     */
+    private enum EclipseProjectsReader implements Function<ModelSnapshot, Set<OmniEclipseProject>> {
+
+        INSTANCE;
+
+        @Override
+        public Set<OmniEclipseProject> apply(ModelSnapshot snapshot) {
+            return snapshot.getEclipseProjects();
+        }
+
+    }
+
+}
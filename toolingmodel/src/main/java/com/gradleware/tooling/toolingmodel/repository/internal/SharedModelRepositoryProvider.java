@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryProvider;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.Factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Implementation of the {@code ModelRepositoryProvider} API that provides repositories backed by a {@link SharedModelCacheService}.
+ *
+ * @author Etienne Studer
+ */
+public final class SharedModelRepositoryProvider implements ModelRepositoryProvider {
+
+    private final ToolingClient toolingClient;
+    private final int port;
+    private final byte[] token;
+    private final Factory<EventBus> eventBusFactory;
+    private final Map<FixedRequestAttributes, ModelRepository> modelRepositories;
+
+    public SharedModelRepositoryProvider(ToolingClient toolingClient, int port) {
+        this(toolingClient, port, DefaultEventBusFactory.INSTANCE);
+    }
+
+    public SharedModelRepositoryProvider(ToolingClient toolingClient, int port, Factory<EventBus> eventBusFactory) {
+        this(toolingClient, port, SharedModelCacheProtocol.getDefaultTokenFile(), eventBusFactory);
+    }
+
+    public SharedModelRepositoryProvider(ToolingClient toolingClient, int port, File tokenFile) {
+        this(toolingClient, port, tokenFile, DefaultEventBusFactory.INSTANCE);
+    }
+
+    public SharedModelRepositoryProvider(ToolingClient toolingClient, int port, File tokenFile, Factory<EventBus> eventBusFactory) {
+        Preconditions.checkArgument(port > 0, "Invalid port %s.", port);
+        Preconditions.checkNotNull(tokenFile);
+        this.toolingClient = Preconditions.checkNotNull(toolingClient);
+        this.port = port;
+        try {
+            this.token = SharedModelCacheProtocol.loadToken(tokenFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot load shared model cache token from %s.", tokenFile), e);
+        }
+        this.eventBusFactory = Preconditions.checkNotNull(eventBusFactory);
+        this.modelRepositories = Maps.newHashMap();
+    }
+
+    @Override
+    public ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes) {
+        Preconditions.checkNotNull(fixedRequestAttributes);
+        return getOrCreateModelRepository(fixedRequestAttributes);
+    }
+
+    private ModelRepository getOrCreateModelRepository(FixedRequestAttributes fixedRequestAttributes) {
+        ModelRepository modelRepository;
+        synchronized (this.modelRepositories) {
+            if (!this.modelRepositories.containsKey(fixedRequestAttributes)) {
+                modelRepository = new SharedModelRepository(fixedRequestAttributes, this.port, this.token, this.toolingClient, this.eventBusFactory.create());
+                this.modelRepositories.put(fixedRequestAttributes, modelRepository);
+            } else {
+                modelRepository = this.modelRepositories.get(fixedRequestAttributes);
+            }
+        }
+        return modelRepository;
+    }
+
+    /**
+     * Singleton factory to create {@code EventBus} instances.
+     */
+    private enum DefaultEventBusFactory implements Factory<EventBus> {
+
+        INSTANCE;
+
+        @Override
+        public EventBus create() {
+            return new EventBus();
+        }
+
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.gradleware.tooling.toolingmodel.HierarchicalModel;
+import org.gradle.api.specs.Spec;
+
+import java.util.Arrays;
+
+/**
+ * Base class for the projects of a {@link ModelSnapshot}. The hierarchy of a project is read from the structural part of its record in
+ * the snapshot without decoding the attributes of any project.
+ * <p/>
+ * The projects of a hierarchy are stored in the order of the {@code getAll()} method of their root project, such that sorting a set of
+ * projects by their index in the snapshot yields the same order as the original hierarchy.
+ *
+ * @param <T> the model type
+ * @author Etienne Studer
+ */
+abstract class SnapshotHierarchicalModel<T extends HierarchicalModel<T>> {
+
+    final ModelSnapshot snapshot;
+    final int index;
+
+    SnapshotHierarchicalModel(ModelSnapshot snapshot, int index) {
+        this.snapshot = snapshot;
+        this.index = index;
+    }
+
+    abstract T getProject(int index);
+
+    abstract int getRecord(int index);
+
+    public T getRoot() {
+        int root = this.index;
+        int parent = this.snapshot.getParent(getRecord(root));
+        while (parent >= 0) {
+            root = parent;
+            parent = this.snapshot.getParent(getRecord(root));
+        }
+        return getProject(root);
+    }
+
+    public T getParent() {
+        int parent = this.snapshot.getParent(getRecord(this.index));
+        return parent >= 0 ? getProject(parent) : null;
+    }
+
+    public ImmutableList<T> getChildren() {
+        return toProjects(this.snapshot.getChildren(getRecord(this.index)));
+    }
+
+    public ImmutableList<T> getAll() {
+        int[] all = new int[16];
+        all[0] = this.index;
+        int count = 1;
+        for (int next = 0; next < count; next++) {
+            for (int child : this.snapshot.getChildren(getRecord(all[next]))) {
+                if (count == all.length) {
+                    all = Arrays.copyOf(all, 2 * count);
+                }
+                all[count++] = child;
+            }
+        }
+        all = Arrays.copyOf(all, count);
+        Arrays.sort(all);
+        return toProjects(all);
+    }
+
+    public ImmutableList<T> filter(Spec<? super T> predicate) {
+        ImmutableList.Builder<T> matching = ImmutableList.builder();
+        for (T project : getAll()) {
+            if (predicate.isSatisfiedBy(project)) {
+                matching.add(project);
+            }
+        }
+        return matching.build();
+    }
+
+    public Optional<T> tryFind(Spec<? super T> predicate) {
+        for (T project : getAll()) {
+            if (predicate.isSatisfiedBy(project)) {
+                return Optional.of(project);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private ImmutableList<T> toProjects(int[] indices) {
+        ImmutableList.Builder<T> projects = ImmutableList.builder();
+        for (int index : indices) {
+            projects.add(getProject(index));
+        }
+        return projects.build();
+    }
+
+}
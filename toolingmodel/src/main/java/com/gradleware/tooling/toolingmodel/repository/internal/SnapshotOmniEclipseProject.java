@@ -0,0 +1,395 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspathContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
+import com.gradleware.tooling.toolingmodel.OmniEclipseOutputLocation;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature;
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniJavaRuntime;
+import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings;
+import com.gradleware.tooling.toolingmodel.OmniJavaVersion;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the {@link OmniEclipseProject} interface that decodes its attributes from a {@link ModelSnapshot} on first access.
+ *
+ * @author Etienne Studer
+ */
+final class SnapshotOmniEclipseProject extends SnapshotHierarchicalModel<OmniEclipseProject> implements OmniEclipseProject {
+
+    private volatile Attributes attributes;
+
+    SnapshotOmniEclipseProject(ModelSnapshot snapshot, int index) {
+        super(snapshot, index);
+    }
+
+    @Override
+    OmniEclipseProject getProject(int index) {
+        return this.snapshot.getEclipseProject(index);
+    }
+
+    @Override
+    int getRecord(int index) {
+        return this.snapshot.getEclipseProjectRecord(index);
+    }
+
+    private Attributes getAttributes() {
+        Attributes attributes = this.attributes;
+        if (attributes == null) {
+            // decoding the same record concurrently yields equal attributes, either of which can be kept
+            attributes = new Attributes(this.snapshot.decodeAttributes(getRecord(this.index)));
+            this.attributes = attributes;
+        }
+        return attributes;
+    }
+
+    @Override
+    public String getName() {
+        return getAttributes().name;
+    }
+
+    @Override
+    public String getDescription() {
+        return getAttributes().description;
+    }
+
+    @Override
+    public Path getPath() {
+        return getAttributes().path;
+    }
+
+    @Override
+    public File getProjectDirectory() {
+        return getAttributes().projectDirectory;
+    }
+
+    @Override
+    public ProjectIdentifier getProjectIdentifier() {
+        return getAttributes().projectIdentifier;
+    }
+
+    @Override
+    public OmniGradleProject getGradleProject() {
+        return getAttributes().gradleProject;
+    }
+
+    @Override
+    public ImmutableList<OmniEclipseProjectDependency> getProjectDependencies() {
+        return getAttributes().projectDependencies;
+    }
+
+    @Override
+    public ImmutableList<OmniExternalDependency> getExternalDependencies() {
+        return getAttributes().externalDependencies;
+    }
+
+    @Override
+    public ImmutableList<OmniEclipseLinkedResource> getLinkedResources() {
+        return getAttributes().linkedResources;
+    }
+
+    @Override
+    public ImmutableList<OmniEclipseSourceDirectory> getSourceDirectories() {
+        return getAttributes().sourceDirectories;
+    }
+
+    @Override
+    public Optional<List<OmniEclipseProjectNature>> getProjectNatures() {
+        return getAttributes().projectNatures;
+    }
+
+    @Override
+    public Optional<List<OmniEclipseBuildCommand>> getBuildCommands() {
+        return getAttributes().buildCommands;
+    }
+
+    @Override
+    public Optional<OmniJavaSourceSettings> getJavaSourceSettings() {
+        return getAttributes().javaSourceSettings;
+    }
+
+    @Override
+    public Optional<List<OmniEclipseClasspathContainer>> getClasspathContainers() {
+        return getAttributes().classpathContainers;
+    }
+
+    @Override
+    public Optional<OmniEclipseOutputLocation> getOutputLocation() {
+        return getAttributes().outputLocation;
+    }
+
+    static void writeAttributes(OmniEclipseProject project, ModelSnapshot.Encoder encoder) throws IOException {
+        encoder.writeString(project.getName());
+        encoder.writeString(project.getDescription());
+        encoder.writeString(project.getPath().getPath());
+        encoder.writeFile(project.getProjectDirectory());
+        encoder.writeProjectIdentifier(project.getProjectIdentifier());
+        encoder.writeGradleProjectReference(project.getGradleProject());
+
+        List<OmniEclipseProjectDependency> projectDependencies = project.getProjectDependencies();
+        encoder.writeInt(projectDependencies.size());
+        for (OmniEclipseProjectDependency projectDependency : projectDependencies) {
+            encoder.writeString(projectDependency.getPath());
+            encoder.writeBoolean(projectDependency.isExported());
+            encoder.writeClasspathEntry(projectDependency);
+        }
+
+        List<OmniExternalDependency> externalDependencies = project.getExternalDependencies();
+        encoder.writeInt(externalDependencies.size());
+        for (OmniExternalDependency externalDependency : externalDependencies) {
+            encoder.writeFile(externalDependency.getFile());
+            encoder.writeFile(externalDependency.getSource());
+            encoder.writeFile(externalDependency.getJavadoc());
+            Maybe<OmniGradleModuleVersion> moduleVersion = externalDependency.getGradleModuleVersion();
+            encoder.writeBoolean(moduleVersion.isPresent());
+            if (moduleVersion.isPresent()) {
+                OmniGradleModuleVersion version = moduleVersion.get();
+                encoder.writeBoolean(version != null);
+                if (version != null) {
+                    encoder.writeString(version.getGroup());
+                    encoder.writeString(version.getName());
+                    encoder.writeString(version.getVersion());
+                }
+            }
+            encoder.writeBoolean(externalDependency.isExported());
+            encoder.writeClasspathEntry(externalDependency);
+        }
+
+        List<OmniEclipseLinkedResource> linkedResources = project.getLinkedResources();
+        encoder.writeInt(linkedResources.size());
+        for (OmniEclipseLinkedResource linkedResource : linkedResources) {
+            encoder.writeString(linkedResource.getName());
+            encoder.writeString(linkedResource.getType());
+            encoder.writeString(linkedResource.getLocation());
+            encoder.writeString(linkedResource.getLocationUri());
+        }
+
+        List<OmniEclipseSourceDirectory> sourceDirectories = project.getSourceDirectories();
+        encoder.writeInt(sourceDirectories.size());
+        for (OmniEclipseSourceDirectory sourceDirectory : sourceDirectories) {
+            encoder.writeFile(sourceDirectory.getDirectory());
+            encoder.writeString(sourceDirectory.getPath());
+            encoder.writeOptionalStrings(sourceDirectory.getExcludes());
+            encoder.writeOptionalStrings(sourceDirectory.getIncludes());
+            encoder.writeMaybeString(sourceDirectory.getOutput());
+            encoder.writeClasspathEntry(sourceDirectory);
+        }
+
+        Optional<List<OmniEclipseProjectNature>> projectNatures = project.getProjectNatures();
+        encoder.writeBoolean(projectNatures.isPresent());
+        if (projectNatures.isPresent()) {
+            encoder.writeInt(projectNatures.get().size());
+            for (OmniEclipseProjectNature projectNature : projectNatures.get()) {
+                encoder.writeString(projectNature.getId());
+            }
+        }
+
+        Optional<List<OmniEclipseBuildCommand>> buildCommands = project.getBuildCommands();
+        encoder.writeBoolean(buildCommands.isPresent());
+        if (buildCommands.isPresent()) {
+            encoder.writeInt(buildCommands.get().size());
+            for (OmniEclipseBuildCommand buildCommand : buildCommands.get()) {
+                encoder.writeString(buildCommand.getName());
+                encoder.writeInt(buildCommand.getArguments().size());
+                for (Map.Entry<String, String> argument : buildCommand.getArguments().entrySet()) {
+                    encoder.writeString(argument.getKey());
+                    encoder.writeString(argument.getValue());
+                }
+            }
+        }
+
+        Optional<OmniJavaSourceSettings> javaSourceSettings = project.getJavaSourceSettings();
+        encoder.writeBoolean(javaSourceSettings.isPresent());
+        if (javaSourceSettings.isPresent()) {
+            OmniJavaSourceSettings settings = javaSourceSettings.get();
+            encoder.writeString(settings.getSourceLanguageLevel().getName());
+            encoder.writeString(settings.getTargetBytecodeLevel().getName());
+            encoder.writeString(settings.getTargetRuntime().getJavaVersion().getName());
+            encoder.writeFile(settings.getTargetRuntime().getHomeDirectory());
+        }
+
+        Optional<List<OmniEclipseClasspathContainer>> classpathContainers = project.getClasspathContainers();
+        encoder.writeBoolean(classpathContainers.isPresent());
+        if (classpathContainers.isPresent()) {
+            encoder.writeInt(classpathContainers.get().size());
+            for (OmniEclipseClasspathContainer classpathContainer : classpathContainers.get()) {
+                encoder.writeString(classpathContainer.getPath());
+                encoder.writeBoolean(classpathContainer.isExported());
+                encoder.writeClasspathEntry(classpathContainer);
+            }
+        }
+
+        Optional<OmniEclipseOutputLocation> outputLocation = project.getOutputLocation();
+        encoder.writeBoolean(outputLocation.isPresent());
+        if (outputLocation.isPresent()) {
+            encoder.writeString(outputLocation.get().getPath());
+        }
+    }
+
+    /**
+     * The decoded attributes of a project, in the order in which they are stored in the snapshot.
+     */
+    private static final class Attributes {
+
+        private final String name;
+        private final String description;
+        private final Path path;
+        private final File projectDirectory;
+        private final ProjectIdentifier projectIdentifier;
+        private final OmniGradleProject gradleProject;
+        private final ImmutableList<OmniEclipseProjectDependency> projectDependencies;
+        private final ImmutableList<OmniExternalDependency> externalDependencies;
+        private final ImmutableList<OmniEclipseLinkedResource> linkedResources;
+        private final ImmutableList<OmniEclipseSourceDirectory> sourceDirectories;
+        private final Optional<List<OmniEclipseProjectNature>> projectNatures;
+        private final Optional<List<OmniEclipseBuildCommand>> buildCommands;
+        private final Optional<OmniJavaSourceSettings> javaSourceSettings;
+        private final Optional<List<OmniEclipseClasspathContainer>> classpathContainers;
+        private final Optional<OmniEclipseOutputLocation> outputLocation;
+
+        private Attributes(ModelSnapshot.Decoder decoder) {
+            this.name = decoder.readString();
+            this.description = decoder.readString();
+            this.path = Path.from(decoder.readString());
+            this.projectDirectory = decoder.readFile();
+            this.projectIdentifier = decoder.readProjectIdentifier();
+            this.gradleProject = decoder.readGradleProjectReference();
+
+            int projectDependencyCount = decoder.readInt();
+            ImmutableList.Builder<OmniEclipseProjectDependency> projectDependencies = ImmutableList.builder();
+            for (int i = 0; i < projectDependencyCount; i++) {
+                String path = decoder.readString();
+                boolean exported = decoder.readBoolean();
+                projectDependencies.add(new DefaultOmniEclipseProjectDependency(path, exported, decoder.readClasspathAttributes(), decoder.readAccessRules()));
+            }
+            this.projectDependencies = projectDependencies.build();
+
+            int externalDependencyCount = decoder.readInt();
+            ImmutableList.Builder<OmniExternalDependency> externalDependencies = ImmutableList.builder();
+            for (int i = 0; i < externalDependencyCount; i++) {
+                File file = decoder.readFile();
+                File source = decoder.readFile();
+                File javadoc = decoder.readFile();
+                Maybe<OmniGradleModuleVersion> moduleVersion;
+                if (decoder.readBoolean()) {
+                    OmniGradleModuleVersion version = decoder.readBoolean() ? new DefaultOmniGradleModuleVersion(decoder.readString(), decoder.readString(), decoder.readString()) : null;
+                    moduleVersion = Maybe.of(version);
+                } else {
+                    moduleVersion = Maybe.absent();
+                }
+                boolean exported = decoder.readBoolean();
+                externalDependencies.add(new DefaultOmniExternalDependency(file, source, javadoc, moduleVersion, exported, decoder.readClasspathAttributes(), decoder.readAccessRules()));
+            }
+            this.externalDependencies = externalDependencies.build();
+
+            int linkedResourceCount = decoder.readInt();
+            ImmutableList.Builder<OmniEclipseLinkedResource> linkedResources = ImmutableList.builder();
+            for (int i = 0; i < linkedResourceCount; i++) {
+                linkedResources.add(new DefaultOmniEclipseLinkedResource(decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString()));
+            }
+            this.linkedResources = linkedResources.build();
+
+            int sourceDirectoryCount = decoder.readInt();
+            ImmutableList.Builder<OmniEclipseSourceDirectory> sourceDirectories = ImmutableList.builder();
+            for (int i = 0; i < sourceDirectoryCount; i++) {
+                File directory = decoder.readFile();
+                String path = decoder.readString();
+                Optional<List<String>> excludes = decoder.readOptionalStrings();
+                Optional<List<String>> includes = decoder.readOptionalStrings();
+                Maybe<String> output = decoder.readMaybeString();
+                sourceDirectories.add(new DefaultOmniEclipseSourceDirectory(directory, path, excludes, includes, output, decoder.readClasspathAttributes(), decoder.readAccessRules()));
+            }
+            this.sourceDirectories = sourceDirectories.build();
+
+            if (decoder.readBoolean()) {
+                int projectNatureCount = decoder.readInt();
+                ImmutableList.Builder<OmniEclipseProjectNature> projectNatures = ImmutableList.builder();
+                for (int i = 0; i < projectNatureCount; i++) {
+                    projectNatures.add(new DefaultOmniEclipseProjectNature(decoder.readString()));
+                }
+                this.projectNatures = Optional.<List<OmniEclipseProjectNature>>of(projectNatures.build());
+            } else {
+                this.projectNatures = Optional.absent();
+            }
+
+            if (decoder.readBoolean()) {
+                int buildCommandCount = decoder.readInt();
+                ImmutableList.Builder<OmniEclipseBuildCommand> buildCommands = ImmutableList.builder();
+                for (int i = 0; i < buildCommandCount; i++) {
+                    String name = decoder.readString();
+                    int argumentCount = decoder.readInt();
+                    ImmutableMap.Builder<String, String> arguments = ImmutableMap.builder();
+                    for (int j = 0; j < argumentCount; j++) {
+                        arguments.put(decoder.readString(), decoder.readString());
+                    }
+                    buildCommands.add(new DefaultOmniEclipseBuildCommand(name, arguments.build()));
+                }
+                this.buildCommands = Optional.<List<OmniEclipseBuildCommand>>of(buildCommands.build());
+            } else {
+                this.buildCommands = Optional.absent();
+            }
+
+            if (decoder.readBoolean()) {
+                OmniJavaVersion sourceLanguageLevel = new DefaultOmniJavaVersion(decoder.readString());
+                OmniJavaVersion targetBytecodeLevel = new DefaultOmniJavaVersion(decoder.readString());
+                OmniJavaRuntime targetRuntime = new DefaultOmniJavaRuntime(new DefaultOmniJavaVersion(decoder.readString()), decoder.readFile());
+                this.javaSourceSettings = Optional.<OmniJavaSourceSettings>of(DefaultOmniJavaSourceSettings.from(sourceLanguageLevel, targetBytecodeLevel, targetRuntime));
+            } else {
+                this.javaSourceSettings = Optional.absent();
+            }
+
+            if (decoder.readBoolean()) {
+                int classpathContainerCount = decoder.readInt();
+                ImmutableList.Builder<OmniEclipseClasspathContainer> classpathContainers = ImmutableList.builder();
+                for (int i = 0; i < classpathContainerCount; i++) {
+                    String path = decoder.readString();
+                    boolean exported = decoder.readBoolean();
+                    classpathContainers.add(new DefaultOmniEclipseClasspathContainer(path, exported, decoder.readClasspathAttributes(), decoder.readAccessRules()));
+                }
+                this.classpathContainers = Optional.<List<OmniEclipseClasspathContainer>>of(classpathContainers.build());
+            } else {
+                this.classpathContainers = Optional.absent();
+            }
+
+            if (decoder.readBoolean()) {
+                this.outputLocation = Optional.<OmniEclipseOutputLocation>of(new DefaultOmniEclipseOutputLocation(decoder.readString()));
+            } else {
+                this.outputLocation = Optional.absent();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleScript;
+import com.gradleware.tooling.toolingmodel.OmniProjectTask;
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Implementation of the {@link OmniGradleProject} interface that decodes its attributes from a {@link ModelSnapshot} on first access.
+ *
+ * @author Etienne Studer
+ */
+final class SnapshotOmniGradleProject extends SnapshotHierarchicalModel<OmniGradleProject> implements OmniGradleProject {
+
+    private volatile Attributes attributes;
+
+    SnapshotOmniGradleProject(ModelSnapshot snapshot, int index) {
+        super(snapshot, index);
+    }
+
+    @Override
+    OmniGradleProject getProject(int index) {
+        return this.snapshot.getGradleProject(index);
+    }
+
+    @Override
+    int getRecord(int index) {
+        return this.snapshot.getGradleProjectRecord(index);
+    }
+
+    private Attributes getAttributes() {
+        Attributes attributes = this.attributes;
+        if (attributes == null) {
+            // decoding the same record concurrently yields equal attributes, either of which can be kept
+            attributes = new Attributes(this.snapshot.decodeAttributes(getRecord(this.index)));
+            this.attributes = attributes;
+        }
+        return attributes;
+    }
+
+    @Override
+    public String getName() {
+        return getAttributes().name;
+    }
+
+    @Override
+    public String getDescription() {
+        return getAttributes().description;
+    }
+
+    @Override
+    public Path getPath() {
+        return getAttributes().path;
+    }
+
+    @Override
+    public Maybe<File> getProjectDirectory() {
+        return getAttributes().projectDirectory;
+    }
+
+    @Override
+    public Maybe<File> getBuildDirectory() {
+        return getAttributes().buildDirectory;
+    }
+
+    @Override
+    public ProjectIdentifier getProjectIdentifier() {
+        return getAttributes().projectIdentifier;
+    }
+
+    @Override
+    public Maybe<OmniGradleScript> getBuildScript() {
+        return getAttributes().buildScript;
+    }
+
+    @Override
+    public ImmutableList<OmniProjectTask> getProjectTasks() {
+        return getAttributes().projectTasks;
+    }
+
+    @Override
+    public ImmutableList<OmniTaskSelector> getTaskSelectors() {
+        return getAttributes().taskSelectors;
+    }
+
+    static void writeAttributes(OmniGradleProject project, ModelSnapshot.Encoder encoder) throws IOException {
+        encoder.writeString(project.getName());
+        encoder.writeString(project.getDescription());
+        encoder.writeString(project.getPath().getPath());
+        encoder.writeMaybeFile(project.getProjectDirectory());
+        encoder.writeMaybeFile(project.getBuildDirectory());
+        encoder.writeProjectIdentifier(project.getProjectIdentifier());
+
+        Maybe<OmniGradleScript> buildScript = project.getBuildScript();
+        encoder.writeBoolean(buildScript.isPresent());
+        if (buildScript.isPresent()) {
+            OmniGradleScript script = buildScript.get();
+            encoder.writeBoolean(script != null);
+            if (script != null) {
+                encoder.writeFile(script.getSourceFile());
+            }
+        }
+
+        List<OmniProjectTask> projectTasks = project.getProjectTasks();
+        encoder.writeInt(projectTasks.size());
+        for (OmniProjectTask projectTask : projectTasks) {
+            encoder.writeString(projectTask.getName());
+            encoder.writeString(projectTask.getDescription());
+            encoder.writeString(projectTask.getPath().getPath());
+            encoder.writeBoolean(projectTask.isPublic());
+            encoder.writeMaybeString(projectTask.getGroup());
+        }
+
+        List<OmniTaskSelector> taskSelectors = project.getTaskSelectors();
+        encoder.writeInt(taskSelectors.size());
+        for (OmniTaskSelector taskSelector : taskSelectors) {
+            encoder.writeString(taskSelector.getName());
+            encoder.writeString(taskSelector.getDescription());
+            encoder.writeString(taskSelector.getProjectPath().getPath());
+            encoder.writeBoolean(taskSelector.isPublic());
+            encoder.writeMaybeString(taskSelector.getGroup());
+            encoder.writeInt(taskSelector.getSelectedTaskPaths().size());
+            for (Path selectedTaskPath : taskSelector.getSelectedTaskPaths()) {
+                encoder.writeString(selectedTaskPath.getPath());
+            }
+        }
+    }
+
+    /**
+     * The decoded attributes of a project, in the order in which they are stored in the snapshot.
+     */
+    private static final class Attributes {
+
+        private final String name;
+        private final String description;
+        private final Path path;
+        private final Maybe<File> projectDirectory;
+        private final Maybe<File> buildDirectory;
+        private final ProjectIdentifier projectIdentifier;
+        private final Maybe<OmniGradleScript> buildScript;
+        private final ImmutableList<OmniProjectTask> projectTasks;
+        private final ImmutableList<OmniTaskSelector> taskSelectors;
+
+        private Attributes(ModelSnapshot.Decoder decoder) {
+            this.name = decoder.readString();
+            this.description = decoder.readString();
+            this.path = Path.from(decoder.readString());
+            this.projectDirectory = decoder.readMaybeFile();
+            this.buildDirectory = decoder.readMaybeFile();
+            this.projectIdentifier = decoder.readProjectIdentifier();
+
+            if (decoder.readBoolean()) {
+                OmniGradleScript script = decoder.readBoolean() ? new DefaultOmniGradleScript(decoder.readFile()) : null;
+                this.buildScript = Maybe.of(script);
+            } else {
+                this.buildScript = Maybe.absent();
+            }
+
+            int projectTaskCount = decoder.readInt();
+            ImmutableList.Builder<OmniProjectTask> projectTasks = ImmutableList.builder();
+            for (int i = 0; i < projectTaskCount; i++) {
+                DefaultOmniProjectTask projectTask = new DefaultOmniProjectTask();
+                projectTask.setName(decoder.readString());
+                projectTask.setDescription(decoder.readString());
+                projectTask.setPath(Path.from(decoder.readString()));
+                projectTask.setPublic(decoder.readBoolean());
+                projectTask.setGroup(decoder.readMaybeString());
+                projectTasks.add(projectTask);
+            }
+            this.projectTasks = projectTasks.build();
+
+            int taskSelectorCount = decoder.readInt();
+            ImmutableList.Builder<OmniTaskSelector> taskSelectors = ImmutableList.builder();
+            for (int i = 0; i < taskSelectorCount; i++) {
+                String name = decoder.readString();
+                String description = decoder.readString();
+                Path projectPath = Path.from(decoder.readString());
+                boolean isPublic = decoder.readBoolean();
+                Maybe<String> group = decoder.readMaybeString();
+                int selectedTaskPathCount = decoder.readInt();
+                ImmutableSortedSet.Builder<Path> selectedTaskPaths = ImmutableSortedSet.naturalOrder();
+                for (int j = 0; j < selectedTaskPathCount; j++) {
+                    selectedTaskPaths.add(Path.from(decoder.readString()));
+                }
+                taskSelectors.add(DefaultOmniTaskSelector.from(name, description, projectPath, isPublic, group, selectedTaskPaths.build()));
+            }
+            this.taskSelectors = taskSelectors.build();
+        }
+
+    }
+
+}
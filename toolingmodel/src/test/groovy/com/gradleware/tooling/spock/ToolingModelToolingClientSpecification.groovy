@@ -16,6 +16,7 @@
 
 package com.gradleware.tooling.spock
 
+import com.gradleware.tooling.testing.CrossVersionExecutor
 import com.gradleware.tooling.testing.GradleVersionParameterization
 import com.gradleware.tooling.testing.GradleVersionProvider
 import com.gradleware.tooling.toolingclient.ToolingClient
@@ -31,33 +32,66 @@ abstract class ToolingModelToolingClientSpecification extends Specification {
 
   public static final String EMBEDDED_MODE_SYSTEM_PROPERTY_NAME = 'com.gradleware.tooling.integtest.embedded';
 
+  public static final String PARALLEL_SYSTEM_PROPERTY_NAME = 'com.gradleware.tooling.integtest.parallel';
+
+  public static final String PARALLELISM_SYSTEM_PROPERTY_NAME = 'com.gradleware.tooling.integtest.parallelism';
+
   private static final Logger LOG = LoggerFactory.getLogger(ToolingModelToolingClientSpecification.class);
 
+  private static final Factory<GradleConnector> CONNECTOR_FACTORY = new Factory<GradleConnector>() {
+
+    /**
+     * Creates a new {@code GradleConnector} instance and configures it to connect to the target Gradle either in daemon mode or in embedded mode. If
+     * the system property <i>com.gradleware.tooling.integtest.embedded</i> is not set, the default value <i>true</i> is used, meaning the connector
+     * is configured to connect to the target Gradle in embedded mode.
+     */
+    @Override
+    GradleConnector create() {
+      def connector = GradleConnector.newConnector()
+
+      // connect to Gradle either through a separate daemon process or embedded in the same JVM
+      // TODO (donat) Restore system property usage below once TAPI is fixed: https://github.com/gradle/gradle/blob/93006765be8206c4a380f8230f9e93933a0f3b47/subprojects/tooling-api/src/testFixtures/groovy/org/gradle/integtests/tooling/fixture/ToolingApi.groovy#L176
+      // def embedded = Boolean.valueOf(System.getProperty(EMBEDDED_MODE_SYSTEM_PROPERTY_NAME, Boolean.TRUE.toString()))
+      def embedded = false
+      ((DefaultGradleConnector) connector).embedded(embedded)
+      LOG.debug("Connection to target Gradle in '{}' mode ", (embedded ? 'embedded' : 'daemon'))
+
+      connector
+    }
+  }
+
   @Shared
   ToolingClient toolingClient
 
   def setupSpec() {
-    toolingClient = ToolingClient.newClient(new Factory<GradleConnector>() {
-
-      /**
-       * Creates a new {@code GradleConnector} instance and configures it to connect to the target Gradle either in daemon mode or in embedded mode. If
-       * the system property <i>com.gradleware.tooling.integtest.embedded</i> is not set, the default value <i>true</i> is used, meaning the connector
-       * is configured to connect to the target Gradle in embedded mode.
-       */
-      @Override
-      GradleConnector create() {
-        def connector = GradleConnector.newConnector()
-
-        // connect to Gradle either through a separate daemon process or embedded in the same JVM
-        // TODO (donat) Restore system property usage below once TAPI is fixed: https://github.com/gradle/gradle/blob/93006765be8206c4a380f8230f9e93933a0f3b47/subprojects/tooling-api/src/testFixtures/groovy/org/gradle/integtests/tooling/fixture/ToolingApi.groovy#L176
-        // def embedded = Boolean.valueOf(System.getProperty(EMBEDDED_MODE_SYSTEM_PROPERTY_NAME, Boolean.TRUE.toString()))
-        def embedded = false
-        ((DefaultGradleConnector) connector).embedded(embedded)
-        LOG.debug("Connection to target Gradle in '{}' mode ", (embedded ? 'embedded' : 'daemon'))
-
-        connector
-      }
-    })
+    toolingClient = ToolingClient.newClient(CONNECTOR_FACTORY)
+  }
+
+  /**
+   * Executes the given action once for each of the given permutations, the first element of each permutation being the Gradle distribution.
+   * The permutations of different Gradle distributions run in parallel, each distribution with its own tooling client, such that the
+   * permutations of a distribution share the same Gradle daemon. The action is called with the tooling client followed by the elements of
+   * the permutation. If the action fails for any permutation, an assertion error listing all failed permutations is thrown once all
+   * permutations have been executed.
+   * <p/>
+   * The permutations must not share any files they change, and must not share mocks. Since a feature that uses this method reports all
+   * permutations as a single test, it is only used by suites that are run on demand, whereas the regular suites run one test per
+   * permutation through data-driven features.
+   */
+  protected static void executeCrossVersion(List<List<Object>> permutations, Closure action) {
+    def parallelism = Integer.getInteger(PARALLELISM_SYSTEM_PROPERTY_NAME, 2)
+    def report = CrossVersionExecutor.create(parallelism, CONNECTOR_FACTORY).execute(permutations, { ToolingClient client, List<Object> permutation ->
+      action.call(([client] + permutation) as Object[])
+    } as CrossVersionExecutor.PermutationAction)
+    LOG.debug('Executed cross-version permutations: {}', report)
+
+    def failures = report.failures
+    if (!failures.isEmpty()) {
+      def message = failures.collect { "${it.permutation}: ${it.failure.get()}" }.join('\n')
+      def error = new AssertionError("${failures.size()} of ${report.results.size()} permutations failed:\n$message".toString())
+      error.initCause(failures[0].failure.get())
+      throw error
+    }
   }
 
     def cleanup() {
@@ -54,6 +54,31 @@ class BuildActionFactoryTest extends ToolingModelToolingClientSpecification {
     assert buildInvocationsMap != null
   }
 
+  def "ModelsForProjectsBuildAction"() {
+    setup:
+    ModelsForProjectsBuildAction action = BuildActionFactory.getModelsForProjects([':'], BuildInvocations.class, GradleProject.class)
+    BuildActionRequest<ProjectModels> buildActionRequest = toolingClient.newBuildActionRequest(action)
+    buildActionRequest.projectDir(directoryProvider.testDirectory)
+    ProjectModels projectModels = buildActionRequest.executeAndWait()
+    assert projectModels.projectPaths == [':'] as Set
+    assert projectModels.getModel(':', BuildInvocations.class) != null
+    assert projectModels.getModel(':', GradleProject.class).path == ':'
+    assert projectModels.getModels(GradleProject.class).keySet() == [':'] as Set
+  }
+
+  def "ModelsForProjectsBuildAction fails for unknown project path"() {
+    setup:
+    ModelsForProjectsBuildAction action = BuildActionFactory.getModelsForProjects([':unknown'], BuildInvocations.class)
+    BuildActionRequest<ProjectModels> buildActionRequest = toolingClient.newBuildActionRequest(action)
+    buildActionRequest.projectDir(directoryProvider.testDirectory)
+
+    when:
+    buildActionRequest.executeAndWait()
+
+    then:
+    thrown(Exception)
+  }
+
   def "GlobalModelBuildAction"() {
     setup:
     GlobalModelBuildAction<GradleProject> action = BuildActionFactory.getBuildModel(GradleProject.class)
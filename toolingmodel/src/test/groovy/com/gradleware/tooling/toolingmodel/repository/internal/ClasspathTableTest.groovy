@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.google.common.collect.ImmutableList
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class ClasspathTableTest extends Specification {
+
+    def "equal entries are stored once"() {
+        given:
+        def table = ClasspathTable.create()
+
+        when:
+        def first = table.add([externalDependency('a.jar'), externalDependency('b.jar')])
+        def second = table.add([externalDependency('b.jar'), externalDependency('c.jar')])
+
+        then:
+        table.size() == 3
+        first*.file == [new File('a.jar'), new File('b.jar')]
+        second*.file == [new File('b.jar'), new File('c.jar')]
+        first[1].is(second[0])
+    }
+
+    def "entries that differ in any attribute are stored separately"() {
+        given:
+        def table = ClasspathTable.create()
+
+        when:
+        table.add([externalDependency('a.jar', true), externalDependency('a.jar', false)])
+
+        then:
+        table.size() == 2
+    }
+
+    def "added external dependencies are returned as immutable lists"() {
+        given:
+        def entries = ClasspathTable.create().add([externalDependency('a.jar')])
+
+        when:
+        entries.add(externalDependency('b.jar'))
+
+        then:
+        thrown(UnsupportedOperationException)
+        entries instanceof ImmutableList
+    }
+
+    private OmniExternalDependency externalDependency(String file, boolean exported = false) {
+        Stub(OmniExternalDependency) {
+            getFile() >> new File(file)
+            getGradleModuleVersion() >> Maybe.absent()
+            isExported() >> exported
+            getClasspathAttributes() >> Optional.absent()
+            getAccessRules() >> Optional.absent()
+        }
+    }
+
+}
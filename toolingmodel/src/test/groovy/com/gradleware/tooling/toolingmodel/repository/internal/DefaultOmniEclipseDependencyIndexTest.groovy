@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class DefaultOmniEclipseDependencyIndexTest extends Specification {
+
+    def guava = new File('guava.jar')
+    def junit = new File('junit.jar')
+
+    // api <- impl <- app, app -> junit, api -> guava
+    def api = project('api', [], [externalDependency(guava, 'com.google.guava', 'guava', '15.0')])
+    def impl = project('impl', ['/api'], [])
+    def app = project('app', ['/impl'], [externalDependency(junit, null, null, null)])
+    def index = DefaultOmniEclipseDependencyIndex.from([api, impl, app])
+
+    def "direct dependents of projects"() {
+        expect:
+        index.getDependents(api) == [impl] as Set
+        index.getDependents(impl) == [app] as Set
+        index.getDependents(app).isEmpty()
+    }
+
+    def "direct dependents of external artifacts"() {
+        expect:
+        index.getDependents(guava) == [api] as Set
+        index.getDependents(junit) == [app] as Set
+        index.getDependents(new File('unknown.jar')).isEmpty()
+        index.getDependents(moduleVersion('com.google.guava', 'guava', '15.0')) == [api] as Set
+        index.getDependents(moduleVersion('com.google.guava', 'guava', '16.0')).isEmpty()
+    }
+
+    def "transitive dependents"() {
+        expect:
+        index.getTransitiveDependents(api) == [impl, app] as Set
+        index.getTransitiveDependents(impl) == [app] as Set
+        index.getTransitiveDependents(guava) == [api, impl, app] as Set
+        index.getTransitiveDependents(moduleVersion('com.google.guava', 'guava', '15.0')) == [api, impl, app] as Set
+        index.getTransitiveDependents(junit) == [app] as Set
+    }
+
+    def "transitive dependents are memoized"() {
+        when:
+        def first = index.getTransitiveDependents(api)
+        def second = index.getTransitiveDependents(api)
+
+        then:
+        first.is(second)
+    }
+
+    def "transitive dependents are complete when memoized dependents are reused"() {
+        when:
+        def ofImpl = index.getTransitiveDependents(impl)
+        def ofApi = index.getTransitiveDependents(api)
+
+        then:
+        ofImpl == [app] as Set
+        ofApi == [impl, app] as Set
+    }
+
+    def "dependency cycles do not contain the queried project"() {
+        given:
+        def first = project('first', ['/second'], [])
+        def second = project('second', ['/first'], [])
+        def cyclicIndex = DefaultOmniEclipseDependencyIndex.from([first, second])
+
+        expect:
+        cyclicIndex.getTransitiveDependents(first) == [second] as Set
+        cyclicIndex.getTransitiveDependents(second) == [first] as Set
+    }
+
+    def "projects that are not indexed are rejected"() {
+        when:
+        index.getDependents(project('other', [], []))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private OmniEclipseProject project(String name, List<String> projectDependencies, List<OmniExternalDependency> externalDependencies) {
+        def dependencies = projectDependencies.collect { String path ->
+            Stub(OmniEclipseProjectDependency) {
+                getPath() >> path
+            }
+        }
+        Stub(OmniEclipseProject) {
+            getName() >> name
+            getProjectDependencies() >> dependencies
+            getExternalDependencies() >> externalDependencies
+        }
+    }
+
+    private OmniExternalDependency externalDependency(File file, String group, String name, String version) {
+        def moduleVersion = group != null ? Maybe.of(moduleVersion(group, name, version)) : Maybe.of(null)
+        Stub(OmniExternalDependency) {
+            getFile() >> file
+            getGradleModuleVersion() >> moduleVersion
+        }
+    }
+
+    private OmniGradleModuleVersion moduleVersion(String group, String name, String version) {
+        Stub(OmniGradleModuleVersion) {
+            getGroup() >> group
+            getName() >> name
+            getVersion() >> version
+        }
+    }
+
+}
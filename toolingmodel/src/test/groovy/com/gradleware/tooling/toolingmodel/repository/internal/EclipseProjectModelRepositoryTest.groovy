@@ -132,6 +132,44 @@ class EclipseProjectModelRepositoryTest extends ModelRepositorySpec {
         distribution << gradleDistributionRange(">=1.2")
     }
 
+    def "reload selected projects"(GradleDistribution distribution) {
+        given:
+        def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+        def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+        def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
+        def cachedProjects = repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+        AtomicReference<EclipseProjectUpdateEvent> publishedEvent = new AtomicReference<>();
+        repository.register(new Object() {
+
+            @SuppressWarnings("GroovyUnusedDeclaration")
+            @Subscribe
+            public void listen(EclipseProjectUpdateEvent event) {
+                publishedEvent.set(event)
+            }
+        })
+
+        directoryProvider.file('sub1', 'build.gradle') << "description = 'updated sub project 1'"
+        directoryProvider.file('sub2', 'build.gradle') << "description = 'updated sub project 2'"
+
+        when:
+        def projects = repository.reloadEclipseGradleProjects([Path.from(':sub1')] as Set, transientRequestAttributes)
+
+        then:
+        projects*.path == cachedProjects*.path
+        projects*.description == ['a sample root project', 'updated sub project 1', 'sub project 2', 'subSub project 1 of sub project 2']
+        projects.find { it.path.path == ':sub2' }.externalDependencies.is(cachedProjects.find { it.path.path == ':sub2' }.externalDependencies)
+        projects[0].children*.parent == [projects[0], projects[0]]
+        projects*.gradleProject*.root.unique { a, b -> a.is(b) ? 0 : 1 } == [projects[0].gradleProject]
+        projects[0].children*.gradleProject*.parent.every { it.is(projects[0].gradleProject) }
+        projects.find { it.path.path == ':sub1' }.gradleProject.description == 'updated sub project 1'
+        publishedEvent.get().eclipseGradleBuild*.path == [Path.from(':sub1')]
+        repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY).is(projects)
+
+        where:
+        distribution << gradleDistributionRange(">=1.8")
+    }
+
     @SuppressWarnings("GroovyTrivialConditional")
     def "sources and project/external dependencies "(GradleDistribution distribution) {
         given:
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSet
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.OmniProjectTask
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class ModelInternerTest extends Specification {
+
+    def "values equal to values of the previous version are shared"() {
+        given:
+        def previousTask = task('build')
+        def interner = ModelInterner.fromGradleProjects(ImmutableSet.of(gradleProject('root', [previousTask])))
+
+        when:
+        def tasks = interner.intern([task('build'), task('clean')])
+
+        then:
+        tasks[0].is(previousTask)
+        !tasks[1].is(previousTask)
+        interner.intern([task('clean')])[0].is(tasks[1])
+    }
+
+    def "unchanged lists keep their identity"() {
+        given:
+        def previousProject = gradleProject('root', [task('build'), task('clean')])
+        def interner = ModelInterner.fromGradleProjects(ImmutableSet.of(previousProject))
+
+        expect:
+        interner.intern(ImmutableList.of(task('build'), task('clean'))).is(previousProject.projectTasks)
+        !interner.intern(ImmutableList.of(task('build'))).is(previousProject.projectTasks)
+    }
+
+    def "unchanged hierarchies and projects are reused"() {
+        given:
+        def previousProject = gradleProject('root', [task('build')])
+        def previousProjects = ImmutableSet.of(previousProject)
+        def interner = ModelInterner.fromGradleProjects(previousProjects)
+        def project = gradleProject('root', interner.intern(ImmutableList.of(task('build'))))
+
+        expect:
+        interner.shareHierarchy(project).is(previousProject)
+        interner.shareProjects(ImmutableSet.of(previousProject)).is(previousProjects)
+    }
+
+    def "changed hierarchies are not reused"() {
+        given:
+        def previousProject = gradleProject('root', [task('build')])
+        def interner = ModelInterner.fromGradleProjects(ImmutableSet.of(previousProject))
+        def project = gradleProject('root', interner.intern(ImmutableList.of(task('build'), task('clean'))))
+
+        expect:
+        interner.shareHierarchy(project).is(project)
+        project.projectTasks[0].is(previousProject.projectTasks[0])
+    }
+
+    private OmniGradleProject gradleProject(String name, List<OmniProjectTask> tasks) {
+        def projectTasks = ImmutableList.copyOf(tasks)
+        OmniGradleProject project
+        project = Stub(OmniGradleProject) {
+            getName() >> name
+            getPath() >> Path.from(':')
+            getProjectDirectory() >> Maybe.of(new File(name))
+            getBuildDirectory() >> Maybe.absent()
+            getProjectIdentifier() >> null
+            getBuildScript() >> Maybe.absent()
+            getProjectTasks() >> projectTasks
+            getTaskSelectors() >> ImmutableList.of()
+            getChildren() >> ImmutableList.of()
+            getAll() >> { ImmutableList.of(project) }
+        }
+        project
+    }
+
+    private OmniProjectTask task(String name) {
+        Stub(OmniProjectTask) {
+            getName() >> name
+            getPath() >> Path.from(':' + name)
+            getGroup() >> Maybe.absent()
+        }
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.gradleware.tooling.toolingmodel.repository.internal
 
 import com.gradleware.tooling.junit.TestDirectoryProvider
+import com.gradleware.tooling.junit.TestDirectoryProvider.TemplateInitializer
 import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
 import com.gradleware.tooling.testing.GradleVersionExtractor
 import com.gradleware.tooling.testing.GradleVersionParameterization
@@ -43,112 +44,125 @@ abstract class ModelRepositorySpec extends ToolingModelToolingClientSpecificatio
     TestDirectoryProvider directoryProviderErroneousBuildFile = new TestDirectoryProvider("erroneous-build-file");
 
     def setup() {
+        // the builds are prepared once per JVM as templates and copied into the test directories of each test
+        // copies rather than links are used since some tests modify the build files in place
+
         // prepare a Gradle build that has a root project and two child projects, and one gradle child project
-        directoryProvider.createFile('settings.gradle') << '''
-           rootProject.name = 'my root project'
-           include 'sub1'
-           include 'sub2'
-           include 'sub2:subSub1'
-        '''
-        directoryProvider.createFile('build.gradle') << '''
-            description = 'a sample root project'
-            task myTask {}
-        '''
-
-        directoryProvider.createDir('sub1')
-        directoryProvider.createFile('sub1', 'build.gradle') << '''
-            description = 'sub project 1'
-            task myFirstTaskOfSub1 {
-                description = '1st task of sub1'
-                group = 'build'
-            }
-           task mySecondTaskOfSub1 {
-               description = '2nd task of sub1'
-           }
-        '''
-
-        directoryProvider.createDir('sub2')
-        directoryProvider.createFile('sub2', 'build.gradle') << '''
-            description = 'sub project 2'
-            task myFirstTaskOfSub2 {
-               description = '1st task of sub2'
-            }
-            task mySecondTaskOfSub2 {
-               description = '2nd task of sub2'
-            }
-            task myTask {
-               description = 'another task of sub2'
-               group = 'build'
-            }
-        '''
-
-        directoryProvider.createDir('sub2', 'subSub1')
-        directoryProvider.createFile('sub2', 'subSub1', 'build.gradle') << '''
-            description = 'subSub project 1 of sub project 2'
-            task myFirstTaskOfSub2subSub1{
-                description = '1st task of sub2:subSub1'
-            }
-            task mySecondTaskOfSub2subSub1{
-                description = '2nd task of sub2:subSub1'
-            }
-            task myTask {}
-        '''
+        directoryProvider.createDirFromTemplate('model-repository-single-project', { File dir ->
+            new File(dir, 'settings.gradle') << '''
+               rootProject.name = 'my root project'
+               include 'sub1'
+               include 'sub2'
+               include 'sub2:subSub1'
+            '''
+            new File(dir, 'build.gradle') << '''
+                description = 'a sample root project'
+                task myTask {}
+            '''
+
+            new File(dir, 'sub1').mkdirs()
+            new File(dir, 'sub1/build.gradle') << '''
+                description = 'sub project 1'
+                task myFirstTaskOfSub1 {
+                    description = '1st task of sub1'
+                    group = 'build'
+                }
+               task mySecondTaskOfSub1 {
+                   description = '2nd task of sub1'
+               }
+            '''
+
+            new File(dir, 'sub2').mkdirs()
+            new File(dir, 'sub2/build.gradle') << '''
+                description = 'sub project 2'
+                task myFirstTaskOfSub2 {
+                   description = '1st task of sub2'
+                }
+                task mySecondTaskOfSub2 {
+                   description = '2nd task of sub2'
+                }
+                task myTask {
+                   description = 'another task of sub2'
+                   group = 'build'
+                }
+            '''
+
+            new File(dir, 'sub2/subSub1').mkdirs()
+            new File(dir, 'sub2/subSub1/build.gradle') << '''
+                description = 'subSub project 1 of sub project 2'
+                task myFirstTaskOfSub2subSub1{
+                    description = '1st task of sub2:subSub1'
+                }
+                task mySecondTaskOfSub2subSub1{
+                    description = '2nd task of sub2:subSub1'
+                }
+                task myTask {}
+            '''
+        } as TemplateInitializer)
 
         // prepare a Gradle build with a multi-project structure
-        directoryProviderMultiProjectBuild.createFile('settings.gradle') << '''
-            rootProject.name = 'root project of multi-project build'
-            include 'api'
-            include 'impl'
-        '''
-
-        directoryProviderMultiProjectBuild.createFile('build.gradle') << '''
-            subprojects {
-                apply plugin: 'java'
-                repositories {
-                    mavenCentral()
+        directoryProviderMultiProjectBuild.createDirFromTemplate('model-repository-multi-project', { File dir ->
+            new File(dir, 'settings.gradle') << '''
+                rootProject.name = 'root project of multi-project build'
+                include 'api'
+                include 'impl'
+            '''
+
+            new File(dir, 'build.gradle') << '''
+                subprojects {
+                    apply plugin: 'java'
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+            '''
+
+            new File(dir, 'api').mkdirs()
+            new File(dir, 'api/build.gradle') << '''
+                dependencies {
+                    compile 'com.google.guava:guava:18.0'
                 }
-            }
-        '''
-
-        directoryProviderMultiProjectBuild.createDir('api')
-        directoryProviderMultiProjectBuild.createFile('api', 'build.gradle') << '''
-            dependencies {
-                compile 'com.google.guava:guava:18.0'
-            }
-        '''
-
-        directoryProviderMultiProjectBuild.createDir('impl')
-        directoryProviderMultiProjectBuild.createFile('impl', 'build.gradle') << '''
-            dependencies {
-                compile project(':api')
-                compile 'log4j:log4j:1.2.17'
-            }
-        '''
-
-        directoryProviderCompositeBuild.createFile('settings.gradle') << '''
-            rootProject.name='root'
-            includeBuild 'included1'
-            includeBuild 'included2'
-        '''
-        directoryProviderCompositeBuild.createDir('included1', 'sub1')
-        directoryProviderCompositeBuild.createDir('included1', 'sub2')
-        directoryProviderCompositeBuild.createDir('included2', 'sub1')
-        directoryProviderCompositeBuild.createDir('included2', 'sub2')
-        directoryProviderCompositeBuild.createFile('included1', 'settings.gradle') << '''
-            rootProject.name = 'included1'
-            include 'sub1', 'sub2'
-        '''
-        directoryProviderCompositeBuild.createFile('included2', 'settings.gradle') << '''
-            rootProject.name = 'included2'
-            include 'sub1', 'sub2'
-        '''
+            '''
+
+            new File(dir, 'impl').mkdirs()
+            new File(dir, 'impl/build.gradle') << '''
+                dependencies {
+                    compile project(':api')
+                    compile 'log4j:log4j:1.2.17'
+                }
+            '''
+        } as TemplateInitializer)
+
+        directoryProviderCompositeBuild.createDirFromTemplate('model-repository-composite-project', { File dir ->
+            new File(dir, 'settings.gradle') << '''
+                rootProject.name='root'
+                includeBuild 'included1'
+                includeBuild 'included2'
+            '''
+            new File(dir, 'included1/sub1').mkdirs()
+            new File(dir, 'included1/sub2').mkdirs()
+            new File(dir, 'included2/sub1').mkdirs()
+            new File(dir, 'included2/sub2').mkdirs()
+            new File(dir, 'included1/settings.gradle') << '''
+                rootProject.name = 'included1'
+                include 'sub1', 'sub2'
+            '''
+            new File(dir, 'included2/settings.gradle') << '''
+                rootProject.name = 'included2'
+                include 'sub1', 'sub2'
+            '''
+        } as TemplateInitializer)
 
         // prepare a Gradle build that has an erroneous structure
-        directoryProviderErroneousBuildStructure.createFile('settings.gradle') << 'include foo'
+        directoryProviderErroneousBuildStructure.createDirFromTemplate('model-repository-erroneous-build-structure', { File dir ->
+            new File(dir, 'settings.gradle') << 'include foo'
+        } as TemplateInitializer)
 
         // prepare a Gradle build that has a valid structure but an erroneous build script
-        directoryProviderErroneousBuildFile.createFile('settings.gradle')
-        directoryProviderErroneousBuildFile.createFile('build.gradle') << 'task myTask {'
+        directoryProviderErroneousBuildFile.createDirFromTemplate('model-repository-erroneous-build-file', { File dir ->
+            new File(dir, 'settings.gradle').createNewFile()
+            new File(dir, 'build.gradle') << 'task myTask {'
+        } as TemplateInitializer)
     }
 
     protected static boolean higherOrEqual(String minVersion, GradleDistribution distribution) {
@@ -171,4 +185,8 @@ abstract class ModelRepositorySpec extends ToolingModelToolingClientSpecificatio
         GradleVersionParameterization.Default.INSTANCE.getGradleDistributions(versionPattern)
     }
 
+    protected static List<List<Object>> gradleDistributionPermutations(String versionPattern) {
+        gradleDistributionRange(versionPattern).collect { [it] as List<Object> }
+    }
+
 }
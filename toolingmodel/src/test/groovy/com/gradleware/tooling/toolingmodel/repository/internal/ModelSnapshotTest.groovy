@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.spock.VerboseUnroll
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.tooling.GradleConnector
+import spock.lang.IgnoreIf
+
+@VerboseUnroll(formatter = GradleDistributionFormatter.class)
+class ModelSnapshotTest extends ModelRepositorySpec {
+
+    def "snapshot has the same hierarchy and attributes as the projects it was written from"(GradleDistribution distribution) {
+        given:
+        def projects = fetchEclipseProjects(distribution)
+        def file = snapshotFile()
+
+        when:
+        ModelSnapshot.write(projects, file)
+        def snapshot = ModelSnapshot.open(file)
+
+        then:
+        def expectedRoot = projects.find { it.parent == null }
+        def actualRoot = snapshot.eclipseProjects.find { it.parent == null }
+        actualRoot.all.collect { describe(it) } == expectedRoot.all.collect { describe(it) }
+        actualRoot.children*.parent == [actualRoot] * actualRoot.children.size()
+        actualRoot.all.every { it.root.is(actualRoot) }
+
+        where:
+        distribution << gradleDistributionRange(">=1.2")
+    }
+
+    def "attributes are decoded on first access only"(GradleDistribution distribution) {
+        given:
+        def file = snapshotFile()
+        ModelSnapshot.write(fetchEclipseProjects(distribution), file)
+
+        when:
+        def snapshot = ModelSnapshot.open(file)
+        def root = snapshot.eclipseProjects.find { it.parent == null }
+        def children = root.children
+
+        then:
+        snapshot.decodedRecordCount == 0
+
+        when:
+        children[0].name
+        children[0].externalDependencies
+
+        then:
+        snapshot.decodedRecordCount == 1
+
+        where:
+        distribution << gradleDistributionRange(">=1.2")
+    }
+
+    @IgnoreIf({ System.getProperty('os.name').toLowerCase().contains('windows') })
+    def "snapshot replaces an existing snapshot without affecting opened snapshots"(GradleDistribution distribution) {
+        given:
+        def projects = fetchEclipseProjects(distribution)
+        def file = snapshotFile()
+        ModelSnapshot.write(projects, file)
+        def opened = ModelSnapshot.open(file)
+
+        when:
+        ModelSnapshot.write([], file)
+
+        then:
+        opened.eclipseProjects*.name as Set == projects*.name as Set
+        ModelSnapshot.open(file).eclipseProjects.isEmpty()
+
+        where:
+        distribution << gradleDistributionRange(">=1.2")
+    }
+
+    def "opening a file that is not a model snapshot fails"() {
+        given:
+        def file = directoryProvider.createFile('invalid.snapshot')
+        file.text = 'not a snapshot'
+
+        when:
+        ModelSnapshot.open(file)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private Set<OmniEclipseProject> fetchEclipseProjects(GradleDistribution distribution) {
+        def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+        def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(), ImmutableList.of(), GradleConnector.newCancellationTokenSource().token())
+        def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
+        repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    }
+
+    private File snapshotFile() {
+        directoryProvider.file('model.snapshot')
+    }
+
+    private static List<Object> describe(OmniEclipseProject project) {
+        [project.name, project.description, project.path, project.projectDirectory,
+         project.projectIdentifier?.projectPath, project.projectIdentifier?.buildIdentifier?.rootDir,
+         project.projectDependencies.collect { [it.path, it.exported, it.classpathAttributes.orNull()?.collect { a -> [a.name, a.value] }] },
+         project.externalDependencies.collect { [it.file, it.source, it.javadoc, it.exported, it.gradleModuleVersion.present ? it.gradleModuleVersion.get()?.version : null] },
+         project.linkedResources.collect { [it.name, it.type, it.location, it.locationUri] },
+         project.sourceDirectories.collect { [it.directory, it.path, it.excludes.orNull(), it.includes.orNull(), it.output.present ? it.output.get() : null] },
+         project.projectNatures.orNull()?.collect { it.id },
+         project.buildCommands.orNull()?.collect { [it.name, it.arguments] },
+         project.javaSourceSettings.orNull()?.with { [it.sourceLanguageLevel.name, it.targetBytecodeLevel.name, it.targetRuntime.javaVersion.name, it.targetRuntime.homeDirectory] },
+         project.classpathContainers.orNull()?.collect { [it.path, it.exported] },
+         project.outputLocation.orNull()?.path,
+         describe(project.gradleProject)]
+    }
+
+    private static List<Object> describe(OmniGradleProject project) {
+        [project.name, project.description, project.path, project.projectDirectory, project.buildDirectory,
+         project.buildScript.present ? project.buildScript.get()?.sourceFile : null,
+         project.projectTasks.collect { [it.name, it.description, it.path, it.public, it.group] },
+         project.taskSelectors.collect { [it.name, it.description, it.projectPath, it.public, it.group, it.selectedTaskPaths] },
+         project.parent?.path, project.children*.path]
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ProgressListener
+import spock.lang.IgnoreIf
+
+/**
+ * Fetches the models of a build for all Gradle distributions in parallel through {@link ToolingModelToolingClientSpecification#executeCrossVersion}.
+ * The suite is only run if the system property <i>com.gradleware.tooling.integtest.parallel</i> is set to <i>true</i>.
+ */
+@IgnoreIf({ !Boolean.getBoolean(ToolingModelToolingClientSpecification.PARALLEL_SYSTEM_PROPERTY_NAME) })
+class ParallelCrossVersionModelRepositoryTest extends ModelRepositorySpec {
+
+    def "fetch the build environment and the Gradle build of all distributions in parallel"() {
+        when:
+        executeCrossVersion(gradleDistributionPermutations(">=1.2")) { ToolingClient client, GradleDistribution distribution ->
+            // each distribution builds its own copy of the project, such that the builds running in parallel do not share any files
+            def projectDir = directoryProvider.createDir(extractVersion(distribution))
+            new File(projectDir, 'settings.gradle').text = "rootProject.name = 'parallel'"
+            new File(projectDir, 'build.gradle').text = ''
+
+            def fixedRequestAttributes = new FixedRequestAttributes(projectDir, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+            def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.<ProgressListener> of(),
+                    ImmutableList.<org.gradle.tooling.events.ProgressListener> of(), GradleConnector.newCancellationTokenSource().token())
+            def repository = new DefaultModelRepository(fixedRequestAttributes, client, new EventBus())
+
+            def buildEnvironment = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+            assert buildEnvironment.gradle.gradleVersion == extractVersion(distribution)
+
+            def gradleBuild = repository.fetchGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+            assert gradleBuild.rootProject.name == 'parallel'
+            assert gradleBuild.rootProject.children.isEmpty()
+        }
+
+        then:
+        noExceptionThrown()
+    }
+}
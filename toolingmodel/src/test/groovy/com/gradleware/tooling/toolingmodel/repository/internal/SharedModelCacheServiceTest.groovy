@@ -0,0 +1,258 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.Subscribe
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.repository.EclipseProjectUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.api.UncheckedIOException
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.BuildException
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.GradleConnector
+import org.junit.Rule
+import spock.lang.IgnoreIf
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.attribute.AclEntryType
+import java.nio.file.attribute.AclFileAttributeView
+import java.nio.file.attribute.PosixFilePermissions
+
+class SharedModelCacheServiceTest extends ToolingModelToolingClientSpecification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  @Rule
+  TestDirectoryProvider snapshotDirectoryProvider = new TestDirectoryProvider();
+
+  FixedRequestAttributes fixedRequestAttributes
+  TransientRequestAttributes transientRequestAttributes
+  File tokenFile
+  SharedModelCacheService service
+
+  def setup() {
+    // Gradle projects for testing
+    directoryProvider.createFile('settings.gradle') << "include 'sub'"
+    directoryProvider.createFile('build.gradle') << 'task myTask {}'
+    directoryProvider.createDir('sub')
+
+    // request attributes and shared model cache service for testing
+    fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(), ImmutableList.of(), GradleConnector.newCancellationTokenSource().token())
+    tokenFile = directoryProvider.file('token', 'shared-model-cache.token')
+    service = SharedModelCacheService.start(toolingClient, snapshotDirectoryProvider.testDirectory, tokenFile, 0)
+  }
+
+  def cleanup() {
+    service.stop()
+  }
+
+  def "models loaded by one client are returned from the cache to other clients"() {
+    given:
+    def firstRepository = new SharedModelRepositoryProvider(toolingClient, service.port, tokenFile).getModelRepository(fixedRequestAttributes)
+    def secondRepository = new SharedModelRepositoryProvider(toolingClient, service.port, tokenFile).getModelRepository(fixedRequestAttributes)
+
+    when:
+    def lookUp = secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+    then:
+    lookUp == null
+
+    when:
+    def firstLookUp = firstRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def secondLookUp = secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+    def thirdLookUp = secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    firstLookUp*.path as Set == secondLookUp*.path as Set
+    secondLookUp.is(thirdLookUp)
+
+    when:
+    def fourthLookUp = firstRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FORCE_RELOAD)
+    def fifthLookUp = secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+    then:
+    !fourthLookUp.is(firstLookUp)
+    !fifthLookUp.is(secondLookUp)
+    fifthLookUp*.path as Set == firstLookUp*.path as Set
+  }
+
+  def "clients broadcast the models they receive for the first time"() {
+    given:
+    def firstRepository = new SharedModelRepositoryProvider(toolingClient, service.port, tokenFile).getModelRepository(fixedRequestAttributes)
+    def secondRepository = new SharedModelRepositoryProvider(toolingClient, service.port, tokenFile).getModelRepository(fixedRequestAttributes)
+    def receivedEvents = []
+    secondRepository.register(new Object() {
+
+      @Subscribe
+      void eclipseProjectsUpdated(EclipseProjectUpdateEvent event) {
+        receivedEvents << event
+      }
+
+      @Subscribe
+      void gradleProjectsUpdated(GradleProjectUpdateEvent event) {
+        receivedEvents << event
+      }
+    })
+
+    when:
+    firstRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    firstRepository.fetchGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    receivedEvents.isEmpty()
+
+    when:
+    secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+    secondRepository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+    secondRepository.fetchGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    receivedEvents.size() == 2
+    receivedEvents[0] instanceof EclipseProjectUpdateEvent
+    receivedEvents[0].eclipseGradleBuild*.path*.path as Set == [':', ':sub'] as Set
+    receivedEvents[1] instanceof GradleProjectUpdateEvent
+  }
+
+  def "stopping the service deletes its snapshots"() {
+    given:
+    def repository = new SharedModelRepositoryProvider(toolingClient, service.port, tokenFile).getModelRepository(fixedRequestAttributes)
+    repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    when:
+    service.stop()
+
+    then:
+    snapshotDirectoryProvider.testDirectory.listFiles().length == 0
+
+    when:
+    repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+    then:
+    thrown(UncheckedIOException)
+  }
+
+  def "requests without the token of the service are rejected"() {
+    given:
+    def repository = new SharedModelRepositoryProvider(toolingClient, service.port, directoryProvider.file('other.token')).getModelRepository(fixedRequestAttributes)
+
+    when:
+    repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    thrown(UncheckedIOException)
+    snapshotDirectoryProvider.testDirectory.listFiles().length == 0
+  }
+
+  @IgnoreIf({ !FileSystems.default.supportedFileAttributeViews().contains('posix') })
+  def "token file that other users can read is rejected"() {
+    given:
+    def sharedTokenFile = directoryProvider.file('shared.token')
+    SharedModelCacheProtocol.loadToken(sharedTokenFile)
+    Files.setPosixFilePermissions(sharedTokenFile.toPath(), PosixFilePermissions.fromString('rw-r--r--'))
+
+    when:
+    new SharedModelRepositoryProvider(toolingClient, service.port, sharedTokenFile)
+
+    then:
+    thrown(UncheckedIOException)
+  }
+
+  def "token file is created and read on file systems without POSIX permissions"() {
+    given:
+    def tokenFile = directoryProvider.file('non-posix', 'shared-model-cache.token')
+
+    when:
+    def token = SharedModelCacheProtocol.loadToken(tokenFile, false)
+
+    then:
+    token.length == 32
+    SharedModelCacheProtocol.loadToken(tokenFile, false) == token
+    tokenFile.parentFile.listFiles()*.name == ['shared-model-cache.token']
+  }
+
+  @IgnoreIf({ !FileSystems.default.supportedFileAttributeViews().contains('acl') })
+  def "token file is only accessible by its owner on file systems with access control lists"() {
+    given:
+    def tokenFile = directoryProvider.file('acl', 'shared-model-cache.token')
+
+    when:
+    SharedModelCacheProtocol.loadToken(tokenFile, false)
+
+    then:
+    def acl = Files.getFileAttributeView(tokenFile.toPath(), AclFileAttributeView)
+    acl.acl*.principal == [acl.owner]
+    acl.acl*.type == [AclEntryType.ALLOW]
+  }
+
+  def "failures of the service are rethrown on the client as equivalent exceptions"() {
+    given:
+    def output = new ByteArrayOutputStream()
+    SharedModelCacheProtocol.write(SharedModelCacheProtocol.Response.failure(failure), output)
+
+    when:
+    def response = SharedModelCacheProtocol.read(SharedModelCacheProtocol.Response, new ByteArrayInputStream(output.toByteArray()))
+    def exception = response.failure.toException()
+
+    then:
+    exception.class == failure.class
+    exception.message == failure.message
+    exception.cause.class == failure.cause.class
+    exception.cause.message == failure.cause.message
+    exception.stackTrace[0] == failure.stackTrace[0]
+
+    where:
+    failure << [
+        new BuildCancelledException('cancelled', new IllegalStateException('stopped')),
+        new BuildException('failed', new GradleConnectionException('cannot run build')),
+    ]
+  }
+
+  def "failures of classes that cannot be instantiated on the client keep their class name"() {
+    given:
+    def output = new ByteArrayOutputStream()
+    SharedModelCacheProtocol.write(SharedModelCacheProtocol.Response.failure(new GradleConnectionException('failed', new NotInstantiableException())), output)
+
+    when:
+    def response = SharedModelCacheProtocol.read(SharedModelCacheProtocol.Response, new ByteArrayInputStream(output.toByteArray()))
+    def exception = response.failure.toException()
+
+    then:
+    exception instanceof GradleConnectionException
+    exception.cause instanceof SharedModelCacheProtocol.RemoteFailureException
+    exception.cause.className == NotInstantiableException.name
+    exception.cause.toString() == "${NotInstantiableException.name}: not instantiable".toString()
+  }
+
+  static class NotInstantiableException extends RuntimeException {
+
+    NotInstantiableException() {
+      super('not instantiable')
+    }
+
+  }
+
+}
@@ -18,29 +18,56 @@ package com.gradleware.tooling.toolingutils.binding;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
-import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Describes a property that contains a value of a given type. The value can be validated through the associated {@link Validator}.
+ * <p/>
+ * A property created through {@link #createAsync(Validator, ScheduledExecutorService, long, TimeUnit)} can additionally validate its value
+ * in the background through {@link #setValueAsync(Object)}, such that validators that access the file system do not block the caller. The
+ * results of such a property are cached per value for a short time.
  *
  * @param <T> the type of the property value
  * @author Etienne Studer
  */
 public final class Property<T> {
 
+    private static final int MAX_CACHED_RESULTS = 64;
+    private static final long CACHED_RESULT_EXPIRY_SECONDS = 5;
+
     public final Object LOCK = new Object();
 
-    private T value;
+    private volatile T value;
     private final Validator<T> validator;
     private final Set<ValidationListener> listeners;
 
-    private Property(Validator<T> validator) {
+    // only set for properties that validate asynchronously
+    private final ScheduledExecutorService executor;
+    private final long debounceDelayMillis;
+    private final Cache<T, Optional<String>> cachedResults;
+
+    // incremented with every new value, validations of an older value are outdated
+    private final AtomicLong generation;
+    private Future<?> pendingValidation;
+    private SettableFuture<Optional<String>> pendingResult;
+
+    private Property(Validator<T> validator, ScheduledExecutorService executor, long debounceDelayMillis) {
         this.validator = Preconditions.checkNotNull(validator);
-        this.listeners = new LinkedHashSet<ValidationListener>();
+        this.listeners = new CopyOnWriteArraySet<ValidationListener>();
+        this.executor = executor;
+        this.debounceDelayMillis = debounceDelayMillis;
+        this.cachedResults = executor != null ? CacheBuilder.newBuilder().maximumSize(MAX_CACHED_RESULTS).expireAfterWrite(CACHED_RESULT_EXPIRY_SECONDS, TimeUnit.SECONDS).<T, Optional<String>>build() : null;
+        this.generation = new AtomicLong();
     }
 
     /**
@@ -54,27 +81,108 @@ public final class Property<T> {
 
     /**
      * Sets the given property value. The value is set regardless of whether it is valid or not. The new value is validated and the attached validation listeners are notified about
-     * the outcome of the validation.
+     * the outcome of the validation, unless the value has been set again in the meantime. Any pending asynchronous validation of a previous value is cancelled.
      *
      * @param value the property value to set, can be null
      * @return {@code Optional} that contains the error message iff the validation has failed
      */
     public Optional<String> setValue(T value) {
-        this.value = value;
-        Optional<String> errorMessage = validate();
-        for (ValidationListener listener : getListeners()) { // do not invoke listeners in synchronized block
-            listener.validationTriggered(this, errorMessage);
-        }
+        long valueGeneration = updateValue(value);
+        Optional<String> errorMessage = validate(value);
+        notifyListenersIfCurrent(errorMessage, valueGeneration);
         return errorMessage;
     }
 
+    /**
+     * Sets the given property value and validates it in the background once the debounce delay has passed without the value being set
+     * again. The attached validation listeners are notified from the executor thread about the outcome of the validation, unless the
+     * value has been set again in the meantime. If the outcome for the given value is cached, the listeners are notified immediately.
+     * <p/>
+     * Setting the value again cancels the validation of the previous value, if it has not started yet, and cancels the returned future.
+     *
+     * @param value the property value to set, can be null
+     * @return the future outcome of the validation, contains the error message iff the validation has failed
+     * @throws IllegalStateException if this property has not been created through {@link #createAsync(Validator, ScheduledExecutorService, long, TimeUnit)}
+     */
+    public ListenableFuture<Optional<String>> setValueAsync(final T value) {
+        Preconditions.checkState(this.executor != null, "Property does not support asynchronous validation.");
+
+        final SettableFuture<Optional<String>> result = SettableFuture.create();
+        final long valueGeneration;
+        Optional<String> cachedResult;
+        synchronized (this.LOCK) {
+            valueGeneration = updateValue(value);
+            cachedResult = value != null ? this.cachedResults.getIfPresent(value) : null;
+            if (cachedResult == null) {
+                this.pendingResult = result;
+                this.pendingValidation = this.executor.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        completeValidation(value, valueGeneration, result);
+                    }
+                }, this.debounceDelayMillis, TimeUnit.MILLISECONDS);
+                return result;
+            }
+        }
+
+        result.set(cachedResult);
+        notifyListenersIfCurrent(cachedResult, valueGeneration);
+        return result;
+    }
+
+    private void completeValidation(T value, long valueGeneration, SettableFuture<Optional<String>> result) {
+        if (this.generation.get() != valueGeneration) {
+            return;
+        }
+
+        Optional<String> errorMessage;
+        try {
+            errorMessage = validate(value);
+        } catch (RuntimeException e) {
+            result.setException(e);
+            return;
+        }
+        result.set(errorMessage);
+        notifyListenersIfCurrent(errorMessage, valueGeneration);
+    }
+
+    private long updateValue(T value) {
+        synchronized (this.LOCK) {
+            // the generation is incremented before the pending validation is cancelled, such that a validation that is cancelled while
+            // running always sees that its value is outdated
+            this.value = value;
+            long valueGeneration = this.generation.incrementAndGet();
+            if (this.pendingValidation != null) {
+                this.pendingValidation.cancel(false);
+                this.pendingResult.cancel(false);
+                this.pendingValidation = null;
+                this.pendingResult = null;
+            }
+            return valueGeneration;
+        }
+    }
+
     /**
      * Validates the property value.
      *
      * @return {@code Optional} that contains the error message iff the validation has failed
      */
     public Optional<String> validate() {
-        return this.validator.validate(this.value);
+        return validate(this.value);
+    }
+
+    private Optional<String> validate(T value) {
+        if (this.cachedResults == null || value == null) {
+            return this.validator.validate(value);
+        }
+
+        Optional<String> cachedResult = this.cachedResults.getIfPresent(value);
+        if (cachedResult == null) {
+            cachedResult = this.validator.validate(value);
+            this.cachedResults.put(value, cachedResult);
+        }
+        return cachedResult;
     }
 
     /**
@@ -92,9 +200,7 @@ public final class Property<T> {
      * @param listener the listener to add
      */
     public void addValidationListener(ValidationListener listener) {
-        synchronized (this.LOCK) {
-            this.listeners.add(listener);
-        }
+        this.listeners.add(listener);
     }
 
     /**
@@ -103,14 +209,18 @@ public final class Property<T> {
      * @param listener the listener to remove
      */
     public void removeValidationListener(ValidationListener listener) {
-        synchronized (this.LOCK) {
-            this.listeners.remove(listener);
-        }
+        this.listeners.remove(listener);
     }
 
-    private List<ValidationListener> getListeners() {
-        synchronized (this.LOCK) {
-            return ImmutableList.copyOf(this.listeners);
+    private void notifyListenersIfCurrent(Optional<String> errorMessage, long valueGeneration) {
+        // do not invoke listeners in synchronized block, a listener that waits for another thread which sets a value would deadlock
+        // the generation is checked again before each listener is notified, such that the outcome of an outdated value is dropped as
+        // soon as a newer value has been set, the outcome of the newer value is notified separately
+        for (ValidationListener listener : this.listeners) {
+            if (this.generation.get() != valueGeneration) {
+                return;
+            }
+            listener.validationTriggered(this, errorMessage);
         }
     }
 
@@ -122,7 +232,25 @@ public final class Property<T> {
      * @return the new instance
      */
     public static <T> Property<T> create(Validator<T> validator) {
-        return new Property<T>(validator);
+        return new Property<T>(validator, null, 0);
+    }
+
+    /**
+     * Creates a new instance that additionally supports asynchronous validation through {@link #setValueAsync(Object)}. The outcome of
+     * validating a given non-null value is cached for a few seconds, also when validating through {@link #setValue(Object)},
+     * {@link #validate()}, and {@link #isValid()}.
+     *
+     * @param validator the validator through which the the property value can be validated
+     * @param executor the executor on which the asynchronous validations are run
+     * @param debounceDelay the delay after which a value set asynchronously is validated if it has not been set again
+     * @param timeUnit the time unit of the debounce delay
+     * @param <T> the type of the validated values
+     * @return the new instance
+     */
+    public static <T> Property<T> createAsync(Validator<T> validator, ScheduledExecutorService executor, long debounceDelay, TimeUnit timeUnit) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkArgument(debounceDelay >= 0, "Debounce delay must not be negative.");
+        return new Property<T>(validator, executor, timeUnit.toMillis(debounceDelay));
     }
 
 }
@@ -17,11 +17,12 @@
 package com.gradleware.tooling.toolingutils.distribution;
 
 import com.google.common.base.Charsets;
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
-import com.google.common.collect.FluentIterable;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.io.CharSource;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Closeables;
@@ -36,18 +37,31 @@ import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Provides information about the Gradle versions available from services.gradle.org. The version information can optionally be cached on the local file system.
+ * An out-of-date cache is revalidated with a conditional request, using the ETag and Last-Modified validators returned by the previous request.
  *
  * @author Etienne Studer
  */
@@ -66,39 +80,142 @@ public final class PublishedGradleVersions {
     private static final String RC_FOR = "rcFor";
     private static final String BROKEN = "broken";
 
+    // cache validator keys
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    // flags of the version index
+    private static final int FLAG_SNAPSHOT = 1;
+    private static final int FLAG_RC = 2;
+    private static final int FLAG_ACTIVE_RC = 4;
+    private static final int FLAG_BROKEN = 8;
+
+    // header of the binary version index file
+    private static final int INDEX_MAGIC = 0x47564958;
+    private static final int INDEX_FORMAT_VERSION = 1;
+
+    // the first Gradle version that supports composite builds
+    private static final GradleVersion COMPOSITE_BUILD_SUPPORT = GradleVersion.version("3.3");
+
+    private static final Set<File> CACHE_FILES_BEING_UPDATED = Sets.newConcurrentHashSet();
+
     private static final Logger LOG = LoggerFactory.getLogger(PublishedGradleVersions.class);
 
-    private final List<Map<String, String>> versions;
+    private final GradleVersion[] allVersions;
+    private final byte[] flags;
+    private final ImmutableList<GradleVersion> versions;
+
+    private PublishedGradleVersions(String[] versionStrings, byte[] flags) {
+        // parse each version once and sort the versions from the newest to the oldest version
+        final GradleVersion[] parsedVersions = new GradleVersion[versionStrings.length];
+        List<Integer> order = Lists.newArrayListWithCapacity(versionStrings.length);
+        for (int i = 0; i < versionStrings.length; i++) {
+            try {
+                parsedVersions[i] = GradleVersion.version(versionStrings[i]);
+                order.add(i);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Ignoring invalid Gradle version " + versionStrings[i]);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return parsedVersions[o2].compareTo(parsedVersions[o1]);
+            }
+        });
+
+        this.allVersions = new GradleVersion[order.size()];
+        this.flags = new byte[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            this.allVersions[i] = parsedVersions[order.get(i)];
+            this.flags[i] = flags[order.get(i)];
+        }
 
-    private PublishedGradleVersions(List<Map<String, String>> versions) {
-        this.versions = ImmutableList.copyOf(versions);
+        GradleVersion minimumSupportedVersion = GradleVersion.version(MINIMUM_SUPPORTED_GRADLE_VERSION);
+        ImmutableList.Builder<GradleVersion> versions = ImmutableList.builder();
+        for (int i = 0; i < this.allVersions.length; i++) {
+            boolean finalOrActiveRc = (this.flags[i] & FLAG_ACTIVE_RC) != 0 || (this.flags[i] & FLAG_RC) == 0;
+            boolean brokenOrSnapshot = (this.flags[i] & (FLAG_BROKEN | FLAG_SNAPSHOT)) != 0;
+            if (finalOrActiveRc && !brokenOrSnapshot && this.allVersions[i].compareTo(minimumSupportedVersion) >= 0) {
+                versions.add(this.allVersions[i]);
+            }
+        }
+        this.versions = versions.build();
     }
 
     /**
-     * Returns all final Gradle versions plus the latest active release candidate, if available.
+     * Returns all final Gradle versions plus the latest active release candidate, if available. The versions are ordered from the newest
+     * to the oldest version.
      *
      * @return the matching versions
      */
     @ImmutableCollection
     public List<GradleVersion> getVersions() {
-        return FluentIterable.from(this.versions).filter(new Predicate<Map<String, String>>() {
-            @Override
-            public boolean apply(Map<String, String> input) {
-                return (Boolean.valueOf(input.get(ACTIVE_RC)) || input.get(RC_FOR).equals("")) &&
-                        !Boolean.valueOf(input.get(BROKEN)) &&
-                        !Boolean.valueOf(input.get(SNAPSHOT));
-            }
-        }).transform(new Function<Map<String, String>, GradleVersion>() {
-            @Override
-            public GradleVersion apply(Map<String, String> input) {
-                return GradleVersion.version(input.get(VERSION));
+        return this.versions;
+    }
+
+    /**
+     * Returns the newest final Gradle version.
+     *
+     * @return the latest release, absent if there is no final version
+     */
+    public Optional<GradleVersion> getLatestRelease() {
+        for (int i = 0; i < this.allVersions.length; i++) {
+            if ((this.flags[i] & (FLAG_RC | FLAG_BROKEN | FLAG_SNAPSHOT)) == 0) {
+                return Optional.of(this.allVersions[i]);
             }
-        }).filter(new Predicate<GradleVersion>() {
-            @Override
-            public boolean apply(GradleVersion input) {
-                return input.compareTo(GradleVersion.version(MINIMUM_SUPPORTED_GRADLE_VERSION)) >= 0;
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Returns the versions of {@link #getVersions()} that lie within the given range.
+     *
+     * @param minVersion the minimum version, inclusive
+     * @param maxVersion the maximum version, inclusive
+     * @return the matching versions, ordered from the newest to the oldest version
+     */
+    @ImmutableCollection
+    public List<GradleVersion> getVersions(GradleVersion minVersion, GradleVersion maxVersion) {
+        Preconditions.checkNotNull(minVersion);
+        Preconditions.checkNotNull(maxVersion);
+        int fromIndex = firstIndexNotNewerThan(maxVersion);
+        int toIndex = firstIndexNotNewerThan(minVersion);
+        // include the minimum version itself
+        if (toIndex < this.versions.size() && this.versions.get(toIndex).equals(minVersion)) {
+            toIndex++;
+        }
+        return fromIndex < toIndex ? this.versions.subList(fromIndex, toIndex) : ImmutableList.<GradleVersion>of();
+    }
+
+    /**
+     * Returns the versions of {@link #getVersions()} that support composite builds.
+     *
+     * @return the matching versions, ordered from the newest to the oldest version
+     */
+    @ImmutableCollection
+    public List<GradleVersion> getVersionsSupportingCompositeBuilds() {
+        int toIndex = firstIndexNotNewerThan(COMPOSITE_BUILD_SUPPORT);
+        if (toIndex < this.versions.size() && this.versions.get(toIndex).equals(COMPOSITE_BUILD_SUPPORT)) {
+            toIndex++;
+        }
+        return this.versions.subList(0, toIndex);
+    }
+
+    // returns the index of the first version that is not newer than the given version, the versions being sorted from newest to oldest
+    private int firstIndexNotNewerThan(GradleVersion version) {
+        int low = 0;
+        int high = this.versions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.versions.get(middle).compareTo(version) > 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
-        }).toList();
+        }
+        return low;
     }
 
     /**
@@ -108,72 +225,166 @@ public final class PublishedGradleVersions {
      * @return the new instance
      */
     public static PublishedGradleVersions create(LookupStrategy lookupStratgy) {
+        return create(lookupStratgy, createURL(VERSIONS_URL), getCacheFile());
+    }
+
+    /**
+     * Creates a new instance based on the version information available at the given end-point.
+     *
+     * @param lookupStratgy the strategy to use when retrieving the versions
+     * @param versionsUrl the end-point that provides the version information in the format of services.gradle.org
+     * @param cacheFile the file in which to cache the version information
+     * @return the new instance
+     */
+    public static PublishedGradleVersions create(LookupStrategy lookupStratgy, URL versionsUrl, File cacheFile) {
+        Preconditions.checkNotNull(lookupStratgy);
+        Preconditions.checkNotNull(versionsUrl);
+        Preconditions.checkNotNull(cacheFile);
+
         if (lookupStratgy == LookupStrategy.REMOTE) {
             LOG.info("Gradle version information caching disabled. Remote download required.");
-            String json = downloadVersionInformation();
+            String json = downloadVersionInformation(versionsUrl, null, false).get();
             return create(json);
         }
-        File cacheFile = getCacheFile();
         if (!cacheFile.isFile() || !cacheFile.exists()) {
             LOG.info("Gradle version information cache is not available. Remote download required.");
-            return tryToDownloadAndCacheVersions(cacheFile, lookupStratgy);
+            return tryToDownloadAndCacheVersions(versionsUrl, cacheFile, lookupStratgy);
         }
 
         if (cacheFile.lastModified() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)) {
             LOG.info("Gradle version information cache is up-to-date. Trying to read.");
-            return tryToReadUpToDateVersionsFile(cacheFile, lookupStratgy);
+            return tryToReadUpToDateVersionsFile(versionsUrl, cacheFile, lookupStratgy);
+        } else if (lookupStratgy == LookupStrategy.CACHED_WITH_BACKGROUND_REFRESH) {
+            LOG.info("Gradle version information cache is out-of-date. Using outdated cache while updating in the background.");
+            return tryToReadOutdatedVersionsFileAndUpdateInBackground(versionsUrl, cacheFile, lookupStratgy);
         } else {
             LOG.info("Gradle version information cache is out-of-date. Trying to update.");
-            return tryToUpdateOutdatedVersionsFile(cacheFile, lookupStratgy);
+            return tryToUpdateOutdatedVersionsFile(versionsUrl, cacheFile, lookupStratgy);
         }
     }
 
-    private static PublishedGradleVersions tryToReadUpToDateVersionsFile(File cacheFile, LookupStrategy lookupStratgy) {
-        Optional<String> cachedVersions = readCacheVersionsFile(cacheFile);
+    private static PublishedGradleVersions tryToReadUpToDateVersionsFile(URL versionsUrl, File cacheFile, LookupStrategy lookupStratgy) {
+        Optional<PublishedGradleVersions> cachedVersions = readCacheVersionsFile(cacheFile);
         if (cachedVersions.isPresent()) {
-            return create(cachedVersions.get());
+            return cachedVersions.get();
         } else {
             LOG.error("Cannot read Gradle version information cache. Remote download required.");
-            return tryToDownloadAndCacheVersions(cacheFile, lookupStratgy);
+            return tryToDownloadAndCacheVersions(versionsUrl, cacheFile, lookupStratgy);
         }
     }
 
-    private static PublishedGradleVersions tryToUpdateOutdatedVersionsFile(File cacheFile, LookupStrategy lookupStratgy) {
-        try {
-            return tryToDownloadAndCacheVersions(cacheFile, lookupStratgy);
-        } catch (RuntimeException e) {
-            Optional<String> cachedVersions = readCacheVersionsFile(cacheFile);
-            if (cachedVersions.isPresent()) {
+    private static PublishedGradleVersions tryToReadOutdatedVersionsFileAndUpdateInBackground(final URL versionsUrl, final File cacheFile, LookupStrategy lookupStratgy) {
+        Optional<PublishedGradleVersions> cachedVersions = readCacheVersionsFile(cacheFile);
+        if (!cachedVersions.isPresent()) {
+            LOG.error("Cannot read Gradle version information cache. Remote download required.");
+            return tryToDownloadAndCacheVersions(versionsUrl, cacheFile, lookupStratgy);
+        }
+
+        // at most one update per cache file is running at any time
+        if (CACHE_FILES_BEING_UPDATED.add(cacheFile)) {
+            Thread updateThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        updateVersionsFile(versionsUrl, cacheFile);
+                    } catch (RuntimeException e) {
+                        LOG.info("Updating Gradle version information cache in the background failed.", e);
+                    } finally {
+                        CACHE_FILES_BEING_UPDATED.remove(cacheFile);
+                    }
+                }
+            }, "Gradle version information cache update");
+            updateThread.setDaemon(true);
+            updateThread.start();
+        }
+        return cachedVersions.get();
+    }
+
+    private static PublishedGradleVersions tryToUpdateOutdatedVersionsFile(URL versionsUrl, File cacheFile, LookupStrategy lookupStratgy) {
+        RuntimeException updateFailure = null;
+        if (lookupStratgy != LookupStrategy.CACHED_ONLY) {
+            try {
+                Optional<PublishedGradleVersions> updatedVersions = updateVersionsFile(versionsUrl, cacheFile);
+                if (updatedVersions.isPresent()) {
+                    return updatedVersions.get();
+                }
+            } catch (RuntimeException e) {
                 LOG.info("Updating Gradle version information cache failed. Using outdated cache.");
-                return create(cachedVersions.get());
-            } else {
-                throw new IllegalStateException("Cannot collect Gradle version information remotely nor locally.", e);
+                updateFailure = e;
             }
         }
+
+        Optional<PublishedGradleVersions> cachedVersions = readCacheVersionsFile(cacheFile);
+        if (cachedVersions.isPresent()) {
+            return cachedVersions.get();
+        } else {
+            throw new IllegalStateException("Cannot collect Gradle version information remotely nor locally.", updateFailure);
+        }
     }
 
-    private static PublishedGradleVersions tryToDownloadAndCacheVersions(File cacheFile, LookupStrategy lookupStratgy) {
+    /*
+     * Revalidates the cache file with a conditional request. Returns the downloaded version information if it has changed, or nothing
+     * if the cache file is still valid, in which case the cache file is marked as up-to-date.
+     */
+    private static Optional<PublishedGradleVersions> updateVersionsFile(URL versionsUrl, File cacheFile) {
+        Optional<String> json = downloadVersionInformation(versionsUrl, cacheFile, true);
+        if (json.isPresent()) {
+            return Optional.of(createAndCache(json.get(), cacheFile));
+        } else {
+            LOG.info("Gradle version information has not changed since the last update.");
+            //noinspection ResultOfMethodCallIgnored
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return Optional.absent();
+        }
+    }
+
+    private static PublishedGradleVersions tryToDownloadAndCacheVersions(URL versionsUrl, File cacheFile, LookupStrategy lookupStratgy) {
         if (lookupStratgy == LookupStrategy.CACHED_ONLY) {
             throw new IllegalStateException("Could not get Gradle version information from cache and remote update was disabled");
         }
-        String json = downloadVersionInformation();
-        storeCacheVersionsFile(json, cacheFile);
-        return create(json);
+        // the request is not conditional since there is no valid cache file to fall back to, but the validators are stored for the next update
+        String json = downloadVersionInformation(versionsUrl, cacheFile, false).get();
+        return createAndCache(json, cacheFile);
     }
 
-    private static String downloadVersionInformation() {
+    /*
+     * Downloads the version information. If a cache file is given, the validators of the downloaded version information are stored along
+     * with the cache file. If the request is conditional, it is sent with the validators stored along with the cache file, and nothing is
+     * returned if the version information has not changed.
+     */
+    private static Optional<String> downloadVersionInformation(URL versionsUrl, File cacheFile, boolean conditional) {
         HttpURLConnection connection = null;
         InputStreamReader reader = null;
         try {
-            URL url = createURL(VERSIONS_URL);
-            connection = (HttpURLConnection) url.openConnection();
+            connection = (HttpURLConnection) versionsUrl.openConnection();
             connection.setConnectTimeout(10000);
             connection.setReadTimeout(10000);
+            if (cacheFile != null && conditional) {
+                Properties validators = readValidators(cacheFile);
+                String eTag = validators.getProperty(ETAG);
+                if (eTag != null) {
+                    connection.setRequestProperty("If-None-Match", eTag);
+                }
+                String lastModified = validators.getProperty(LAST_MODIFIED);
+                if (lastModified != null) {
+                    connection.setIfModifiedSince(Long.parseLong(lastModified));
+                }
+            }
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return Optional.absent();
+            }
             reader = new InputStreamReader(connection.getInputStream(), Charsets.UTF_8);
-            return CharStreams.toString(reader);
+            String json = CharStreams.toString(reader);
+            if (cacheFile != null) {
+                storeValidators(connection, cacheFile);
+            }
+            return Optional.of(json);
         } catch (IOException e) {
             throw new UncheckedIOException("Cannot download published Gradle versions.", e);
             // throw an exception if version information cannot be downloaded since we need this information
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid Gradle version information cache validators.", e);
         } finally {
             try {
                 Closeables.close(reader, false);
@@ -186,21 +397,103 @@ public final class PublishedGradleVersions {
         }
     }
 
+    private static Properties readValidators(File cacheFile) {
+        Properties validators = new Properties();
+        File validatorsFile = getValidatorsFile(cacheFile);
+        if (validatorsFile.isFile()) {
+            Reader reader = null;
+            try {
+                reader = Files.newReader(validatorsFile, Charsets.UTF_8);
+                validators.load(reader);
+            } catch (IOException e) {
+                LOG.error("Cannot read Gradle version information cache validators.", e);
+                // do not throw an exception if the validators cannot be read, the request is just not conditional
+            } finally {
+                try {
+                    Closeables.close(reader, true);
+                } catch (IOException e) {
+                    // cannot happen since exceptions are swallowed
+                }
+            }
+        }
+        return validators;
+    }
+
+    private static void storeValidators(HttpURLConnection connection, File cacheFile) {
+        Properties validators = new Properties();
+        String eTag = connection.getHeaderField("ETag");
+        if (eTag != null) {
+            validators.setProperty(ETAG, eTag);
+        }
+        long lastModified = connection.getLastModified();
+        if (lastModified > 0) {
+            validators.setProperty(LAST_MODIFIED, String.valueOf(lastModified));
+        }
+
+        File validatorsFile = getValidatorsFile(cacheFile);
+        if (validators.isEmpty()) {
+            // the stale validators of a previous download must not be sent along with the next request
+            if (validatorsFile.exists() && !validatorsFile.delete()) {
+                LOG.error("Cannot delete Gradle version information cache validators {}.", validatorsFile);
+            }
+            return;
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        cacheFile.getParentFile().mkdirs();
+        Writer writer = null;
+        try {
+            writer = Files.newWriter(validatorsFile, Charsets.UTF_8);
+            validators.store(writer, null);
+        } catch (IOException e) {
+            LOG.error("Cannot write Gradle version information cache validators.", e);
+            // do not throw an exception if the validators cannot be written, the next request is just not conditional
+        } finally {
+            try {
+                Closeables.close(writer, true);
+            } catch (IOException e) {
+                // cannot happen since exceptions are swallowed
+            }
+        }
+    }
+
+    private static File getValidatorsFile(File cacheFile) {
+        return new File(cacheFile.getParentFile(), cacheFile.getName() + ".properties");
+    }
+
     private static void storeCacheVersionsFile(String json, File cacheFile) {
         //noinspection ResultOfMethodCallIgnored
         cacheFile.getParentFile().mkdirs();
 
         try {
-            CharSource.wrap(json).copyTo(Files.asCharSink(cacheFile, Charsets.UTF_8));
+            // write to a temporary file first so that concurrent readers never see a partially written cache file
+            File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+            CharSource.wrap(json).copyTo(Files.asCharSink(tempFile, Charsets.UTF_8));
+            Files.move(tempFile, cacheFile);
         } catch (IOException e) {
             LOG.error("Cannot write Gradle version information cache file.", e);
             // do not throw an exception if cache file cannot be written to be more robust against file system problems
         }
     }
 
-    private static Optional<String> readCacheVersionsFile(File cacheFile) {
+    private static PublishedGradleVersions createAndCache(String json, File cacheFile) {
+        PublishedGradleVersions versions = create(json);
+        storeCacheVersionsFile(json, cacheFile);
+        storeIndexFile(versions, cacheFile);
+        return versions;
+    }
+
+    private static Optional<PublishedGradleVersions> readCacheVersionsFile(File cacheFile) {
+        // the binary index spares parsing the JSON as long as it matches the cache file
+        Optional<PublishedGradleVersions> indexedVersions = readIndexFile(cacheFile);
+        if (indexedVersions.isPresent()) {
+            return indexedVersions;
+        }
+
         try {
-            return Optional.of(Files.toString(cacheFile, Charsets.UTF_8));
+            PublishedGradleVersions versions = create(Files.toString(cacheFile, Charsets.UTF_8));
+            storeIndexFile(versions, cacheFile);
+            return Optional.of(versions);
         } catch (IOException e) {
             LOG.error("Cannot read found Gradle version information cache file.", e);
             // do not throw an exception if cache file cannot be read to be more robust against file system problems
@@ -215,8 +508,92 @@ public final class PublishedGradleVersions {
         };
         List<Map<String, String>> versions = gson.fromJson(json, typeToken.getType());
 
+        // convert the versions to the compact representation of the index
+        String[] versionStrings = new String[versions.size()];
+        byte[] flags = new byte[versions.size()];
+        for (int i = 0; i < versions.size(); i++) {
+            Map<String, String> version = versions.get(i);
+            versionStrings[i] = version.get(VERSION);
+            flags[i] = (byte) ((Boolean.valueOf(version.get(SNAPSHOT)) ? FLAG_SNAPSHOT : 0) |
+                    (!Strings.isNullOrEmpty(version.get(RC_FOR)) ? FLAG_RC : 0) |
+                    (Boolean.valueOf(version.get(ACTIVE_RC)) ? FLAG_ACTIVE_RC : 0) |
+                    (Boolean.valueOf(version.get(BROKEN)) ? FLAG_BROKEN : 0));
+        }
+
         // create instance
-        return new PublishedGradleVersions(versions);
+        return new PublishedGradleVersions(versionStrings, flags);
+    }
+
+    private static Optional<PublishedGradleVersions> readIndexFile(File cacheFile) {
+        File indexFile = getIndexFile(cacheFile);
+        if (!indexFile.isFile()) {
+            return Optional.absent();
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_FORMAT_VERSION ||
+                    input.readLong() != cacheFile.length() || input.readLong() != cacheFile.lastModified()) {
+                LOG.info("Gradle version index cache file is out-of-date.");
+                return Optional.absent();
+            }
+            int count = input.readInt();
+            String[] versionStrings = new String[count];
+            byte[] flags = new byte[count];
+            for (int i = 0; i < count; i++) {
+                versionStrings[i] = input.readUTF();
+                flags[i] = input.readByte();
+            }
+            return Optional.of(new PublishedGradleVersions(versionStrings, flags));
+        } catch (IOException e) {
+            LOG.info("Cannot read Gradle version index cache file.", e);
+            // do not throw an exception if the index cannot be read, the version information is parsed from the cache file instead
+            return Optional.absent();
+        } finally {
+            try {
+                Closeables.close(input, true);
+            } catch (IOException e) {
+                // cannot happen since exceptions are swallowed
+            }
+        }
+    }
+
+    private static void storeIndexFile(PublishedGradleVersions versions, File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+
+        File tempFile = new File(cacheFile.getParentFile(), getIndexFile(cacheFile).getName() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_FORMAT_VERSION);
+            output.writeLong(cacheFile.length());
+            output.writeLong(cacheFile.lastModified());
+            output.writeInt(versions.allVersions.length);
+            for (int i = 0; i < versions.allVersions.length; i++) {
+                output.writeUTF(versions.allVersions[i].getVersion());
+                output.writeByte(versions.flags[i]);
+            }
+            output.close();
+            output = null;
+            Files.move(tempFile, getIndexFile(cacheFile));
+        } catch (IOException e) {
+            LOG.error("Cannot write Gradle version index cache file.", e);
+            // do not throw an exception if the index cannot be written, the version information is parsed from the cache file instead
+        } finally {
+            try {
+                Closeables.close(output, true);
+            } catch (IOException e) {
+                // cannot happen since exceptions are swallowed
+            }
+        }
+    }
+
+    private static File getIndexFile(File cacheFile) {
+        return new File(cacheFile.getParentFile(), cacheFile.getName() + ".idx");
     }
 
     private static URL createURL(String url) {
@@ -247,6 +624,12 @@ public final class PublishedGradleVersions {
          * Fail if the remote call fails.
          */
         REMOTE_IF_NOT_CACHED,
+        /**
+         * Look in the local cache file first and use it even if it is out-of-date. If the cache file is out-of-date, update it in the
+         * background with a conditional remote call. Try a remote call if the cache file cannot be read.
+         * Fail if the remote call fails.
+         */
+        CACHED_WITH_BACKGROUND_REFRESH,
         /**
          * Disable caching, execute a remote call directly.
          * Fail if the remote call fails.
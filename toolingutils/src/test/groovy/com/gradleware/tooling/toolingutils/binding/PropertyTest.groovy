@@ -19,9 +19,21 @@ package com.gradleware.tooling.toolingutils.binding
 import com.google.common.base.Optional
 import spock.lang.Specification
 
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
 @SuppressWarnings("GroovyAccessibility")
 class PropertyTest extends Specification {
 
+  ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor()
+
+  def cleanup() {
+    executor.shutdownNow()
+  }
+
   def "property is always created with non-null validator"() {
     setup:
     def validator = Mock(Validator)
@@ -152,4 +164,131 @@ class PropertyTest extends Specification {
     property.listeners == [] as Set
   }
 
+  def "asynchronous validation notifies validation listeners once the value has been validated"() {
+    given:
+    def validator = Mock(Validator)
+    1 * validator.validate('alpha') >> { Optional.of('invalid') }
+    Property property = Property.createAsync(validator, executor, 10, TimeUnit.MILLISECONDS)
+
+    def notified = new CountDownLatch(1)
+    def listener = { source, errorMessage -> notified.countDown() } as ValidationListener
+    property.addValidationListener(listener)
+
+    when:
+    def errorMessage = property.setValueAsync('alpha')
+
+    then:
+    property.value == 'alpha'
+    errorMessage.get(5, TimeUnit.SECONDS) == Optional.of('invalid')
+    notified.await(5, TimeUnit.SECONDS)
+  }
+
+  def "asynchronous validation of an outdated value is cancelled"() {
+    given:
+    def validator = Mock(Validator)
+    0 * validator.validate('alpha')
+    1 * validator.validate('beta') >> { Optional.absent() }
+    Property property = Property.createAsync(validator, executor, 1, TimeUnit.SECONDS)
+
+    def notifiedValues = []
+    def listener = { source, errorMessage -> notifiedValues << source.value } as ValidationListener
+    property.addValidationListener(listener)
+
+    when:
+    def outdated = property.setValueAsync('alpha')
+    def current = property.setValueAsync('beta')
+    current.get(5, TimeUnit.SECONDS)
+    outdated.get()
+
+    then:
+    thrown(CancellationException)
+    notifiedValues == ['beta']
+  }
+
+  def "listeners are not notified about the outcome of a value once a newer value has been set"() {
+    given:
+    def validator = { value -> Optional.of(value) } as Validator
+    Property property = Property.createAsync(validator, executor, 0, TimeUnit.MILLISECONDS)
+
+    def notifying = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    def firstNotifiedValues = Collections.synchronizedList([])
+    def secondNotifiedValues = Collections.synchronizedList([])
+    property.addValidationListener({ source, errorMessage ->
+      firstNotifiedValues << errorMessage.get()
+      if (errorMessage.get() == 'alpha') {
+        notifying.countDown()
+        release.await(5, TimeUnit.SECONDS)
+      }
+    } as ValidationListener)
+    property.addValidationListener({ source, errorMessage -> secondNotifiedValues << errorMessage.get() } as ValidationListener)
+
+    when:
+    property.setValueAsync('alpha')
+    notifying.await(5, TimeUnit.SECONDS)
+    def setter = Thread.start { property.setValue('beta') }
+    while (property.value != 'beta') {
+      Thread.sleep(10)
+    }
+    release.countDown()
+    setter.join(5000)
+
+    then:
+    firstNotifiedValues == ['alpha', 'beta']
+    secondNotifiedValues == ['beta']
+  }
+
+  def "listeners can wait for another thread that sets a new value"() {
+    given:
+    def validator = { value -> Optional.of(value) } as Validator
+    Property property = Property.createAsync(validator, executor, 0, TimeUnit.MILLISECONDS)
+
+    def setterFinished = new CountDownLatch(1)
+    property.addValidationListener({ source, errorMessage ->
+      if (errorMessage.get() == 'alpha') {
+        def setter = Thread.start { property.setValue('beta') }
+        setter.join(5000)
+        if (!setter.alive) {
+          setterFinished.countDown()
+        }
+      }
+    } as ValidationListener)
+
+    when:
+    property.setValueAsync('alpha')
+
+    then:
+    setterFinished.await(10, TimeUnit.SECONDS)
+    property.value == 'beta'
+  }
+
+  def "asynchronous validation results are cached per value"() {
+    given:
+    def validator = Mock(Validator)
+    1 * validator.validate('alpha') >> { Optional.absent() }
+    1 * validator.validate('beta') >> { Optional.of('invalid') }
+    Property property = Property.createAsync(validator, executor, 0, TimeUnit.MILLISECONDS)
+
+    when:
+    property.setValueAsync('alpha').get(5, TimeUnit.SECONDS)
+    property.setValueAsync('beta').get(5, TimeUnit.SECONDS)
+    def cached = property.setValueAsync('alpha')
+
+    then:
+    cached.isDone()
+    cached.get() == Optional.absent()
+    property.isValid()
+  }
+
+  def "asynchronous validation is not supported by properties created without executor"() {
+    given:
+    Property property = Property.create(Mock(Validator))
+
+    when:
+    property.setValueAsync('alpha')
+
+    then:
+    thrown(IllegalStateException)
+  }
+
 }
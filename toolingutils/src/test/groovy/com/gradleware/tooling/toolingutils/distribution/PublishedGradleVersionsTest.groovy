@@ -16,10 +16,17 @@
 
 package com.gradleware.tooling.toolingutils.distribution
 
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
 import org.gradle.util.GradleVersion
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
 import spock.lang.Shared;
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 import com.gradleware.tooling.toolingutils.distribution.PublishedGradleVersions.LookupStrategy;
 
 class PublishedGradleVersionsTest extends Specification {
@@ -93,4 +100,149 @@ class PublishedGradleVersionsTest extends Specification {
         then:
         thrown IllegalStateException
     }
+
+    @Rule TemporaryFolder tempFolder
+
+    def "An outdated cache file is revalidated with a conditional request"() {
+        setup:
+        def requests = []
+        def server = startServer { HttpExchange exchange ->
+            requests << exchange.requestHeaders.getFirst('If-None-Match')
+            exchange.responseHeaders.add('ETag', '"v1"')
+            if (exchange.requestHeaders.getFirst('If-None-Match') == '"v1"') {
+                exchange.sendResponseHeaders(304, -1)
+            } else {
+                respond(exchange, versionsJson())
+            }
+        }
+        def cacheFile = new File(tempFolder.root, 'versions.json')
+        def versionsUrl = new URL("http://localhost:${server.address.port}/versions")
+
+        when:
+        PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+        cacheFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        def publishedVersions = PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+
+        then:
+        publishedVersions.versions.size() == 18
+        requests == [null, '"v1"']
+        cacheFile.lastModified() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "Validators of a previous download are dropped if the current download carries none"() {
+        setup:
+        def requests = []
+        def server = startServer { HttpExchange exchange ->
+            requests << exchange.requestHeaders.getFirst('If-None-Match')
+            if (requests.size() == 1) {
+                exchange.responseHeaders.add('ETag', '"v1"')
+            }
+            respond(exchange, versionsJson())
+        }
+        def cacheFile = new File(tempFolder.root, 'versions.json')
+        def versionsUrl = new URL("http://localhost:${server.address.port}/versions")
+
+        when:
+        PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+        cacheFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+        cacheFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+
+        then:
+        requests == [null, '"v1"', null]
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "An outdated cache file is used right away and updated in the background"() {
+        setup:
+        def server = startServer { HttpExchange exchange ->
+            respond(exchange, '[{"version":"2.4","snapshot":"false","activeRc":"false","rcFor":"","broken":"false"}]')
+        }
+        def cacheFile = new File(tempFolder.root, 'versions.json')
+        cacheFile.text = versionsJson()
+        cacheFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        def versionsUrl = new URL("http://localhost:${server.address.port}/versions")
+
+        when:
+        def publishedVersions = PublishedGradleVersions.create(LookupStrategy.CACHED_WITH_BACKGROUND_REFRESH, versionsUrl, cacheFile)
+
+        then:
+        publishedVersions.versions.size() == 18
+
+        when:
+        def deadline = System.currentTimeMillis() + 10000
+        while (!cacheFile.text.contains('"2.4"') && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+
+        then:
+        PublishedGradleVersions.create(LookupStrategy.CACHED_ONLY, versionsUrl, cacheFile).versions == [GradleVersion.version('2.4')]
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "The parsed versions support queries for the latest release, version ranges, and composite build support"() {
+        setup:
+        PublishedGradleVersions publishedVersions = PublishedGradleVersions.create(versionsJson())
+
+        expect:
+        publishedVersions.latestRelease.get() == GradleVersion.version('2.2.1')
+        publishedVersions.getVersions(GradleVersion.version('2.0'), GradleVersion.version('2.2')) == ['2.2', '2.1', '2.0'].collect { GradleVersion.version(it) }
+        publishedVersions.getVersions(GradleVersion.version('1.9.5'), GradleVersion.version('1.10.5')) == [GradleVersion.version('1.10')]
+        publishedVersions.getVersions(GradleVersion.version('3.0'), GradleVersion.version('4.0')) == []
+        publishedVersions.versionsSupportingCompositeBuilds == []
+    }
+
+    def "A binary index of the versions is stored next to the cache file and used instead of parsing the cache file"() {
+        setup:
+        def server = startServer { HttpExchange exchange -> respond(exchange, versionsJson()) }
+        def cacheFile = new File(tempFolder.root, 'versions.json')
+        def versionsUrl = new URL("http://localhost:${server.address.port}/versions")
+
+        when:
+        PublishedGradleVersions.create(LookupStrategy.REMOTE_IF_NOT_CACHED, versionsUrl, cacheFile)
+
+        then:
+        new File(tempFolder.root, 'versions.json.idx').isFile()
+
+        when:
+        // replace the cache file with unparseable content of the same size and time stamp
+        def lastModified = cacheFile.lastModified()
+        cacheFile.text = ' ' * cacheFile.length()
+        cacheFile.setLastModified(lastModified)
+        def publishedVersions = PublishedGradleVersions.create(LookupStrategy.CACHED_ONLY, versionsUrl, cacheFile)
+
+        then:
+        publishedVersions.versions.size() == 18
+
+        cleanup:
+        server.stop(0)
+    }
+
+    private static HttpServer startServer(Closure handler) {
+        HttpServer server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/versions', { HttpExchange exchange ->
+            handler(exchange)
+            exchange.close()
+        } as HttpHandler)
+        server.start()
+        server
+    }
+
+    private static void respond(HttpExchange exchange, String body) {
+        byte[] bytes = body.getBytes('UTF-8')
+        exchange.sendResponseHeaders(200, bytes.length)
+        exchange.responseBody.write(bytes)
+    }
+
+    private static String versionsJson() {
+        PublishedGradleVersions.class.getResource("versions_20150202.json").text
+    }
 }